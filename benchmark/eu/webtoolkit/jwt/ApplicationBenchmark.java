@@ -0,0 +1,26 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+/**
+ * Benchmarks the construction of an application and its widget tree.
+ */
+public class ApplicationBenchmark {
+	@Benchmark
+	public Object emptyApplication() {
+		BenchmarkSession session = new BenchmarkSession(true);
+		session.close();
+		return session;
+	}
+
+	@Benchmark
+	public Object application() {
+		BenchmarkSession session = new BenchmarkSession(true);
+		session.buildPage(20);
+		session.close();
+		return session;
+	}
+}
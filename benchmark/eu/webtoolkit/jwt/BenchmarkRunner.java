@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks of the rendering and event pipeline.
+ * <p>
+ * Every benchmark is run for a number of warmup iterations, followed by a
+ * number of measurement iterations which each last a fixed time. For every
+ * benchmark, the average time and the number of bytes allocated per operation
+ * are reported, as well as the allocation rate.
+ * <p>
+ * Benchmark methods are invoked through reflection. The time and allocations
+ * of such a call, measured with an empty method of the same return type
+ * (a <code>long</code> result is boxed), are subtracted from the results.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * BenchmarkRunner [-wi warmupIterations] [-i iterations] [-r iterationMillis] [regexp...]
+ * </pre>
+ *
+ * Only the benchmarks of which the name (<code>Class.method</code>) matches
+ * one of the regular expressions are run, or all of them if none is given.
+ */
+public class BenchmarkRunner {
+	private static final Class<?>[] BENCHMARKS = {
+		ApplicationBenchmark.class,
+		RenderBenchmark.class,
+		EventBenchmark.class,
+		DomElementBenchmark.class,
+		EscapeOStreamBenchmark.class,
+		WTemplateBenchmark.class,
+		WTableViewBenchmark.class,
+		WCartesianChartBenchmark.class,
+		WTextRendererBenchmark.class,
+		SignalBenchmark.class
+	};
+
+	private static final Object[] NO_ARGS = new Object[0];
+
+	int warmupIterations = 3;
+	int iterations = 5;
+	long iterationNanos = 1000 * 1000000L;
+	private List<Pattern> includes = new ArrayList<Pattern>();
+
+	private AllocationCounter allocations = new AllocationCounter();
+	private Map<String, Overhead> overheads = new HashMap<String, Overhead>();
+
+	/* Consumes benchmark results */
+	private volatile int sink;
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner();
+
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-wi"))
+				runner.warmupIterations = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-i"))
+				runner.iterations = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-r"))
+				runner.iterationNanos = Long.parseLong(args[++i]) * 1000000L;
+			else
+				runner.includes.add(Pattern.compile(args[i]));
+		}
+
+		runner.run();
+	}
+
+	private void run() throws Exception {
+		if (!allocations.isSupported())
+			System.out.println("# Allocation counting is not supported by this JVM");
+
+		System.out.println(String.format(Locale.US, "%-50s %5s %17s %12s %14s %12s",
+				"Benchmark", "Cnt", "Score", "Error", "Alloc", "Alloc rate"));
+
+		for (Class<?> c : BENCHMARKS) {
+			for (Method m : c.getMethods()) {
+				if (m.getAnnotation(Benchmark.class) == null)
+					continue;
+
+				String name = c.getSimpleName() + "." + m.getName();
+				if (isIncluded(name))
+					report(name, runBenchmark(c, m));
+			}
+		}
+	}
+
+	private boolean isIncluded(String name) {
+		if (includes.isEmpty())
+			return true;
+
+		for (Pattern p : includes)
+			if (p.matcher(name).find())
+				return true;
+
+		return false;
+	}
+
+	static class Iteration {
+		long operations;
+		long nanos;
+		long bytes;
+	}
+
+	List<Iteration> runBenchmark(Class<?> c, Method benchmark) throws Exception {
+		Object instance = c.newInstance();
+
+		List<Method> trialSetup = getMethods(c, Setup.class, Setup.Level.Trial);
+		List<Method> invocationSetup = getMethods(c, Setup.class, Setup.Level.Invocation);
+		List<Method> trialTearDown = getMethods(c, TearDown.class, Setup.Level.Trial);
+		List<Method> invocationTearDown = getMethods(c, TearDown.class, Setup.Level.Invocation);
+
+		boolean perInvocation = !invocationSetup.isEmpty() || !invocationTearDown.isEmpty();
+
+		Overhead overhead = getOverhead(benchmark.getReturnType(), perInvocation);
+
+		invoke(instance, trialSetup);
+		try {
+			List<Iteration> result = runIterations(instance, benchmark, perInvocation, invocationSetup,
+					invocationTearDown);
+
+			for (Iteration iteration : result) {
+				iteration.nanos = Math.max(0, iteration.nanos - Math.round(overhead.nanos * iteration.operations));
+				iteration.bytes = Math.max(0, iteration.bytes - Math.round(overhead.bytes * iteration.operations));
+			}
+
+			return result;
+		} finally {
+			invoke(instance, trialTearDown);
+		}
+	}
+
+	private List<Iteration> runIterations(Object instance, Method benchmark, boolean perInvocation,
+			List<Method> setup, List<Method> tearDown) throws Exception {
+		List<Iteration> result = new ArrayList<Iteration>();
+
+		for (int i = 0; i < warmupIterations + iterations; ++i) {
+			Iteration iteration;
+			if (perInvocation)
+				iteration = runInvocations(instance, benchmark, setup, tearDown);
+			else
+				iteration = runIteration(instance, benchmark);
+
+			if (i >= warmupIterations)
+				result.add(iteration);
+		}
+
+		return result;
+	}
+
+	/*
+	 * The time and bytes per operation spent by the runner itself.
+	 */
+	private static class Overhead {
+		double nanos;
+		double bytes;
+	}
+
+	/*
+	 * Measures the overhead of invoking a benchmark with the given return type,
+	 * by running an empty baseline benchmark in the same way.
+	 */
+	private Overhead getOverhead(Class<?> returnType, boolean perInvocation) throws Exception {
+		String baseline;
+		if (returnType == void.class)
+			baseline = "empty";
+		else if (returnType.isPrimitive())
+			baseline = "primitive";
+		else
+			baseline = "object";
+
+		String key = baseline + (perInvocation ? " per invocation" : "");
+		Overhead result = overheads.get(key);
+		if (result != null)
+			return result;
+
+		List<Method> none = new ArrayList<Method>();
+		List<Iteration> iterations = runIterations(new Baseline(), Baseline.class.getMethod(baseline),
+				perInvocation, none, none);
+
+		long operations = 0, nanos = 0, bytes = 0;
+		for (Iteration iteration : iterations) {
+			operations += iteration.operations;
+			nanos += iteration.nanos;
+			bytes += iteration.bytes;
+		}
+
+		result = new Overhead();
+		if (operations > 0) {
+			result.nanos = (double) nanos / operations;
+			result.bytes = Math.max(0, (double) bytes / operations);
+		}
+		overheads.put(key, result);
+
+		System.out.println(String.format(Locale.US, "# Overhead (%s): %.3f ns/op, %.0f B/op", key, result.nanos,
+				result.bytes));
+
+		return result;
+	}
+
+	/*
+	 * Empty benchmarks, used to measure the overhead of the runner.
+	 */
+	public static class Baseline {
+		private Object object = new Object();
+		private long counter = 1 << 20;
+
+		public void empty() {
+		}
+
+		public Object object() {
+			return object;
+		}
+
+		public long primitive() {
+			return ++counter;
+		}
+	}
+
+	private Iteration runIteration(Object instance, Method benchmark) throws Exception {
+		Iteration result = new Iteration();
+
+		long bytes = allocations.get();
+		long start = System.nanoTime();
+		long end = start + iterationNanos;
+		long now;
+
+		do {
+			for (int i = 0; i < 16; ++i)
+				consume(benchmark.invoke(instance, NO_ARGS));
+			result.operations += 16;
+			now = System.nanoTime();
+		} while (now < end);
+
+		result.nanos = now - start;
+		result.bytes = allocations.get() - bytes;
+
+		return result;
+	}
+
+	/*
+	 * Measures every invocation separately, so that the setup and tear down
+	 * between invocations is not measured.
+	 */
+	private Iteration runInvocations(Object instance, Method benchmark, List<Method> setup, List<Method> tearDown)
+			throws Exception {
+		Iteration result = new Iteration();
+
+		long end = System.nanoTime() + iterationNanos;
+
+		do {
+			invoke(instance, setup);
+
+			long bytes = allocations.get();
+			long start = System.nanoTime();
+			consume(benchmark.invoke(instance, NO_ARGS));
+			result.nanos += System.nanoTime() - start;
+			result.bytes += allocations.get() - bytes - allocations.getOverhead();
+			++result.operations;
+
+			invoke(instance, tearDown);
+		} while (System.nanoTime() < end);
+
+		return result;
+	}
+
+	private void consume(Object result) {
+		if (result != null)
+			sink ^= System.identityHashCode(result);
+	}
+
+	private void report(String name, List<Iteration> iterations) {
+		double[] scores = new double[iterations.size()];
+		long operations = 0, nanos = 0, bytes = 0;
+
+		for (int i = 0; i < scores.length; ++i) {
+			Iteration iteration = iterations.get(i);
+			scores[i] = iteration.nanos / 1E3 / iteration.operations;
+			operations += iteration.operations;
+			nanos += iteration.nanos;
+			bytes += iteration.bytes;
+		}
+
+		double mean = 0;
+		for (double s : scores)
+			mean += s;
+		mean /= scores.length;
+
+		double variance = 0;
+		for (double s : scores)
+			variance += (s - mean) * (s - mean);
+		double error = scores.length > 1 ? Math.sqrt(variance / (scores.length - 1)) : 0;
+
+		String alloc = "-", allocRate = "-";
+		if (allocations.isSupported()) {
+			alloc = String.format(Locale.US, "%.0f B/op", Math.max(0, (double) bytes / operations));
+			allocRate = String.format(Locale.US, "%.1f MB/s", Math.max(0, bytes / 1E6 / (nanos / 1E9)));
+		}
+
+		System.out.println(String.format(Locale.US, "%-50s %5d %11.3f us/op %12s %14s %12s", name, scores.length,
+				mean, "+- " + String.format(Locale.US, "%.3f", error), alloc, allocRate));
+	}
+
+	private static List<Method> getMethods(Class<?> c, Class<?> annotation, Setup.Level level) {
+		List<Method> result = new ArrayList<Method>();
+
+		for (Method m : c.getMethods()) {
+			Setup.Level l = null;
+			if (annotation == Setup.class && m.getAnnotation(Setup.class) != null)
+				l = m.getAnnotation(Setup.class).value();
+			else if (annotation == TearDown.class && m.getAnnotation(TearDown.class) != null)
+				l = m.getAnnotation(TearDown.class).value();
+
+			if (l == level)
+				result.add(m);
+		}
+
+		return result;
+	}
+
+	private static void invoke(Object instance, List<Method> methods) throws Exception {
+		for (Method m : methods) {
+			try {
+				m.invoke(instance, NO_ARGS);
+			} catch (InvocationTargetException e) {
+				if (e.getCause() instanceof Exception)
+					throw (Exception) e.getCause();
+				throw e;
+			}
+		}
+	}
+
+	/*
+	 * Counts the bytes allocated by the current thread, using the HotSpot
+	 * extension of the ThreadMXBean, if available.
+	 */
+	private static class AllocationCounter {
+		private ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		private Method getThreadAllocatedBytes;
+		private long overhead;
+
+		AllocationCounter() {
+			try {
+				Class<?> c = Class.forName("com.sun.management.ThreadMXBean");
+				if (c.isInstance(bean)) {
+					getThreadAllocatedBytes = c.getMethod("getThreadAllocatedBytes", long.class);
+					if (get() < 0)
+						getThreadAllocatedBytes = null;
+				}
+			} catch (Exception e) {
+				getThreadAllocatedBytes = null;
+			}
+
+			if (getThreadAllocatedBytes != null) {
+				long min = Long.MAX_VALUE;
+				for (int i = 0; i < 1000; ++i) {
+					long before = get();
+					min = Math.min(min, get() - before);
+				}
+				overhead = min;
+			}
+		}
+
+		boolean isSupported() {
+			return getThreadAllocatedBytes != null;
+		}
+
+		/*
+		 * The number of bytes allocated by reading the count itself.
+		 */
+		long getOverhead() {
+			return overhead;
+		}
+
+		long get() {
+			if (getThreadAllocatedBytes == null)
+				return 0;
+
+			try {
+				return (Long) getThreadAllocatedBytes.invoke(bean, Thread.currentThread().getId());
+			} catch (Exception e) {
+				return 0;
+			}
+		}
+	}
+}
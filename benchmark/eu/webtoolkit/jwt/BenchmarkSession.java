@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+/**
+ * A test session with an application, of which the responses are rendered
+ * to a stream that discards them.
+ */
+class BenchmarkSession {
+	private WTestEnvironment env;
+	private WApplication app;
+	private long bytesWritten;
+
+	/**
+	 * Creates a session, which uses Ajax or plain HTML.
+	 */
+	BenchmarkSession(boolean ajax) {
+		env = new WTestEnvironment(new Configuration());
+		env.setAjax(ajax);
+		app = new WApplication(env);
+	}
+
+	WApplication getApp() {
+		return app;
+	}
+
+	WTestEnvironment getEnv() {
+		return env;
+	}
+
+	/**
+	 * Adds a representative page to the application: a header with a menu, a
+	 * form, and a table with the given number of rows.
+	 */
+	void buildPage(int rows) {
+		buildPage(app, rows);
+	}
+
+	/**
+	 * Adds the representative page to an application.
+	 *
+	 * @see #buildPage(int)
+	 */
+	static void buildPage(WApplication app, int rows) {
+		WContainerWidget root = app.getRoot();
+
+		WContainerWidget header = new WContainerWidget(root);
+		header.setStyleClass("header");
+		new WText("<h1>Benchmark &amp; \"friends\"</h1>", header);
+		WContainerWidget menu = new WContainerWidget(header);
+		for (int i = 0; i < 6; ++i)
+			new WAnchor(new WLink("#item" + i), "Menu item " + i, menu);
+
+		WContainerWidget form = new WContainerWidget(root);
+		form.setStyleClass("form");
+		for (int i = 0; i < 8; ++i) {
+			WLabel label = new WLabel("Field " + i + ":", form);
+			WLineEdit edit = new WLineEdit("value " + i, form);
+			edit.setToolTip("Enter a value for field " + i);
+			label.setBuddy(edit);
+		}
+		WComboBox combo = new WComboBox(form);
+		for (int i = 0; i < 10; ++i)
+			combo.addItem("Option " + i);
+		new WCheckBox("Remember me", form);
+		WPushButton submit = new WPushButton("Submit", form);
+		submit.clicked().addListener(app, new Signal1.Listener<WMouseEvent>() {
+			public void trigger(WMouseEvent event) {
+			}
+		});
+
+		WTable table = new WTable(root);
+		table.setHeaderCount(1);
+		for (int c = 0; c < 5; ++c)
+			new WText("Column " + c, table.getElementAt(0, c));
+		for (int r = 1; r <= rows; ++r)
+			for (int c = 0; c < 5; ++c)
+				new WText("Cell (" + r + ", " + c + ") <&>", TextFormat.PlainText, table.getElementAt(r, c));
+	}
+
+	/**
+	 * Renders the initial page (for a plain HTML session) or the initial
+	 * JavaScript (for an Ajax session).
+	 */
+	long renderInitial() throws IOException {
+		if (env.hasAjax())
+			return render(WebRequest.ResponseType.Update);
+		else
+			return render(WebRequest.ResponseType.Page);
+	}
+
+	/**
+	 * Renders the response to an Ajax event, with the changes since the
+	 * previous response.
+	 */
+	long renderUpdate() throws IOException {
+		return render(WebRequest.ResponseType.Update);
+	}
+
+	/**
+	 * Renders a response and returns the number of bytes of it.
+	 */
+	long render(WebRequest.ResponseType type) throws IOException {
+		long before = bytesWritten;
+
+		WebResponse response = new WebResponse(createResponse(), createRequest());
+		response.setResponseType(type);
+		app.getSession().getRenderer().serveResponse(response);
+		response.out().flush();
+
+		return bytesWritten - before;
+	}
+
+	/**
+	 * Closes the session, so that it can be garbage collected.
+	 */
+	void close() {
+		env.close();
+	}
+
+	private HttpServletResponse createResponse() {
+		final ServletOutputStream out = new ServletOutputStream() {
+			@Override
+			public void write(int b) {
+				++bytesWritten;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				bytesWritten += len;
+			}
+		};
+
+		return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getOutputStream"))
+							return out;
+						else if (method.getName().equals("getCharacterEncoding"))
+							return "UTF-8";
+						else
+							return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private HttpServletRequest createRequest() {
+		return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						if (method.getName().equals("getMethod"))
+							return "POST";
+						else
+							return defaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class)
+			return false;
+		else if (type == int.class)
+			return 0;
+		else if (type == long.class)
+			return 0L;
+		else
+			return null;
+	}
+}
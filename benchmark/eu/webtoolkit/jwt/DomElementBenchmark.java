@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks serializing DOM elements as HTML (for new elements) and as
+ * JavaScript (for updates to existing elements).
+ */
+public class DomElementBenchmark {
+	private static final int ELEMENTS = 200;
+
+	private BenchmarkSession session;
+	private DomElement tree;
+	private List<DomElement> updates;
+
+	@Setup
+	public void setUp() {
+		session = new BenchmarkSession(true);
+	}
+
+	@TearDown
+	public void tearDown() {
+		session.close();
+	}
+
+	@Setup(Setup.Level.Invocation)
+	public void createElements() {
+		tree = DomElement.createNew(DomElementType.DomElement_DIV);
+		tree.setId("root");
+		for (int i = 0; i < ELEMENTS; ++i) {
+			DomElement e = DomElement.createNew(i % 2 == 0 ? DomElementType.DomElement_SPAN
+					: DomElementType.DomElement_INPUT);
+			e.setId("e" + i);
+			e.setProperty(Property.PropertyClass, "item item-" + i);
+			e.setProperty(Property.PropertyStyleWidth, i + "px");
+			e.setAttribute("title", "Element \"" + i + "\" <&>");
+			if (i % 2 == 0)
+				e.setProperty(Property.PropertyInnerHTML, "Text of element " + i);
+			else
+				e.setProperty(Property.PropertyValue, "value 'of' " + i);
+			tree.addChild(e);
+		}
+
+		updates = new ArrayList<DomElement>();
+		for (int i = 0; i < ELEMENTS; ++i) {
+			DomElement e = DomElement.getForUpdate("e" + i, DomElementType.DomElement_SPAN);
+			e.setProperty(Property.PropertyInnerHTML, "Updated text of element " + i + " <&>");
+			e.setProperty(Property.PropertyStyleDisplay, i % 3 == 0 ? "none" : "");
+			e.callJavaScript("console.log('" + i + "');", false);
+			updates.add(e);
+		}
+	}
+
+	@Benchmark
+	public Object asHTML() {
+		EscapeOStream out = new EscapeOStream();
+		EscapeOStream js = new EscapeOStream();
+		tree.asHTML(out, js, new ArrayList<DomElement.TimeoutEvent>());
+		return out.toString();
+	}
+
+	@Benchmark
+	public Object asJavaScript() {
+		EscapeOStream out = new EscapeOStream();
+		for (DomElement e : updates)
+			e.asJavaScript(out, DomElement.Priority.Delete);
+		for (DomElement e : updates)
+			e.asJavaScript(out, DomElement.Priority.Update);
+		return out.toString();
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+/**
+ * Benchmarks escaping text for HTML attributes and JavaScript string
+ * literals.
+ */
+public class EscapeOStreamBenchmark {
+	private static final String PLAIN = "The quick brown fox jumps over the lazy dog, "
+			+ "and then runs away into the forest to find some food.";
+	private static final String SPECIAL = "<a href=\"x?a=1&b='2'\">Tom & \"Jerry\"</a>\n"
+			+ "<script>alert('\\u2028');</script>";
+
+	@Benchmark
+	public Object plainText() {
+		return escape(PLAIN, EscapeOStream.RuleSet.HtmlAttribute);
+	}
+
+	@Benchmark
+	public Object htmlAttribute() {
+		return escape(SPECIAL, EscapeOStream.RuleSet.HtmlAttribute);
+	}
+
+	@Benchmark
+	public Object jsStringLiteral() {
+		return escape(SPECIAL, EscapeOStream.RuleSet.JsStringLiteralSQuote);
+	}
+
+	@Benchmark
+	public Object plainTextNewLines() {
+		return escape(SPECIAL, EscapeOStream.RuleSet.PlainTextNewLines);
+	}
+
+	private static String escape(String text, EscapeOStream.RuleSet rules) {
+		EscapeOStream out = new EscapeOStream();
+		out.pushEscape(rules);
+		for (int i = 0; i < 10; ++i)
+			out.append(text);
+		return out.toString();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.util.Random;
+
+import javax.servlet.ServletException;
+
+/**
+ * Benchmarks Ajax event round trips: an event is propagated to a button, of
+ * which the listener changes the page, and the changes are rendered as the
+ * response.
+ * <p>
+ * Events are sent by a {@link VirtualUser} as requests to a servlet, so that
+ * the whole request path is measured: finding and locking the session,
+ * parsing the request, propagating the event and rendering the response.
+ */
+public class EventBenchmark {
+	private static class EventServlet extends WtServlet {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public WApplication createApplication(WEnvironment env) {
+			WApplication app = new WApplication(env);
+			BenchmarkSession.buildPage(app, 20);
+
+			WContainerWidget root = app.getRoot();
+			final WText status = new WText(root);
+			final WContainerWidget log = new WContainerWidget(root);
+
+			WPushButton update = new WPushButton("Update", root);
+			update.setObjectName("update");
+			update.clicked().addListener(app, new Signal1.Listener<WMouseEvent>() {
+				private int clicks = 0;
+
+				public void trigger(WMouseEvent event) {
+					++clicks;
+					status.setText("Clicked " + clicks + " times");
+					new WText("Click " + clicks, log);
+					if (log.getCount() > 10)
+						log.getWidget(0).remove();
+				}
+			});
+
+			WPushButton noop = new WPushButton("Nothing", root);
+			noop.setObjectName("noop");
+			noop.clicked().addListener(app, new Signal1.Listener<WMouseEvent>() {
+				public void trigger(WMouseEvent event) {
+				}
+			});
+
+			return app;
+		}
+	}
+
+	private EventServlet servlet;
+	private VirtualUser user;
+
+	@Setup
+	public void setUp() throws IOException, ServletException {
+		servlet = new EventServlet();
+		servlet.init(ServletFixture.createServletConfig("event"));
+
+		user = new VirtualUser(servlet, "event", new Random(1));
+		user.bootstrap();
+	}
+
+	@TearDown
+	public void tearDown() {
+		user.close();
+		servlet.destroy();
+	}
+
+	@Benchmark
+	public long clickWithUpdate() throws IOException, ServletException {
+		user.fire("update", "click");
+		return user.getLastResponse().length();
+	}
+
+	@Benchmark
+	public long clickWithoutChanges() throws IOException, ServletException {
+		user.fire("noop", "click");
+		return user.getLastResponse().length();
+	}
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.webtoolkit.jwt.utils.LatencyHistogram;
+
+/**
+ * Simulates many users of a servlet, in-process.
+ * <p>
+ * Every virtual user runs in its own thread, and uses its own session: it
+ * starts the session and then performs steps of a {@link LoadScript}, with a
+ * random (exponentially distributed) think time in between. The users are
+ * started gradually during a ramp-up period, after which the load is measured
+ * for a fixed duration.
+ * <p>
+ * The throughput and latency percentiles are reported per type of request,
+ * together with the latency of the phases of request handling as measured by
+ * the {@link ServerMetrics} of the servlet (including the time waited for the
+ * session lock), the time that users were blocked on monitors, and the heap
+ * usage per session.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * LoadGenerator [-servlet class] [-script class] [-users n] [-rampup seconds]
+ *               [-duration seconds] [-think millis] [-seed n]
+ * </pre>
+ *
+ * The servlet class must be a {@link WtServlet} with a default constructor,
+ * and the script class a {@link LoadScript} with a default constructor. They
+ * default to {@link LoadTestServlet} and {@link LoadTestScript}. Runs with the
+ * same seed make the same random choices, and may thus be compared across
+ * versions of the library.
+ */
+public class LoadGenerator {
+	private String servletClass = LoadTestServlet.class.getName();
+	private String scriptClass = LoadTestScript.class.getName();
+	private int users = 100;
+	private int rampUpSeconds = 10;
+	private int durationSeconds = 60;
+	private int thinkMillis = 1000;
+	private long seed = 1;
+
+	private WtServlet servlet;
+	private LoadScript script;
+	private volatile boolean running;
+	private volatile boolean measuring;
+
+	private final Map<VirtualUser.RequestType, Stats> stats = new EnumMap<VirtualUser.RequestType, Stats>(
+			VirtualUser.RequestType.class);
+	private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+	private static final int MAX_FAILURES = 10;
+	private static final int FOOTPRINT_SAMPLES = 10;
+
+	private static class Stats {
+		final LatencyHistogram latency = new LatencyHistogram();
+		final AtomicLong bytes = new AtomicLong();
+		final AtomicLong errors = new AtomicLong();
+	}
+
+	public static void main(String[] args) throws Exception {
+		new LoadGenerator(args).run();
+		System.exit(0);
+	}
+
+	/**
+	 * Creates a load generator with the options given on the command line.
+	 */
+	LoadGenerator(String[] args) {
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("-servlet"))
+				servletClass = args[++i];
+			else if (args[i].equals("-script"))
+				scriptClass = args[++i];
+			else if (args[i].equals("-users"))
+				users = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-rampup"))
+				rampUpSeconds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-duration"))
+				durationSeconds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-think"))
+				thinkMillis = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-seed"))
+				seed = Long.parseLong(args[++i]);
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+
+		for (VirtualUser.RequestType type : VirtualUser.RequestType.values())
+			stats.put(type, new Stats());
+	}
+
+	void record(VirtualUser.RequestType type, long nanos, long bytes, boolean error) {
+		if (!measuring)
+			return;
+
+		Stats s = stats.get(type);
+		s.latency.record(nanos);
+		s.bytes.addAndGet(bytes);
+		if (error)
+			s.errors.incrementAndGet();
+	}
+
+	private void run() throws Exception {
+		servlet = (WtServlet) Class.forName(servletClass).newInstance();
+		script = (LoadScript) Class.forName(scriptClass).newInstance();
+		servlet.init(ServletFixture.createServletConfig("load"));
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads.isThreadContentionMonitoringSupported())
+			threads.setThreadContentionMonitoringEnabled(true);
+
+		System.out.println("# JWt " + WEnvironment.getLibraryVersion() + ", Java " + System.getProperty("java.version")
+				+ " (" + System.getProperty("java.vm.name") + ")");
+		System.out.println("# " + servletClass + ", " + scriptClass);
+		System.out.println(String.format(Locale.US,
+				"# %d users, ramp-up %d s, duration %d s, think time %d ms, seed %d", users, rampUpSeconds,
+				durationSeconds, thinkMillis, seed));
+
+		long heapBefore = usedHeap(memory);
+
+		running = true;
+		List<Thread> userThreads = new ArrayList<Thread>();
+		final List<VirtualUser> virtualUsers = Collections.synchronizedList(new ArrayList<VirtualUser>());
+		final long start = System.nanoTime();
+
+		for (int i = 0; i < users; ++i) {
+			final VirtualUser user = new VirtualUser(this, servlet, "load" + i, new Random(seed * 1000003L + i));
+			final long startAt = start + (long) i * rampUpSeconds * 1000000000L / Math.max(1, users);
+
+			Thread t = new Thread(new Runnable() {
+				public void run() {
+					runUser(user, startAt);
+				}
+			}, "virtual-user-" + i);
+			t.setDaemon(true);
+			userThreads.add(t);
+			virtualUsers.add(user);
+			t.start();
+		}
+
+		sleepUntil(start + rampUpSeconds * 1000000000L);
+
+		servlet.getMetrics().reset();
+		long[] blockedBefore = blocked(threads, userThreads);
+		long measureStart = System.nanoTime();
+		measuring = true;
+
+		sleepUntil(measureStart + durationSeconds * 1000000000L);
+
+		measuring = false;
+		servlet.getMetrics().setEnabled(false);
+		long measureNanos = System.nanoTime() - measureStart;
+		long[] blockedAfter = blocked(threads, userThreads);
+
+		List<WebSession> sessions = servlet.getSessions();
+		long footprint = 0;
+		int footprints = 0;
+		for (int i = 0; i < Math.min(FOOTPRINT_SAMPLES, sessions.size()); ++i) {
+			SessionFootprint f = SessionFootprint.measureLocked(sessions.get(i), 0, 1000);
+			if (f != null) {
+				footprint += f.getTotalSize();
+				++footprints;
+			}
+		}
+		long heapPerSession = sessions.isEmpty() ? 0 : (usedHeap(memory) - heapBefore) / sessions.size();
+
+		running = false;
+		for (Thread t : userThreads)
+			t.interrupt();
+		for (Thread t : userThreads)
+			t.join(1000);
+
+		report(measureNanos);
+		reportPhases();
+
+		System.out.println();
+		System.out.println(String.format(Locale.US, "Sessions: %d, heap per session: %d kB, footprint: %d kB",
+				sessions.size(), heapPerSession / 1024, footprints == 0 ? 0 : footprint / footprints / 1024));
+		if (blockedBefore != null)
+			System.out.println(String.format(Locale.US,
+					"Monitor contention: %d blocks, %.1f ms blocked per second (all users)",
+					blockedAfter[0] - blockedBefore[0], (blockedAfter[1] - blockedBefore[1]) / (measureNanos / 1E9)));
+		if (!failures.isEmpty()) {
+			System.out.println("Failures:");
+			synchronized (failures) {
+				for (String f : failures)
+					System.out.println("  " + f);
+			}
+		}
+
+		for (VirtualUser user : virtualUsers)
+			user.close();
+		servlet.destroy();
+	}
+
+	private void runUser(VirtualUser user, long startAt) {
+		try {
+			sleepUntil(startAt);
+			script.start(user);
+
+			while (running) {
+				double think = -Math.log(1 - user.getRandom().nextDouble()) * thinkMillis;
+				Thread.sleep((long) Math.min(think, 10 * thinkMillis));
+				if (!running)
+					break;
+				script.step(user);
+			}
+		} catch (InterruptedException e) {
+			// end of the run
+		} catch (Exception e) {
+			if (running && failures.size() < MAX_FAILURES)
+				failures.add(user.getSessionId() + ": " + e.toString());
+		}
+	}
+
+	private void report(long nanos) {
+		System.out.println();
+		System.out.println(String.format(Locale.US, "%-10s %9s %9s %7s %9s %9s %9s %9s %9s %9s %9s", "Request",
+				"Count", "Rate/s", "Errors", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms", "kB/req"));
+
+		long count = 0, errors = 0;
+		for (VirtualUser.RequestType type : VirtualUser.RequestType.values()) {
+			Stats s = stats.get(type);
+			LatencyHistogram h = s.latency;
+			long n = h.getCount();
+			count += n;
+			errors += s.errors.get();
+
+			System.out.println(String.format(Locale.US, "%-10s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %9.1f",
+					type, n, n / (nanos / 1E9), s.errors.get(), h.getMeanMillis(), h.get50thPercentileMillis(),
+					h.get90thPercentileMillis(), h.get99thPercentileMillis(), h.get999thPercentileMillis(),
+					h.getMaxMillis(), n == 0 ? 0 : s.bytes.get() / 1024.0 / n));
+		}
+
+		System.out.println(String.format(Locale.US, "%-10s %9d %9.1f %7d", "Total", count, count / (nanos / 1E9),
+				errors));
+	}
+
+	private void reportPhases() {
+		System.out.println();
+		System.out.println(String.format(Locale.US, "%-16s %9s %9s %9s %9s %9s %9s", "Server phase", "Count",
+				"Mean ms", "p50 ms", "p90 ms", "p99 ms", "Max ms"));
+
+		for (ServerMetrics.Phase phase : ServerMetrics.Phase.values()) {
+			LatencyHistogram h = servlet.getMetrics().getHistogram(phase);
+			System.out.println(String.format(Locale.US, "%-16s %9d %9.2f %9.2f %9.2f %9.2f %9.2f", phase,
+					h.getCount(), h.getMeanMillis(), h.get50thPercentileMillis(), h.get90thPercentileMillis(),
+					h.get99thPercentileMillis(), h.getMaxMillis()));
+		}
+	}
+
+	/*
+	 * Returns the number of times and the time (in ms) that the threads have
+	 * been blocked on a monitor, or null if not supported.
+	 */
+	private static long[] blocked(ThreadMXBean threads, List<Thread> userThreads) {
+		if (!threads.isThreadContentionMonitoringEnabled())
+			return null;
+
+		long[] result = new long[2];
+		for (Thread t : userThreads) {
+			ThreadInfo info = threads.getThreadInfo(t.getId());
+			if (info != null) {
+				result[0] += info.getBlockedCount();
+				result[1] += Math.max(0, info.getBlockedTime());
+			}
+		}
+
+		return result;
+	}
+
+	private static long usedHeap(MemoryMXBean memory) {
+		for (int i = 0; i < 3; ++i) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+
+	private static void sleepUntil(long nanoTime) throws InterruptedException {
+		long remaining;
+		while ((remaining = nanoTime - System.nanoTime()) > 0)
+			Thread.sleep(Math.max(1, remaining / 1000000));
+	}
+}
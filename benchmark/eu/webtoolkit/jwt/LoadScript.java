@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+/**
+ * The behaviour of the virtual users of a load test.
+ * <p>
+ * A script is shared by all virtual users, and should therefore keep its
+ * state in the {@link VirtualUser}. Random choices should use
+ * {@link VirtualUser#getRandom()}, so that a run can be reproduced.
+ *
+ * @see LoadGenerator
+ */
+public interface LoadScript {
+	/**
+	 * Starts the session of a virtual user.
+	 * <p>
+	 * This usually calls {@link VirtualUser#bootstrap()}.
+	 */
+	public void start(VirtualUser user) throws Exception;
+
+	/**
+	 * Performs a single step of a virtual user.
+	 * <p>
+	 * This is called repeatedly, with a think time in between, until the run
+	 * ends.
+	 */
+	public void step(VirtualUser user) throws Exception;
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+/**
+ * The default load test script, for the {@link LoadTestServlet}.
+ * <p>
+ * Every step, a user either adds a row (60%), clears the list (10%) or polls
+ * for a server push update (30%).
+ */
+public class LoadTestScript implements LoadScript {
+	public void start(VirtualUser user) throws Exception {
+		user.bootstrap();
+	}
+
+	public void step(VirtualUser user) throws Exception {
+		int r = user.getRandom().nextInt(10);
+
+		if (r < 6) {
+			user.setValue("name", "Row " + user.getRandom().nextInt(1000));
+			user.fire("add", "click");
+		} else if (r < 7)
+			user.fire("clear", "click");
+		else
+			user.poll();
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+
+/**
+ * The servlet that is load tested by default.
+ * <p>
+ * The application has a form with a line edit ("name") and two buttons
+ * ("add" and "clear") that add rows to and clear a list, and a text that is
+ * updated every second using server push.
+ *
+ * @see LoadTestScript
+ */
+public class LoadTestServlet extends WtServlet {
+	private static final long serialVersionUID = 1L;
+
+	private final Map<LoadTestApplication, Boolean> applications = new ConcurrentHashMap<LoadTestApplication, Boolean>();
+	private ScheduledExecutorService ticker;
+
+	@Override
+	public void init(ServletConfig config) throws ServletException {
+		super.init(config);
+
+		ticker = Executors.newSingleThreadScheduledExecutor();
+		ticker.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				for (LoadTestApplication app : applications.keySet()) {
+					try {
+						app.tick();
+					} catch (RuntimeException e) {
+						// the session was destroyed
+					}
+				}
+			}
+		}, 1, 1, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		ticker.shutdownNow();
+
+		super.destroy();
+	}
+
+	@Override
+	public WApplication createApplication(WEnvironment env) {
+		return new LoadTestApplication(env);
+	}
+
+	private class LoadTestApplication extends WApplication {
+		private WText ticks;
+		private int tickCount;
+
+		LoadTestApplication(WEnvironment env) {
+			super(env);
+
+			setTitle("Load test");
+
+			ticks = new WText("0", getRoot());
+			ticks.setObjectName("ticks");
+
+			WContainerWidget form = new WContainerWidget(getRoot());
+			final WLineEdit name = new WLineEdit(form);
+			name.setObjectName("name");
+			WPushButton add = new WPushButton("Add", form);
+			add.setObjectName("add");
+			WPushButton clear = new WPushButton("Clear", form);
+			clear.setObjectName("clear");
+
+			final WContainerWidget list = new WContainerWidget(getRoot());
+			list.setObjectName("list");
+
+			add.clicked().addListener(this, new Signal1.Listener<WMouseEvent>() {
+				public void trigger(WMouseEvent event) {
+					new WText(name.getText(), TextFormat.PlainText, list);
+					name.setText("");
+				}
+			});
+
+			clear.clicked().addListener(this, new Signal1.Listener<WMouseEvent>() {
+				public void trigger(WMouseEvent event) {
+					list.clear();
+				}
+			});
+
+			enableUpdates(true);
+			applications.put(this, Boolean.TRUE);
+		}
+
+		void tick() {
+			UpdateLock lock = getUpdateLock();
+			try {
+				ticks.setText(String.valueOf(++tickCount));
+				triggerUpdate();
+			} finally {
+				lock.release();
+			}
+		}
+
+		@Override
+		public void destroy() {
+			applications.remove(this);
+
+			super.destroy();
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+
+/**
+ * Benchmarks rendering the initial response of a new session, as a plain
+ * HTML page and as the JavaScript that creates the page of an Ajax session.
+ */
+public class RenderBenchmark {
+	private BenchmarkSession plain;
+	private BenchmarkSession ajax;
+
+	@Setup(Setup.Level.Invocation)
+	public void setUp() {
+		plain = new BenchmarkSession(false);
+		plain.buildPage(20);
+		ajax = new BenchmarkSession(true);
+		ajax.buildPage(20);
+	}
+
+	@TearDown(Setup.Level.Invocation)
+	public void tearDown() {
+		/* Sessions are closed in the reverse order of their creation */
+		ajax.close();
+		plain.close();
+	}
+
+	@Benchmark
+	public long mainPage() throws IOException {
+		return plain.renderInitial();
+	}
+
+	@Benchmark
+	public long mainAjax() throws IOException {
+		return ajax.renderInitial();
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a benchmark class that prepares the state of the
+ * benchmarks.
+ * <p>
+ * Setup methods are not measured.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Setup {
+	/**
+	 * When a setup method is run.
+	 */
+	public enum Level {
+		/**
+		 * Once, before the warmup iterations of every benchmark.
+		 */
+		Trial,
+		/**
+		 * Before every invocation of a benchmark.
+		 */
+		Invocation
+	}
+
+	Level value() default Level.Trial;
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Benchmarks emitting a signal to a few listeners.
+ * <p>
+ * Besides the time per emission, the bytes allocated per emission are
+ * reported, measured over a fixed number of emissions without the overhead of
+ * the benchmark runner.
+ */
+public class SignalBenchmark {
+	private static final int EMISSIONS = 100000;
+
+	private Signal1<Integer> signal;
+	private Integer arg = 1;
+	private int sum;
+
+	@Setup
+	public void setUp() {
+		signal = new Signal1<Integer>();
+		WObject owner = new WObject();
+		for (int i = 0; i < 4; ++i)
+			signal.addListener(i % 2 == 0 ? owner : null, new Signal1.Listener<Integer>() {
+				public void trigger(Integer value) {
+					sum += value;
+				}
+			});
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return;
+
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+
+		long before = bean.getThreadAllocatedBytes(id);
+		for (int i = 0; i < EMISSIONS; ++i)
+			signal.trigger(arg);
+		long bytes = bean.getThreadAllocatedBytes(id) - before;
+
+		System.out.println(String.format(Locale.US, "# emit: %.3f B allocated per emission (%d emissions)",
+				(double) bytes / EMISSIONS, EMISSIONS));
+	}
+
+	@Benchmark
+	public void emit() {
+		signal.trigger(arg);
+	}
+}
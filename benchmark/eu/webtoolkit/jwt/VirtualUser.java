@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletException;
+
+/**
+ * A simulated browser that uses a session of a servlet.
+ * <p>
+ * A virtual user speaks the same protocol as the JavaScript client: it
+ * requests the bootstrap page and the application script, and then sends
+ * events (with the acknowledgement and page id of the last response) and
+ * polls for server push updates. Requests are handled synchronously by the
+ * servlet, within the thread of the virtual user, and are recorded by the load
+ * generator, if any.
+ * <p>
+ * Signals are identified by the object name (or id) of their widget and the
+ * signal name (e.g. "click"), and are resolved within the session, while
+ * holding the session lock.
+ */
+public class VirtualUser {
+	private static final String USER_AGENT = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/45.0.2454.85 Safari/537.36";
+
+	private static final Pattern SCRIPT_ID = Pattern.compile("&sid=['\"] ?\\+ ?'?(-?\\d+)");
+	private static final Pattern ACK_ID = Pattern.compile("\\._p_\\.response\\((-?\\d+)");
+	private static final Pattern INITIAL_ACK_ID = Pattern.compile("ackUpdateId ?= ?(-?\\d+)");
+	private static final Pattern PAGE_ID = Pattern.compile("\\._p_\\.setPage\\((\\d+)");
+
+	/**
+	 * The type of a request, for which latencies are reported separately.
+	 */
+	public enum RequestType {
+		Bootstrap, Script, Event, Poll
+	}
+
+	private final LoadGenerator generator;
+	private final WtServlet servlet;
+	private final String sessionId;
+	private final Random random;
+	private final ServletFixture.Session httpSession;
+
+	private WebSession session;
+	private String scriptId;
+	private String ackId = "0";
+	private String pageId = "0";
+	private Map<String, String> formValues = new LinkedHashMap<String, String>();
+	private int status;
+	private String lastResponse = "";
+
+	VirtualUser(WtServlet servlet, String sessionId, Random random) {
+		this(null, servlet, sessionId, random);
+	}
+
+	VirtualUser(LoadGenerator generator, WtServlet servlet, String sessionId, Random random) {
+		this.generator = generator;
+		this.servlet = servlet;
+		this.sessionId = sessionId;
+		this.random = random;
+		httpSession = new ServletFixture.Session(sessionId);
+	}
+
+	/**
+	 * Returns the random generator of this user.
+	 * <p>
+	 * Scripts should use this generator for all random choices, so that runs
+	 * with the same seed are reproducible.
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Returns the session id.
+	 */
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * Returns the body of the last response.
+	 */
+	public String getLastResponse() {
+		return lastResponse;
+	}
+
+	/**
+	 * Starts the session.
+	 * <p>
+	 * Requests the bootstrap page and the application script, as a browser
+	 * with JavaScript support does.
+	 */
+	public void bootstrap() throws IOException, ServletException {
+		Map<String, String> params = new HashMap<String, String>();
+		request("GET", params, RequestType.Bootstrap);
+
+		Matcher m = SCRIPT_ID.matcher(lastResponse);
+		if (!m.find())
+			throw new IOException("No script id in bootstrap page (status " + status + ")");
+		scriptId = m.group(1);
+
+		for (WebSession s : servlet.getSessions())
+			if (s.getSessionId().equals(sessionId))
+				session = s;
+
+		params.put("wtd", sessionId);
+		params.put("sid", scriptId);
+		params.put("request", "script");
+		params.put("rand", String.valueOf(random.nextInt(Integer.MAX_VALUE)));
+		params.put("scrW", "1920");
+		params.put("scrH", "1080");
+		params.put("tz", "60");
+		params.put("htmlHistory", "true");
+		request("GET", params, RequestType.Script);
+
+		m = INITIAL_ACK_ID.matcher(lastResponse);
+		if (m.find())
+			ackId = m.group(1);
+		updateIds();
+	}
+
+	/**
+	 * Sets the value of a form widget, which is sent with the next event.
+	 *
+	 * @param widget the object name or id of the widget
+	 * @param value the value
+	 */
+	public void setValue(String widget, String value) {
+		WebSession.Handler handler = lock();
+		try {
+			WWidget w = findWidget(widget);
+			if (w instanceof WFormWidget)
+				formValues.put(((WFormWidget) w).getFormName(), value);
+			else
+				throw new IllegalArgumentException("No form widget '" + widget + "'");
+		} finally {
+			handler.release();
+		}
+	}
+
+	/**
+	 * Fires a signal, as the browser does when the user interacts with a
+	 * widget.
+	 *
+	 * @param widget the object name or id of the widget
+	 * @param signal the name of the DOM event of the signal, e.g. "click"
+	 */
+	public void fire(String widget, String signal) throws IOException, ServletException {
+		String encoded;
+
+		WebSession.Handler handler = lock();
+		try {
+			WWidget w = findWidget(widget);
+			if (w == null)
+				throw new IllegalArgumentException("No widget '" + widget + "'");
+			AbstractEventSignal s = findSignal(w, signal);
+			if (s == null)
+				s = findSignal(w, "M_" + signal);
+			if (s == null)
+				throw new IllegalArgumentException("No signal '" + signal + "' for widget '" + widget + "'");
+			encoded = s.encodeCmd();
+		} finally {
+			handler.release();
+		}
+
+		Map<String, String> params = updateParameters(encoded);
+		params.put("type", signal);
+		params.putAll(formValues);
+		formValues.clear();
+
+		request("POST", params, RequestType.Event);
+		updateIds();
+	}
+
+	/**
+	 * Polls for a server push update.
+	 * <p>
+	 * This blocks until the application triggers an update, or until the
+	 * server push timeout expires.
+	 */
+	public void poll() throws IOException, ServletException {
+		request("POST", updateParameters("poll"), RequestType.Poll);
+		updateIds();
+	}
+
+	/**
+	 * Ends the session, as the servlet container does when it expires.
+	 */
+	public void close() {
+		httpSession.invalidate();
+	}
+
+	private Map<String, String> updateParameters(String signal) {
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		params.put("wtd", sessionId);
+		params.put("request", "jsupdate");
+		params.put("signal", signal);
+		params.put("ackId", ackId);
+		params.put("pageId", pageId);
+		return params;
+	}
+
+	private void updateIds() {
+		Matcher m = ACK_ID.matcher(lastResponse);
+		while (m.find())
+			ackId = m.group(1);
+
+		m = PAGE_ID.matcher(lastResponse);
+		if (m.find())
+			pageId = m.group(1);
+	}
+
+	private WebSession.Handler lock() {
+		if (session == null)
+			throw new IllegalStateException("Session is not started");
+
+		return new WebSession.Handler(session, WebSession.Handler.LockOption.TakeLock);
+	}
+
+	private WWidget findWidget(String name) {
+		WApplication app = session.getApp();
+		if (app == null)
+			return null;
+
+		WWidget result = app.findWidget(name);
+		if (result == null)
+			result = app.getRoot().findById(name);
+		return result;
+	}
+
+	private static AbstractEventSignal findSignal(WWidget widget, String name) {
+		for (AbstractEventSignal s : widget.eventSignals())
+			if (s.getName().equals(name))
+				return s;
+
+		return null;
+	}
+
+	private void request(String method, Map<String, String> params, RequestType type) throws IOException,
+			ServletException {
+		ServletFixture.Request request = new ServletFixture.Request();
+		request.method = method;
+		request.session = httpSession;
+		request.headers.put("User-Agent", USER_AGENT);
+		request.headers.put("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+		request.headers.put("Accept-Language", "en-US,en;q=0.8");
+		request.headers.put("Host", "localhost:8080");
+
+		StringBuilder query = new StringBuilder();
+		for (Map.Entry<String, String> e : params.entrySet()) {
+			request.setParameter(e.getKey(), e.getValue());
+			if (query.length() > 0)
+				query.append('&');
+			query.append(DomElement.urlEncodeS(e.getKey())).append('=').append(DomElement.urlEncodeS(e.getValue()));
+		}
+		if (method.equals("GET") && query.length() > 0)
+			request.queryString = query.toString();
+
+		ServletFixture.Response response = new ServletFixture.Response();
+		long start = System.nanoTime();
+		try {
+			servlet.service(request.create(), response.create());
+		} finally {
+			status = response.status;
+			if (generator != null)
+				generator.record(type, System.nanoTime() - start, response.body.size(), status >= 400);
+		}
+
+		lastResponse = response.getBody();
+	}
+}
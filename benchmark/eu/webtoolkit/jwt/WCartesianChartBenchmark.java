@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.StringWriter;
+
+import eu.webtoolkit.jwt.chart.ChartType;
+import eu.webtoolkit.jwt.chart.SeriesType;
+import eu.webtoolkit.jwt.chart.WCartesianChart;
+import eu.webtoolkit.jwt.chart.WDataSeries;
+
+/**
+ * Benchmarks painting a scatter plot with a few hundred points to an HTML5
+ * canvas and to SVG.
+ */
+public class WCartesianChartBenchmark {
+	private static final int POINTS = 200;
+
+	private BenchmarkSession session;
+	private WCartesianChart chart;
+
+	@Setup
+	public void setUp() {
+		session = new BenchmarkSession(true);
+
+		WStandardItemModel model = new WStandardItemModel(POINTS, 4);
+		for (int r = 0; r < POINTS; ++r) {
+			double x = r / 10.0;
+			model.setData(r, 0, x);
+			model.setData(r, 1, Math.sin(x));
+			model.setData(r, 2, Math.cos(x));
+			model.setData(r, 3, Math.sin(x) * Math.cos(x / 3));
+		}
+
+		chart = new WCartesianChart(ChartType.ScatterPlot, session.getApp().getRoot());
+		chart.setModel(model);
+		chart.setXSeriesColumn(0);
+		chart.setLegendEnabled(true);
+		chart.addSeries(new WDataSeries(1, SeriesType.LineSeries));
+		chart.addSeries(new WDataSeries(2, SeriesType.CurveSeries));
+		chart.addSeries(new WDataSeries(3, SeriesType.PointSeries));
+		chart.resize(new WLength(800), new WLength(600));
+	}
+
+	@TearDown
+	public void tearDown() {
+		session.close();
+	}
+
+	@Benchmark
+	public Object paintCanvas() {
+		WCanvasPaintDevice device = new WCanvasPaintDevice(new WLength(800), new WLength(600));
+		paint(device);
+		StringWriter js = new StringWriter();
+		device.renderPaintCommands(js, "c");
+		return js;
+	}
+
+	@Benchmark
+	public Object paintSvg() {
+		WSvgImage device = new WSvgImage(new WLength(800), new WLength(600));
+		paint(device);
+		return device.getRendered();
+	}
+
+	private void paint(WPaintDevice device) {
+		WPainter painter = new WPainter(device);
+		chart.paint(painter, new WRectF(0, 0, 800, 600));
+		painter.end();
+	}
+}
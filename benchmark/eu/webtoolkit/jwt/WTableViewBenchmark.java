@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+/**
+ * Benchmarks scrolling through a large table view: the browser reports the
+ * new viewport, and the rows that became visible are rendered.
+ */
+public class WTableViewBenchmark {
+	private static final int ROWS = 10000;
+	private static final int COLUMNS = 8;
+	private static final int HEIGHT = 400;
+
+	private BenchmarkSession session;
+	private JSignal4<Integer, Integer, Integer, Integer> scrolled;
+	private int top = 0;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		session = new BenchmarkSession(true);
+
+		WStandardItemModel model = new WStandardItemModel(ROWS, COLUMNS);
+		for (int r = 0; r < ROWS; ++r)
+			for (int c = 0; c < COLUMNS; ++c)
+				model.setData(r, c, "Item (" + r + ", " + c + ")");
+
+		WTableView view = new WTableView(session.getApp().getRoot());
+		view.resize(new WLength(800), new WLength(HEIGHT));
+		view.setModel(model);
+
+		session.renderInitial();
+
+		/* The signal by which the browser reports scrolling */
+		Field f = WTableView.class.getDeclaredField("scrolled_");
+		f.setAccessible(true);
+		scrolled = (JSignal4<Integer, Integer, Integer, Integer>) f.get(view);
+	}
+
+	@TearDown
+	public void tearDown() {
+		session.close();
+	}
+
+	@Benchmark
+	public long scroll() throws IOException {
+		top = (top + 3 * HEIGHT) % (ROWS * 20);
+		scrolled.trigger(0, top, 800, HEIGHT);
+		return session.renderUpdate();
+	}
+}
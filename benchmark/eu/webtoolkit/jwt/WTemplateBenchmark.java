@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Benchmarks rendering a template with bound strings and widgets.
+ */
+public class WTemplateBenchmark {
+	private static final int FIELDS = 20;
+
+	private BenchmarkSession session;
+	private WTemplate template;
+	private int updates = 0;
+
+	@Setup
+	public void setUp() throws IOException {
+		session = new BenchmarkSession(true);
+
+		StringBuilder text = new StringBuilder();
+		text.append("<div class=\"${form-class}\"><h2>${title}</h2>");
+		for (int i = 0; i < FIELDS; ++i)
+			text.append("<div class=\"row\"><label>${label").append(i).append("}</label>")
+					.append("${edit").append(i).append("} <span class=\"help\">${help")
+					.append(i).append("}</span></div>");
+		text.append("${<if-footer>}<div class=\"footer\">${footer}</div>${</if-footer>}</div>");
+
+		template = new WTemplate(text.toString(), session.getApp().getRoot());
+		template.bindString("form-class", "form-horizontal");
+		template.bindString("title", "Benchmark <form>", TextFormat.PlainText);
+		for (int i = 0; i < FIELDS; ++i) {
+			template.bindString("label" + i, "Field " + i);
+			template.bindWidget("edit" + i, new WLineEdit("value " + i));
+			template.bindString("help" + i, "Help & \"hints\" for field " + i, TextFormat.PlainText);
+		}
+		template.setCondition("if-footer", true);
+		template.bindString("footer", "Footer");
+
+		session.renderInitial();
+	}
+
+	@TearDown
+	public void tearDown() {
+		session.close();
+	}
+
+	@Benchmark
+	public Object renderTemplate() throws IOException {
+		StringWriter result = new StringWriter();
+		template.renderTemplate(result);
+		return result;
+	}
+
+	@Benchmark
+	public long rebindAndUpdate() throws IOException {
+		template.bindString("title", "Benchmark update " + (++updates), TextFormat.PlainText);
+		return session.renderUpdate();
+	}
+}
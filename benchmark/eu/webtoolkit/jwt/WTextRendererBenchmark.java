@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.pdfjet.A4;
+import com.pdfjet.PDF;
+import com.pdfjet.Page;
+
+import eu.webtoolkit.jwt.render.WPdfRenderer;
+
+/**
+ * Benchmarks rendering a long XHTML document to PDF, as a whole and in
+ * fragments.
+ * <p>
+ * Besides the time per document, the average time to first byte (from the
+ * start of rendering until the contents of the first page is written), and the
+ * peak heap usage while rendering are reported.
+ */
+public class WTextRendererBenchmark {
+	private static final int SECTIONS = 100;
+	private static final int ROWS = 20;
+
+	/*
+	 * Counts the bytes of the PDF, without keeping them, and records when the
+	 * first byte after start() is written.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		long count = 0;
+		long start = 0;
+		long firstWrite = 0;
+
+		void start() {
+			start = System.nanoTime();
+		}
+
+		@Override
+		public void write(int b) {
+			written(1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			written(len);
+		}
+
+		private void written(int len) {
+			if (start != 0 && firstWrite == 0 && len > 0)
+				firstWrite = System.nanoTime();
+			count += len;
+		}
+	}
+
+	private List<String> fragments;
+	private String document;
+	private String rendered;
+	private long documents;
+	private long firstByteNanos;
+
+	@Setup
+	public void setUp() {
+		fragments = new ArrayList<String>();
+		StringBuilder all = new StringBuilder("<div>");
+		for (int i = 0; i < SECTIONS; ++i) {
+			StringBuilder f = new StringBuilder();
+			f.append("<h2>Statement ").append(i).append("</h2>")
+				.append("<p>Transactions of account ").append(i)
+				.append(" in the period, listed by date. Amounts are in EUR.</p>")
+				.append("<table style=\"border-collapse: collapse\">");
+			for (int r = 0; r < ROWS; ++r)
+				f.append("<tr><td style=\"border: 1px solid black\">2016-01-").append(r + 1)
+					.append("</td><td style=\"border: 1px solid black\">Payment ").append(r)
+					.append("</td><td style=\"border: 1px solid black\">").append(i * r).append(".00</td></tr>");
+			f.append("</table>");
+			fragments.add(f.toString());
+			all.append(f);
+		}
+		all.append("</div>");
+		document = all.toString();
+
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+	}
+
+	@TearDown
+	public void tearDown() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+
+		System.out.println(String.format(Locale.US, "# %s: time to first byte %.3f ms, peak heap %d MB", rendered,
+				firstByteNanos / 1E6 / documents, peak / (1024 * 1024)));
+	}
+
+	@Benchmark
+	public long renderDocument() throws Exception {
+		CountingOutputStream out = new CountingOutputStream();
+		PDF pdf = new PDF(out);
+		WPdfRenderer renderer = createRenderer(pdf);
+		out.start();
+		renderer.render(document);
+		pdf.flush();
+		return rendered("renderDocument", out);
+	}
+
+	@Benchmark
+	public long renderFragments() throws Exception {
+		CountingOutputStream out = new CountingOutputStream();
+		PDF pdf = new PDF(out);
+		WPdfRenderer renderer = createRenderer(pdf);
+		out.start();
+		renderer.beginRender();
+		for (String f : fragments)
+			renderer.renderFragment(f);
+		renderer.endRender();
+		pdf.flush();
+		return rendered("renderFragments", out);
+	}
+
+	private long rendered(String benchmark, CountingOutputStream out) {
+		rendered = benchmark;
+		++documents;
+		firstByteNanos += out.firstWrite - out.start;
+		return out.count;
+	}
+
+	private static WPdfRenderer createRenderer(PDF pdf) throws Exception {
+		WPdfRenderer renderer = new WPdfRenderer(pdf, new Page(pdf, A4.PORTRAIT));
+		renderer.setMargin(2.54);
+		renderer.setDpi(96);
+		return renderer;
+	}
+}
@@ -82,6 +82,17 @@ public abstract class AbstractEventSignal extends AbstractSignal {
 			}
 		}
 
+		AbstractEventSignal getSignal() {
+			if (signals_ != null)
+				for (WeakReference<AbstractEventSignal> a : signals_) {
+					AbstractEventSignal s = a.get();
+					if (s != null)
+						return s;
+				}
+
+			return null;
+		}
+
 		private List<WeakReference<AbstractEventSignal>> signals_;
 		private boolean invalidated_ = false;
 	}
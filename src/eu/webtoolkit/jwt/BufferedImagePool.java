@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/*
+ * A pool of ARGB images, keyed by their dimensions, that is shared by all
+ * raster paint devices.
+ */
+class BufferedImagePool {
+	private static final long MAX_POOLED_PIXELS = 8 * 1024 * 1024;
+
+	private static Map<Long, LinkedList<BufferedImage>> images = new HashMap<Long, LinkedList<BufferedImage>>();
+	private static long pooledPixels = 0;
+
+	/*
+	 * Returns a cleared (fully transparent) image.
+	 */
+	static BufferedImage acquire(int width, int height) {
+		BufferedImage result = null;
+		synchronized (BufferedImagePool.class) {
+			LinkedList<BufferedImage> l = images.get(key(width, height));
+			if (l != null && !l.isEmpty()) {
+				result = l.removeFirst();
+				pooledPixels -= (long) width * height;
+			}
+		}
+
+		if (result == null)
+			return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		Arrays.fill(((DataBufferInt) result.getRaster().getDataBuffer()).getData(), 0);
+		return result;
+	}
+
+	/*
+	 * Returns an image to the pool. The image may no longer be used by the
+	 * caller.
+	 */
+	static void release(BufferedImage image) {
+		long pixels = (long) image.getWidth() * image.getHeight();
+		if (image.getType() != BufferedImage.TYPE_INT_ARGB || pixels > MAX_POOLED_PIXELS)
+			return;
+
+		synchronized (BufferedImagePool.class) {
+			if (pooledPixels + pixels > MAX_POOLED_PIXELS)
+				return;
+
+			Long key = key(image.getWidth(), image.getHeight());
+			LinkedList<BufferedImage> l = images.get(key);
+			if (l == null) {
+				l = new LinkedList<BufferedImage>();
+				images.put(key, l);
+			}
+			l.add(image);
+			pooledPixels += pixels;
+		}
+	}
+
+	private static Long key(int width, int height) {
+		return ((long) width << 32) | (height & 0xffffffffL);
+	}
+}
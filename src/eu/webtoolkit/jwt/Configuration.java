@@ -8,7 +8,11 @@ package eu.webtoolkit.jwt;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -78,7 +82,48 @@ public class Configuration {
 	private List<MetaHeader> metaHeaders = new ArrayList<MetaHeader>();
 	private int internalDeploymentSize = 0;
 	private long maxRequestSize = 1024*1024; // 1 Megabyte
+	private int pushInterval = 0;
+	private int sessionFootprintSampling = 0;
 	private boolean behindReverseProxy = false;
+	private boolean javaScriptBundles = false;
+	private boolean statelessSlotCache = false;
+	private int pageCacheSize = 0;
+	private int pageCacheTimeout = 300;
+
+	private static final int MAX_CACHED_USER_AGENTS = 1024;
+	private static final int MAX_CACHED_USER_AGENT_LENGTH = 512;
+
+	/*
+	 * The compiled agent lists, and the classification of recently seen user
+	 * agents. A new classifier, with an empty cache, replaces it when a list
+	 * is set.
+	 */
+	private volatile UserAgentClassifier userAgentClassifier;
+
+	private static class UserAgentClassifier {
+		final List<Pattern> botPatterns;
+		final List<Pattern> ajaxAgentPatterns;
+		final boolean ajaxAgentWhiteList;
+		final ConcurrentMap<String, UserAgentInfo> cache = new ConcurrentHashMap<String, UserAgentInfo>();
+
+		UserAgentClassifier(List<String> botList, List<String> ajaxAgentList, boolean ajaxAgentWhiteList) {
+			this.botPatterns = compilePatterns(botList);
+			this.ajaxAgentPatterns = compilePatterns(ajaxAgentList);
+			this.ajaxAgentWhiteList = ajaxAgentWhiteList;
+		}
+	}
+
+	static class UserAgentInfo {
+		final WEnvironment.UserAgent agent;
+		final boolean bot;
+		final boolean ajax;
+
+		UserAgentInfo(WEnvironment.UserAgent agent, boolean bot, boolean ajax) {
+			this.agent = agent;
+			this.bot = bot;
+			this.ajax = ajax;
+		}
+	}
 
 	/**
 	 * Creates a default configuration.
@@ -94,6 +139,8 @@ public class Configuration {
 		botList.add(".ia_archiver.*");
 		botList.add(".*Googlebot.*");
 		botList.add(".*Twiceler.*");
+
+		compileUserAgentLists();
 	}
 
 	/**
@@ -155,6 +202,34 @@ public class Configuration {
 						setRedirectMessage(node.getTextContent().trim());
 					} else if (node.getNodeName().equalsIgnoreCase("inline-css")) {
 						setInlineCss(parseBoolean(errorMessage, node));
+					} else if (node.getNodeName().equalsIgnoreCase("push-interval")) {
+						try {
+							setPushInterval(Integer.parseInt(node.getTextContent().trim()));
+						} catch (NumberFormatException e) {
+							throw new RuntimeException(errorMessage + "push-interval must be a number of milliseconds");
+						}
+					} else if (node.getNodeName().equalsIgnoreCase("session-footprint-sampling")) {
+						try {
+							setSessionFootprintSampling(Integer.parseInt(node.getTextContent().trim()));
+						} catch (NumberFormatException e) {
+							throw new RuntimeException(errorMessage + "session-footprint-sampling must be a number of seconds");
+						}
+					} else if (node.getNodeName().equalsIgnoreCase("javascript-bundles")) {
+						setJavaScriptBundles(parseBoolean(errorMessage, node));
+					} else if (node.getNodeName().equalsIgnoreCase("stateless-slot-cache")) {
+						setStatelessSlotCache(parseBoolean(errorMessage, node));
+					} else if (node.getNodeName().equalsIgnoreCase("page-cache-size")) {
+						try {
+							setPageCacheSize(Integer.parseInt(node.getTextContent().trim()));
+						} catch (NumberFormatException e) {
+							throw new RuntimeException(errorMessage + "page-cache-size must be a number of pages");
+						}
+					} else if (node.getNodeName().equalsIgnoreCase("page-cache-timeout")) {
+						try {
+							setPageCacheTimeout(Integer.parseInt(node.getTextContent().trim()));
+						} catch (NumberFormatException e) {
+							throw new RuntimeException(errorMessage + "page-cache-timeout must be a number of seconds");
+						}
 					} else if (node.getNodeName().equalsIgnoreCase("favicon")) {
 						setFavicon(node.getTextContent().trim());
 					} else if (node.getNodeName().equalsIgnoreCase("lis")) {
@@ -178,6 +253,8 @@ public class Configuration {
 				}
 			}
 		}
+
+		compileUserAgentLists();
 	}
 
 	private void parseUserAgents(String errorMessage, Node node, List<String> list) {
@@ -377,12 +454,14 @@ public class Configuration {
 	public void setAjaxAgentList(ArrayList<String> ajaxAgentList, boolean isWhiteList) {
 		this.ajaxAgentList = ajaxAgentList;
 		this.ajaxAgentWhiteList = isWhiteList;
+		compileUserAgentLists();
 	}
 
 	/**
 	 * Returns the list of user agents that are (not) considered for AJAX sessions.
 	 * <p>
 	 * Depending on the value of {@link #isAjaxAgentWhiteList()}, the list is a white-list or a black-list.
+	 * Changes to the list take effect when it is set again using {@link #setAjaxAgentList(ArrayList, boolean)}.
 	 *
 	 * @return the list of user agents that are (not) considered for AJAX sessions.
 	 * 
@@ -414,19 +493,7 @@ public class Configuration {
 	 * @see #setAjaxAgentList(ArrayList, boolean)
 	 */
 	public boolean agentSupportsAjax(String userAgent) {
-		boolean inList = false;
-		
-		for (String regex : ajaxAgentList) {
-			if (userAgent.matches(regex)) {
-				inList = true;
-				break;
-			}
-		}
-		
-		if (ajaxAgentWhiteList)
-			return inList;
-		else
-			return !inList;
+		return classifyUserAgent(userAgent).ajax;
 	}
 
 	/**
@@ -460,10 +527,13 @@ public class Configuration {
 	 */
 	public void setBotList(ArrayList<String> botList) {
 		this.botList = botList;
+		compileUserAgentLists();
 	}
 
 	/**
 	 * Returns the list of user agents that are treated as bots.
+	 * <p>
+	 * Changes to the list take effect when it is set again using {@link #setBotList(ArrayList)}.
 	 * 
 	 * @return the list of user agents that are treated as bots.
 	 * 
@@ -479,14 +549,63 @@ public class Configuration {
 	 * @see #setBotList(ArrayList)
 	 */
 	public boolean agentIsBot(String userAgent) {
-		for (String regex : botList) {
-			if (userAgent.matches(regex))
+		return classifyUserAgent(userAgent).bot;
+	}
+
+	/*
+	 * Classifies a user agent: its browser type, and whether it is a bot or
+	 * may be served an AJAX session. The result is cached, since sessions are
+	 * created by relatively few distinct user agents. When the cache is full,
+	 * an arbitrary entry is evicted.
+	 */
+	UserAgentInfo classifyUserAgent(String userAgent) {
+		UserAgentClassifier classifier = userAgentClassifier;
+
+		UserAgentInfo result = classifier.cache.get(userAgent);
+		if (result != null)
+			return result;
+
+		boolean bot = matchesAny(classifier.botPatterns, userAgent);
+		boolean ajax = matchesAny(classifier.ajaxAgentPatterns, userAgent) == classifier.ajaxAgentWhiteList;
+		result = new UserAgentInfo(WEnvironment.detectUserAgent(userAgent, bot), bot, ajax);
+
+		if (userAgent.length() <= MAX_CACHED_USER_AGENT_LENGTH) {
+			if (classifier.cache.size() >= MAX_CACHED_USER_AGENTS) {
+				Iterator<String> i = classifier.cache.keySet().iterator();
+				if (i.hasNext()) {
+					i.next();
+					i.remove();
+				}
+			}
+
+			UserAgentInfo cached = classifier.cache.putIfAbsent(userAgent, result);
+			if (cached != null)
+				result = cached;
+		}
+
+		return result;
+	}
+
+	private void compileUserAgentLists() {
+		userAgentClassifier = new UserAgentClassifier(botList, ajaxAgentList, ajaxAgentWhiteList);
+	}
+
+	private static List<Pattern> compilePatterns(List<String> regexes) {
+		List<Pattern> result = new ArrayList<Pattern>();
+		for (String regex : regexes)
+			result.add(Pattern.compile(regex));
+		return result;
+	}
+
+	private static boolean matchesAny(List<Pattern> patterns, String s) {
+		for (Pattern p : patterns) {
+			if (p.matcher(s).matches())
 				return true;
 		}
-		
+
 		return false;
 	}
-	
+
 	/**
 	 * Configures a path to a favicon.
 	 * 
@@ -714,6 +833,169 @@ public class Configuration {
 		return maxRequestSize;
 	}
 
+	/**
+	 * Sets the minimum time between two server push updates to a session.
+	 * 
+	 * Updates that are triggered with {@link WApplication#triggerUpdate()} within
+	 * this interval after a push are coalesced and pushed together at the end of
+	 * the interval. This bounds the number of renders per session when
+	 * background threads trigger updates at a high rate.
+	 * 
+	 * The default value is 0 (ms): every triggered update is pushed as soon as
+	 * possible.
+	 * 
+	 * @param interval the interval in milliseconds.
+	 * @see WApplication#setPushInterval(int)
+	 */
+	public void setPushInterval(int interval) {
+		this.pushInterval = Math.max(0, interval);
+	}
+
+	/**
+	 * Returns the minimum time between two server push updates to a session.
+	 * 
+	 * @see #setPushInterval(int)
+	 */
+	public int getPushInterval() {
+		return pushInterval;
+	}
+
+	/**
+	 * Sets the interval at which the memory footprint of sessions is sampled.
+	 * 
+	 * When enabled, a few sessions that are not busy are measured at every
+	 * interval by a background thread, and the results are exposed through
+	 * {@link WtServlet#getFootprintSampler()} and JMX.
+	 * 
+	 * The default value is 0 (s): sampling is disabled.
+	 * 
+	 * @param seconds the interval in seconds.
+	 * @see SessionFootprintSampler
+	 */
+	public void setSessionFootprintSampling(int seconds) {
+		this.sessionFootprintSampling = Math.max(0, seconds);
+	}
+
+	/**
+	 * Returns the interval at which the memory footprint of sessions is sampled.
+	 * 
+	 * @see #setSessionFootprintSampling(int)
+	 */
+	public int getSessionFootprintSampling() {
+		return sessionFootprintSampling;
+	}
+
+	/**
+	 * Sets whether widget JavaScript is served in shared bundles.
+	 * <p>
+	 * The JavaScript that implements widgets such as {@link WTableView} or
+	 * {@link WTreeView} is the same for every session. When this option is
+	 * enabled, the JavaScript needed when a session starts is served as a
+	 * separate script from the application URL, which is shared by all
+	 * sessions and may be cached by the browser, rather than being included in
+	 * the response of every session.
+	 * <p>
+	 * The URL of a bundle names the JavaScript it contains. A servlet that
+	 * does not have a requested bundle in memory, e.g. after a restart or
+	 * behind a load balancer without session affinity, creates it again,
+	 * provided that it has already served the same JavaScript in a bundle of
+	 * its own. Otherwise the bundle is not found.
+	 * <p>
+	 * The default value is <code>false</code>.
+	 */
+	public void setJavaScriptBundles(boolean enabled) {
+		this.javaScriptBundles = enabled;
+	}
+
+	/**
+	 * Returns whether widget JavaScript is served in shared bundles.
+	 * 
+	 * @see #setJavaScriptBundles(boolean)
+	 */
+	public boolean isJavaScriptBundles() {
+		return javaScriptBundles;
+	}
+
+	/**
+	 * Sets whether learned stateless slot JavaScript is shared between sessions.
+	 * <p>
+	 * The JavaScript of a stateless slot that is learned in advance (see
+	 * {@link AbstractEventSignal.PreLearnListener}) is learned by triggering the
+	 * slot for every widget in every session. When this option is enabled, the
+	 * learned JavaScript is kept in a cache that is shared by all sessions, and
+	 * reused (with the widget ids of the session) for a slot of the same class
+	 * that is connected to a widget at the same place in the widget tree, when
+	 * the widgets it updates are of the same class and visibility.
+	 * <p>
+	 * Only JavaScript that shows, hides, enables or disables widgets is shared:
+	 * JavaScript that sets a text, value, attribute or style, and which could
+	 * thus reveal data of another session, is never cached. Still, sharing is
+	 * only correct if which widgets a slot shows or hides does not depend on
+	 * other data of the session, which is why the default value is
+	 * <code>false</code>.
+	 */
+	public void setStatelessSlotCache(boolean enabled) {
+		this.statelessSlotCache = enabled;
+	}
+
+	/**
+	 * Returns whether learned stateless slot JavaScript is shared between sessions.
+	 * 
+	 * @see #setStatelessSlotCache(boolean)
+	 */
+	public boolean isStatelessSlotCache() {
+		return statelessSlotCache;
+	}
+
+	/**
+	 * Sets the maximum number of pages in the page cache.
+	 * <p>
+	 * Bots are served a plain HTML page, for which a session is created and
+	 * immediately destroyed. When the page cache is enabled, pages that the
+	 * application marked as cacheable (see
+	 * {@link WApplication#setPageCacheable(boolean)}) are cached, and served to
+	 * bots that request the same URL without creating a session. When the
+	 * cache is full, the least recently used page is removed.
+	 * <p>
+	 * The default value is 0: the page cache is disabled.
+	 * 
+	 * @param pages the maximum number of pages.
+	 * @see #setPageCacheTimeout(int)
+	 */
+	public void setPageCacheSize(int pages) {
+		this.pageCacheSize = Math.max(0, pages);
+	}
+
+	/**
+	 * Returns the maximum number of pages in the page cache.
+	 * 
+	 * @see #setPageCacheSize(int)
+	 */
+	public int getPageCacheSize() {
+		return pageCacheSize;
+	}
+
+	/**
+	 * Sets the time for which a page is served from the page cache.
+	 * <p>
+	 * The default value is 300 (s).
+	 * 
+	 * @param seconds the time in seconds.
+	 * @see #setPageCacheSize(int)
+	 */
+	public void setPageCacheTimeout(int seconds) {
+		this.pageCacheTimeout = Math.max(0, seconds);
+	}
+
+	/**
+	 * Returns the time for which a page is served from the page cache.
+	 * 
+	 * @see #setPageCacheTimeout(int)
+	 */
+	public int getPageCacheTimeout() {
+		return pageCacheTimeout;
+	}
+
 	SessionTracking getSessionTracking() {
 		return SessionTracking.Auto;
 	}
@@ -62,29 +62,37 @@ class FontSupport {
 	public FontSupport(WPaintDevice device) {
 		this.device_ = device;
 		this.fontCollections_ = new ArrayList<FontSupport.FontCollection>();
-		this.cache_ = new LinkedList<FontSupport.Matched>();
 		this.font_ = null;
-		for (int i = 0; i < 5; ++i) {
-			this.cache_.addLast(new FontSupport.Matched());
-		}
 	}
 
 	public void setDevice(WPaintDevice device) {
 		assert false;
 	}
 
+	/**
+	 * Matches a font against the font collections.
+	 * <p>
+	 * The font files in a collection are indexed once, and match results are
+	 * remembered, for all paint devices in the JVM. Font files that are added
+	 * to a collection directory after it has been indexed are therefore only
+	 * found after {@link FontSupport#clearFontIndex() clearFontIndex()}.
+	 */
 	public FontMatch matchFont(final WFont font) {
-		for (Iterator<FontSupport.Matched> i_it = this.cache_.iterator(); i_it
-				.hasNext();) {
-			FontSupport.Matched i = i_it.next();
-			if (i.font.getGenericFamily() == font.getGenericFamily()
-					&& i.font.getSpecificFamilies().equals(
-							font.getSpecificFamilies())
-					&& i.font.getWeight() == font.getWeight()
-					&& i.font.getStyle() == font.getStyle()) {
-				CollectionUtils.splice(this.cache_, this.cache_.iterator(),
-						this.cache_, i);
-				return this.cache_.getFirst().match;
+		StringBuilder key = new StringBuilder();
+		key.append(font.getGenericFamily().ordinal()).append('|')
+				.append(font.getSpecificFamilies().toString()).append('|')
+				.append(font.getWeight().ordinal()).append('|')
+				.append(font.getStyle().ordinal());
+		for (int i = 0; i < this.fontCollections_.size(); ++i) {
+			key.append('|')
+					.append(this.fontCollections_.get(i).recursive ? 'r' : 'n')
+					.append(this.fontCollections_.get(i).directory);
+		}
+		String k = key.toString();
+		synchronized (matchCache_) {
+			FontMatch cached = matchCache_.get(k);
+			if (cached != null) {
+				return new FontMatch(cached.getFileName(), cached.getQuality());
 			}
 		}
 		FontMatch match = new FontMatch();
@@ -96,13 +104,62 @@ class FontSupport {
 				Utils.assignFontMatch(match, m);
 			}
 		}
-		this.cache_.removeLast();
-		this.cache_.addFirst(new FontSupport.Matched());
-		this.cache_.getFirst().font = font;
-		Utils.assignFontMatch(this.cache_.getFirst().match, match);
+		synchronized (matchCache_) {
+			if (matchCache_.size() >= MATCH_CACHE_SIZE) {
+				matchCache_.clear();
+			}
+			matchCache_.put(k,
+					new FontMatch(match.getFileName(), match.getQuality()));
+		}
 		return match;
 	}
 
+	/**
+	 * Returns the contents of a font file.
+	 * <p>
+	 * Font files are kept in memory (as long as memory permits), and shared by
+	 * all paint devices in the JVM.
+	 */
+	public static byte[] getFontData(final String fileName) throws IOException {
+		synchronized (fontData_) {
+			SoftReference<byte[]> ref = fontData_.get(fileName);
+			byte[] data = ref != null ? ref.get() : null;
+			if (data != null) {
+				return data;
+			}
+		}
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FileInputStream fis = new FileInputStream(fileName);
+		try {
+			StreamUtils.copy(fis, bos);
+		} finally {
+			StreamUtils.closeQuietly(fis);
+		}
+		byte[] data = bos.toByteArray();
+		synchronized (fontData_) {
+			fontData_.put(fileName, new SoftReference<byte[]>(data));
+		}
+		return data;
+	}
+
+	/**
+	 * Clears the font index.
+	 * <p>
+	 * This forgets the indexed font collections, match results and font file
+	 * contents.
+	 */
+	public static void clearFontIndex() {
+		synchronized (fontFiles_) {
+			fontFiles_.clear();
+		}
+		synchronized (matchCache_) {
+			matchCache_.clear();
+		}
+		synchronized (fontData_) {
+			fontData_.clear();
+		}
+	}
+
 	public WFontMetrics fontMetrics(final WFont font) {
 		this.font_ = font;
 		WFontMetrics fm = this.device_.getFontMetrics();
@@ -161,26 +218,12 @@ class FontSupport {
 
 	private List<FontSupport.FontCollection> fontCollections_;
 
-	static class Matched {
-		private static Logger logger = LoggerFactory.getLogger(Matched.class);
-
-		public WFont font;
-		public FontMatch match;
-
-		public Matched() {
-			this.font = new WFont();
-			this.match = new FontMatch();
-		}
-	}
-
-	private LinkedList<FontSupport.Matched> cache_;
 	private WFont font_;
 
 	private FontMatch matchFont(final WFont font, final String directory,
 			boolean recursive) {
-		if (!FileUtils.exists(directory) || !FileUtils.isDirectory(directory)) {
-			logger.error(new StringWriter().append("cannot read directory '")
-					.append(directory).append("'").toString());
+		List<String> files = getFontFiles(directory, recursive);
+		if (files == null) {
 			return new FontMatch();
 		}
 		List<String> fontNames = new ArrayList<String>();
@@ -217,27 +260,50 @@ class FontSupport {
 			;
 		}
 		FontMatch match = new FontMatch();
-		this.matchFont(font, fontNames, directory, recursive, match);
+		for (int i = 0; i < files.size(); ++i) {
+			this.matchFont(font, fontNames, files.get(i), match);
+			if (match.getQuality() == 1.0) {
+				break;
+			}
+		}
 		return match;
 	}
 
-	private void matchFont(final WFont font, final List<String> fontNames,
-			final String path, boolean recursive, final FontMatch match) {
+	private static List<String> getFontFiles(final String directory,
+			boolean recursive) {
+		String key = (recursive ? 'r' : 'n') + directory;
+		synchronized (fontFiles_) {
+			if (fontFiles_.containsKey(key)) {
+				return fontFiles_.get(key);
+			}
+		}
+		List<String> files = null;
+		if (!FileUtils.exists(directory) || !FileUtils.isDirectory(directory)) {
+			logger.error(new StringWriter().append("cannot read directory '")
+					.append(directory).append("'").toString());
+		} else {
+			files = new ArrayList<String>();
+			listFontFiles(directory, recursive, files);
+		}
+		synchronized (fontFiles_) {
+			fontFiles_.put(key, files);
+		}
+		return files;
+	}
+
+	private static void listFontFiles(final String path, boolean recursive,
+			final List<String> result) {
 		List<String> files = new ArrayList<String>();
 		FileUtils.listFiles(path, files);
 		for (int i = 0; i < files.size(); ++i) {
 			String f = files.get(i);
 			if (FileUtils.isDirectory(f)) {
 				if (recursive) {
-					this.matchFont(font, fontNames, f, recursive, match);
-					if (match.getQuality() == 1.0) {
-						return;
-					}
+					listFontFiles(f, recursive, result);
 				}
 			} else {
-				this.matchFont(font, fontNames, f, match);
-				if (match.getQuality() == 1.0) {
-					return;
+				if (f.endsWith(".ttf") || f.endsWith(".ttc")) {
+					result.add(f);
 				}
 			}
 		}
@@ -290,4 +356,8 @@ class FontSupport {
 	}
 
 	private static Map<String, String> fontRegistry_ = new HashMap<String, String>();
+	private static final int MATCH_CACHE_SIZE = 1000;
+	private static Map<String, List<String>> fontFiles_ = new HashMap<String, List<String>>();
+	private static Map<String, FontMatch> matchCache_ = new HashMap<String, FontMatch>();
+	private static Map<String, SoftReference<byte[]>> fontData_ = new HashMap<String, SoftReference<byte[]>>();
 }
@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/*
+ * Wt class scope JavaScript preambles, bundled into scripts that are shared by
+ * all sessions.
+ *
+ * A bundle is served from the application URL with a "wtbundle" query
+ * parameter, which holds a hash of its contents followed by the names of the
+ * preambles it contains. Since its contents never change for a given URL, it
+ * may be cached by the browser indefinitely.
+ *
+ * Bundles are only kept in memory. When a bundle is requested that is not
+ * known (e.g. after a restart, or from another server), it is created again
+ * from the preambles with these names that were bundled before, provided that
+ * the result has the same hash.
+ */
+class JavaScriptBundles {
+	static final String PARAMETER = "wtbundle";
+
+	private static final int MAX_BUNDLES = 256;
+	private static final int MAX_PREAMBLE_VARIANTS = 4;
+	private static final int MAX_VARIANT_COMBINATIONS = 16;
+
+	private static class Bundle {
+		final String hash;
+		final String query;
+		final byte[] data;
+		final byte[] gzipData;
+
+		Bundle(String hash, String query, byte[] data, byte[] gzipData) {
+			this.hash = hash;
+			this.query = query;
+			this.data = data;
+			this.gzipData = gzipData;
+		}
+	}
+
+	/* Bundles by the names (and source hash codes) of the preambles they contain */
+	private final ConcurrentMap<String, Bundle> bundlesByContents = new ConcurrentHashMap<String, Bundle>();
+
+	/* Bundles by query */
+	private final ConcurrentMap<String, Bundle> bundles = new ConcurrentHashMap<String, Bundle>();
+
+	/*
+	 * The bundled preambles by name. Different preambles may have the same
+	 * name, e.g. those of the themes.
+	 */
+	private final ConcurrentMap<String, List<WJavaScriptPreamble>> preambles = new ConcurrentHashMap<String, List<WJavaScriptPreamble>>();
+
+	/*
+	 * Returns the (relative) URL of a bundle with the given preambles, or null
+	 * if too many distinct bundles were already created.
+	 */
+	String getUrl(List<WJavaScriptPreamble> preambles) {
+		StringBuilder key = new StringBuilder();
+		for (WJavaScriptPreamble preamble : preambles)
+			key.append(preamble.name).append(':').append(preamble.src.hashCode()).append(' ');
+
+		Bundle bundle = bundlesByContents.get(key.toString());
+		if (bundle == null) {
+			if (bundles.size() >= MAX_BUNDLES)
+				return null;
+
+			bundle = createBundle(preambles, null);
+			if (bundle == null)
+				return null;
+
+			Bundle existing = bundlesByContents.putIfAbsent(key.toString(), bundle);
+			if (existing != null)
+				bundle = existing;
+			else {
+				bundles.putIfAbsent(bundle.query, bundle);
+				for (WJavaScriptPreamble preamble : preambles)
+					addPreamble(preamble);
+			}
+		}
+
+		return "?" + bundle.query;
+	}
+
+	/*
+	 * Serves a bundle, if this is a request for one.
+	 */
+	boolean handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		String query = request.getQueryString();
+		if (query == null || !query.startsWith(PARAMETER + "=") || !"GET".equals(request.getMethod()))
+			return false;
+
+		String value = query.substring(PARAMETER.length() + 1);
+		int hashEnd = value.indexOf('-');
+		String etag = '"' + (hashEnd != -1 ? value.substring(0, hashEnd) : value) + '"';
+
+		/* The contents for a URL never change: a cached copy is still valid */
+		if (etag.equals(request.getHeader("If-None-Match"))) {
+			setCacheHeaders(response, etag);
+			response.setStatus(304);
+			return true;
+		}
+
+		Bundle bundle = bundles.get(query);
+		if (bundle == null) {
+			bundle = recreateBundle(value);
+			if (bundle == null) {
+				response.setStatus(404);
+				return true;
+			}
+
+			if (bundles.size() < MAX_BUNDLES)
+				bundles.putIfAbsent(bundle.query, bundle);
+		}
+
+		setCacheHeaders(response, etag);
+
+		response.setContentType("text/javascript; charset=UTF-8");
+
+		byte[] data = bundle.data;
+		String acceptEncoding = request.getHeader("Accept-Encoding");
+		if (acceptEncoding != null && acceptEncoding.indexOf("gzip") != -1) {
+			response.setHeader("Content-Encoding", "gzip");
+			data = bundle.gzipData;
+		}
+
+		response.setContentLength(data.length);
+		response.getOutputStream().write(data);
+		response.getOutputStream().flush();
+
+		return true;
+	}
+
+	private static void setCacheHeaders(HttpServletResponse response, String etag) {
+		response.setHeader("Cache-Control", "public, max-age=31536000");
+		response.setHeader("ETag", etag);
+		response.setHeader("Vary", "Accept-Encoding");
+	}
+
+	/*
+	 * Creates a bundle with the preambles named in a query parameter value:
+	 * the hash followed by the names, separated by '-'.
+	 */
+	private Bundle recreateBundle(String value) {
+		String[] parts = value.split("-");
+		if (parts.length < 2)
+			return null;
+
+		List<List<WJavaScriptPreamble>> variants = new ArrayList<List<WJavaScriptPreamble>>();
+		int combinations = 1;
+		for (int i = 1; i < parts.length; ++i) {
+			List<WJavaScriptPreamble> named = new ArrayList<WJavaScriptPreamble>();
+			List<WJavaScriptPreamble> known = this.preambles.get(parts[i]);
+			if (known != null)
+				named.addAll(known);
+
+			combinations *= named.size();
+			if (combinations == 0 || combinations > MAX_VARIANT_COMBINATIONS)
+				return null;
+			variants.add(named);
+		}
+
+		return findBundle(parts[0], variants, new ArrayList<WJavaScriptPreamble>());
+	}
+
+	/*
+	 * Finds the variants of the named preambles of which the bundle has the
+	 * given hash.
+	 */
+	private static Bundle findBundle(String hash, List<List<WJavaScriptPreamble>> variants,
+			List<WJavaScriptPreamble> chosen) {
+		if (chosen.size() == variants.size())
+			return createBundle(chosen, hash);
+
+		for (WJavaScriptPreamble preamble : variants.get(chosen.size())) {
+			chosen.add(preamble);
+			Bundle result = findBundle(hash, variants, chosen);
+			chosen.remove(chosen.size() - 1);
+			if (result != null)
+				return result;
+		}
+
+		return null;
+	}
+
+	private void addPreamble(WJavaScriptPreamble preamble) {
+		List<WJavaScriptPreamble> named = preambles.get(preamble.name);
+		if (named == null) {
+			named = new CopyOnWriteArrayList<WJavaScriptPreamble>();
+			List<WJavaScriptPreamble> existing = preambles.putIfAbsent(preamble.name, named);
+			if (existing != null)
+				named = existing;
+		}
+
+		synchronized (named) {
+			for (WJavaScriptPreamble p : named)
+				if (p.src.equals(preamble.src))
+					return;
+
+			if (named.size() < MAX_PREAMBLE_VARIANTS)
+				named.add(preamble);
+		}
+	}
+
+	/*
+	 * Creates a bundle, or returns null if a hash is given and the bundle has
+	 * a different hash.
+	 */
+	private static Bundle createBundle(List<WJavaScriptPreamble> preambles, String expectedHash) {
+		StringBuilder js = new StringBuilder();
+		for (WJavaScriptPreamble preamble : preambles)
+			WApplication.streamJavaScriptPreamble(js, preamble, "Wt3_3_5");
+
+		try {
+			byte[] sha1 = Utils.sha1(js.toString());
+			StringBuilder hash = new StringBuilder();
+			for (int i = 0; i < 12; ++i) {
+				hash.append(Character.forDigit((sha1[i] >> 4) & 0xF, 16));
+				hash.append(Character.forDigit(sha1[i] & 0xF, 16));
+			}
+
+			if (expectedHash != null && !expectedHash.equals(hash.toString()))
+				return null;
+
+			StringBuilder query = new StringBuilder(PARAMETER).append('=').append(hash);
+			for (WJavaScriptPreamble preamble : preambles)
+				query.append('-').append(preamble.name);
+
+			byte[] data = js.toString().getBytes("UTF-8");
+
+			ByteArrayOutputStream gzipData = new ByteArrayOutputStream();
+			GZIPOutputStream gzip = new GZIPOutputStream(gzipData);
+			gzip.write(data);
+			gzip.close();
+
+			return new Bundle(hash.toString(), query.toString(), data, gzipData.toByteArray());
+		} catch (UnsupportedEncodingException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
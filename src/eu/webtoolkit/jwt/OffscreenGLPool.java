@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLDrawableFactory;
+import javax.media.opengl.GLOffscreenAutoDrawable;
+import javax.media.opengl.GLProfile;
+
+/*
+ * A bounded pool of offscreen GL drawables, shared by all server-side rendered
+ * GL widgets.
+ *
+ * A widget acquires a drawable only for the duration of a render, and
+ * renders are queued while all drawables are in use. A drawable remembers the
+ * widget that used it last: as long as no other widget needed it in the mean
+ * time, the widget gets it back with its GL state intact. Otherwise, the least
+ * recently used drawable is recreated, and the widget must restore its GL
+ * state.
+ */
+class OffscreenGLPool {
+	static class Slot {
+		private Slot() {
+			this.owner = null;
+			this.busy = true;
+		}
+
+		GLOffscreenAutoDrawable getDrawable() {
+			return drawable;
+		}
+
+		/*
+		 * Returns whether the GL state of the previous render of the widget
+		 * has been lost.
+		 */
+		boolean isFresh() {
+			return fresh;
+		}
+
+		/*
+		 * Returns a buffer for reading back pixels, which is reused between
+		 * renders.
+		 */
+		ByteBuffer getReadBuffer(int size) {
+			if (readBuffer == null || readBuffer.capacity() < size) {
+				readBuffer = ByteBuffer.allocateDirect(size);
+				readBuffer.order(ByteOrder.nativeOrder());
+			}
+			readBuffer.clear();
+			readBuffer.limit(size);
+			return readBuffer;
+		}
+
+		private GLOffscreenAutoDrawable drawable;
+		private WeakReference<Object> owner;
+		private boolean busy;
+		private boolean fresh;
+		private long lastUsed;
+		private ByteBuffer readBuffer;
+	}
+
+	private static final List<Slot> slots = new ArrayList<Slot>();
+	private static int maxSize = Math.max(2, Runtime.getRuntime()
+			.availableProcessors());
+	private static long useCount = 0;
+
+	static synchronized void setMaxSize(int size) {
+		if (size < 1)
+			throw new IllegalArgumentException("size must be at least 1");
+		maxSize = size;
+	}
+
+	static synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/*
+	 * Acquires a drawable of the given size for a widget, waiting while all
+	 * drawables are in use.
+	 */
+	static Slot acquire(Object owner, int width, int height) {
+		Slot result = reserve(owner);
+
+		width = Math.max(1, width);
+		height = Math.max(1, height);
+
+		try {
+			if (result.fresh) {
+				if (result.drawable != null)
+					result.drawable.destroy();
+				result.drawable = null;
+				result.drawable = createDrawable(width, height);
+			} else if (result.drawable.getWidth() != width
+					|| result.drawable.getHeight() != height)
+				result.drawable.setSize(width, height);
+		} catch (RuntimeException e) {
+			synchronized (OffscreenGLPool.class) {
+				slots.remove(result);
+				OffscreenGLPool.class.notifyAll();
+			}
+			throw e;
+		}
+
+		return result;
+	}
+
+	/*
+	 * Reserves a slot for a widget, waiting while all slots are in use. The
+	 * slot is fresh if its drawable needs to be (re)created.
+	 */
+	static Slot reserve(Object owner) {
+		Slot result = null;
+
+		synchronized (OffscreenGLPool.class) {
+			while (result == null) {
+				Slot leastRecentlyUsed = null;
+				for (Slot s : slots) {
+					if (s.busy)
+						continue;
+					if (s.owner != null && s.owner.get() == owner) {
+						result = s;
+						break;
+					}
+					if (leastRecentlyUsed == null
+							|| isBetterVictim(s, leastRecentlyUsed))
+						leastRecentlyUsed = s;
+				}
+
+				if (result != null) {
+					result.fresh = false;
+				} else if (slots.size() < maxSize) {
+					result = new Slot();
+					slots.add(result);
+					result.fresh = true;
+				} else if (leastRecentlyUsed != null) {
+					result = leastRecentlyUsed;
+					result.fresh = true;
+				} else {
+					try {
+						OffscreenGLPool.class.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new WException(
+								"Interrupted while waiting for an offscreen GL context");
+					}
+				}
+			}
+
+			result.busy = true;
+			result.owner = new WeakReference<Object>(owner);
+		}
+
+		return result;
+	}
+
+	static synchronized void release(Slot slot) {
+		slot.busy = false;
+		slot.lastUsed = ++useCount;
+		OffscreenGLPool.class.notifyAll();
+	}
+
+	/*
+	 * Drawables of widgets that no longer exist are taken first.
+	 */
+	private static boolean isBetterVictim(Slot s, Slot other) {
+		boolean orphaned = s.owner == null || s.owner.get() == null;
+		boolean otherOrphaned = other.owner == null || other.owner.get() == null;
+		if (orphaned != otherOrphaned)
+			return orphaned;
+		else
+			return s.lastUsed < other.lastUsed;
+	}
+
+	private static GLOffscreenAutoDrawable createDrawable(int width, int height) {
+		GLProfile glp = GLProfile.getDefault();
+		GLDrawableFactory fact = GLDrawableFactory.getFactory(glp);
+		GLCapabilities caps = new GLCapabilities(glp);
+		caps.setAlphaBits(8);
+		caps.setFBO(true);
+		return fact.createOffscreenAutoDrawable(null, caps, null, width,
+				height, null);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+/*
+ * Plain HTML pages rendered for bots, served to other bots that request the
+ * same URL without creating a session.
+ *
+ * A page is identified by the path and query of its URL, the locale of the
+ * request and the servlet's vary key. Pages expire after the configured
+ * timeout, and the least recently used pages are removed when the cache is
+ * full.
+ */
+class PageCache {
+	private static class Page {
+		final String html;
+		final long expires;
+
+		Page(String html, long expires) {
+			this.html = html;
+			this.expires = expires;
+		}
+	}
+
+	private WtServlet servlet;
+
+	private final Map<String, Page> pages = new LinkedHashMap<String, Page>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+			return size() > servlet.getConfiguration().getPageCacheSize();
+		}
+	};
+
+	PageCache(WtServlet servlet) {
+		this.servlet = servlet;
+	}
+
+	/*
+	 * Serves a page from the cache, if this is a request from a bot for a
+	 * page that is in the cache.
+	 */
+	boolean handleRequest(WebRequest request, WebResponse response) {
+		String key = getKey(request);
+		if (key == null)
+			return false;
+
+		HttpSession jsession = request.getSession(false);
+		if (jsession != null && jsession.getAttribute(WtServlet.WT_WEBSESSION_ID) != null)
+			return false;
+
+		Page page;
+		synchronized (pages) {
+			page = pages.get(key);
+			if (page != null && page.expires < System.currentTimeMillis()) {
+				pages.remove(key);
+				page = null;
+			}
+		}
+
+		if (page == null)
+			return false;
+
+		response.addHeader("Cache-Control", "no-cache, no-store, must-revalidate");
+		response.addHeader("Pragma", "no-cache");
+		response.addHeader("Expires", "0");
+		response.addHeader("X-Frame-Options", "SAMEORIGIN");
+		response.setContentType("text/html; charset=UTF-8");
+		try {
+			response.out().append(page.html);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		response.flush();
+
+		return true;
+	}
+
+	/*
+	 * Stores the page that was rendered for a request.
+	 */
+	void store(WebRequest request, String html) {
+		String key = getKey(request);
+		if (key == null)
+			return;
+
+		long expires = System.currentTimeMillis() + servlet.getConfiguration().getPageCacheTimeout() * 1000L;
+		synchronized (pages) {
+			pages.put(key, new Page(html, expires));
+		}
+	}
+
+	/*
+	 * Returns the key of the page for a request, or null if the request is not
+	 * a bot's request for a page.
+	 */
+	private String getKey(WebRequest request) {
+		Configuration conf = servlet.getConfiguration();
+		if (conf.getPageCacheSize() == 0 || !"GET".equals(request.getMethod()))
+			return null;
+
+		if (request.getParameter("request") != null || request.getParameter("wtd") != null)
+			return null;
+
+		if (!conf.agentIsBot(request.getUserAgent()))
+			return null;
+
+		String vary = servlet.getPageCacheVaryKey(request);
+		if (vary == null)
+			return null;
+
+		StringBuilder result = new StringBuilder();
+		result.append(request.getPathInfo());
+		String query = request.getQueryString();
+		if (query != null)
+			result.append('?').append(query);
+		result.append(' ').append(request.getLocale()).append(' ').append(vary);
+
+		return result.toString();
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import eu.webtoolkit.jwt.utils.LatencyHistogram;
+
+/**
+ * Latency and load metrics of a {@link WtServlet}.
+ * <p>
+ * The time spent in each {@link Phase} of request handling is recorded in a
+ * {@link LatencyHistogram}, and the number of sessions, queued application
+ * events and parked server push responses are computed when they are read.
+ * Recording a duration is cheap (it does not allocate nor take a lock), and
+ * metrics are therefore enabled by default.
+ * <p>
+ * The servlet registers the metrics and the histograms as MBeans with the
+ * platform MBean server when it is initialized, under the
+ * <code>eu.webtoolkit.jwt</code> domain. To feed the durations into another
+ * metrics system, you may set a {@link Registry}.
+ *
+ * @see WtServlet#getMetrics()
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+	/**
+	 * A phase of request handling.
+	 */
+	public enum Phase {
+		/**
+		 * Parsing the request parameters, including file uploads.
+		 */
+		RequestParse,
+		/**
+		 * Waiting for the lock of the session.
+		 */
+		SessionLockWait,
+		/**
+		 * Handling the events propagated by a request.
+		 */
+		EventDispatch,
+		/**
+		 * Rendering the changes to the widget tree.
+		 */
+		Render,
+		/**
+		 * Flushing the response to the client.
+		 */
+		ResponseWrite,
+		/**
+		 * The time a server push response was parked, waiting for updates.
+		 */
+		PushWait
+	}
+
+	/**
+	 * A receiver of request phase durations.
+	 * <p>
+	 * Durations are passed to the registry in addition to being recorded in the
+	 * built-in histograms. Since this is called while handling requests, an
+	 * implementation should return quickly, and must be thread-safe.
+	 */
+	public interface Registry {
+		/**
+		 * Records the duration of a request phase.
+		 *
+		 * @param phase the phase
+		 * @param nanoseconds the duration, in nanoseconds
+		 */
+		public void recordLatency(Phase phase, long nanoseconds);
+	}
+
+	private final WtServlet servlet;
+	private final Map<Phase, LatencyHistogram> histograms = new EnumMap<Phase, LatencyHistogram>(Phase.class);
+	private volatile boolean enabled = true;
+	private volatile Registry registry;
+
+	ServerMetrics(WtServlet servlet) {
+		this.servlet = servlet;
+
+		for (Phase phase : Phase.values())
+			histograms.put(phase, new LatencyHistogram());
+	}
+
+	/**
+	 * Enables or disables recording durations.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns whether durations are recorded.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets a registry that receives the recorded durations.
+	 *
+	 * @param registry the registry, or <code>null</code>
+	 */
+	public void setRegistry(Registry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Returns the registry that receives the recorded durations.
+	 */
+	public Registry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Returns the histogram of the durations of a request phase.
+	 */
+	public LatencyHistogram getHistogram(Phase phase) {
+		return histograms.get(phase);
+	}
+
+	/**
+	 * Records the duration of a phase that started at <code>start</code>, as
+	 * given by {@link System#nanoTime()}.
+	 */
+	void record(Phase phase, long start) {
+		if (!enabled || start == 0)
+			return;
+
+		long duration = System.nanoTime() - start;
+		histograms.get(phase).record(duration);
+
+		Registry r = registry;
+		if (r != null)
+			r.recordLatency(phase, duration);
+	}
+
+	/**
+	 * Returns the current time, as given by {@link System#nanoTime()}, if
+	 * durations are being recorded, or 0 otherwise.
+	 */
+	long startTimer() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	public int getSessionCount() {
+		return servlet.getSessions().size();
+	}
+
+	public int getAjaxSessionCount() {
+		int result = 0;
+		for (WebSession session : servlet.getSessions())
+			if (session.getEnv().hasAjax())
+				++result;
+		return result;
+	}
+
+	public int getPlainSessionCount() {
+		int result = 0;
+		for (WebSession session : servlet.getSessions())
+			if (!session.getEnv().hasAjax() && !session.getEnv().agentIsSpiderBot())
+				++result;
+		return result;
+	}
+
+	public int getBotSessionCount() {
+		int result = 0;
+		for (WebSession session : servlet.getSessions())
+			if (session.getEnv().agentIsSpiderBot())
+				++result;
+		return result;
+	}
+
+	public int getQueuedEventCount() {
+		int result = 0;
+		for (WebSession session : servlet.getSessions())
+			result += session.getQueuedEventCount();
+		return result;
+	}
+
+	public int getParkedResponseCount() {
+		int result = 0;
+		for (WebSession session : servlet.getSessions())
+			if (session.hasAsyncResponse())
+				++result;
+		return result;
+	}
+
+	public void reset() {
+		for (LatencyHistogram histogram : histograms.values())
+			histogram.reset();
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+/**
+ * Management interface of {@link ServerMetrics}.
+ */
+public interface ServerMetricsMBean {
+	public boolean isEnabled();
+
+	public void setEnabled(boolean enabled);
+
+	public int getSessionCount();
+
+	public int getAjaxSessionCount();
+
+	public int getPlainSessionCount();
+
+	public int getBotSessionCount();
+
+	public int getQueuedEventCount();
+
+	public int getParkedResponseCount();
+
+	public void reset();
+}
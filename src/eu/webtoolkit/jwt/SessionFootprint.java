@@ -0,0 +1,538 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.StringWriter;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * The approximate memory footprint of a session.
+ * <p>
+ * The footprint is measured by walking the objects that are reachable from the
+ * session, and estimating their size. Every object is counted once, in the
+ * {@link Category} of the closest object that references it and which has a
+ * category, and is also attributed to the closest widget that references it,
+ * so that the largest widget subtrees can be reported.
+ * <p>
+ * Objects that are shared by all sessions (the servlet, the configuration,
+ * classes, enum values and servlet container objects) are not counted, nor
+ * are the referents of weak references. Sizes are estimated for a 64-bit JVM
+ * with compressed references, and are therefore only approximate.
+ * <p>
+ * A measurement visits every object of the session, and should be done while
+ * holding the lock of the session. Use {@link #measure(WApplication)} from
+ * within an event handler, or sample sessions in the background with the
+ * {@link SessionFootprintSampler}.
+ *
+ * @see SessionFootprintResource
+ */
+public class SessionFootprint {
+	/**
+	 * A category of objects.
+	 */
+	public enum Category {
+		/**
+		 * Widgets, and the objects they own which are not in another category.
+		 */
+		Widgets,
+		/**
+		 * The renderer, DOM elements and JavaScript buffers.
+		 */
+		Rendering,
+		/**
+		 * Signals and their listeners.
+		 */
+		Signals,
+		/**
+		 * Item models and their data.
+		 */
+		Models,
+		/**
+		 * Resources.
+		 */
+		Resources,
+		/**
+		 * Localized strings (message resource bundles).
+		 */
+		LocalizedStrings,
+		/**
+		 * The session, application, environment and other objects.
+		 */
+		Other
+	}
+
+	/**
+	 * A widget and its descendants.
+	 */
+	public static class Subtree {
+		private String widgetType;
+		private String id;
+		private String objectName;
+		private long size;
+		private int widgetCount;
+
+		Subtree(WWidget widget, long size, int widgetCount) {
+			this.widgetType = widget.getClass().getName();
+			this.id = widget.getId();
+			this.objectName = widget.getObjectName();
+			this.size = size;
+			this.widgetCount = widgetCount;
+		}
+
+		/**
+		 * Returns the class name of the widget.
+		 */
+		public String getWidgetType() {
+			return widgetType;
+		}
+
+		/**
+		 * Returns the id of the widget.
+		 */
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * Returns the object name of the widget.
+		 */
+		public String getObjectName() {
+			return objectName;
+		}
+
+		/**
+		 * Returns the approximate size of the subtree, in bytes.
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Returns the number of widgets in the subtree.
+		 */
+		public int getWidgetCount() {
+			return widgetCount;
+		}
+	}
+
+	private String sessionId;
+	private long[] sizes = new long[Category.values().length];
+	private int objectCount;
+	private int widgetCount;
+	private List<Subtree> largestSubtrees = new ArrayList<Subtree>();
+	private long measureNanos;
+
+	private SessionFootprint(String sessionId) {
+		this.sessionId = sessionId;
+	}
+
+	/**
+	 * Measures the footprint of the session of an application.
+	 * <p>
+	 * This must be called while holding the lock of the session, e.g. from
+	 * within an event handler of the application.
+	 *
+	 * @param app the application
+	 * @return the footprint, with the 10 largest widget subtrees
+	 */
+	public static SessionFootprint measure(WApplication app) {
+		return measure(app.getSession(), 10);
+	}
+
+	/*
+	 * Measures the footprint of a session from outside the session, waiting at
+	 * most timeoutMillis for its lock. Returns null if the lock could not be
+	 * taken.
+	 */
+	static SessionFootprint measureLocked(WebSession session, int subtrees, long timeoutMillis) {
+		ReentrantLock mutex = session.getMutex();
+
+		try {
+			if (!mutex.tryLock(timeoutMillis, TimeUnit.MILLISECONDS))
+				return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+
+		try {
+			return measure(session, subtrees);
+		} finally {
+			mutex.unlock();
+		}
+	}
+
+	static SessionFootprint measure(WebSession session, int subtrees) {
+		long start = System.nanoTime();
+
+		SessionFootprint result = new SessionFootprint(session.getSessionId());
+		Walker walker = new Walker(result);
+		walker.walk(session);
+		WApplication app = session.getApp();
+		result.largestSubtrees = walker.getLargestSubtrees(subtrees, app != null ? app.getRoot() : null);
+		result.measureNanos = System.nanoTime() - start;
+
+		return result;
+	}
+
+	/**
+	 * Returns the id of the session.
+	 */
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * Returns the approximate size of the session, in bytes.
+	 */
+	public long getTotalSize() {
+		long result = 0;
+		for (long s : sizes)
+			result += s;
+		return result;
+	}
+
+	/**
+	 * Returns the approximate size of the objects of a category, in bytes.
+	 */
+	public long getSize(Category category) {
+		return sizes[category.ordinal()];
+	}
+
+	/**
+	 * Returns the number of objects that were counted.
+	 */
+	public int getObjectCount() {
+		return objectCount;
+	}
+
+	/**
+	 * Returns the number of widgets.
+	 */
+	public int getWidgetCount() {
+		return widgetCount;
+	}
+
+	/**
+	 * Returns the largest widget subtrees, largest first.
+	 * <p>
+	 * The roots of the widget tree of the application, including
+	 * {@link WApplication#getRoot()}, are not included, since they contain all
+	 * other widgets.
+	 */
+	public List<Subtree> getLargestSubtrees() {
+		return Collections.unmodifiableList(largestSubtrees);
+	}
+
+	/**
+	 * Returns the time it took to measure the footprint, in milliseconds.
+	 */
+	public double getMeasureMillis() {
+		return measureNanos / 1E6;
+	}
+
+	@Override
+	public String toString() {
+		StringWriter result = new StringWriter();
+		result.append(sessionId).append(": ").append(String.valueOf(getTotalSize())).append(" bytes (");
+		for (Category c : Category.values()) {
+			if (c.ordinal() != 0)
+				result.append(", ");
+			result.append(c.toString()).append('=').append(String.valueOf(getSize(c)));
+		}
+		result.append(')');
+		return result.toString();
+	}
+
+	/*
+	 * The layout of the instances of a class: their size, and the fields that
+	 * reference other objects.
+	 */
+	private static class Layout {
+		long size;
+		List<Field> references = new ArrayList<Field>();
+	}
+
+	private static class Walker {
+		private static final int HEADER = 12;
+		private static final int ARRAY_HEADER = 16;
+		private static final int REFERENCE = 4;
+
+		private SessionFootprint footprint;
+		private IdentityHashMap<Object, Object> visited = new IdentityHashMap<Object, Object>();
+		private Map<Class<?>, Layout> layouts = new HashMap<Class<?>, Layout>();
+		private IdentityHashMap<WWidget, long[]> widgetSizes = new IdentityHashMap<WWidget, long[]>();
+
+		/* The objects still to visit, with their category and owning widget */
+		private List<Object> objects = new ArrayList<Object>();
+		private List<Category> categories = new ArrayList<Category>();
+		private List<WWidget> owners = new ArrayList<WWidget>();
+
+		Walker(SessionFootprint footprint) {
+			this.footprint = footprint;
+		}
+
+		void walk(Object root) {
+			push(root, Category.Other, null);
+
+			while (!objects.isEmpty()) {
+				int last = objects.size() - 1;
+				Object o = objects.remove(last);
+				Category category = categories.remove(last);
+				WWidget owner = owners.remove(last);
+
+				Category c = getCategory(o);
+				if (c != null)
+					category = c;
+				if (o instanceof WWidget) {
+					owner = (WWidget) o;
+					++footprint.widgetCount;
+				}
+
+				long size = visit(o, category, owner);
+
+				footprint.sizes[category.ordinal()] += size;
+				++footprint.objectCount;
+
+				if (owner != null) {
+					long[] s = widgetSizes.get(owner);
+					if (s == null)
+						widgetSizes.put(owner, s = new long[1]);
+					s[0] += size;
+				}
+			}
+		}
+
+		/*
+		 * Returns the largest subtrees, other than those of the roots of the
+		 * widget tree and of the application root container.
+		 */
+		List<Subtree> getLargestSubtrees(int count, WWidget root) {
+			final IdentityHashMap<WWidget, long[]> subtrees = new IdentityHashMap<WWidget, long[]>();
+
+			for (Map.Entry<WWidget, long[]> e : widgetSizes.entrySet()) {
+				for (WWidget w = e.getKey(); w != null; w = w.getParent()) {
+					long[] s = subtrees.get(w);
+					if (s == null)
+						subtrees.put(w, s = new long[2]);
+					s[0] += e.getValue()[0];
+					++s[1];
+				}
+			}
+
+			List<WWidget> widgets = new ArrayList<WWidget>();
+			for (WWidget w : subtrees.keySet())
+				if (w.getParent() != null && w != root)
+					widgets.add(w);
+
+			Collections.sort(widgets, new Comparator<WWidget>() {
+				public int compare(WWidget w1, WWidget w2) {
+					long s1 = subtrees.get(w1)[0], s2 = subtrees.get(w2)[0];
+					return s1 < s2 ? 1 : (s1 > s2 ? -1 : 0);
+				}
+			});
+
+			List<Subtree> result = new ArrayList<Subtree>();
+			for (int i = 0; i < Math.min(count, widgets.size()); ++i) {
+				WWidget w = widgets.get(i);
+				long[] s = subtrees.get(w);
+				result.add(new Subtree(w, s[0], (int) s[1]));
+			}
+
+			return result;
+		}
+
+		private void push(Object o, Category category, WWidget owner) {
+			if (o == null || visited.containsKey(o) || isShared(o))
+				return;
+
+			visited.put(o, o);
+			objects.add(o);
+			categories.add(category);
+			owners.add(owner);
+		}
+
+		/*
+		 * Visits an object: returns its size and pushes the objects it
+		 * references.
+		 */
+		private long visit(Object o, Category category, WWidget owner) {
+			Class<?> c = o.getClass();
+
+			if (c.isArray()) {
+				int length = Array.getLength(o);
+				Class<?> type = c.getComponentType();
+				if (!type.isPrimitive())
+					for (int i = 0; i < length; ++i)
+						push(Array.get(o, i), category, owner);
+				return align(ARRAY_HEADER + (long) length * getSize(type));
+			} else if (o instanceof String) {
+				return align(HEADER + 12) + align(ARRAY_HEADER + ((String) o).length());
+			} else if (o instanceof StringBuilder) {
+				return align(HEADER + 8) + align(ARRAY_HEADER + ((StringBuilder) o).capacity());
+			} else if (o instanceof StringBuffer) {
+				return align(HEADER + 8) + align(ARRAY_HEADER + ((StringBuffer) o).capacity());
+			} else if (o instanceof StringWriter) {
+				push(((StringWriter) o).getBuffer(), category, owner);
+				return align(HEADER + 2 * REFERENCE);
+			} else if (o instanceof Reference) {
+				return align(HEADER + 4 * REFERENCE);
+			} else if ((o instanceof Map || o instanceof Collection) && isPlatformDerived(c)) {
+				/*
+				 * The internals of platform collections are not accessible:
+				 * their contents are visited through their interface, and their
+				 * overhead is estimated. A collection that is modified by
+				 * another thread is only estimated.
+				 */
+				try {
+					if (o instanceof Map) {
+						Map<?, ?> map = (Map<?, ?>) o;
+						for (Map.Entry<?, ?> e : map.entrySet()) {
+							push(e.getKey(), category, owner);
+							push(e.getValue(), category, owner);
+						}
+					} else {
+						for (Object e : (Collection<?>) o)
+							push(e, category, owner);
+					}
+				} catch (RuntimeException e) {
+				}
+
+				if (o instanceof Map) {
+					int size = ((Map<?, ?>) o).size();
+					return align(HEADER + 36) + align(ARRAY_HEADER + size * 2 * REFERENCE)
+							+ size * align(HEADER + 4 + 3 * REFERENCE);
+				} else if (o instanceof LinkedList) {
+					int size = ((Collection<?>) o).size();
+					return align(HEADER + 20) + size * align(HEADER + 3 * REFERENCE);
+				} else {
+					int size = ((Collection<?>) o).size();
+					return align(HEADER + 20) + align(ARRAY_HEADER + size * REFERENCE * 3 / 2);
+				}
+			} else if (isPlatformClass(c)) {
+				return align(HEADER + 4);
+			} else {
+				Layout layout = getLayout(c);
+				for (Field f : layout.references) {
+					try {
+						push(f.get(o), category, owner);
+					} catch (IllegalAccessException e) {
+					}
+				}
+				return layout.size;
+			}
+		}
+
+		private Layout getLayout(Class<?> c) {
+			Layout result = layouts.get(c);
+			if (result == null) {
+				result = new Layout();
+
+				long size = HEADER;
+				for (Class<?> k = c; k != null; k = k.getSuperclass()) {
+					for (Field f : k.getDeclaredFields()) {
+						if (Modifier.isStatic(f.getModifiers()))
+							continue;
+
+						size += getSize(f.getType());
+
+						if (!f.getType().isPrimitive()) {
+							try {
+								f.setAccessible(true);
+								result.references.add(f);
+							} catch (RuntimeException e) {
+								/* Not accessible: only its size is counted */
+							}
+						}
+					}
+				}
+				result.size = align(size);
+
+				layouts.put(c, result);
+			}
+
+			return result;
+		}
+
+		private static Category getCategory(Object o) {
+			if (o instanceof WWidget)
+				return Category.Widgets;
+			else if (o instanceof WebRenderer || o instanceof DomElement || o instanceof EscapeOStream
+					|| o instanceof StringBuilder || o instanceof StringWriter)
+				return Category.Rendering;
+			else if (o instanceof AbstractSignal || o instanceof SignalImpl || o instanceof SignalImpl.Listener)
+				return Category.Signals;
+			else if (o instanceof WAbstractItemModel)
+				return Category.Models;
+			else if (o instanceof WResource)
+				return Category.Resources;
+			else if (o instanceof WLocalizedStrings)
+				return Category.LocalizedStrings;
+			else
+				return null;
+		}
+
+		/*
+		 * Returns whether an object is shared with other sessions, or is
+		 * otherwise not part of the session.
+		 */
+		private static boolean isShared(Object o) {
+			return o instanceof Class || o instanceof Enum || o instanceof ClassLoader || o instanceof Thread
+					|| o instanceof ThreadLocal || o instanceof WtServlet || o instanceof Configuration
+					|| o instanceof ServletRequest || o instanceof ServletResponse || o instanceof HttpSession
+					|| o instanceof ServletContext || o instanceof org.slf4j.Logger;
+		}
+
+		private static boolean isPlatformClass(Class<?> c) {
+			String name = c.getName();
+			return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+					|| name.startsWith("com.sun.") || name.startsWith("jdk.");
+		}
+
+		private static boolean isPlatformDerived(Class<?> c) {
+			for (; c != null && c != Object.class; c = c.getSuperclass())
+				if (isPlatformClass(c))
+					return true;
+			return false;
+		}
+
+		private static int getSize(Class<?> type) {
+			if (type == long.class || type == double.class)
+				return 8;
+			else if (type == int.class || type == float.class)
+				return 4;
+			else if (type == short.class || type == char.class)
+				return 2;
+			else if (type == byte.class || type == boolean.class)
+				return 1;
+			else
+				return REFERENCE;
+		}
+
+		private static long align(long size) {
+			return (size + 7) & ~7L;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+import eu.webtoolkit.jwt.utils.MathUtils;
+
+/**
+ * A diagnostics resource that reports the memory footprint of sessions.
+ * <p>
+ * The resource measures a number of randomly chosen sessions, and responds
+ * with a JSON document that lists them, largest first, with their size per
+ * {@link SessionFootprint.Category} and their largest widget subtrees. Sessions
+ * that are busy for more than a second are skipped. Sessions are identified by
+ * a short prefix of their session id, which does not allow them to be taken
+ * over.
+ * <p>
+ * The following request parameters are supported:
+ * <ul>
+ * <li>sessions: the maximum number of sessions to measure (default: 20)</li>
+ * <li>subtrees: the number of widget subtrees to report per session (default:
+ * 10)</li>
+ * </ul>
+ * <p>
+ * The resource is deployed as a static resource, e.g.:
+ *
+ * <pre>
+ * {@code
+ * addResource(new SessionFootprintResource(this), "/footprint");
+ * }
+ * </pre>
+ *
+ * Since measuring a session visits all of its objects while holding its lock,
+ * the resource should only be deployed on a path that is protected from public
+ * access.
+ */
+public class SessionFootprintResource extends WResource {
+	private static final long LOCK_TIMEOUT = 1000;
+
+	private WtServlet servlet;
+
+	/**
+	 * Creates the resource for the sessions of a servlet.
+	 */
+	public SessionFootprintResource(WtServlet servlet) {
+		this.servlet = servlet;
+	}
+
+	@Override
+	protected void handleRequest(WebRequest request, WebResponse response) throws IOException {
+		int maxSessions = getIntParameter(request, "sessions", 20);
+		int subtrees = getIntParameter(request, "subtrees", 10);
+
+		List<WebSession> sessions = servlet.getSessions();
+		List<SessionFootprint> footprints = new ArrayList<SessionFootprint>();
+		int skipped = 0;
+
+		int count = Math.min(maxSessions, sessions.size());
+		for (int i = 0; i < count; ++i) {
+			int j = i + MathUtils.randomInt(sessions.size() - i);
+			WebSession session = sessions.get(j);
+			sessions.set(j, sessions.get(i));
+
+			SessionFootprint footprint = SessionFootprint.measureLocked(session, subtrees, LOCK_TIMEOUT);
+			if (footprint != null)
+				footprints.add(footprint);
+			else
+				++skipped;
+		}
+
+		Collections.sort(footprints, new Comparator<SessionFootprint>() {
+			public int compare(SessionFootprint f1, SessionFootprint f2) {
+				long s1 = f1.getTotalSize(), s2 = f2.getTotalSize();
+				return s1 < s2 ? 1 : (s1 > s2 ? -1 : 0);
+			}
+		});
+
+		JsonObject result = new JsonObject();
+		result.addProperty("sessionCount", sessions.size());
+		result.addProperty("skipped", skipped);
+
+		JsonArray list = new JsonArray();
+		for (SessionFootprint f : footprints)
+			list.add(toJson(f));
+		result.add("sessions", list);
+
+		response.setContentType("application/json; charset=UTF-8");
+		response.addHeader("Cache-Control", "no-store");
+		response.out().append(result.toString());
+	}
+
+	private static JsonObject toJson(SessionFootprint footprint) {
+		JsonObject result = new JsonObject();
+
+		String id = footprint.getSessionId();
+		result.addProperty("session", id.substring(0, Math.min(8, id.length())));
+		result.addProperty("size", footprint.getTotalSize());
+		result.addProperty("objects", footprint.getObjectCount());
+		result.addProperty("widgets", footprint.getWidgetCount());
+		result.addProperty("measureMillis", footprint.getMeasureMillis());
+
+		JsonObject categories = new JsonObject();
+		for (SessionFootprint.Category c : SessionFootprint.Category.values())
+			categories.addProperty(c.toString(), footprint.getSize(c));
+		result.add("categories", categories);
+
+		JsonArray subtrees = new JsonArray();
+		for (SessionFootprint.Subtree s : footprint.getLargestSubtrees()) {
+			JsonObject subtree = new JsonObject();
+			subtree.addProperty("type", s.getWidgetType());
+			subtree.addProperty("id", s.getId());
+			if (s.getObjectName().length() != 0)
+				subtree.addProperty("name", s.getObjectName());
+			subtree.addProperty("size", s.getSize());
+			subtree.addProperty("widgets", s.getWidgetCount());
+			subtrees.add(subtree);
+		}
+		result.add("largestSubtrees", subtrees);
+
+		return result;
+	}
+
+	private static int getIntParameter(WebRequest request, String name, int defaultValue) {
+		String value = request.getParameter(name);
+		if (value == null)
+			return defaultValue;
+
+		try {
+			return Math.max(0, Integer.parseInt(value));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.webtoolkit.jwt.utils.MathUtils;
+
+/**
+ * Samples the memory footprint of sessions in the background.
+ * <p>
+ * When sampling is enabled, a few randomly chosen sessions are measured at a
+ * fixed interval. A session that is busy handling a request is skipped rather
+ * than waited for, so that sampling does not delay requests. The footprint of
+ * the most recently sampled sessions is kept, from which averages and an
+ * estimate of the total footprint of all sessions are computed.
+ * <p>
+ * Sampling is disabled by default, and is enabled using
+ * {@link Configuration#setSessionFootprintSampling(int)}, or at runtime
+ * through JMX.
+ *
+ * @see WtServlet#getFootprintSampler()
+ * @see SessionFootprint
+ */
+public class SessionFootprintSampler implements SessionFootprintSamplerMBean {
+	private static Logger logger = LoggerFactory.getLogger(SessionFootprintSampler.class);
+
+	private static final int MAX_SAMPLES = 64;
+	private static final int SESSIONS_PER_SAMPLE = 4;
+	private static final int SUBTREES = 5;
+
+	private final WtServlet servlet;
+	private ScheduledExecutorService executor;
+	private int interval = 0;
+
+	private final Map<String, SessionFootprint> samples = new LinkedHashMap<String, SessionFootprint>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SessionFootprint> eldest) {
+			return size() > MAX_SAMPLES;
+		}
+	};
+
+	SessionFootprintSampler(WtServlet servlet) {
+		this.servlet = servlet;
+	}
+
+	/**
+	 * Sets the interval at which sessions are sampled.
+	 *
+	 * @param seconds the interval in seconds, or 0 to disable sampling
+	 */
+	public synchronized void setSamplingInterval(int seconds) {
+		stop();
+
+		interval = Math.max(0, seconds);
+		if (interval > 0) {
+			executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "jwt-footprint-sampler");
+					t.setDaemon(true);
+					t.setPriority(Thread.MIN_PRIORITY);
+					return t;
+				}
+			});
+			executor.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					try {
+						sample();
+					} catch (RuntimeException e) {
+						logger.warn("Session footprint sampling failed: " + e.toString());
+					}
+				}
+			}, interval, interval, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Returns the interval at which sessions are sampled.
+	 *
+	 * @return the interval in seconds, or 0 if sampling is disabled
+	 */
+	public synchronized int getSamplingInterval() {
+		return interval;
+	}
+
+	synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		interval = 0;
+	}
+
+	/**
+	 * Measures a few randomly chosen sessions that are not busy.
+	 */
+	public void sample() {
+		List<WebSession> sessions = servlet.getSessions();
+
+		Set<String> live = new HashSet<String>();
+		for (WebSession session : sessions)
+			live.add(session.getSessionId());
+
+		synchronized (samples) {
+			samples.keySet().retainAll(live);
+		}
+
+		int count = Math.min(SESSIONS_PER_SAMPLE, sessions.size());
+		for (int i = 0; i < count; ++i) {
+			int j = i + MathUtils.randomInt(sessions.size() - i);
+			WebSession session = sessions.get(j);
+			sessions.set(j, sessions.get(i));
+
+			SessionFootprint footprint = SessionFootprint.measureLocked(session, SUBTREES, 0);
+			if (footprint != null) {
+				synchronized (samples) {
+					samples.put(footprint.getSessionId(), footprint);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the footprints of the sampled sessions, largest first.
+	 */
+	public List<SessionFootprint> getSamples() {
+		List<SessionFootprint> result;
+		synchronized (samples) {
+			result = new ArrayList<SessionFootprint>(samples.values());
+		}
+
+		Collections.sort(result, new Comparator<SessionFootprint>() {
+			public int compare(SessionFootprint f1, SessionFootprint f2) {
+				long s1 = f1.getTotalSize(), s2 = f2.getTotalSize();
+				return s1 < s2 ? 1 : (s1 > s2 ? -1 : 0);
+			}
+		});
+
+		return result;
+	}
+
+	public int getSampleCount() {
+		synchronized (samples) {
+			return samples.size();
+		}
+	}
+
+	public long getAverageSessionSize() {
+		List<SessionFootprint> samples = getSamples();
+		if (samples.isEmpty())
+			return 0;
+
+		long total = 0;
+		for (SessionFootprint f : samples)
+			total += f.getTotalSize();
+		return total / samples.size();
+	}
+
+	public long getLargestSessionSize() {
+		List<SessionFootprint> samples = getSamples();
+		return samples.isEmpty() ? 0 : samples.get(0).getTotalSize();
+	}
+
+	public long getEstimatedTotalSize() {
+		return getAverageSessionSize() * servlet.getSessions().size();
+	}
+
+	public String getAverageCategorySizes() {
+		List<SessionFootprint> samples = getSamples();
+
+		StringBuilder result = new StringBuilder();
+		for (SessionFootprint.Category c : SessionFootprint.Category.values()) {
+			long total = 0;
+			for (SessionFootprint f : samples)
+				total += f.getSize(c);
+
+			if (result.length() > 0)
+				result.append(", ");
+			result.append(c).append('=').append(samples.isEmpty() ? 0 : total / samples.size());
+		}
+
+		return result.toString();
+	}
+
+	public String getLargestSessions() {
+		List<SessionFootprint> samples = getSamples();
+
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < Math.min(5, samples.size()); ++i) {
+			SessionFootprint f = samples.get(i);
+			result.append(f.toString()).append('\n');
+			for (SessionFootprint.Subtree s : f.getLargestSubtrees())
+				result.append("  ").append(s.getWidgetType()).append(" #").append(s.getId()).append(": ")
+						.append(s.getSize()).append(" bytes, ").append(s.getWidgetCount()).append(" widgets\n");
+		}
+
+		return result.toString();
+	}
+
+	public void reset() {
+		synchronized (samples) {
+			samples.clear();
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+/**
+ * Management interface of the {@link SessionFootprintSampler}.
+ */
+public interface SessionFootprintSamplerMBean {
+	public int getSamplingInterval();
+
+	public void setSamplingInterval(int seconds);
+
+	public int getSampleCount();
+
+	public long getAverageSessionSize();
+
+	public long getLargestSessionSize();
+
+	public long getEstimatedTotalSize();
+
+	public String getAverageCategorySizes();
+
+	public String getLargestSessions();
+
+	public void sample();
+
+	public void reset();
+}
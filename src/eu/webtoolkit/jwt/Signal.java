@@ -5,8 +5,6 @@
  */
 package eu.webtoolkit.jwt;
 
-import java.util.ArrayList;
-
 /**
  * A signal that propagates events to listeners.
  * <p>
@@ -62,10 +60,13 @@ public class Signal extends AbstractSignal {
 		if (impl == null)
 			return;
 
-		ArrayList<SignalImpl.Listener> listeners = impl.getListeners();
+		Object listeners = impl.getEmissionListeners();
 
-		for (SignalImpl.Listener listener : listeners)
-			((Listener) (listener)).trigger();
+		for (int i = 0, n = SignalImpl.size(listeners); i < n; ++i) {
+			SignalImpl.Listener listener = SignalImpl.get(listeners, i);
+			if (listener != null)
+				((Listener) (listener)).trigger();
+		}
 	}
 
 	@Override
@@ -5,8 +5,6 @@
  */
 package eu.webtoolkit.jwt;
 
-import java.util.ArrayList;
-
 /**
  * A signal that propagates events to listeners, and is capable of passing 4 argument.
  * <p>
@@ -88,10 +86,13 @@ public class Signal4<A1, A2, A3, A4> extends AbstractSignal {
 		if (impl == null)
 			return;
 
-		ArrayList<SignalImpl.Listener> listeners = impl.getListeners();
+		Object listeners = impl.getEmissionListeners();
 
-		for (SignalImpl.Listener listener : listeners)
-			((Listener) (listener)).trigger(arg1, arg2, arg3, arg4);
+		for (int i = 0, n = SignalImpl.size(listeners); i < n; ++i) {
+			SignalImpl.Listener listener = SignalImpl.get(listeners, i);
+			if (listener != null)
+				((Listener) (listener)).trigger(arg1, arg2, arg3, arg4);
+		}
 	}
 
 	@Override
@@ -8,7 +8,6 @@ package eu.webtoolkit.jwt;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 import eu.webtoolkit.jwt.AbstractSignal.Connection;
@@ -27,8 +26,18 @@ class SignalImpl {
 		SignalImpl signal;
 	}
 
-	private final ArrayList<Listener> observerCatalog = new ArrayList<Listener>();
-	private final ArrayList<WeakReference<Listener>> weakObserverCatalog = new ArrayList<WeakReference<Listener>>();
+	/*
+	 * The connected listeners: null when there are none, the single entry
+	 * when there is one, or an array of entries. An entry is either the
+	 * listener or, for a listener that is owned by an object, a weak reference
+	 * to the listener. Listeners without an owner precede those with an owner.
+	 * 
+	 * An array is never modified once it has been stored: adding or removing a
+	 * listener stores a new one, so that an emission may iterate the
+	 * listeners without copying them. Entries of collected listeners are
+	 * pruned when the listeners are modified.
+	 */
+	private Object listeners_ = null;
 	
 	private Map<Listener, Object> wrappedListeners_ = null;
 	private Map<WeakReference<Listener>, WeakReference<Object>> weakWrappedListeners_ = null;
@@ -37,13 +46,27 @@ class SignalImpl {
 	private boolean blocked = false;
 
 	public Connection addListener(WObject listenerOwner, Listener listener) {
+		Object[] entries = getLiveEntries(null);
+		Object[] result = new Object[entries.length + 1];
+
 		if (listenerOwner != null) {
-			weakObserverCatalog.add(new WeakReference<Listener>(listener));
+			System.arraycopy(entries, 0, result, 0, entries.length);
+			result[entries.length] = new WeakReference<Listener>(listener);
+
 			if (listenerOwner.listenerSignalsPairs == null)
 				listenerOwner.listenerSignalsPairs = new ArrayList<ListenerSignalPair>();
 			listenerOwner.listenerSignalsPairs.add(new ListenerSignalPair(listener, this));
-		} else
-			observerCatalog.add(listener);
+		} else {
+			int strongCount = 0;
+			while (strongCount < entries.length && !(entries[strongCount] instanceof WeakReference<?>))
+				++strongCount;
+
+			System.arraycopy(entries, 0, result, 0, strongCount);
+			result[strongCount] = listener;
+			System.arraycopy(entries, strongCount, result, strongCount + 1, entries.length - strongCount);
+		}
+
+		setEntries(result);
 
 		return new Connection(this, listener);
 	}
@@ -65,38 +88,57 @@ class SignalImpl {
 	}
 
 	public void removeListener(Listener listener) {
-		for (WeakReference<Listener> weakObserver : weakObserverCatalog) {
-			if (listener == weakObserver.get()) {
-				weakObserverCatalog.remove(weakObserver);
-				break;
-			}
-		}
-		observerCatalog.remove(listener);
+		setEntries(getLiveEntries(listener));
 	}
 	
-	@SuppressWarnings("unchecked")
 	protected ArrayList<Listener> getListeners() {
 		if (blocked)
 			return emptyList;
 
-		ArrayList<Listener> result = (ArrayList<Listener>) observerCatalog.clone();
-
-		Iterator<WeakReference<Listener>> i = weakObserverCatalog.iterator();
-		while (i.hasNext()) {
-			WeakReference<Listener> ref = i.next();
-			Listener listener = ref.get();
+		Object listeners = listeners_;
+		int n = size(listeners);
+		ArrayList<Listener> result = new ArrayList<Listener>(n);
+		for (int i = 0; i < n; ++i) {
+			Listener listener = get(listeners, i);
 			if (listener != null)
 				result.add(listener);
-			else {
-				i.remove();
-			}
 		}
 
 		return result;
 	}
 
+	/*
+	 * Returns the listeners that are to be notified of an emission, to be
+	 * iterated using size() and get(). The result is not affected by
+	 * listeners that are added or removed during the emission.
+	 */
+	Object getEmissionListeners() {
+		return blocked ? null : listeners_;
+	}
+
+	static int size(Object listeners) {
+		if (listeners == null)
+			return 0;
+		else if (listeners instanceof Object[])
+			return ((Object[]) listeners).length;
+		else
+			return 1;
+	}
+
+	/*
+	 * Returns a listener, or null if it has been collected.
+	 */
+	@SuppressWarnings("unchecked")
+	static Listener get(Object listeners, int i) {
+		Object entry = listeners instanceof Object[] ? ((Object[]) listeners)[i] : listeners;
+		if (entry instanceof WeakReference<?>)
+			return ((WeakReference<Listener>) entry).get();
+		else
+			return (Listener) entry;
+	}
+
 	protected int getListenerCount() {
-		return observerCatalog.size() + weakObserverCatalog.size();
+		return size(listeners_);
 	}
 
 	public boolean isBlocked() {
@@ -108,13 +150,9 @@ class SignalImpl {
 	}
 
 	public boolean hasListener(Listener listener) {
-		for (WeakReference<Listener> weakObserver : weakObserverCatalog) {
-			if (listener == weakObserver.get())
-				return true;
-		}
-
-		for (Listener observer : observerCatalog) {
-			if (listener == observer)
+		Object listeners = listeners_;
+		for (int i = 0, n = size(listeners); i < n; ++i) {
+			if (listener == get(listeners, i))
 				return true;
 		}
 
@@ -130,4 +168,53 @@ class SignalImpl {
 		if (weakWrappedListeners_ != null)
 			weakWrappedListeners_.remove(new WeakReference<Listener>(listener));
 	}
+
+	/*
+	 * Returns the entries of listeners that have not been collected, leaving
+	 * out the first owned and the first unowned entry for the given listener.
+	 */
+	private Object[] getLiveEntries(Listener removed) {
+		Object listeners = listeners_;
+		int n = size(listeners);
+		Object[] result = new Object[n];
+		int count = 0;
+		boolean removedWeak = false, removedStrong = false;
+
+		for (int i = 0; i < n; ++i) {
+			Object entry = listeners instanceof Object[] ? ((Object[]) listeners)[i] : listeners;
+			boolean weak = entry instanceof WeakReference<?>;
+			Listener listener = get(listeners, i);
+
+			if (listener == null)
+				continue;
+
+			if (removed != null && listener == removed) {
+				if (weak && !removedWeak) {
+					removedWeak = true;
+					continue;
+				} else if (!weak && !removedStrong) {
+					removedStrong = true;
+					continue;
+				}
+			}
+
+			result[count++] = entry;
+		}
+
+		if (count == n)
+			return result;
+
+		Object[] live = new Object[count];
+		System.arraycopy(result, 0, live, 0, count);
+		return live;
+	}
+
+	private void setEntries(Object[] entries) {
+		if (entries.length == 0)
+			listeners_ = null;
+		else if (entries.length == 1)
+			listeners_ = entries[0];
+		else
+			listeners_ = entries;
+	}
 }
@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Learned JavaScript of pre-learned stateless slots, shared by all sessions.
+ *
+ * A slot is identified by its class, the signal it is connected to, and the
+ * place of the sender in the widget tree. The learned JavaScript is stored as
+ * a template in which the ids of the widgets it refers to are replaced by
+ * their place in the widget tree. The template is reused for a slot of
+ * another session only when these widgets are of the same class and in the
+ * same state as when it was learned.
+ *
+ * Only JavaScript that does not depend on the content of the session is
+ * cached: its string literals may only contain widget references, and the
+ * values used to show, hide, enable or disable widgets. JavaScript that sets a
+ * text, value, attribute or style (which could reveal data of the session in
+ * which it was learned), or that refers to objects which are not known to be
+ * involved (such as other widgets or signals), is not cached.
+ */
+class StatelessSlotCache {
+	private static final int MAX_SLOTS = 1024;
+	private static final int MAX_VARIANTS = 4;
+
+	/* Looks like an auto-generated object id (see WObject#getId()) */
+	private static final Pattern OBJECT_ID = Pattern.compile("(?<![A-Za-z0-9_])(?:[A-Za-z0-9]+_)?o[0-9a-f]*[0-9][0-9a-f]*(?![0-9a-f])");
+
+	/* Looks like an encoded signal (see AbstractEventSignal#encodeCmd()) */
+	private static final Pattern SIGNAL_ID = Pattern.compile("['\"]s[0-9a-f]+['\"]");
+
+	/* A string literal */
+	private static final Pattern STRING_LITERAL = Pattern.compile("'((?:[^'\\\\]|\\\\.)*)'|\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+	/* Marks a widget reference when checking the string literals */
+	private static final char REFERENCE = '\0';
+
+	/* The contents of string literals that do not depend on the session */
+	private static final Set<String> CONTENT_FREE = new HashSet<String>();
+
+	static {
+		CONTENT_FREE.add("");
+		CONTENT_FREE.add("#");
+		CONTENT_FREE.add("none");
+		CONTENT_FREE.add("block");
+		CONTENT_FREE.add("inline");
+		CONTENT_FREE.add("hidden");
+		CONTENT_FREE.add("visible");
+		CONTENT_FREE.add("Wt-disabled");
+	}
+
+	/* The ways in which a widget id is referenced */
+	private static final int ID = 0;
+	private static final int WEB_WIDGET_ID = 1;
+	private static final int UNIQUE_ID = 2;
+	private static final int ID_KINDS = 3;
+
+	private static class Template {
+		/* The JavaScript between the widget references */
+		final String[] literals;
+		/* The referenced widget times ID_KINDS plus the kind of reference */
+		final int[] references;
+		/* The place in the widget tree of the referenced widgets */
+		final int[][] paths;
+		/* The class and state of the referenced widgets */
+		final String[] signatures;
+
+		Template(String[] literals, int[] references, int[][] paths, String[] signatures) {
+			this.literals = literals;
+			this.references = references;
+			this.paths = paths;
+			this.signatures = signatures;
+		}
+	}
+
+	private final Map<String, LinkedList<Template>> templates = new LinkedHashMap<String, LinkedList<Template>>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, LinkedList<Template>> eldest) {
+			return size() > MAX_SLOTS;
+		}
+	};
+
+	/*
+	 * Returns the JavaScript of a slot, learned in another session, or null if
+	 * none is available.
+	 */
+	String lookup(WApplication app, AbstractEventSignal.LearningListener slot) {
+		String key = getKey(app, slot);
+		if (key == null)
+			return null;
+
+		List<Template> variants;
+		synchronized (templates) {
+			variants = templates.get(key);
+			if (variants == null)
+				return null;
+			variants = new ArrayList<Template>(variants);
+		}
+
+		for (Template t : variants) {
+			WWidget[] widgets = resolve(app, t);
+			if (widgets != null)
+				return instantiate(t, widgets);
+		}
+
+		return null;
+	}
+
+	/*
+	 * Stores the JavaScript that was learned for a slot. The widgets are those
+	 * that were updated by the slot.
+	 */
+	void store(WApplication app, AbstractEventSignal.LearningListener slot, Collection<WWidget> updated, String js) {
+		String key = getKey(app, slot);
+		if (key == null)
+			return;
+
+		List<WWidget> widgets = new ArrayList<WWidget>();
+		List<int[]> paths = new ArrayList<int[]>();
+		widgets.add((WWidget) slot.getSignal().getSender());
+		for (WWidget w : updated)
+			if (!widgets.contains(w))
+				widgets.add(w);
+
+		Map<String, Integer> ids = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i < widgets.size();) {
+			WWidget w = widgets.get(i);
+			int[] path = getPath(app, w);
+			if (path == null) {
+				widgets.remove(i);
+				continue;
+			}
+			paths.add(path);
+
+			for (int kind = 0; kind < ID_KINDS; ++kind) {
+				if (kind == ID && !isGeneratedId(w))
+					continue;
+				String id = getId(w, kind);
+				if (!ids.containsKey(id))
+					ids.put(id, i * ID_KINDS + kind);
+			}
+			++i;
+		}
+
+		Template t = createTemplate(js, ids);
+		if (t == null)
+			return;
+
+		String[] signatures = new String[widgets.size()];
+		for (int i = 0; i < signatures.length; ++i)
+			signatures[i] = getSignature(widgets.get(i));
+		t = new Template(t.literals, t.references, paths.toArray(new int[paths.size()][]), signatures);
+
+		synchronized (templates) {
+			LinkedList<Template> variants = templates.get(key);
+			if (variants == null) {
+				variants = new LinkedList<Template>();
+				templates.put(key, variants);
+			}
+			variants.addFirst(t);
+			if (variants.size() > MAX_VARIANTS)
+				variants.removeLast();
+		}
+	}
+
+	private static Template createTemplate(String js, Map<String, Integer> ids) {
+		List<String> idList = new ArrayList<String>(ids.keySet());
+		Collections.sort(idList, new Comparator<String>() {
+			public int compare(String s1, String s2) {
+				return s2.length() - s1.length();
+			}
+		});
+
+		StringBuilder regexp = new StringBuilder("(?<![A-Za-z0-9_])(");
+		for (int i = 0; i < idList.size(); ++i) {
+			if (i != 0)
+				regexp.append('|');
+			regexp.append(Pattern.quote(idList.get(i)));
+		}
+		regexp.append(")(?![0-9a-f])");
+
+		List<String> literals = new ArrayList<String>();
+		List<Integer> references = new ArrayList<Integer>();
+		Matcher m = Pattern.compile(regexp.toString()).matcher(js);
+		int pos = 0;
+		while (m.find()) {
+			literals.add(js.substring(pos, m.start()));
+			references.add(ids.get(m.group(1)));
+			pos = m.end();
+		}
+		literals.add(js.substring(pos));
+
+		for (String literal : literals)
+			if (OBJECT_ID.matcher(literal).find() || SIGNAL_ID.matcher(literal).find())
+				return null;
+
+		if (!isContentFree(literals))
+			return null;
+
+		int[] refs = new int[references.size()];
+		for (int i = 0; i < refs.length; ++i)
+			refs[i] = references.get(i);
+
+		return new Template(literals.toArray(new String[literals.size()]), refs, null, null);
+	}
+
+	/*
+	 * Returns whether the string literals of the JavaScript contain only widget
+	 * references and values that show, hide, enable or disable widgets.
+	 */
+	private static boolean isContentFree(List<String> literals) {
+		StringBuilder js = new StringBuilder();
+		for (int i = 0; i < literals.size(); ++i) {
+			if (i != 0)
+				js.append(REFERENCE);
+			js.append(literals.get(i));
+		}
+
+		Matcher m = STRING_LITERAL.matcher(js);
+		while (m.find()) {
+			String content = m.group(1) != null ? m.group(1) : m.group(2);
+			if (!CONTENT_FREE.contains(content.replace(String.valueOf(REFERENCE), "")))
+				return false;
+		}
+
+		return true;
+	}
+
+	private static WWidget[] resolve(WApplication app, Template t) {
+		WWidget[] result = new WWidget[t.paths.length];
+		for (int i = 0; i < result.length; ++i) {
+			WWidget w = getWidget(app, t.paths[i]);
+			if (w == null || !getSignature(w).equals(t.signatures[i]))
+				return null;
+			result[i] = w;
+		}
+
+		return result;
+	}
+
+	private static String instantiate(Template t, WWidget[] widgets) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < t.references.length; ++i) {
+			int r = t.references[i];
+			result.append(t.literals[i]).append(getId(widgets[r / ID_KINDS], r % ID_KINDS));
+		}
+		result.append(t.literals[t.references.length]);
+
+		return result.toString();
+	}
+
+	private static String getKey(WApplication app, AbstractEventSignal.LearningListener slot) {
+		AbstractEventSignal signal = slot.getSignal();
+		if (signal == null || !(signal.getSender() instanceof WWidget))
+			return null;
+
+		int[] path = getPath(app, (WWidget) signal.getSender());
+		if (path == null)
+			return null;
+
+		StringBuilder result = new StringBuilder();
+		result.append(slot.getClass().getName()).append(' ')
+			.append(signal.getSender().getClass().getName()).append(' ')
+			.append(signal.getName()).append(' ')
+			.append(app.getJavaScriptClass()).append(' ')
+			.append(app.getLocale()).append(' ')
+			.append(app.getEnvironment().getAgent()).append(' ');
+		for (int i : path)
+			result.append(i).append('/');
+
+		return result.toString();
+	}
+
+	private static String getSignature(WWidget w) {
+		StringBuilder result = new StringBuilder();
+		result.append(w.getClass().getName()).append(' ');
+		String id = w.getId();
+		if (isGeneratedId(w))
+			result.append(id.substring(0, id.length() - w.getWebWidget().getUniqueId().length()));
+		else
+			result.append('#').append(id);
+		result.append(' ').append(w.isHidden()).append(' ').append(w.isRendered());
+
+		return result.toString();
+	}
+
+	private static boolean isGeneratedId(WWidget w) {
+		String id = w.getId();
+		String uniqueId = w.getWebWidget().getUniqueId();
+
+		return id.equals(uniqueId) || id.endsWith('_' + uniqueId);
+	}
+
+	private static String getId(WWidget w, int kind) {
+		switch (kind) {
+		case ID:
+			return w.getId();
+		case WEB_WIDGET_ID:
+			return w.getWebWidget().getUniqueId();
+		default:
+			return w.getUniqueId();
+		}
+	}
+
+	/*
+	 * Returns the place of a widget in the widget tree: the index of its root,
+	 * followed by the child indexes from the root to the widget.
+	 */
+	private static int[] getPath(WApplication app, WWidget w) {
+		List<Integer> indexes = new ArrayList<Integer>();
+		for (WWidget p = w.getParent(); p != null; w = p, p = p.getParent()) {
+			int index = getChildIndex(p, w);
+			if (index < 0)
+				return null;
+			indexes.add(index);
+		}
+
+		int root;
+		if (w == app.domRoot_)
+			root = 0;
+		else if (w == app.domRoot2_)
+			root = 1;
+		else
+			return null;
+
+		int[] result = new int[indexes.size() + 1];
+		result[0] = root;
+		for (int i = 1; i < result.length; ++i)
+			result[i] = indexes.get(indexes.size() - i);
+
+		return result;
+	}
+
+	private static WWidget getWidget(WApplication app, int[] path) {
+		WWidget w = path[0] == 0 ? app.domRoot_ : app.domRoot2_;
+		for (int i = 1; i < path.length && w != null; ++i)
+			w = getChild(w, path[i]);
+
+		return w;
+	}
+
+	private static int getChildIndex(WWidget parent, WWidget child) {
+		if (parent instanceof WCompositeWidget)
+			return ((WCompositeWidget) parent).getImplementation() == child ? 0 : -1;
+		else if (parent instanceof WWebWidget) {
+			List<WWidget> children = ((WWebWidget) parent).getChildren();
+			for (int i = 0; i < children.size(); ++i)
+				if (children.get(i) == child)
+					return i;
+		}
+
+		return -1;
+	}
+
+	private static WWidget getChild(WWidget parent, int index) {
+		if (parent instanceof WCompositeWidget)
+			return index == 0 ? ((WCompositeWidget) parent).getImplementation() : null;
+		else if (parent instanceof WWebWidget) {
+			List<WWidget> children = ((WWebWidget) parent).getChildren();
+			return index < children.size() ? children.get(index) : null;
+		} else
+			return null;
+	}
+}
@@ -118,6 +118,32 @@ public abstract class WAbstractItemDelegate extends WObject {
 	public void updateModelIndex(WWidget widget, final WModelIndex index) {
 	}
 
+	/**
+	 * Renders an item as HTML, without creating a widget.
+	 * <p>
+	 * A view may call this method instead of
+	 * {@link WAbstractItemDelegate#update(WWidget widget, WModelIndex index, EnumSet flags)
+	 * update()} for an item that only needs to be displayed. The item should
+	 * then be rendered as a single block element, which has the given
+	 * <code>styleClass</code> and <code>height</code>, and which is appended
+	 * to <code>out</code>. All data must be properly escaped. Since no widget
+	 * is involved, the item cannot react to events itself: the view handles
+	 * events on behalf of the item.
+	 * <p>
+	 * Return <code>false</code> (without appending anything) if the item
+	 * cannot be rendered this way, for example because it is being edited or
+	 * needs interactive widgets. The view then falls back to
+	 * {@link WAbstractItemDelegate#update(WWidget widget, WModelIndex index, EnumSet flags)
+	 * update()}.
+	 * <p>
+	 * The default implementation returns <code>false</code>.
+	 */
+	public boolean renderHtml(final StringBuilder out,
+			final WModelIndex index, EnumSet<ViewItemRenderFlag> flags,
+			final String styleClass, final WLength height) {
+		return false;
+	}
+
 	/**
 	 * Returns the current edit state.
 	 * <p>
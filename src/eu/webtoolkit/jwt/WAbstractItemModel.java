@@ -114,24 +114,54 @@ public abstract class WAbstractItemModel extends WObject {
 	public WAbstractItemModel(WObject parent) {
 		super(parent);
 		this.parent_ = null;
-		this.columnsAboutToBeInserted_ = new Signal3<WModelIndex, Integer, Integer>(
-				this);
-		this.columnsAboutToBeRemoved_ = new Signal3<WModelIndex, Integer, Integer>(
-				this);
+		this.changeBatch_ = 0;
+		this.pendingDataChanges_ = null;
+		this.pendingHeaderChanges_ = null;
+		this.columnsAboutToBeInserted_ = this.createStructureSignal();
+		this.columnsAboutToBeRemoved_ = this.createStructureSignal();
 		this.columnsInserted_ = new Signal3<WModelIndex, Integer, Integer>(this);
 		this.columnsRemoved_ = new Signal3<WModelIndex, Integer, Integer>(this);
-		this.rowsAboutToBeInserted_ = new Signal3<WModelIndex, Integer, Integer>(
-				this);
-		this.rowsAboutToBeRemoved_ = new Signal3<WModelIndex, Integer, Integer>(
-				this);
+		this.rowsAboutToBeInserted_ = this.createStructureSignal();
+		this.rowsAboutToBeRemoved_ = this.createStructureSignal();
 		this.rowsInserted_ = new Signal3<WModelIndex, Integer, Integer>(this);
 		this.rowsRemoved_ = new Signal3<WModelIndex, Integer, Integer>(this);
-		this.dataChanged_ = new Signal2<WModelIndex, WModelIndex>(this);
+		this.dataChanged_ = new Signal2<WModelIndex, WModelIndex>(this) {
+			public void trigger(WModelIndex topLeft, WModelIndex bottomRight) {
+				if (WAbstractItemModel.this.changeBatch_ > 0
+						&& topLeft != null && bottomRight != null) {
+					WAbstractItemModel.this.addPendingDataChange(topLeft,
+							bottomRight);
+				} else {
+					super.trigger(topLeft, bottomRight);
+				}
+			}
+		};
 		this.headerDataChanged_ = new Signal3<Orientation, Integer, Integer>(
-				this);
-		this.layoutAboutToBeChanged_ = new Signal(this);
+				this) {
+			public void trigger(Orientation orientation, Integer first,
+					Integer last) {
+				if (WAbstractItemModel.this.changeBatch_ > 0) {
+					WAbstractItemModel.this.addPendingHeaderChange(
+							orientation, first, last);
+				} else {
+					super.trigger(orientation, first, last);
+				}
+			}
+		};
+		this.layoutAboutToBeChanged_ = new Signal(this) {
+			public void trigger() {
+				WAbstractItemModel.this.flushChangeBatch();
+				super.trigger();
+			}
+		};
 		this.layoutChanged_ = new Signal(this);
-		this.modelReset_ = new Signal(this);
+		this.modelReset_ = new Signal(this) {
+			public void trigger() {
+				WAbstractItemModel.this.pendingDataChanges_ = null;
+				WAbstractItemModel.this.pendingHeaderChanges_ = null;
+				super.trigger();
+			}
+		};
 	}
 
 	/**
@@ -1325,6 +1355,56 @@ public abstract class WAbstractItemModel extends WObject {
 		this.modelReset_.trigger();
 	}
 
+	/**
+	 * Starts a batch of changes.
+	 * <p>
+	 * Until the matching call to
+	 * {@link WAbstractItemModel#endChangeBatch() endChangeBatch()}, the
+	 * {@link WAbstractItemModel#dataChanged() dataChanged()} and
+	 * {@link WAbstractItemModel#headerDataChanged() headerDataChanged()}
+	 * signals are not emitted for every change, but the changed ranges are
+	 * coalesced into a few rectangular ranges which are signaled when the
+	 * batch ends. Views and proxy models then update themselves once for a
+	 * bulk update, rather than once for every changed item.
+	 * <p>
+	 * Pending changes are signaled before rows or columns are inserted or
+	 * removed and before the layout is changed, so that listeners always
+	 * receive indexes that are valid. Batches may be nested.
+	 * <p>
+	 * 
+	 * @see WAbstractItemModel#endChangeBatch()
+	 */
+	public void beginChangeBatch() {
+		++this.changeBatch_;
+	}
+
+	/**
+	 * Ends a batch of changes.
+	 * <p>
+	 * When the outermost batch ends, the coalesced changes are signaled.
+	 * <p>
+	 * 
+	 * @see WAbstractItemModel#beginChangeBatch()
+	 */
+	public void endChangeBatch() {
+		if (this.changeBatch_ == 0) {
+			throw new WException("endChangeBatch() without beginChangeBatch()");
+		}
+		if (--this.changeBatch_ == 0) {
+			this.flushChangeBatch();
+		}
+	}
+
+	/**
+	 * Returns whether a batch of changes is in progress.
+	 * <p>
+	 * 
+	 * @see WAbstractItemModel#beginChangeBatch()
+	 */
+	public boolean isChangeBatchActive() {
+		return this.changeBatch_ > 0;
+	}
+
 	/**
 	 * Creates a model index for the given row and column.
 	 * <p>
@@ -1491,6 +1571,9 @@ public abstract class WAbstractItemModel extends WObject {
 	private int first_;
 	private int last_;
 	private WModelIndex parent_;
+	private int changeBatch_;
+	private Map<WModelIndex, List<int[]>> pendingDataChanges_;
+	private Map<Orientation, int[]> pendingHeaderChanges_;
 	private Signal3<WModelIndex, Integer, Integer> columnsAboutToBeInserted_;
 	private Signal3<WModelIndex, Integer, Integer> columnsAboutToBeRemoved_;
 	private Signal3<WModelIndex, Integer, Integer> columnsInserted_;
@@ -1517,5 +1600,110 @@ public abstract class WAbstractItemModel extends WObject {
 		destination.setItemData(dIndex, source.getItemData(sIndex));
 	}
 
+	private static final int MAX_PENDING_RANGES = 8;
+
+	private Signal3<WModelIndex, Integer, Integer> createStructureSignal() {
+		return new Signal3<WModelIndex, Integer, Integer>(this) {
+			public void trigger(WModelIndex parent, Integer first, Integer last) {
+				WAbstractItemModel.this.flushChangeBatch();
+				super.trigger(parent, first, last);
+			}
+		};
+	}
+
+	private void addPendingDataChange(final WModelIndex topLeft,
+			final WModelIndex bottomRight) {
+		if (this.pendingDataChanges_ == null) {
+			this.pendingDataChanges_ = new LinkedHashMap<WModelIndex, List<int[]>>();
+		}
+		WModelIndex parent = topLeft.getParent();
+		List<int[]> ranges = this.pendingDataChanges_.get(parent);
+		if (ranges == null) {
+			ranges = new ArrayList<int[]>();
+			this.pendingDataChanges_.put(parent, ranges);
+		}
+		int[] range = { topLeft.getRow(), topLeft.getColumn(),
+				bottomRight.getRow(), bottomRight.getColumn() };
+		for (int i = 0; i < ranges.size();) {
+			int[] other = ranges.get(i);
+			int[] merged = { Math.min(range[0], other[0]),
+					Math.min(range[1], other[1]), Math.max(range[2], other[2]),
+					Math.max(range[3], other[3]) };
+			if (getRangeSize(merged) <= getRangeSize(range)
+					+ getRangeSize(other)) {
+				ranges.remove(i);
+				range = merged;
+				i = 0;
+			} else {
+				++i;
+			}
+		}
+		ranges.add(range);
+		if (ranges.size() > MAX_PENDING_RANGES) {
+			int[] bounds = ranges.get(0);
+			for (int i = 1; i < ranges.size(); ++i) {
+				int[] other = ranges.get(i);
+				bounds[0] = Math.min(bounds[0], other[0]);
+				bounds[1] = Math.min(bounds[1], other[1]);
+				bounds[2] = Math.max(bounds[2], other[2]);
+				bounds[3] = Math.max(bounds[3], other[3]);
+			}
+			ranges.clear();
+			ranges.add(bounds);
+		}
+	}
+
+	private void addPendingHeaderChange(Orientation orientation, int first,
+			int last) {
+		if (this.pendingHeaderChanges_ == null) {
+			this.pendingHeaderChanges_ = new EnumMap<Orientation, int[]>(
+					Orientation.class);
+		}
+		int[] range = this.pendingHeaderChanges_.get(orientation);
+		if (range == null) {
+			this.pendingHeaderChanges_.put(orientation, new int[] { first,
+					last });
+		} else {
+			range[0] = Math.min(range[0], first);
+			range[1] = Math.max(range[1], last);
+		}
+	}
+
+	private void flushChangeBatch() {
+		Map<WModelIndex, List<int[]>> dataChanges = this.pendingDataChanges_;
+		Map<Orientation, int[]> headerChanges = this.pendingHeaderChanges_;
+		this.pendingDataChanges_ = null;
+		this.pendingHeaderChanges_ = null;
+		int batch = this.changeBatch_;
+		this.changeBatch_ = 0;
+		try {
+			if (dataChanges != null) {
+				for (Iterator<Map.Entry<WModelIndex, List<int[]>>> i_it = dataChanges
+						.entrySet().iterator(); i_it.hasNext();) {
+					Map.Entry<WModelIndex, List<int[]>> i = i_it.next();
+					for (int[] range : i.getValue()) {
+						this.dataChanged_.trigger(
+								this.getIndex(range[0], range[1], i.getKey()),
+								this.getIndex(range[2], range[3], i.getKey()));
+					}
+				}
+			}
+			if (headerChanges != null) {
+				for (Iterator<Map.Entry<Orientation, int[]>> i_it = headerChanges
+						.entrySet().iterator(); i_it.hasNext();) {
+					Map.Entry<Orientation, int[]> i = i_it.next();
+					this.headerDataChanged_.trigger(i.getKey(), i.getValue()[0],
+							i.getValue()[1]);
+				}
+			}
+		} finally {
+			this.changeBatch_ = batch;
+		}
+	}
+
+	private static long getRangeSize(int[] range) {
+		return (long) (range[2] - range[0] + 1) * (range[3] - range[1] + 1);
+	}
+
 	private static String DRAG_DROP_MIME_TYPE = "application/x-wabstractitemmodelselection";
 }
@@ -45,6 +45,7 @@ public abstract class WAbstractProxyModel extends WAbstractItemModel {
 	public WAbstractProxyModel(WObject parent) {
 		super(parent);
 		this.sourceModel_ = null;
+		this.batchSourceModel_ = null;
 	}
 
 	/**
@@ -111,6 +112,42 @@ public abstract class WAbstractProxyModel extends WAbstractItemModel {
 		return this.sourceModel_;
 	}
 
+	/**
+	 * Starts a batch of changes.
+	 * <p>
+	 * The batch is also started on the source model, so that changes made
+	 * through the proxy model are propagated from the source model as a
+	 * single change when the batch ends.
+	 * <p>
+	 * 
+	 * @see WAbstractItemModel#beginChangeBatch()
+	 */
+	public void beginChangeBatch() {
+		if (!this.isChangeBatchActive()) {
+			this.batchSourceModel_ = this.sourceModel_;
+		}
+		if (this.batchSourceModel_ != null) {
+			this.batchSourceModel_.beginChangeBatch();
+		}
+		super.beginChangeBatch();
+	}
+
+	/**
+	 * Ends a batch of changes.
+	 * <p>
+	 * 
+	 * @see WAbstractProxyModel#beginChangeBatch()
+	 */
+	public void endChangeBatch() {
+		if (this.isChangeBatchActive() && this.batchSourceModel_ != null) {
+			this.batchSourceModel_.endChangeBatch();
+		}
+		super.endChangeBatch();
+		if (!this.isChangeBatchActive()) {
+			this.batchSourceModel_ = null;
+		}
+	}
+
 	/**
 	 * Returns the data at a specific model index.
 	 * <p>
@@ -422,4 +459,5 @@ public abstract class WAbstractProxyModel extends WAbstractItemModel {
 	}
 
 	private WAbstractItemModel sourceModel_;
+	private WAbstractItemModel batchSourceModel_;
 }
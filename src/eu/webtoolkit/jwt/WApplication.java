@@ -145,6 +145,7 @@ public class WApplication extends WObject {
 		this.titleChanged_ = false;
 		this.closeMessageChanged_ = false;
 		this.localeChanged_ = false;
+		this.pageCacheable_ = false;
 		this.styleSheet_ = new WCssStyleSheet();
 		this.localizedStrings_ = null;
 		this.locale_ = new Locale("");
@@ -816,6 +817,35 @@ public class WApplication extends WObject {
 		return this.title_;
 	}
 
+	/**
+	 * Sets whether the page may be served from the page cache.
+	 * <p>
+	 * When a page cache is configured (see
+	 * {@link Configuration#setPageCacheSize(int)}), the page that is rendered
+	 * for a bot may be cached, and served to bots that request the same URL,
+	 * without creating a session. This is only correct when the page depends
+	 * only on the URL, and on the locale and the
+	 * {@link WtServlet#getPageCacheVaryKey(javax.servlet.http.HttpServletRequest)
+	 * vary key} of the request.
+	 * <p>
+	 * The page is cached if this is <code>true</code> when it is rendered.
+	 * <p>
+	 * The default value is <code>false</code>.
+	 */
+	public void setPageCacheable(boolean cacheable) {
+		this.pageCacheable_ = cacheable;
+	}
+
+	/**
+	 * Returns whether the page may be served from the page cache.
+	 * <p>
+	 * 
+	 * @see WApplication#setPageCacheable(boolean cacheable)
+	 */
+	public boolean isPageCacheable() {
+		return this.pageCacheable_;
+	}
+
 	/**
 	 * Returns the close message.
 	 * <p>
@@ -1669,6 +1699,55 @@ public class WApplication extends WObject {
 		enableUpdates(true);
 	}
 
+	/**
+	 * Sets the minimum time between two server-initiated updates.
+	 * <p>
+	 * Updates triggered using {@link WApplication#triggerUpdate()
+	 * triggerUpdate()} within this interval after the last push are coalesced
+	 * into a single update that is pushed at the end of the interval. This caps
+	 * the rate at which the user interface is rendered for changes from
+	 * background threads, regardless of how often they trigger updates.
+	 * <p>
+	 * Pushes are also postponed while a request from the client is waiting to
+	 * be handled, since its response will carry the changes.
+	 * <p>
+	 * The default is configured using
+	 * {@link Configuration#setPushInterval(int interval)
+	 * Configuration#setPushInterval()}.
+	 */
+	public void setPushInterval(int milliseconds) {
+		this.session_.setPushInterval(milliseconds);
+	}
+
+	/**
+	 * Returns the minimum time between two server-initiated updates.
+	 * <p>
+	 * 
+	 * @see WApplication#setPushInterval(int milliseconds)
+	 */
+	public int getPushInterval() {
+		return this.session_.getPushInterval();
+	}
+
+	/**
+	 * Returns the number of server-initiated updates that have been pushed.
+	 */
+	public long getPushCount() {
+		return this.session_.getPushCount();
+	}
+
+	/**
+	 * Returns the number of triggered updates that were coalesced.
+	 * <p>
+	 * This counts the updates that were not pushed immediately, because of the
+	 * {@link WApplication#setPushInterval(int milliseconds) push interval} or
+	 * because a request was waiting, and were instead merged into a later push
+	 * or response.
+	 */
+	public long getCoalescedUpdateCount() {
+		return this.session_.getCoalescedUpdateCount();
+	}
+
 	/**
 	 * Returns whether server-initiated updates are enabled.
 	 * <p>
@@ -2961,6 +3040,7 @@ public class WApplication extends WObject {
 	boolean titleChanged_;
 	boolean closeMessageChanged_;
 	boolean localeChanged_;
+	private boolean pageCacheable_;
 	private WContainerWidget widgetRoot_;
 	WContainerWidget domRoot_;
 	WContainerWidget domRoot2_;
@@ -3173,17 +3253,67 @@ public class WApplication extends WObject {
 					.get(i);
 			String scope = preamble.scope == JavaScriptScope.ApplicationScope ? this
 					.getJavaScriptClass() : "Wt3_3_5";
-			if (preamble.type == JavaScriptObjectType.JavaScriptFunction) {
-				out.append(scope).append('.').append(preamble.name)
-						.append(" = function() { return (")
-						.append(preamble.src).append(").apply(").append(scope)
-						.append(", arguments) };");
+			streamJavaScriptPreamble(out, preamble, scope);
+		}
+		this.newJavaScriptPreamble_ = 0;
+	}
+
+	static void streamJavaScriptPreamble(final StringBuilder out,
+			final WJavaScriptPreamble preamble, final String scope) {
+		if (preamble.type == JavaScriptObjectType.JavaScriptFunction) {
+			out.append(scope).append('.').append(preamble.name)
+					.append(" = function() { return (").append(preamble.src)
+					.append(").apply(").append(scope).append(", arguments) };");
+		} else {
+			out.append(scope).append('.').append(preamble.name).append(" = ")
+					.append(preamble.src).append('\n');
+		}
+	}
+
+	/**
+	 * Moves the Wt class scope preambles that have not yet been streamed into
+	 * a shared bundle, which is loaded as a script library.
+	 * <p>
+	 * This may only be used when the preambles are streamed while script
+	 * libraries are being loaded, since the preambles are then only needed
+	 * after the bundle has been loaded.
+	 */
+	void bundleJavaScriptPreamble(boolean all) {
+		WtServlet server = this.getEnvironment().getServer();
+		if (server == null
+				|| !server.getConfiguration().isJavaScriptBundles()) {
+			return;
+		}
+		int first = all ? 0 : this.javaScriptPreamble_.size()
+				- this.newJavaScriptPreamble_;
+		List<WJavaScriptPreamble> bundled = new ArrayList<WJavaScriptPreamble>();
+		List<WJavaScriptPreamble> remaining = new ArrayList<WJavaScriptPreamble>();
+		for (int i = 0; i < this.javaScriptPreamble_.size(); ++i) {
+			final WJavaScriptPreamble preamble = this.javaScriptPreamble_
+					.get(i);
+			if (i >= first && preamble.scope == JavaScriptScope.WtClassScope) {
+				bundled.add(preamble);
 			} else {
-				out.append(scope).append('.').append(preamble.name)
-						.append(" = ").append(preamble.src).append('\n');
+				remaining.add(preamble);
 			}
 		}
-		this.newJavaScriptPreamble_ = 0;
+		if (bundled.isEmpty()) {
+			return;
+		}
+		String url = server.getJavaScriptBundles().getUrl(bundled);
+		if (url == null) {
+			return;
+		}
+		this.javaScriptPreamble_ = remaining;
+		this.newJavaScriptPreamble_ -= Math.min(this.newJavaScriptPreamble_,
+				bundled.size());
+		for (int i = 0; i < this.scriptLibraries_.size(); ++i) {
+			if (this.scriptLibraries_.get(i).uri.equals(url)) {
+				return;
+			}
+		}
+		this.scriptLibraries_.add(new WApplication.ScriptLibrary(url, ""));
+		++this.scriptLibrariesAdded_;
 	}
 
 	void setExposeSignals(boolean how) {
@@ -832,6 +832,7 @@ public class WBatchEditProxyModel extends WAbstractProxyModel {
 		if (this.isRemoved(topLeft.getParent())) {
 			return;
 		}
+		this.beginChangeBatch();
 		for (int row = topLeft.getRow(); row <= bottomRight.getRow(); ++row) {
 			for (int col = topLeft.getColumn(); col <= bottomRight.getColumn(); ++col) {
 				WModelIndex l = this.getSourceModel().getIndex(row, col,
@@ -842,12 +843,14 @@ public class WBatchEditProxyModel extends WAbstractProxyModel {
 				}
 			}
 		}
+		this.endChangeBatch();
 	}
 
 	private void sourceHeaderDataChanged(Orientation orientation, int start,
 			int end) {
 		if (orientation == Orientation.Vertical) {
 			WBatchEditProxyModel.Item item = this.itemFromIndex(null);
+			this.beginChangeBatch();
 			for (int row = start; row <= end; ++row) {
 				int proxyRow = this.adjustedProxyRow(item, row);
 				if (proxyRow != -1) {
@@ -855,6 +858,7 @@ public class WBatchEditProxyModel extends WAbstractProxyModel {
 							proxyRow);
 				}
 			}
+			this.endChangeBatch();
 		} else {
 			this.headerDataChanged().trigger(orientation, start, end);
 		}
@@ -628,6 +628,21 @@ public class WCanvasPaintDevice extends WObject implements WPaintDevice {
 		}
 	}
 
+	String getPaintCommands() {
+		this.finishPath();
+		return this.js_.toString();
+	}
+
+	List<String> getImages() {
+		return this.images_;
+	}
+
+	void restorePaintCommands(final String js, List<String> images) {
+		this.js_ = new StringWriter();
+		this.js_.append(js);
+		this.images_ = new ArrayList<String>(images);
+	}
+
 	public void renderPaintCommands(final StringWriter js_target,
 			final String canvasElement) {
 		js_target.append("var ctx=").append(canvasElement)
@@ -39,7 +39,7 @@ class WClientGLWidget extends WAbstractGLImplementation {
 		this.canvas_ = 0;
 		this.currentlyBoundBuffer_ = new WGLWidget.Buffer();
 		this.currentlyBoundTexture_ = new WGLWidget.Texture();
-		this.binaryResources_ = new ArrayList<WMemoryResource>();
+		this.binaryResources_ = new HashMap<String, List<WMemoryResource>>();
 		this.preloadImages_ = new ArrayList<WClientGLWidget.PreloadImage>();
 		this.preloadArrayBuffers_ = new ArrayList<WClientGLWidget.PreloadArrayBuffer>();
 	}
@@ -320,7 +320,8 @@ class WClientGLWidget extends WAbstractGLImplementation {
 		if (binary) {
 			WMemoryResource res = new WMemoryResource("application/octet", this);
 			res.setData(v.array());
-			this.binaryResources_.add(res);
+			this.releaseBinaryResources(this.currentlyBoundBuffer_);
+			this.addBinaryResource(this.currentlyBoundBuffer_, res);
 			this.preloadArrayBuffers_
 					.add(new WClientGLWidget.PreloadArrayBuffer(
 							this.currentlyBoundBuffer_.getJsRef(), res.getUrl()));
@@ -360,17 +361,16 @@ class WClientGLWidget extends WAbstractGLImplementation {
 	public void bufferSubDatafv(WGLWidget.GLenum target, int offset,
 			final java.nio.ByteBuffer buffer, boolean binary) {
 		if (binary) {
-			WMemoryResource res = new WMemoryResource("application/octet", this);
-			res.setData(buffer.array());
-			this.binaryResources_.add(res);
-			this.preloadArrayBuffers_
-					.add(new WClientGLWidget.PreloadArrayBuffer(
-							this.currentlyBoundBuffer_.getJsRef(), res.getUrl()));
+			WMemoryResource res = new SubDataResource(
+					this.currentlyBoundBuffer_, buffer.array());
+			this.addBinaryResource(this.currentlyBoundBuffer_, res);
+			WGLWidget.ArrayBuffer data = this.createAndLoadArrayBuffer(res
+					.getUrl());
 			this.js_.append("ctx.bufferSubData(")
 					.append("ctx." + target.toString()).append(",");
 			this.js_.append(String.valueOf(offset)).append(",");
-			this.js_.append(this.currentlyBoundBuffer_.getJsRef()).append(
-					".data);");
+			this.js_.append(data.getJsRef()).append(".data);");
+			this.js_.append("delete ").append(data.getJsRef()).append(";");
 		} else {
 			this.bufferSubDatafv(target, offset,
 					((java.nio.ByteBuffer) buffer.rewind()).asFloatBuffer());
@@ -435,12 +435,57 @@ class WClientGLWidget extends WAbstractGLImplementation {
 	}
 
 	public void clearBinaryResources() {
-		for (int i = 0; i < this.binaryResources_.size(); i++) {
-			;
-		}
 		this.binaryResources_.clear();
 	}
 
+	private void addBinaryResource(WGLWidget.Buffer buffer,
+			WMemoryResource res) {
+		List<WMemoryResource> resources = this.binaryResources_.get(buffer
+				.getJsRef());
+		if (resources == null) {
+			resources = new ArrayList<WMemoryResource>();
+			this.binaryResources_.put(buffer.getJsRef(), resources);
+		}
+		resources.add(res);
+	}
+
+	private void releaseBinaryResources(WGLWidget.Buffer buffer) {
+		this.binaryResources_.remove(buffer.getJsRef());
+	}
+
+	private void releaseBinaryResource(WGLWidget.Buffer buffer,
+			WMemoryResource res) {
+		List<WMemoryResource> resources = this.binaryResources_.get(buffer
+				.getJsRef());
+		if (resources != null) {
+			resources.remove(res);
+			if (resources.isEmpty()) {
+				this.binaryResources_.remove(buffer.getJsRef());
+			}
+		}
+	}
+
+	/**
+	 * The data for a bufferSubData() call, which is no longer needed once the
+	 * client has fetched it.
+	 */
+	private class SubDataResource extends WMemoryResource {
+		public SubDataResource(WGLWidget.Buffer buffer, byte[] data) {
+			super("application/octet", WClientGLWidget.this);
+			this.setData(data);
+			this.buffer_ = buffer;
+		}
+
+		@Override
+		protected void handleRequest(WebRequest request, WebResponse response)
+				throws IOException {
+			super.handleRequest(request, response);
+			WClientGLWidget.this.releaseBinaryResource(this.buffer_, this);
+		}
+
+		private WGLWidget.Buffer buffer_;
+	}
+
 	public void clear(EnumSet<WGLWidget.GLenum> mask) {
 		this.js_.append("ctx.clear(");
 		if (!EnumUtils.mask(mask, WGLWidget.GLenum.COLOR_BUFFER_BIT).isEmpty()) {
@@ -712,6 +757,7 @@ class WClientGLWidget extends WAbstractGLImplementation {
 		if ((int) buffer.getId() >= this.buffers_) {
 			return;
 		}
+		this.releaseBinaryResources(buffer);
 		this.js_.append("ctx.deleteBuffer(").append(buffer.getJsRef())
 				.append(");");
 		this.js_.append("delete ").append(buffer.getJsRef()).append(";");
@@ -2324,7 +2370,7 @@ class WClientGLWidget extends WAbstractGLImplementation {
 	private int canvas_;
 	private WGLWidget.Buffer currentlyBoundBuffer_;
 	private WGLWidget.Texture currentlyBoundTexture_;
-	private List<WMemoryResource> binaryResources_;
+	private Map<String, List<WMemoryResource>> binaryResources_;
 
 	static class PreloadImage {
 		private static Logger logger = LoggerFactory
@@ -0,0 +1,1036 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.*;
+import java.util.regex.*;
+import java.io.*;
+import java.lang.ref.*;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.servlet.http.*;
+import javax.servlet.*;
+import eu.webtoolkit.jwt.*;
+import eu.webtoolkit.jwt.chart.*;
+import eu.webtoolkit.jwt.utils.*;
+import eu.webtoolkit.jwt.servlet.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A table model that stores its data in typed columns.
+ * <p>
+ *
+ * This model is a compact alternative to {@link WStandardItemModel} for large
+ * tables. Rather than an item (with a map of role data) for every cell, the
+ * model stores one array per column: an <code>int[]</code>,
+ * <code>long[]</code> or <code>double[]</code> for numeric columns, and an
+ * array of dictionary codes for string columns, so that each distinct string
+ * is stored only once (strings that are no longer used are removed from the
+ * dictionary when it holds more than twice as many strings as there are
+ * rows). The check state of a checkable column is kept in a
+ * bitmap. Data for any other role (or a value that does not fit the type of
+ * its column) is stored as a sparse per-cell override.
+ * <p>
+ * The layout of the table is defined by adding columns with
+ * {@link WColumnarTableModel#addColumn(WColumnarTableModel.ColumnType type, Object header)
+ * addColumn()}, after which rows are loaded in bulk using
+ * {@link WColumnarTableModel#appendRows(List rows) appendRows()}, which emits
+ * a single change notification. Rows can also be inserted, removed and edited
+ * through the standard {@link WAbstractItemModel} API, and thus the model can
+ * be used with {@link WTableView}, {@link WSortFilterProxyModel} and the chart
+ * widgets.
+ * <p>
+ * The {@link ItemDataRole#DisplayRole DisplayRole} data of a cell is an
+ * {@link Integer}, {@link Long}, {@link Double} or {@link String}, depending
+ * on the column type, or <code>null</code> for an empty cell.
+ * <p>
+ * Sorting ({@link WColumnarTableModel#sort(int column, SortOrder order)
+ * sort()}) is stable and compares the column values directly, with empty
+ * cells first in ascending order.
+ */
+public class WColumnarTableModel extends WAbstractTableModel {
+	private static Logger logger = LoggerFactory
+			.getLogger(WColumnarTableModel.class);
+
+	/**
+	 * Enumeration for the type of a column.
+	 */
+	public enum ColumnType {
+		/**
+		 * 32-bit integer values.
+		 */
+		IntColumn,
+		/**
+		 * 64-bit integer values.
+		 */
+		LongColumn,
+		/**
+		 * Floating point values.
+		 */
+		DoubleColumn,
+		/**
+		 * String values, dictionary-encoded.
+		 */
+		StringColumn;
+
+		/**
+		 * Returns the numerical representation of this enum.
+		 */
+		public int getValue() {
+			return ordinal();
+		}
+	}
+
+	/**
+	 * Creates a new model without columns.
+	 */
+	public WColumnarTableModel(WObject parent) {
+		super(parent);
+		this.columns_ = new ArrayList<WColumnarTableModel.Column>();
+		this.headerData_ = new ArrayList<SortedMap<Integer, Object>>();
+		this.overrides_ = new HashMap<Long, SortedMap<Integer, Object>>();
+		this.rowCount_ = 0;
+		this.capacity_ = 0;
+	}
+
+	/**
+	 * Creates a new model without columns.
+	 * <p>
+	 * Calls {@link #WColumnarTableModel(WObject parent) this((WObject)null)}
+	 */
+	public WColumnarTableModel() {
+		this((WObject) null);
+	}
+
+	/**
+	 * Adds a column.
+	 * <p>
+	 * The column is added after the existing columns. Its cells are empty for
+	 * rows that already exist. The <code>header</code> is set as
+	 * {@link ItemDataRole#DisplayRole DisplayRole} header data.
+	 * <p>
+	 * Returns the index of the new column.
+	 */
+	public int addColumn(ColumnType type, Object header) {
+		int column = this.columns_.size();
+		this.beginInsertColumns(null, column, column);
+		WColumnarTableModel.Column c;
+		switch (type) {
+		case IntColumn:
+			c = new WColumnarTableModel.IntColumn();
+			break;
+		case LongColumn:
+			c = new WColumnarTableModel.LongColumn();
+			break;
+		case DoubleColumn:
+			c = new WColumnarTableModel.DoubleColumn();
+			break;
+		default:
+			c = new WColumnarTableModel.StringColumn();
+		}
+		c.resize(this.capacity_);
+		this.columns_.add(c);
+		SortedMap<Integer, Object> h = new TreeMap<Integer, Object>();
+		if (header != null) {
+			h.put(ItemDataRole.DisplayRole, header);
+		}
+		this.headerData_.add(h);
+		this.endInsertColumns();
+		return column;
+	}
+
+	/**
+	 * Adds a column.
+	 * <p>
+	 * Returns {@link #addColumn(WColumnarTableModel.ColumnType type, Object header)
+	 * addColumn(type, null)}
+	 */
+	public final int addColumn(ColumnType type) {
+		return addColumn(type, null);
+	}
+
+	/**
+	 * Returns the type of a column.
+	 */
+	public ColumnType getColumnType(int column) {
+		return this.columns_.get(column).type;
+	}
+
+	/**
+	 * Sets the flags for the cells of a column.
+	 * <p>
+	 * The default flags are {@link ItemFlag#ItemIsSelectable
+	 * ItemIsSelectable}.
+	 */
+	public void setColumnFlags(int column, EnumSet<ItemFlag> flags) {
+		this.columns_.get(column).flags = EnumSet.copyOf(flags);
+		this.columnDataChanged(column);
+	}
+
+	/**
+	 * Sets the flags for the cells of a column.
+	 * <p>
+	 * Calls {@link #setColumnFlags(int column, EnumSet flags)
+	 * setColumnFlags(column, EnumSet.of(flag, flags))}
+	 */
+	public final void setColumnFlags(int column, ItemFlag flag,
+			ItemFlag... flags) {
+		setColumnFlags(column, EnumSet.of(flag, flags));
+	}
+
+	/**
+	 * Returns the flags for the cells of a column.
+	 * <p>
+	 *
+	 * @see WColumnarTableModel#setColumnFlags(int column, EnumSet flags)
+	 */
+	public EnumSet<ItemFlag> getColumnFlags(int column) {
+		return EnumSet.copyOf(this.columns_.get(column).flags);
+	}
+
+	/**
+	 * Makes the cells of a column checkable.
+	 * <p>
+	 * This adds the {@link ItemFlag#ItemIsUserCheckable ItemIsUserCheckable}
+	 * flag to the column, and its cells then report their check state as
+	 * {@link ItemDataRole#CheckStateRole CheckStateRole} data. Cells are
+	 * unchecked initially.
+	 */
+	public void setCheckable(int column, boolean checkable) {
+		EnumSet<ItemFlag> flags = this.getColumnFlags(column);
+		if (checkable) {
+			flags.add(ItemFlag.ItemIsUserCheckable);
+		} else {
+			flags.remove(ItemFlag.ItemIsUserCheckable);
+		}
+		this.setColumnFlags(column, flags);
+	}
+
+	/**
+	 * Returns whether the cells of a column are checkable.
+	 * <p>
+	 *
+	 * @see WColumnarTableModel#setCheckable(int column, boolean checkable)
+	 */
+	public boolean isCheckable(int column) {
+		return this.columns_.get(column).flags
+				.contains(ItemFlag.ItemIsUserCheckable);
+	}
+
+	/**
+	 * Reserves storage for a number of rows.
+	 * <p>
+	 * This avoids reallocating the column arrays while loading a table of
+	 * which the size is known in advance.
+	 */
+	public void reserve(int rows) {
+		if (rows > this.capacity_) {
+			this.capacity_ = rows;
+			for (int i = 0; i < this.columns_.size(); ++i) {
+				this.columns_.get(i).resize(this.capacity_);
+			}
+		}
+	}
+
+	/**
+	 * Appends rows.
+	 * <p>
+	 * Each row is given as an array with a value for each column (shorter
+	 * arrays leave the remaining cells empty). A value is converted to the
+	 * type of its column: a {@link Number} or a (locale-formatted) string for
+	 * a numeric column, and any {@link CharSequence} for a string column.
+	 * Values that cannot be converted are kept as they are, as an override.
+	 * <p>
+	 * Listeners are notified once for all rows.
+	 */
+	public void appendRows(final List<Object[]> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		int first = this.rowCount_;
+		this.beginInsertRows(null, first, first + rows.size() - 1);
+		this.grow(first + rows.size());
+		this.rowCount_ += rows.size();
+		for (int i = 0; i < rows.size(); ++i) {
+			Object[] values = rows.get(i);
+			int count = Math.min(values.length, this.columns_.size());
+			for (int j = 0; j < count; ++j) {
+				this.setValue(first + i, j, values[j]);
+			}
+		}
+		this.endInsertRows();
+	}
+
+	/**
+	 * Appends a row.
+	 * <p>
+	 * Calls {@link #appendRows(List rows)
+	 * appendRows(Collections.singletonList(values))}
+	 */
+	public final void appendRow(Object... values) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(values);
+		this.appendRows(rows);
+	}
+
+	/**
+	 * Returns whether a cell is empty.
+	 */
+	public boolean isNull(int row, int column) {
+		return !this.columns_.get(column).present.get(row);
+	}
+
+	/**
+	 * Returns the value of a cell in an {@link ColumnType#IntColumn IntColumn}.
+	 * <p>
+	 * Returns 0 for an empty cell.
+	 */
+	public int getInt(int row, int column) {
+		return ((WColumnarTableModel.IntColumn) this.columns_.get(column)).data[row];
+	}
+
+	/**
+	 * Returns the value of a cell in a {@link ColumnType#LongColumn
+	 * LongColumn}.
+	 * <p>
+	 * Returns 0 for an empty cell.
+	 */
+	public long getLong(int row, int column) {
+		return ((WColumnarTableModel.LongColumn) this.columns_.get(column)).data[row];
+	}
+
+	/**
+	 * Returns the value of a cell in a {@link ColumnType#DoubleColumn
+	 * DoubleColumn}.
+	 * <p>
+	 * Returns 0 for an empty cell.
+	 */
+	public double getDouble(int row, int column) {
+		return ((WColumnarTableModel.DoubleColumn) this.columns_.get(column)).data[row];
+	}
+
+	/**
+	 * Returns the value of a cell in a {@link ColumnType#StringColumn
+	 * StringColumn}.
+	 * <p>
+	 * Returns <code>null</code> for an empty cell.
+	 */
+	public String getString(int row, int column) {
+		WColumnarTableModel.Column c = this.columns_.get(column);
+		return c.present.get(row) ? (String) c.get(row) : null;
+	}
+
+	/**
+	 * Returns whether a cell is checked.
+	 */
+	public boolean isChecked(int row, int column) {
+		return this.columns_.get(column).checked.get(row);
+	}
+
+	public int getColumnCount(final WModelIndex parent) {
+		return (parent != null) ? 0 : this.columns_.size();
+	}
+
+	public int getRowCount(final WModelIndex parent) {
+		return (parent != null) ? 0 : this.rowCount_;
+	}
+
+	public EnumSet<ItemFlag> getFlags(final WModelIndex index) {
+		return EnumSet.copyOf(this.columns_.get(index.getColumn()).flags);
+	}
+
+	public Object getData(final WModelIndex index, int role) {
+		if (role == ItemDataRole.EditRole) {
+			role = ItemDataRole.DisplayRole;
+		}
+		int row = index.getRow();
+		int column = index.getColumn();
+		if (!this.overrides_.isEmpty()) {
+			SortedMap<Integer, Object> d = this.overrides_.get(key(row,
+					column));
+			if (d != null) {
+				Object result = d.get(role);
+				if (result != null) {
+					return result;
+				}
+			}
+		}
+		WColumnarTableModel.Column c = this.columns_.get(column);
+		if (role == ItemDataRole.DisplayRole) {
+			return c.present.get(row) ? c.get(row) : null;
+		} else {
+			if (role == ItemDataRole.CheckStateRole
+					&& c.flags.contains(ItemFlag.ItemIsUserCheckable)) {
+				return c.checked.get(row);
+			} else {
+				return null;
+			}
+		}
+	}
+
+	public boolean setData(final WModelIndex index, final Object value, int role) {
+		if (role == ItemDataRole.EditRole) {
+			role = ItemDataRole.DisplayRole;
+		}
+		int row = index.getRow();
+		int column = index.getColumn();
+		if (role == ItemDataRole.DisplayRole) {
+			this.setValue(row, column, value);
+		} else {
+			if (role == ItemDataRole.CheckStateRole
+					&& (value instanceof Boolean || value == CheckState.Checked || value == CheckState.Unchecked)) {
+				this.columns_.get(column).checked.set(row,
+						value == Boolean.TRUE || value == CheckState.Checked);
+				this.setOverride(row, column, role, null);
+			} else {
+				this.setOverride(row, column, role, value);
+			}
+		}
+		this.dataChanged().trigger(index, index);
+		return true;
+	}
+
+	public Object getHeaderData(int section, Orientation orientation, int role) {
+		if (orientation == Orientation.Horizontal) {
+			if (role == ItemDataRole.EditRole) {
+				role = ItemDataRole.DisplayRole;
+			}
+			return this.headerData_.get(section).get(role);
+		} else {
+			return super.getHeaderData(section, orientation, role);
+		}
+	}
+
+	public boolean setHeaderData(int section, Orientation orientation,
+			final Object value, int role) {
+		if (orientation == Orientation.Horizontal) {
+			if (role == ItemDataRole.EditRole) {
+				role = ItemDataRole.DisplayRole;
+			}
+			this.headerData_.get(section).put(role, value);
+			this.headerDataChanged().trigger(orientation, section, section);
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	public boolean insertRows(int row, int count, final WModelIndex parent) {
+		if (parent != null || count <= 0 || row < 0 || row > this.rowCount_) {
+			return false;
+		}
+		this.beginInsertRows(parent, row, row + count - 1);
+		this.grow(this.rowCount_ + count);
+		for (int i = 0; i < this.columns_.size(); ++i) {
+			WColumnarTableModel.Column c = this.columns_.get(i);
+			c.move(row, row + count, this.rowCount_ - row);
+			moveBits(c.present, row, row + count, this.rowCount_ - row);
+			moveBits(c.checked, row, row + count, this.rowCount_ - row);
+			c.clear(row, row + count);
+			c.present.clear(row, row + count);
+			c.checked.clear(row, row + count);
+		}
+		if (!this.overrides_.isEmpty()) {
+			int[] rowMap = new int[this.rowCount_];
+			for (int i = 0; i < this.rowCount_; ++i) {
+				rowMap[i] = i < row ? i : i + count;
+			}
+			this.remapOverrides(rowMap, null);
+		}
+		this.rowCount_ += count;
+		this.endInsertRows();
+		return true;
+	}
+
+	public boolean removeRows(int row, int count, final WModelIndex parent) {
+		if (parent != null || count <= 0 || row < 0
+				|| row + count > this.rowCount_) {
+			return false;
+		}
+		this.beginRemoveRows(parent, row, row + count - 1);
+		int tail = this.rowCount_ - row - count;
+		for (int i = 0; i < this.columns_.size(); ++i) {
+			WColumnarTableModel.Column c = this.columns_.get(i);
+			c.move(row + count, row, tail);
+			moveBits(c.present, row + count, row, tail);
+			moveBits(c.checked, row + count, row, tail);
+			c.clear(this.rowCount_ - count, this.rowCount_);
+			c.present.clear(this.rowCount_ - count, this.rowCount_);
+			c.checked.clear(this.rowCount_ - count, this.rowCount_);
+			if (c instanceof WColumnarTableModel.StringColumn) {
+				((WColumnarTableModel.StringColumn) c).compact(this.rowCount_
+						- count);
+			}
+		}
+		if (!this.overrides_.isEmpty()) {
+			int[] rowMap = new int[this.rowCount_];
+			for (int i = 0; i < this.rowCount_; ++i) {
+				rowMap[i] = i < row ? i : i < row + count ? -1 : i - count;
+			}
+			this.remapOverrides(rowMap, null);
+		}
+		this.rowCount_ -= count;
+		this.endRemoveRows();
+		return true;
+	}
+
+	public boolean removeColumns(int column, int count,
+			final WModelIndex parent) {
+		if (parent != null || count <= 0 || column < 0
+				|| column + count > this.columns_.size()) {
+			return false;
+		}
+		this.beginRemoveColumns(parent, column, column + count - 1);
+		int columnCount = this.columns_.size();
+		for (int i = 0; i < count; ++i) {
+			this.columns_.remove(column);
+			this.headerData_.remove(column);
+		}
+		if (!this.overrides_.isEmpty()) {
+			int[] columnMap = new int[columnCount];
+			for (int i = 0; i < columnCount; ++i) {
+				columnMap[i] = i < column ? i : i < column + count ? -1 : i
+						- count;
+			}
+			this.remapOverrides(null, columnMap);
+		}
+		this.endRemoveColumns();
+		return true;
+	}
+
+	public void sort(int column, SortOrder order) {
+		this.layoutAboutToBeChanged().trigger();
+		WColumnarTableModel.Column c = this.columns_.get(column);
+		c.prepareSort();
+		int[] permutation = new int[this.rowCount_];
+		for (int i = 0; i < this.rowCount_; ++i) {
+			permutation[i] = i;
+		}
+		mergeSort(permutation, new int[this.rowCount_], 0, this.rowCount_,
+				c, order == SortOrder.AscendingOrder ? 1 : -1);
+		c.finishSort();
+		for (int i = 0; i < this.columns_.size(); ++i) {
+			WColumnarTableModel.Column ci = this.columns_.get(i);
+			ci.permute(permutation, this.rowCount_);
+			ci.present = permuteBits(ci.present, permutation);
+			ci.checked = permuteBits(ci.checked, permutation);
+		}
+		if (!this.overrides_.isEmpty()) {
+			int[] rowMap = new int[this.rowCount_];
+			for (int i = 0; i < this.rowCount_; ++i) {
+				rowMap[permutation[i]] = i;
+			}
+			this.remapOverrides(rowMap, null);
+		}
+		this.layoutChanged().trigger();
+	}
+
+	abstract static class Column {
+		private static Logger logger = LoggerFactory.getLogger(Column.class);
+
+		public Column(ColumnType type) {
+			this.type = type;
+			this.flags = EnumSet.of(ItemFlag.ItemIsSelectable);
+			this.present = new BitSet();
+			this.checked = new BitSet();
+		}
+
+		public ColumnType type;
+		public EnumSet<ItemFlag> flags;
+		public BitSet present;
+		public BitSet checked;
+
+		public abstract Object get(int row);
+
+		public abstract boolean set(int row, Object value);
+
+		public abstract void resize(int capacity);
+
+		public abstract void move(int from, int to, int count);
+
+		public abstract void clear(int from, int to);
+
+		public abstract void permute(int[] permutation, int count);
+
+		public abstract int compare(int row1, int row2);
+
+		public void prepareSort() {
+		}
+
+		public void finishSort() {
+		}
+	}
+
+	static class IntColumn extends WColumnarTableModel.Column {
+		private static Logger logger = LoggerFactory.getLogger(IntColumn.class);
+
+		public IntColumn() {
+			super(ColumnType.IntColumn);
+			this.data = new int[0];
+		}
+
+		public int[] data;
+
+		public Object get(int row) {
+			return this.data[row];
+		}
+
+		public boolean set(int row, Object value) {
+			long v;
+			if (value instanceof Integer || value instanceof Short
+					|| value instanceof Byte) {
+				v = ((Number) value).intValue();
+			} else {
+				Long l = asLong(value);
+				if (l == null || l.longValue() != l.intValue()) {
+					return false;
+				}
+				v = l.longValue();
+			}
+			this.data[row] = (int) v;
+			return true;
+		}
+
+		public void resize(int capacity) {
+			int[] data = new int[capacity];
+			System.arraycopy(this.data, 0, data, 0,
+					Math.min(this.data.length, capacity));
+			this.data = data;
+		}
+
+		public void move(int from, int to, int count) {
+			System.arraycopy(this.data, from, this.data, to, count);
+		}
+
+		public void clear(int from, int to) {
+			Arrays.fill(this.data, from, to, 0);
+		}
+
+		public void permute(int[] permutation, int count) {
+			int[] result = new int[this.data.length];
+			for (int i = 0; i < count; ++i) {
+				result[i] = this.data[permutation[i]];
+			}
+			this.data = result;
+		}
+
+		public int compare(int row1, int row2) {
+			int v1 = this.data[row1];
+			int v2 = this.data[row2];
+			return v1 < v2 ? -1 : v1 == v2 ? 0 : 1;
+		}
+	}
+
+	static class LongColumn extends WColumnarTableModel.Column {
+		private static Logger logger = LoggerFactory
+				.getLogger(LongColumn.class);
+
+		public LongColumn() {
+			super(ColumnType.LongColumn);
+			this.data = new long[0];
+		}
+
+		public long[] data;
+
+		public Object get(int row) {
+			return this.data[row];
+		}
+
+		public boolean set(int row, Object value) {
+			Long l = asLong(value);
+			if (l == null) {
+				return false;
+			}
+			this.data[row] = l;
+			return true;
+		}
+
+		public void resize(int capacity) {
+			long[] data = new long[capacity];
+			System.arraycopy(this.data, 0, data, 0,
+					Math.min(this.data.length, capacity));
+			this.data = data;
+		}
+
+		public void move(int from, int to, int count) {
+			System.arraycopy(this.data, from, this.data, to, count);
+		}
+
+		public void clear(int from, int to) {
+			Arrays.fill(this.data, from, to, 0);
+		}
+
+		public void permute(int[] permutation, int count) {
+			long[] result = new long[this.data.length];
+			for (int i = 0; i < count; ++i) {
+				result[i] = this.data[permutation[i]];
+			}
+			this.data = result;
+		}
+
+		public int compare(int row1, int row2) {
+			long v1 = this.data[row1];
+			long v2 = this.data[row2];
+			return v1 < v2 ? -1 : v1 == v2 ? 0 : 1;
+		}
+	}
+
+	static class DoubleColumn extends WColumnarTableModel.Column {
+		private static Logger logger = LoggerFactory
+				.getLogger(DoubleColumn.class);
+
+		public DoubleColumn() {
+			super(ColumnType.DoubleColumn);
+			this.data = new double[0];
+		}
+
+		public double[] data;
+
+		public Object get(int row) {
+			return this.data[row];
+		}
+
+		public boolean set(int row, Object value) {
+			if (value instanceof Number) {
+				this.data[row] = ((Number) value).doubleValue();
+				return true;
+			} else {
+				if (value instanceof CharSequence) {
+					try {
+						this.data[row] = LocaleUtils.toDouble(LocaleUtils
+								.getCurrentLocale(), value.toString().trim());
+						return true;
+					} catch (NumberFormatException e) {
+						return false;
+					}
+				} else {
+					return false;
+				}
+			}
+		}
+
+		public void resize(int capacity) {
+			double[] data = new double[capacity];
+			System.arraycopy(this.data, 0, data, 0,
+					Math.min(this.data.length, capacity));
+			this.data = data;
+		}
+
+		public void move(int from, int to, int count) {
+			System.arraycopy(this.data, from, this.data, to, count);
+		}
+
+		public void clear(int from, int to) {
+			Arrays.fill(this.data, from, to, 0);
+		}
+
+		public void permute(int[] permutation, int count) {
+			double[] result = new double[this.data.length];
+			for (int i = 0; i < count; ++i) {
+				result[i] = this.data[permutation[i]];
+			}
+			this.data = result;
+		}
+
+		public int compare(int row1, int row2) {
+			return Double.compare(this.data[row1], this.data[row2]);
+		}
+	}
+
+	static class StringColumn extends WColumnarTableModel.Column {
+		private static Logger logger = LoggerFactory
+				.getLogger(StringColumn.class);
+
+		public StringColumn() {
+			super(ColumnType.StringColumn);
+			this.data = new int[0];
+			this.dictionary = new ArrayList<String>();
+			this.codes = new HashMap<String, Integer>();
+			this.ranks = null;
+		}
+
+		public int[] data;
+		public List<String> dictionary;
+		public Map<String, Integer> codes;
+		public int[] ranks;
+
+		public Object get(int row) {
+			return this.dictionary.get(this.data[row]);
+		}
+
+		public boolean set(int row, Object value) {
+			if (!(value instanceof CharSequence)) {
+				return false;
+			}
+			String s = value.toString();
+			Integer code = this.codes.get(s);
+			if (code == null) {
+				code = this.dictionary.size();
+				this.dictionary.add(s);
+				this.codes.put(s, code);
+			}
+			this.data[row] = code;
+			return true;
+		}
+
+		public void resize(int capacity) {
+			int[] data = new int[capacity];
+			System.arraycopy(this.data, 0, data, 0,
+					Math.min(this.data.length, capacity));
+			this.data = data;
+		}
+
+		public void move(int from, int to, int count) {
+			System.arraycopy(this.data, from, this.data, to, count);
+		}
+
+		public void clear(int from, int to) {
+			Arrays.fill(this.data, from, to, 0);
+		}
+
+		public void permute(int[] permutation, int count) {
+			int[] result = new int[this.data.length];
+			for (int i = 0; i < count; ++i) {
+				result[i] = this.data[permutation[i]];
+			}
+			this.data = result;
+		}
+
+		public int compare(int row1, int row2) {
+			int r1 = this.ranks[this.data[row1]];
+			int r2 = this.ranks[this.data[row2]];
+			return r1 < r2 ? -1 : r1 == r2 ? 0 : 1;
+		}
+
+		public void prepareSort() {
+			Integer[] sorted = new Integer[this.dictionary.size()];
+			for (int i = 0; i < sorted.length; ++i) {
+				sorted[i] = i;
+			}
+			Arrays.sort(sorted, new Comparator<Integer>() {
+				public int compare(Integer c1, Integer c2) {
+					return dictionary.get(c1).compareTo(dictionary.get(c2));
+				}
+			});
+			this.ranks = new int[sorted.length];
+			for (int i = 0; i < sorted.length; ++i) {
+				this.ranks[sorted[i]] = i;
+			}
+		}
+
+		public void finishSort() {
+			this.ranks = null;
+		}
+
+		public void compact(int count) {
+			if (this.dictionary.size() <= 2 * count + 16) {
+				return;
+			}
+			int[] codeMap = new int[this.dictionary.size()];
+			Arrays.fill(codeMap, -1);
+			List<String> dictionary = new ArrayList<String>();
+			Map<String, Integer> codes = new HashMap<String, Integer>();
+			for (int i = this.present.nextSetBit(0); i >= 0 && i < count; i = this.present
+					.nextSetBit(i + 1)) {
+				int code = this.data[i];
+				if (codeMap[code] == -1) {
+					codeMap[code] = dictionary.size();
+					String s = this.dictionary.get(code);
+					dictionary.add(s);
+					codes.put(s, codeMap[code]);
+				}
+				this.data[i] = codeMap[code];
+			}
+			this.dictionary = dictionary;
+			this.codes = codes;
+		}
+	}
+
+	private List<WColumnarTableModel.Column> columns_;
+	private List<SortedMap<Integer, Object>> headerData_;
+	private Map<Long, SortedMap<Integer, Object>> overrides_;
+	private int rowCount_;
+	private int capacity_;
+
+	private void setValue(int row, int column, Object value) {
+		WColumnarTableModel.Column c = this.columns_.get(column);
+		if (value == null
+				|| c.type != ColumnType.StringColumn
+				&& value instanceof CharSequence
+				&& value.toString().trim().length() == 0) {
+			c.clear(row, row + 1);
+			c.present.clear(row);
+			this.setOverride(row, column, ItemDataRole.DisplayRole, null);
+		} else {
+			if (c.set(row, value)) {
+				c.present.set(row);
+				this.setOverride(row, column, ItemDataRole.DisplayRole, null);
+				if (c instanceof WColumnarTableModel.StringColumn) {
+					((WColumnarTableModel.StringColumn) c)
+							.compact(this.rowCount_);
+				}
+			} else {
+				c.clear(row, row + 1);
+				c.present.clear(row);
+				this.setOverride(row, column, ItemDataRole.DisplayRole, value);
+			}
+		}
+	}
+
+	private void setOverride(int row, int column, int role, Object value) {
+		Long k = key(row, column);
+		SortedMap<Integer, Object> d = this.overrides_.get(k);
+		if (value == null) {
+			if (d != null) {
+				d.remove(role);
+				if (d.isEmpty()) {
+					this.overrides_.remove(k);
+				}
+			}
+		} else {
+			if (d == null) {
+				d = new TreeMap<Integer, Object>();
+				this.overrides_.put(k, d);
+			}
+			d.put(role, value);
+		}
+	}
+
+	private void remapOverrides(int[] rowMap, int[] columnMap) {
+		Map<Long, SortedMap<Integer, Object>> result = new HashMap<Long, SortedMap<Integer, Object>>();
+		for (Iterator<Map.Entry<Long, SortedMap<Integer, Object>>> i_it = this.overrides_
+				.entrySet().iterator(); i_it.hasNext();) {
+			Map.Entry<Long, SortedMap<Integer, Object>> i = i_it.next();
+			int row = (int) (i.getKey() >>> 32);
+			int column = (int) (i.getKey() & 0xffffffffL);
+			if (rowMap != null) {
+				row = rowMap[row];
+			}
+			if (columnMap != null) {
+				column = columnMap[column];
+			}
+			if (row != -1 && column != -1) {
+				result.put(key(row, column), i.getValue());
+			}
+		}
+		this.overrides_ = result;
+	}
+
+	private void grow(int rows) {
+		if (rows > this.capacity_) {
+			this.reserve(Math.max(rows, this.capacity_ + this.capacity_ / 2
+					+ 16));
+		}
+	}
+
+	private void columnDataChanged(int column) {
+		if (this.rowCount_ > 0) {
+			this.dataChanged().trigger(this.getIndex(0, column),
+					this.getIndex(this.rowCount_ - 1, column));
+		}
+	}
+
+	private static Long key(int row, int column) {
+		return ((long) row << 32) | (column & 0xffffffffL);
+	}
+
+	private static Long asLong(Object value) {
+		if (value instanceof Integer || value instanceof Long
+				|| value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		} else {
+			if (value instanceof Number) {
+				double d = ((Number) value).doubleValue();
+				return d == Math.rint(d) && !Double.isInfinite(d) ? (long) d
+						: null;
+			} else {
+				if (value instanceof CharSequence) {
+					String s = value.toString().trim();
+					try {
+						return Long.parseLong(s);
+					} catch (NumberFormatException e) {
+						try {
+							return asLong(LocaleUtils.toDouble(LocaleUtils
+									.getCurrentLocale(), s));
+						} catch (NumberFormatException e2) {
+							return null;
+						}
+					}
+				} else {
+					return null;
+				}
+			}
+		}
+	}
+
+	private static void moveBits(BitSet bits, int from, int to, int count) {
+		if (count <= 0 || from == to) {
+			return;
+		}
+		BitSet moved = bits.get(from, from + count);
+		bits.clear(from, from + count);
+		bits.clear(to, to + count);
+		for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+			bits.set(to + i);
+		}
+	}
+
+	private static BitSet permuteBits(BitSet bits, int[] permutation) {
+		BitSet result = new BitSet();
+		if (!bits.isEmpty()) {
+			for (int i = 0; i < permutation.length; ++i) {
+				if (bits.get(permutation[i])) {
+					result.set(i);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static int compare(WColumnarTableModel.Column c, int row1,
+			int row2) {
+		boolean p1 = c.present.get(row1);
+		boolean p2 = c.present.get(row2);
+		if (p1 && p2) {
+			return c.compare(row1, row2);
+		} else {
+			return p1 == p2 ? 0 : p1 ? 1 : -1;
+		}
+	}
+
+	private static void mergeSort(int[] a, int[] tmp, int begin, int end,
+			WColumnarTableModel.Column c, int direction) {
+		if (end - begin < 16) {
+			for (int i = begin + 1; i < end; ++i) {
+				int v = a[i];
+				int j = i - 1;
+				while (j >= begin && compare(c, a[j], v) * direction > 0) {
+					a[j + 1] = a[j];
+					--j;
+				}
+				a[j + 1] = v;
+			}
+			return;
+		}
+		int middle = (begin + end) >>> 1;
+		mergeSort(a, tmp, begin, middle, c, direction);
+		mergeSort(a, tmp, middle, end, c, direction);
+		if (compare(c, a[middle - 1], a[middle]) * direction <= 0) {
+			return;
+		}
+		System.arraycopy(a, begin, tmp, begin, end - begin);
+		int i = begin;
+		int j = middle;
+		for (int k = begin; k < end; ++k) {
+			if (j >= end || i < middle
+					&& compare(c, tmp[i], tmp[j]) * direction <= 0) {
+				a[k] = tmp[i++];
+			} else {
+				a[k] = tmp[j++];
+			}
+		}
+	}
+}
@@ -988,44 +988,45 @@ public class WEnvironment {
 		this.userAgent_ = userAgent;
 		final Configuration conf = this.session_.getController()
 				.getConfiguration();
-		this.agent_ = WEnvironment.UserAgent.Unknown;
-		if (this.userAgent_.indexOf("Trident/4.0") != -1) {
-			this.agent_ = WEnvironment.UserAgent.IE8;
-			return;
+		this.agent_ = conf.classifyUserAgent(this.userAgent_).agent;
+	}
+
+	static WEnvironment.UserAgent detectUserAgent(final String userAgent,
+			boolean bot) {
+		WEnvironment.UserAgent agent = WEnvironment.UserAgent.Unknown;
+		if (userAgent.indexOf("Trident/4.0") != -1) {
+			return WEnvironment.UserAgent.IE8;
 		}
-		if (this.userAgent_.indexOf("Trident/5.0") != -1) {
-			this.agent_ = WEnvironment.UserAgent.IE9;
-			return;
+		if (userAgent.indexOf("Trident/5.0") != -1) {
+			return WEnvironment.UserAgent.IE9;
 		} else {
-			if (this.userAgent_.indexOf("Trident/6.0") != -1) {
-				this.agent_ = WEnvironment.UserAgent.IE10;
-				return;
+			if (userAgent.indexOf("Trident/6.0") != -1) {
+				return WEnvironment.UserAgent.IE10;
 			} else {
-				if (this.userAgent_.indexOf("Trident/") != -1) {
-					this.agent_ = WEnvironment.UserAgent.IE11;
-					return;
+				if (userAgent.indexOf("Trident/") != -1) {
+					return WEnvironment.UserAgent.IE11;
 				} else {
-					if (this.userAgent_.indexOf("MSIE 2.") != -1
-							|| this.userAgent_.indexOf("MSIE 3.") != -1
-							|| this.userAgent_.indexOf("MSIE 4.") != -1
-							|| this.userAgent_.indexOf("MSIE 5.") != -1
-							|| this.userAgent_.indexOf("IEMobile") != -1) {
-						this.agent_ = WEnvironment.UserAgent.IEMobile;
+					if (userAgent.indexOf("MSIE 2.") != -1
+							|| userAgent.indexOf("MSIE 3.") != -1
+							|| userAgent.indexOf("MSIE 4.") != -1
+							|| userAgent.indexOf("MSIE 5.") != -1
+							|| userAgent.indexOf("IEMobile") != -1) {
+						agent = WEnvironment.UserAgent.IEMobile;
 					} else {
-						if (this.userAgent_.indexOf("MSIE 6.") != -1) {
-							this.agent_ = WEnvironment.UserAgent.IE6;
+						if (userAgent.indexOf("MSIE 6.") != -1) {
+							agent = WEnvironment.UserAgent.IE6;
 						} else {
-							if (this.userAgent_.indexOf("MSIE 7.") != -1) {
-								this.agent_ = WEnvironment.UserAgent.IE7;
+							if (userAgent.indexOf("MSIE 7.") != -1) {
+								agent = WEnvironment.UserAgent.IE7;
 							} else {
-								if (this.userAgent_.indexOf("MSIE 8.") != -1) {
-									this.agent_ = WEnvironment.UserAgent.IE8;
+								if (userAgent.indexOf("MSIE 8.") != -1) {
+									agent = WEnvironment.UserAgent.IE8;
 								} else {
-									if (this.userAgent_.indexOf("MSIE 9.") != -1) {
-										this.agent_ = WEnvironment.UserAgent.IE9;
+									if (userAgent.indexOf("MSIE 9.") != -1) {
+										agent = WEnvironment.UserAgent.IE9;
 									} else {
-										if (this.userAgent_.indexOf("MSIE") != -1) {
-											this.agent_ = WEnvironment.UserAgent.IE10;
+										if (userAgent.indexOf("MSIE") != -1) {
+											agent = WEnvironment.UserAgent.IE10;
 										}
 									}
 								}
@@ -1035,11 +1036,11 @@ public class WEnvironment {
 				}
 			}
 		}
-		if (this.userAgent_.indexOf("Opera") != -1) {
-			this.agent_ = WEnvironment.UserAgent.Opera;
-			int t = this.userAgent_.indexOf("Version/");
+		if (userAgent.indexOf("Opera") != -1) {
+			agent = WEnvironment.UserAgent.Opera;
+			int t = userAgent.indexOf("Version/");
 			if (t != -1) {
-				String vs = this.userAgent_.substring(t + 8);
+				String vs = userAgent.substring(t + 8);
 				t = vs.indexOf(' ');
 				if (t != -1) {
 					vs = vs.substring(0, 0 + t);
@@ -1047,32 +1048,32 @@ public class WEnvironment {
 				try {
 					double v = Double.parseDouble(vs);
 					if (v >= 10) {
-						this.agent_ = WEnvironment.UserAgent.Opera10;
+						agent = WEnvironment.UserAgent.Opera10;
 					}
 				} catch (final NumberFormatException e) {
 				}
 			}
 		}
-		if (this.userAgent_.indexOf("Chrome") != -1) {
-			if (this.userAgent_.indexOf("Android") != -1) {
-				this.agent_ = WEnvironment.UserAgent.MobileWebKitAndroid;
+		if (userAgent.indexOf("Chrome") != -1) {
+			if (userAgent.indexOf("Android") != -1) {
+				agent = WEnvironment.UserAgent.MobileWebKitAndroid;
 			} else {
-				if (this.userAgent_.indexOf("Chrome/0.") != -1) {
-					this.agent_ = WEnvironment.UserAgent.Chrome0;
+				if (userAgent.indexOf("Chrome/0.") != -1) {
+					agent = WEnvironment.UserAgent.Chrome0;
 				} else {
-					if (this.userAgent_.indexOf("Chrome/1.") != -1) {
-						this.agent_ = WEnvironment.UserAgent.Chrome1;
+					if (userAgent.indexOf("Chrome/1.") != -1) {
+						agent = WEnvironment.UserAgent.Chrome1;
 					} else {
-						if (this.userAgent_.indexOf("Chrome/2.") != -1) {
-							this.agent_ = WEnvironment.UserAgent.Chrome2;
+						if (userAgent.indexOf("Chrome/2.") != -1) {
+							agent = WEnvironment.UserAgent.Chrome2;
 						} else {
-							if (this.userAgent_.indexOf("Chrome/3.") != -1) {
-								this.agent_ = WEnvironment.UserAgent.Chrome3;
+							if (userAgent.indexOf("Chrome/3.") != -1) {
+								agent = WEnvironment.UserAgent.Chrome3;
 							} else {
-								if (this.userAgent_.indexOf("Chrome/4.") != -1) {
-									this.agent_ = WEnvironment.UserAgent.Chrome4;
+								if (userAgent.indexOf("Chrome/4.") != -1) {
+									agent = WEnvironment.UserAgent.Chrome4;
 								} else {
-									this.agent_ = WEnvironment.UserAgent.Chrome5;
+									agent = WEnvironment.UserAgent.Chrome5;
 								}
 							}
 						}
@@ -1080,82 +1081,82 @@ public class WEnvironment {
 				}
 			}
 		} else {
-			if (this.userAgent_.indexOf("Safari") != -1) {
-				if (this.userAgent_.indexOf("iPhone") != -1
-						|| this.userAgent_.indexOf("iPad") != -1) {
-					this.agent_ = WEnvironment.UserAgent.MobileWebKitiPhone;
+			if (userAgent.indexOf("Safari") != -1) {
+				if (userAgent.indexOf("iPhone") != -1
+						|| userAgent.indexOf("iPad") != -1) {
+					agent = WEnvironment.UserAgent.MobileWebKitiPhone;
 				} else {
-					if (this.userAgent_.indexOf("Android") != -1) {
-						this.agent_ = WEnvironment.UserAgent.MobileWebKitAndroid;
+					if (userAgent.indexOf("Android") != -1) {
+						agent = WEnvironment.UserAgent.MobileWebKitAndroid;
 					} else {
-						if (this.userAgent_.indexOf("Mobile") != -1) {
-							this.agent_ = WEnvironment.UserAgent.MobileWebKit;
+						if (userAgent.indexOf("Mobile") != -1) {
+							agent = WEnvironment.UserAgent.MobileWebKit;
 						} else {
-							if (this.userAgent_.indexOf("Version") == -1) {
-								if (this.userAgent_.indexOf("Arora") != -1) {
-									this.agent_ = WEnvironment.UserAgent.Arora;
+							if (userAgent.indexOf("Version") == -1) {
+								if (userAgent.indexOf("Arora") != -1) {
+									agent = WEnvironment.UserAgent.Arora;
 								} else {
-									this.agent_ = WEnvironment.UserAgent.Safari;
+									agent = WEnvironment.UserAgent.Safari;
 								}
 							} else {
-								if (this.userAgent_.indexOf("Version/3") != -1) {
-									this.agent_ = WEnvironment.UserAgent.Safari3;
+								if (userAgent.indexOf("Version/3") != -1) {
+									agent = WEnvironment.UserAgent.Safari3;
 								} else {
-									this.agent_ = WEnvironment.UserAgent.Safari4;
+									agent = WEnvironment.UserAgent.Safari4;
 								}
 							}
 						}
 					}
 				}
 			} else {
-				if (this.userAgent_.indexOf("WebKit") != -1) {
-					if (this.userAgent_.indexOf("iPhone") != -1) {
-						this.agent_ = WEnvironment.UserAgent.MobileWebKitiPhone;
+				if (userAgent.indexOf("WebKit") != -1) {
+					if (userAgent.indexOf("iPhone") != -1) {
+						agent = WEnvironment.UserAgent.MobileWebKitiPhone;
 					} else {
-						this.agent_ = WEnvironment.UserAgent.WebKit;
+						agent = WEnvironment.UserAgent.WebKit;
 					}
 				} else {
-					if (this.userAgent_.indexOf("Konqueror") != -1) {
-						this.agent_ = WEnvironment.UserAgent.Konqueror;
+					if (userAgent.indexOf("Konqueror") != -1) {
+						agent = WEnvironment.UserAgent.Konqueror;
 					} else {
-						if (this.userAgent_.indexOf("Gecko") != -1) {
-							this.agent_ = WEnvironment.UserAgent.Gecko;
+						if (userAgent.indexOf("Gecko") != -1) {
+							agent = WEnvironment.UserAgent.Gecko;
 						}
 					}
 				}
 			}
 		}
-		if (this.userAgent_.indexOf("Firefox") != -1) {
-			if (this.userAgent_.indexOf("Firefox/0.") != -1) {
-				this.agent_ = WEnvironment.UserAgent.Firefox;
+		if (userAgent.indexOf("Firefox") != -1) {
+			if (userAgent.indexOf("Firefox/0.") != -1) {
+				agent = WEnvironment.UserAgent.Firefox;
 			} else {
-				if (this.userAgent_.indexOf("Firefox/1.") != -1) {
-					this.agent_ = WEnvironment.UserAgent.Firefox;
+				if (userAgent.indexOf("Firefox/1.") != -1) {
+					agent = WEnvironment.UserAgent.Firefox;
 				} else {
-					if (this.userAgent_.indexOf("Firefox/2.") != -1) {
-						this.agent_ = WEnvironment.UserAgent.Firefox;
+					if (userAgent.indexOf("Firefox/2.") != -1) {
+						agent = WEnvironment.UserAgent.Firefox;
 					} else {
-						if (this.userAgent_.indexOf("Firefox/3.0") != -1) {
-							this.agent_ = WEnvironment.UserAgent.Firefox3_0;
+						if (userAgent.indexOf("Firefox/3.0") != -1) {
+							agent = WEnvironment.UserAgent.Firefox3_0;
 						} else {
-							if (this.userAgent_.indexOf("Firefox/3.1") != -1) {
-								this.agent_ = WEnvironment.UserAgent.Firefox3_1;
+							if (userAgent.indexOf("Firefox/3.1") != -1) {
+								agent = WEnvironment.UserAgent.Firefox3_1;
 							} else {
-								if (this.userAgent_.indexOf("Firefox/3.1b") != -1) {
-									this.agent_ = WEnvironment.UserAgent.Firefox3_1b;
+								if (userAgent.indexOf("Firefox/3.1b") != -1) {
+									agent = WEnvironment.UserAgent.Firefox3_1b;
 								} else {
-									if (this.userAgent_.indexOf("Firefox/3.5") != -1) {
-										this.agent_ = WEnvironment.UserAgent.Firefox3_5;
+									if (userAgent.indexOf("Firefox/3.5") != -1) {
+										agent = WEnvironment.UserAgent.Firefox3_5;
 									} else {
-										if (this.userAgent_
+										if (userAgent
 												.indexOf("Firefox/3.6") != -1) {
-											this.agent_ = WEnvironment.UserAgent.Firefox3_6;
+											agent = WEnvironment.UserAgent.Firefox3_6;
 										} else {
-											if (this.userAgent_
+											if (userAgent
 													.indexOf("Firefox/4.") != -1) {
-												this.agent_ = WEnvironment.UserAgent.Firefox4_0;
+												agent = WEnvironment.UserAgent.Firefox4_0;
 											} else {
-												this.agent_ = WEnvironment.UserAgent.Firefox5_0;
+												agent = WEnvironment.UserAgent.Firefox5_0;
 											}
 										}
 									}
@@ -1166,12 +1167,13 @@ public class WEnvironment {
 				}
 			}
 		}
-		if (this.userAgent_.indexOf("Edge/12") != -1) {
-			this.agent_ = WEnvironment.UserAgent.Edge;
+		if (userAgent.indexOf("Edge/12") != -1) {
+			agent = WEnvironment.UserAgent.Edge;
 		}
-		if (conf.agentIsBot(this.userAgent_)) {
-			this.agent_ = WEnvironment.UserAgent.BotAgent;
+		if (bot) {
+			agent = WEnvironment.UserAgent.BotAgent;
 		}
+		return agent;
 	}
 
 	void setInternalPath(final String path) {
@@ -459,7 +459,7 @@ public class WFileUpload extends WWebWidget {
 	private void onData(long current, long total) {
 		this.dataReceived_.trigger(current, total);
 		WebSession.Handler h = WebSession.Handler.getInstance();
-		long dataExceeded = 0L;
+		long dataExceeded = h.getRequest().postDataExceeded();
 		h.setRequest((WebRequest) null, (WebResponse) null);
 		if (dataExceeded != 0) {
 			this.doJavaScript("Wt3_3_5.$('if" + this.getId() + "').src='"
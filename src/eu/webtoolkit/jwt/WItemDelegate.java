@@ -47,6 +47,7 @@ public class WItemDelegate extends WAbstractItemDelegate {
 	public WItemDelegate(WObject parent) {
 		super(parent);
 		this.textFormat_ = "";
+		this.htmlRendering_ = false;
 	}
 
 	/**
@@ -236,6 +237,81 @@ public class WItemDelegate extends WAbstractItemDelegate {
 		}
 	}
 
+	/**
+	 * Renders an item as HTML, without creating a widget.
+	 * <p>
+	 * This renders the text and the tooltip (using the
+	 * {@link ItemDataRole#ToolTipRole}) of the item, with a style class
+	 * depending on the value of {@link ItemDataRole#StyleClassRole}, like
+	 * {@link WItemDelegate#update(WWidget widget, WModelIndex index, EnumSet flags)
+	 * update()} does. It returns <code>false</code> when HTML rendering is not
+	 * enabled, or when the item is being edited or needs more than text.
+	 * <p>
+	 * 
+	 * @see WItemDelegate#setHtmlRendering(boolean enabled)
+	 */
+	public boolean renderHtml(final StringBuilder out,
+			final WModelIndex index, EnumSet<ViewItemRenderFlag> flags,
+			final String styleClass, final WLength height) {
+		if (!this.htmlRendering_ || !(index != null)) {
+			return false;
+		}
+		if (!EnumUtils.mask(flags, ViewItemRenderFlag.RenderEditing).isEmpty()) {
+			return false;
+		}
+		if (!EnumUtils.mask(
+				index.getFlags(),
+				EnumSet.of(ItemFlag.ItemIsUserCheckable,
+						ItemFlag.ItemIsXHTMLText,
+						ItemFlag.ItemHasDeferredTooltip)).isEmpty()) {
+			return false;
+		}
+		if (!(index.getData(ItemDataRole.CheckStateRole) == null)
+				|| !(index.getData(ItemDataRole.LinkRole) == null)) {
+			return false;
+		}
+		if (StringUtils.asString(index.getData(ItemDataRole.DecorationRole))
+				.length() != 0) {
+			return false;
+		}
+		String sc = StringUtils.asString(
+				index.getData(ItemDataRole.StyleClassRole)).toString();
+		if (!EnumUtils.mask(flags, ViewItemRenderFlag.RenderSelected).isEmpty()) {
+			sc += " " + WApplication.getInstance().getTheme().getActiveClass();
+		}
+		if (styleClass.length() != 0) {
+			sc += " " + styleClass;
+		}
+		EscapeOStream sout = new EscapeOStream(out);
+		sout.pushEscape(EscapeOStream.RuleSet.HtmlAttribute);
+		out.append("<div class=\"");
+		sout.append(sc.trim());
+		out.append('"');
+		if (!height.isAuto()) {
+			out.append(" style=\"height:").append(height.getCssText())
+					.append(";\"");
+		}
+		WString tooltip = StringUtils.asString(index
+				.getData(ItemDataRole.ToolTipRole));
+		if (!(tooltip.length() == 0)) {
+			out.append(" title=\"");
+			sout.append(tooltip.toString());
+			out.append('"');
+		}
+		if (!EnumUtils.mask(index.getFlags(), ItemFlag.ItemIsDropEnabled)
+				.isEmpty()) {
+			out.append(" drop=\"true\"");
+		}
+		out.append('>');
+		sout.popEscape();
+		sout.pushEscape(EscapeOStream.RuleSet.PlainTextNewLines);
+		StringUtils.sanitizeUnicode(sout,
+				StringUtils.asString(index.getData(), this.textFormat_)
+						.toString());
+		out.append("</div>");
+		return true;
+	}
+
 	/**
 	 * Sets the text format string.
 	 * <p>
@@ -259,6 +335,35 @@ public class WItemDelegate extends WAbstractItemDelegate {
 		return this.textFormat_;
 	}
 
+	/**
+	 * Configures whether read-only items may be rendered as plain HTML.
+	 * <p>
+	 * When enabled, a view may ask the delegate to render items that only
+	 * display text (without a check box, link, icon, XHTML text or deferred
+	 * tooltip) directly as HTML using
+	 * {@link WItemDelegate#renderHtml(StringBuilder out, WModelIndex index, EnumSet flags, String styleClass, WLength height)
+	 * renderHtml()}, rather than creating a widget for each of them. This
+	 * considerably reduces the cost of rendering large tables. The view then
+	 * no longer provides a widget for these items (see
+	 * {@link WAbstractItemView#itemWidget(WModelIndex index)
+	 * WAbstractItemView#itemWidget()}).
+	 * <p>
+	 * The default value is <code>false</code>.
+	 */
+	public void setHtmlRendering(boolean enabled) {
+		this.htmlRendering_ = enabled;
+	}
+
+	/**
+	 * Returns whether read-only items may be rendered as plain HTML.
+	 * <p>
+	 * 
+	 * @see WItemDelegate#setHtmlRendering(boolean enabled)
+	 */
+	public boolean isHtmlRendering() {
+		return this.htmlRendering_;
+	}
+
 	/**
 	 * Saves the edited data to the model.
 	 * <p>
@@ -455,6 +560,7 @@ public class WItemDelegate extends WAbstractItemDelegate {
 	}
 
 	private String textFormat_;
+	private boolean htmlRendering_;
 
 	static class WidgetRef {
 		private static Logger logger = LoggerFactory.getLogger(WidgetRef.class);
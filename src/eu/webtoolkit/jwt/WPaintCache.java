@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+/**
+ * A cache for the rendered contents of painted widgets, shared between
+ * sessions.
+ * <p>
+ * When many sessions show the same painting (e.g. a chart on a dashboard, for
+ * the same model version and at the same size), each session would otherwise
+ * run {@link WPaintedWidget#paintEvent(WPaintDevice)} independently. A
+ * {@link WPaintedWidget} for which both a cache (see
+ * {@link WPaintedWidget#setPaintCache(WPaintCache)}) and a content key (see
+ * {@link WPaintedWidget#setPaintCacheKey(String)}) are set will look up its
+ * rendered contents in this cache, keyed by the content key, the widget size
+ * and the rendering method. On a hit, the paint event is skipped altogether
+ * and the stored canvas JavaScript, SVG markup or PNG image is reused.
+ * <p>
+ * The cache is bounded: when the total size of the stored contents exceeds
+ * {@link #getMaxSize()}, the least recently used entries are evicted.
+ * <p>
+ * The cache is itself a resource. When it is deployed at a fixed path using
+ * {@link WtServlet#addResource(WResource resource, String path)}, PNG images
+ * are referenced directly from the cache using URLs that never change for a
+ * given entry, and which may therefore be cached by the browser (and any
+ * intermediate proxies). SVG entries may also be fetched from this URL. When
+ * an entry has been evicted, its URL is still served from the image of a
+ * widget that shows it, for as long as such a widget exists.
+ * <p>
+ * <i><b>Note: </b>Only contents that is fully determined by the content key
+ * should be cached: the painting may not refer to resources that are private
+ * to a session, and the paint event may not have other side effects (such as
+ * adding interactive areas) that are needed by the widget.</i>
+ *
+ * @see WPaintedWidget#setPaintCache(WPaintCache)
+ */
+public class WPaintCache extends WResource {
+	static class Entry {
+		Entry(String id, String text, List<String> images, byte[] data,
+				String mimeType) {
+			this.id = id;
+			this.text = text;
+			this.images = images;
+			this.data = data;
+			this.mimeType = mimeType;
+		}
+
+		long getSize() {
+			long result = 0;
+			if (text != null)
+				result += 2 * text.length();
+			if (images != null)
+				for (String image : images)
+					result += 2 * image.length();
+			if (data != null)
+				result += data.length;
+			return result;
+		}
+
+		final String id;
+		final String text;
+		final List<String> images;
+		final byte[] data;
+		final String mimeType;
+	}
+
+	private static class Key {
+		Key(String contentKey, int width, int height,
+				WWidgetPainter.RenderType renderType) {
+			this.contentKey = contentKey;
+			this.width = width;
+			this.height = height;
+			this.renderType = renderType;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return width == other.width && height == other.height
+					&& renderType == other.renderType
+					&& contentKey.equals(other.contentKey);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = contentKey.hashCode();
+			result = 31 * result + width;
+			result = 31 * result + height;
+			return 31 * result + renderType.hashCode();
+		}
+
+		final String contentKey;
+		final int width;
+		final int height;
+		final WWidgetPainter.RenderType renderType;
+	}
+
+	private static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+	private LinkedHashMap<Key, Entry> entries_;
+	private Map<String, Entry> entriesById_;
+	private Map<WResource, String> fallbacks_;
+	private long maxSize_;
+	private long size_;
+	private long nextId_;
+	private long hits_;
+	private long misses_;
+
+	/**
+	 * Creates a paint cache with a default maximum size (16 MB).
+	 */
+	public WPaintCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a paint cache with a given maximum size (in bytes).
+	 */
+	public WPaintCache(long maxSize) {
+		this.entries_ = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		this.entriesById_ = new HashMap<String, Entry>();
+		this.fallbacks_ = new WeakHashMap<WResource, String>();
+		this.maxSize_ = maxSize;
+		this.size_ = 0;
+		this.nextId_ = 0;
+		this.hits_ = 0;
+		this.misses_ = 0;
+	}
+
+	/**
+	 * Sets the maximum size (in bytes).
+	 * <p>
+	 * Entries are evicted in least recently used order until the cache fits
+	 * the new size.
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize_ = maxSize;
+		evict(null);
+	}
+
+	/**
+	 * Returns the maximum size (in bytes).
+	 *
+	 * @see #setMaxSize(long)
+	 */
+	public synchronized long getMaxSize() {
+		return maxSize_;
+	}
+
+	/**
+	 * Returns the (approximate) current size of the cached contents (in
+	 * bytes).
+	 */
+	public synchronized long getSize() {
+		return size_;
+	}
+
+	/**
+	 * Returns the number of cached entries.
+	 */
+	public synchronized int getCount() {
+		return entries_.size();
+	}
+
+	/**
+	 * Returns the number of lookups that were served from the cache.
+	 */
+	public synchronized long getHitCount() {
+		return hits_;
+	}
+
+	/**
+	 * Returns the number of lookups that were not served from the cache.
+	 */
+	public synchronized long getMissCount() {
+		return misses_;
+	}
+
+	/**
+	 * Removes all entries for a content key.
+	 * <p>
+	 * Normally, you will simply use a new content key when the contents
+	 * changes (e.g. by including a model version in the key), and let the old
+	 * entries be evicted. This method may be used to release them immediately.
+	 */
+	public synchronized void invalidate(String contentKey) {
+		for (Iterator<Map.Entry<Key, Entry>> i = entries_.entrySet()
+				.iterator(); i.hasNext();) {
+			Map.Entry<Key, Entry> e = i.next();
+			if (e.getKey().contentKey.equals(contentKey)) {
+				remove(e.getValue());
+				i.remove();
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		entries_.clear();
+		entriesById_.clear();
+		size_ = 0;
+	}
+
+	synchronized Entry get(String contentKey, int width, int height,
+			WWidgetPainter.RenderType renderType) {
+		Entry result = entries_.get(new Key(contentKey, width, height,
+				renderType));
+		if (result != null)
+			++hits_;
+		else
+			++misses_;
+		return result;
+	}
+
+	synchronized Entry put(String contentKey, int width, int height,
+			WWidgetPainter.RenderType renderType, String text,
+			List<String> images, byte[] data, String mimeType) {
+		Entry result = new Entry(Long.toString(nextId_++, 36), text, images,
+				data, mimeType);
+		Entry old = entries_.put(new Key(contentKey, width, height,
+				renderType), result);
+		if (old != null)
+			remove(old);
+		entriesById_.put(result.id, result);
+		size_ += result.getSize();
+		evict(result);
+		return result;
+	}
+
+	/*
+	 * Sets the entry that is shown by a resource, which serves the entry's URL
+	 * when the entry has been evicted. A null entry removes the resource.
+	 */
+	synchronized void setFallback(WResource resource, Entry entry) {
+		if (entry != null)
+			fallbacks_.put(resource, entry.id);
+		else
+			fallbacks_.remove(resource);
+	}
+
+	/**
+	 * Returns the URL at which an entry is served.
+	 * <p>
+	 * Returns <code>null</code> if the cache has not been deployed at a fixed
+	 * path, or if the entry does not hold image data.
+	 */
+	String getEntryUrl(Entry entry) {
+		String path = getInternalPath();
+		if (path.length() == 0 || entry.mimeType == null)
+			return null;
+
+		if (!path.startsWith("/"))
+			path = WApplication.getInstance().getEnvironment()
+					.getDeploymentPath() + path;
+
+		return path + "?entry=" + entry.id;
+	}
+
+	@Override
+	protected void handleRequest(WebRequest request, WebResponse response)
+			throws IOException {
+		String id = request.getParameter("entry");
+		Entry entry = null;
+		WResource fallback = null;
+		if (id != null) {
+			synchronized (this) {
+				entry = entriesById_.get(id);
+				if (entry == null)
+					fallback = getFallback(id);
+			}
+		}
+
+		if (fallback != null) {
+			fallback.handleRequest(request, response);
+			return;
+		}
+
+		if (entry == null || entry.mimeType == null) {
+			response.setStatus(404);
+			return;
+		}
+
+		response.setContentType(entry.mimeType);
+		response.addHeader("Cache-Control", "max-age=31536000");
+		if (entry.data != null)
+			response.getOutputStream().write(entry.data);
+		else
+			response.out().append(entry.text);
+	}
+
+	/*
+	 * Evicts entries until the cache fits its maximum size, except for the
+	 * given entry, which has just been added.
+	 */
+	private void evict(Entry keep) {
+		for (Iterator<Entry> i = entries_.values().iterator(); size_ > maxSize_
+				&& i.hasNext();) {
+			Entry e = i.next();
+			if (e != keep) {
+				remove(e);
+				i.remove();
+			}
+		}
+	}
+
+	synchronized WResource getFallback(String id) {
+		for (Map.Entry<WResource, String> e : fallbacks_.entrySet())
+			if (e.getValue().equals(id))
+				return e.getKey();
+
+		return null;
+	}
+
+	private void remove(Entry entry) {
+		entriesById_.remove(entry.id);
+		size_ -= entry.getSize();
+	}
+}
@@ -157,6 +157,8 @@ public abstract class WPaintedWidget extends WInteractWidget {
 				+ ";if(o){o.repaint();}}", this);
 		this.jsObjects_ = new WJavaScriptObjectStorage(this.getObjJsRef());
 		this.jsDefined_ = false;
+		this.paintCache_ = null;
+		this.paintCacheKey_ = null;
 		if (WApplication.getInstance() != null) {
 			final WEnvironment env = WApplication.getInstance()
 					.getEnvironment();
@@ -212,6 +214,87 @@ public abstract class WPaintedWidget extends WInteractWidget {
 		return this.preferredMethod_;
 	}
 
+	/**
+	 * Sets a cache for the rendered contents.
+	 * <p>
+	 * Together with a content key (see
+	 * {@link WPaintedWidget#setPaintCacheKey(String key) setPaintCacheKey()}),
+	 * this enables caching of the rendered contents in a cache that may be
+	 * shared between sessions. When the cache contains contents for the same
+	 * key, size and rendering method, it is reused and
+	 * {@link WPaintedWidget#paintEvent(WPaintDevice paintDevice) paintEvent()}
+	 * is not called.
+	 * <p>
+	 * Caching is not used for incremental updates (see
+	 * {@link PaintFlag#PaintUpdate}), nor when
+	 * {@link WPaintedWidget#isPaintCacheable() isPaintCacheable()} returns
+	 * <code>false</code>.
+	 * <p>
+	 * The default value is <code>null</code> (no caching).
+	 * <p>
+	 * 
+	 * @see WPaintCache
+	 */
+	public void setPaintCache(WPaintCache cache) {
+		this.paintCache_ = cache;
+	}
+
+	/**
+	 * Returns the cache for the rendered contents.
+	 * <p>
+	 * 
+	 * @see WPaintedWidget#setPaintCache(WPaintCache cache)
+	 */
+	public WPaintCache getPaintCache() {
+		return this.paintCache_;
+	}
+
+	/**
+	 * Sets the key that identifies the rendered contents.
+	 * <p>
+	 * The key should uniquely identify what is painted, independent of the
+	 * size (e.g. a chart type and model version). When the contents changes,
+	 * you should set a new key and call {@link WPaintedWidget#update(EnumSet flags)
+	 * update()}.
+	 * <p>
+	 * The default value is <code>null</code> (no caching).
+	 * <p>
+	 * 
+	 * @see WPaintedWidget#setPaintCache(WPaintCache cache)
+	 */
+	public void setPaintCacheKey(final String key) {
+		this.paintCacheKey_ = key;
+	}
+
+	/**
+	 * Returns the key that identifies the rendered contents.
+	 * <p>
+	 * 
+	 * @see WPaintedWidget#setPaintCacheKey(String key)
+	 */
+	public String getPaintCacheKey() {
+		return this.paintCacheKey_;
+	}
+
+	/**
+	 * Returns whether the rendered contents may be cached.
+	 * <p>
+	 * This is checked before the contents is looked up in the paint cache, and
+	 * again after {@link WPaintedWidget#paintEvent(WPaintDevice paintDevice)
+	 * paintEvent()}, before the contents is stored. A widget should return
+	 * <code>false</code> when its painting refers to objects that are exposed
+	 * to JavaScript, or has side effects (such as adding interactive areas).
+	 * <p>
+	 * The default implementation returns <code>true</code> if the widget does
+	 * not expose any objects to JavaScript.
+	 * <p>
+	 * 
+	 * @see WPaintedWidget#setPaintCache(WPaintCache cache)
+	 */
+	protected boolean isPaintCacheable() {
+		return this.jsObjects_.size() == 0;
+	}
+
 	/**
 	 * Lets the widget repaint itself.
 	 * <p>
@@ -538,12 +621,7 @@ public abstract class WPaintedWidget extends WInteractWidget {
 			canvas.setProperty(Property.PropertyStyleDisplay, "inline");
 			canvas.setProperty(Property.PropertyStyle, "zoom: 1;");
 		}
-		if (this.renderWidth_ != 0 && this.renderHeight_ != 0) {
-			this.paintEvent(device);
-			if (device.getPainter() != null) {
-				device.getPainter().end();
-			}
-		}
+		this.paint(device, false);
 		this.painter_.createContents(canvas, device);
 		this.needRepaint_ = false;
 		wrap.addChild(canvas);
@@ -561,15 +639,11 @@ public abstract class WPaintedWidget extends WInteractWidget {
 		result.add(e);
 		boolean createdNew = this.isCreatePainter();
 		if (this.needRepaint_) {
-			WPaintDevice device = this.painter_.getPaintDevice(!EnumUtils.mask(
-					this.repaintFlags_, PaintFlag.PaintUpdate).isEmpty()
-					&& !createdNew);
-			if (this.renderWidth_ != 0 && this.renderHeight_ != 0) {
-				this.paintEvent(device);
-				if (device.getPainter() != null) {
-					device.getPainter().end();
-				}
-			}
+			boolean paintUpdate = !EnumUtils.mask(this.repaintFlags_,
+					PaintFlag.PaintUpdate).isEmpty()
+					&& !createdNew;
+			WPaintDevice device = this.painter_.getPaintDevice(paintUpdate);
+			this.paint(device, paintUpdate);
 			if (createdNew) {
 				DomElement canvas = DomElement.getForUpdate('p' + this.getId(),
 						DomElementType.DomElement_DIV);
@@ -667,6 +741,33 @@ public abstract class WPaintedWidget extends WInteractWidget {
 	private JSlot repaintSlot_;
 	WJavaScriptObjectStorage jsObjects_;
 	private boolean jsDefined_;
+	private WPaintCache paintCache_;
+	private String paintCacheKey_;
+
+	private void paint(WPaintDevice device, boolean paintUpdate) {
+		if (this.renderWidth_ == 0 || this.renderHeight_ == 0) {
+			return;
+		}
+		boolean cached = this.paintCache_ != null
+				&& this.paintCacheKey_ != null && !paintUpdate
+				&& this.isPaintCacheable();
+		if (cached) {
+			WPaintCache.Entry entry = this.paintCache_.get(
+					this.paintCacheKey_, this.renderWidth_,
+					this.renderHeight_, this.painter_.getRenderType());
+			if (entry != null && this.painter_.restoreContents(entry, device)) {
+				return;
+			}
+		}
+		this.paintEvent(device);
+		if (device.getPainter() != null) {
+			device.getPainter().end();
+		}
+		if (cached && this.isPaintCacheable()) {
+			this.painter_.cacheContents(this.paintCache_,
+					this.paintCacheKey_, device);
+		}
+	}
 
 	private void resizeCanvas(int width, int height) {
 		if (this.renderWidth_ == width && this.renderHeight_ == height) {
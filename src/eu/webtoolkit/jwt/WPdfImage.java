@@ -3,14 +3,16 @@ package eu.webtoolkit.jwt;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import com.pdfjet.Cap;
 import com.pdfjet.CodePage;
@@ -459,10 +461,10 @@ public class WPdfImage extends WResource implements WPaintDevice {
 			px = rect.getLeft();
 			break;
 		case AlignRight:
-			px = rect.getRight() - this.font.stringWidth(s);
+			px = rect.getRight() - stringWidth(s);
 			break;
 		case AlignCenter:
-			px = rect.getCenter().getX() - this.font.stringWidth(s) / 2;
+			px = rect.getCenter().getX() - stringWidth(s) / 2;
 			break;
 		}
 		
@@ -508,7 +510,7 @@ public class WPdfImage extends WResource implements WPaintDevice {
 
 		if (wordWrap) {
 			if (maxWidth == -1) {
-				return new WTextItem(text, font.stringWidth(text.toString()));
+				return new WTextItem(text, stringWidth(text.toString()));
 			} else {
 				String previousWord = null;
 				double previousWordWidth = 0;
@@ -516,9 +518,9 @@ public class WPdfImage extends WResource implements WPaintDevice {
 				for (int i = 0; i < text.length(); ++i) {
 					double w;
 					if (Character.isWhitespace(text.charAt(i)))
-						w = font.stringWidth(text.subSequence(0, i).toString());
+						w = stringWidth(text.subSequence(0, i).toString());
 					else if (i == text.length() - 1)
-						w = font.stringWidth(text.subSequence(0, i + 1).toString());
+						w = stringWidth(text.subSequence(0, i + 1).toString());
 					else
 						continue;
 					
@@ -534,10 +536,10 @@ public class WPdfImage extends WResource implements WPaintDevice {
 						previousWordWidth = w;
 					}
 				}
-				return new WTextItem(text, font.stringWidth(text.toString()));
+				return new WTextItem(text, stringWidth(text.toString()));
 			}
 		} else {
-			return new WTextItem(text, font.stringWidth(text.toString()));
+			return new WTextItem(text, stringWidth(text.toString()));
 		}
 	}
 
@@ -723,42 +725,120 @@ public class WPdfImage extends WResource implements WPaintDevice {
 			this.font = createFont(painter.getFont());
 		}
 
+		// fonts are shared with other images painting on the same document
+		if (this.font != null)
+			this.font.setSize(this.fontSize);
+
 		changeFlags.clear();
 	}
 
 	private Font createFont(WFont font) {
+		this.fontSize = font.getSizeLength().toPixels();
+
 		if (fontConstructor != null) {
 			FontMatch fm = trueTypeFonts.matchFont(font);
 			if (fm.isMatched()) {
-				try {
-					FileInputStream fis = new FileInputStream(fm.getFileName());
-					Font f = (Font)fontConstructor.newInstance(pdf, fis, CodePage.UNICODE, Embed.YES);
-					f.setSize(font.getSizeLength().toPixels());
+				Font f = getDocumentFont(fm.getFileName());
+				if (f == null) {
+					try {
+						ByteArrayInputStream is = new ByteArrayInputStream(FontSupport.getFontData(fm.getFileName()));
+						f = (Font)fontConstructor.newInstance(pdf, is, CodePage.UNICODE, Embed.YES);
+						putDocumentFont(fm.getFileName(), f);
+					} catch (IllegalArgumentException e) {
+						e.printStackTrace();
+					} catch (InstantiationException e) {
+						e.printStackTrace();
+					} catch (IllegalAccessException e) {
+						e.printStackTrace();
+					} catch (InvocationTargetException e) {
+						e.printStackTrace();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+				if (f != null) {
+					f.setSize(this.fontSize);
+					this.fontKey = fm.getFileName();
 					return f;
-				} catch (IllegalArgumentException e) {
-					e.printStackTrace();
-				} catch (InstantiationException e) {
-					e.printStackTrace();
-				} catch (IllegalAccessException e) {
-					e.printStackTrace();
-				} catch (InvocationTargetException e) {
-					e.printStackTrace();
-				} catch (FileNotFoundException e) {
-					e.printStackTrace();
 				}
 			} 
 		}
 
 		String name = PdfUtils.toBase14Font(font);
 		try {
-			Font f = new Font(pdf, name);
-			f.setSize(font.getSizeLength().toPixels());
+			Font f = getDocumentFont(name);
+			if (f == null) {
+				f = new Font(pdf, name);
+				putDocumentFont(name, f);
+			}
+			f.setSize(this.fontSize);
+			this.fontKey = name;
 			return f;
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
 		}
 	}
+
+	/*
+	 * A font is embedded only once in a document.
+	 */
+	private Font getDocumentFont(String key) {
+		synchronized (documentFonts) {
+			Map<String, Font> fonts = documentFonts.get(pdf);
+			return fonts != null ? fonts.get(key) : null;
+		}
+	}
+
+	private void putDocumentFont(String key, Font font) {
+		synchronized (documentFonts) {
+			Map<String, Font> fonts = documentFonts.get(pdf);
+			if (fonts == null) {
+				fonts = new HashMap<String, Font>();
+				documentFonts.put(pdf, fonts);
+			}
+			fonts.put(key, font);
+		}
+	}
+
+	/*
+	 * String widths are proportional to the font size, and are remembered
+	 * (for a unit font size) per font, for all documents.
+	 */
+	private double stringWidth(String s) {
+		float size = this.font.getSize();
+		if (size == 0 || s.length() > MAX_MEMOIZED_STRING_LENGTH)
+			return this.font.stringWidth(s);
+
+		Map<String, Float> widths;
+		synchronized (fontWidths) {
+			widths = fontWidths.get(this.fontKey);
+			if (widths == null) {
+				widths = new LinkedHashMap<String, Float>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, Float> eldest) {
+						return size() > MAX_MEMOIZED_STRINGS;
+					}
+				};
+				fontWidths.put(this.fontKey, widths);
+			}
+		}
+
+		Float w;
+		synchronized (widths) {
+			w = widths.get(s);
+		}
+		if (w == null) {
+			w = this.font.stringWidth(s) / size;
+			synchronized (widths) {
+				widths.put(s, w);
+			}
+		}
+
+		return w * size;
+	}
 	
 	public void setDeviceTransform(WTransform transform) {
 		this.deviceTransform = new WTransform();
@@ -773,8 +853,15 @@ public class WPdfImage extends WResource implements WPaintDevice {
 	private WTransform deviceTransform;
 	
 	private Font font;
+	private String fontKey;
+	private double fontSize;
 	private Stroke stroke;
 
+	private static final int MAX_MEMOIZED_STRINGS = 10000;
+	private static final int MAX_MEMOIZED_STRING_LENGTH = 256;
+	private static Map<PDF, Map<String, Font>> documentFonts = new WeakHashMap<PDF, Map<String, Font>>();
+	private static Map<String, Map<String, Float>> fontWidths = new HashMap<String, Map<String, Float>>();
+
     private PDF pdf;
     private Page page;
     
@@ -16,6 +16,7 @@ import java.awt.geom.Arc2D;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.text.AttributedCharacterIterator;
 import java.text.AttributedString;
@@ -28,12 +29,34 @@ import eu.webtoolkit.jwt.WPainterPath.Segment;
 import eu.webtoolkit.jwt.servlet.WebRequest;
 import eu.webtoolkit.jwt.servlet.WebResponse;
 import eu.webtoolkit.jwt.utils.EnumUtils;
+import eu.webtoolkit.jwt.utils.PngEncoder;
 
 public class WRasterPaintDevice extends WResource implements WPaintDevice {
 	private static final int MITER_LIMIT = 10;
 
 	enum Format { PngFormat }
 
+	private static volatile PngEncoder pngEncoder = new PngEncoder();
+
+	/**
+	 * Sets the encoder used for PNG images.
+	 * 
+	 * This allows configuring the compression level and parallel compression
+	 * for all raster paint devices.
+	 */
+	public static void setPngEncoder(PngEncoder encoder) {
+		pngEncoder = encoder;
+	}
+
+	/**
+	 * Returns the encoder used for PNG images.
+	 * 
+	 * @see #setPngEncoder(PngEncoder)
+	 */
+	public static PngEncoder getPngEncoder() {
+		return pngEncoder;
+	}
+
 	private Format format;
 	private WLength width;
 	private WLength height;
@@ -42,6 +65,8 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 	private EnumSet<ChangeFlag> changeFlags;
 
 	private BufferedImage image;
+	private byte[] encoded;
+	private boolean imageStale;
 	private Graphics2D g2;
 	private Paint penPaint, brushPaint;
 
@@ -55,13 +80,54 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 		this.changeFlags = EnumSet.noneOf(ChangeFlag.class);
 		
 		if (width.toPixels() > 0 && height.toPixels() > 0)
-			this.image = new BufferedImage((int)width.toPixels(), (int)height.toPixels(), BufferedImage.TYPE_INT_ARGB);
+			this.image = BufferedImagePool.acquire((int)width.toPixels(), (int)height.toPixels());
 	}
 
 	protected void handleRequest(WebRequest request, WebResponse response) throws IOException {
 		response.setContentType("image/png");
-		if (image != null)
-			ImageIO.write(image, "png", response.getOutputStream());
+		byte[] data = getEncodedData();
+		if (data != null)
+			response.getOutputStream().write(data);
+	}
+
+	/**
+	 * Releases the image buffer for reuse by other raster paint devices.
+	 * 
+	 * The device can no longer be painted on, but an image that has already
+	 * been encoded remains available.
+	 */
+	@Override
+	public void remove() {
+		if (g2 != null) {
+			g2.dispose();
+			g2 = null;
+		}
+		if (image != null) {
+			BufferedImagePool.release(image);
+			image = null;
+		}
+		super.remove();
+	}
+
+	/**
+	 * Returns the image encoded as PNG.
+	 * 
+	 * The encoded data is kept until the image is painted on again.
+	 */
+	byte[] getEncodedData() {
+		if (encoded == null && image != null)
+			encoded = pngEncoder.encode(image);
+		return encoded;
+	}
+
+	/**
+	 * Sets previously encoded PNG data as the contents of this image.
+	 * 
+	 * The image itself is only decoded again if it is painted on.
+	 */
+	void setEncodedData(byte[] data) {
+		this.encoded = data;
+		this.imageStale = true;
 	}
 
 	
@@ -209,7 +275,11 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 		if (image != null) {
 			this.g2 = image.createGraphics();
 			g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			if (imageStale)
+				restoreImage();
 		}
+		encoded = null;
+		imageStale = false;
 		
 		changeFlags.add(ChangeFlag.Pen);
 		changeFlags.add(ChangeFlag.Brush);
@@ -380,6 +450,19 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 		return new Font(name, style, size);
 	}
 
+	private void restoreImage() {
+		try {
+			BufferedImage restored = ImageIO.read(new ByteArrayInputStream(encoded));
+			if (restored != null) {
+				g2.setBackground(new Color(255, 255, 255, 0));
+				g2.clearRect(0, 0, image.getWidth(), image.getHeight());
+				g2.drawImage(restored, 0, 0, null);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	private void setTransform(WTransform t) {
 		g2.setTransform(new AffineTransform(t.getM11(), t.getM12(), t.getM21(), t.getM22(), t.getM31(), t.getM32()));
 	}
@@ -388,6 +471,8 @@ public class WRasterPaintDevice extends WResource implements WPaintDevice {
 	 * Clears the image (resets the background to solid white).
 	 */
 	public void clear() {
+		encoded = null;
+		imageStale = false;
 		if (g2 != null) {
 			g2.setBackground(new Color(255, 255, 255, 0));
 			g2.clearRect(0, 0, (int)width.getValue(), (int)height.getValue());
@@ -105,7 +105,7 @@ public abstract class WResource extends WObject {
 	 * @return the url.
 	 */
 	public String generateUrl() {
-		if (currentUrl_ == null) {
+		if (currentUrl_ == null || currentUrl_.length() == 0) {
 			WApplication app = WApplication.getInstance();
 			if (app != null)	
 				currentUrl_ = app.addExposedResource(this);
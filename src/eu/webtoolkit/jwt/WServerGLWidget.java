@@ -22,15 +22,22 @@ import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.imageio.ImageIO;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GLAutoDrawable;
 import javax.media.opengl.GLCapabilities;
 import javax.media.opengl.GLContext;
-import javax.media.opengl.GLDrawableFactory;
 import javax.media.opengl.GLOffscreenAutoDrawable;
 import javax.media.opengl.GLProfile;
 import javax.vecmath.Matrix4f;
@@ -56,23 +63,68 @@ import eu.webtoolkit.jwt.utils.EnumUtils;
 
 public class WServerGLWidget extends WAbstractGLImplementation {
 
-	private class WGLImageResource extends WMemoryResource {
-		public WGLImageResource(final String mimeType) {
-			super(mimeType);
+	/*
+	 * Serves the last rendered frame. The frame is PNG-encoded in the
+	 * background, while the session continues.
+	 */
+	private class WGLImageResource extends WResource {
+		public WGLImageResource() {
+			super();
+			this.data_ = null;
+		}
+
+		public void setImage(final BufferedImage image) {
+			Future<byte[]> data = getEncoderService().submit(new Callable<byte[]>() {
+				public byte[] call() {
+					try {
+						return WRasterPaintDevice.getPngEncoder().encode(image);
+					} finally {
+						BufferedImagePool.release(image);
+					}
+				}
+			});
+
+			synchronized (this) {
+				this.data_ = data;
+			}
+			setChanged();
 		}
 
 		@Override
 		public void handleRequest(WebRequest request, WebResponse response) throws IOException {
+			Future<byte[]> data;
+			synchronized (this) {
+				data = this.data_;
+			}
+
+			if (data == null) {
+				response.setStatus(404);
+				return;
+			}
+
+			byte[] png;
+			try {
+				png = data.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while encoding image");
+			} catch (ExecutionException e) {
+				throw new IOException("Encoding of image data failed: " + e.getCause());
+			}
+
+			response.setContentType("image/png");
 			response.addHeader("Cache-Control", "max-age=60");
-			super.handleRequest(request, response);
+			response.getOutputStream().write(png);
 		}
+
+		private Future<byte[]> data_;
 	}
 
 
 	public WServerGLWidget(WGLWidget glInterface) {
 		super(glInterface);
 		
-		mr_ = new WGLImageResource("image/png");
+		mr_ = new WGLImageResource();
 	    link_ = new WLink(mr_);
 	    
 	    js_ = new StringWriter();
@@ -93,16 +145,42 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 	                	System.exit(0);
 	                };
 	        });
-	    } else {
-	    	GLProfile glp = GLProfile.getDefault();
-	    	GLDrawableFactory fact = GLDrawableFactory.getFactory(glp);
-	    	GLCapabilities caps = new GLCapabilities(glp);
-	    	caps.setAlphaBits(8);
-	    	caps.setFBO(true);
-	    	offscreenDrawable_ =
-	    			fact.createOffscreenAutoDrawable(null, caps, null, 100,
-	    					100, null); // correct size is set later on, not available yet
 	    }
+	    // otherwise, an offscreen drawable is taken from the shared pool for each render
+	    
+	    buffers_ = new HashSet<Integer>();
+	    framebuffers_ = new HashSet<Integer>();
+	    renderbuffers_ = new HashSet<Integer>();
+	    textures_ = new HashSet<Integer>();
+	    shaderObjects_ = new HashSet<Integer>();
+	}
+
+	/**
+	 * Sets the maximum number of offscreen GL contexts.
+	 * <p>
+	 * Server-side rendered GL widgets share a bounded pool of offscreen
+	 * drawables (and GL contexts), which they only use while rendering. When
+	 * all drawables are in use, renders wait for one to become available. A
+	 * widget that rendered last on a drawable that has since been used by
+	 * another widget restores its GL state, as if the context was lost and
+	 * restored (see {@link WGLWidget#isRestoringContext()}).
+	 * <p>
+	 * The default is the number of available processors (but at least 2). With
+	 * a software GL implementation (e.g. Mesa llvmpipe), the GL work is
+	 * CPU-bound and there is little benefit in allowing more concurrent
+	 * renders.
+	 */
+	public static void setMaxOffscreenContexts(int count) {
+		OffscreenGLPool.setMaxSize(count);
+	}
+
+	/**
+	 * Returns the maximum number of offscreen GL contexts.
+	 * 
+	 * @see #setMaxOffscreenContexts(int)
+	 */
+	public static int getMaxOffscreenContexts() {
+		return OffscreenGLPool.getMaxSize();
 	}
 
 	@Override
@@ -369,6 +447,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		glCtx_.glGenBuffers(1, bufferId, 0);
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
+		buffers_.add(bufferId[0]);
 		return new Buffer(bufferId[0]);
 	}
 	
@@ -383,6 +462,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		glCtx_.glGenFramebuffers(1, bufferId, 0);
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
+		framebuffers_.add(bufferId[0]);
 		return new Framebuffer(bufferId[0]);
 	}
 
@@ -391,6 +471,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		int programId = glCtx_.glCreateProgram();
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
+		shaderObjects_.add(programId);
 		return new Program(programId);
 	}
 
@@ -400,6 +481,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		glCtx_.glGenRenderbuffers(1, bufferId, 0);
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
+		renderbuffers_.add(bufferId[0]);
 		return new Renderbuffer(bufferId[0]);
 	}
 
@@ -408,6 +490,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		int shaderId = glCtx_.glCreateShader(serverGLenum(shader));
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
+		shaderObjects_.add(shaderId);
 		return new Shader(shaderId);
 	}
 
@@ -418,6 +501,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		glCtx_.glGenTextures(1, textureId, 0);
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
+		textures_.add(textureId[0]);
 		return new Texture(textureId[0]);
 	}
 
@@ -427,6 +511,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		glCtx_.glGenTextures(1, textureId, 0);
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
+		textures_.add(textureId[0]);
 		Texture tex = new Texture(textureId[0]);
 		tex.setUrl(url);
 		return tex;
@@ -451,6 +536,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		int[] buffers = new int[1];
 		buffers[0] = buffer.getId();
 		glCtx_.glDeleteBuffers(1, buffers, 0);
+		buffers_.remove(buffer.getId());
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
 	}
@@ -460,6 +546,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		int[] buffers = new int[1];
 		buffers[0] = buffer.getId();
 		glCtx_.glDeleteFramebuffers(1, buffers, 0);
+		framebuffers_.remove(buffer.getId());
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
 	}
@@ -467,6 +554,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 	@Override
 	public void deleteProgram(Program program) {
 		glCtx_.glDeleteProgram(program.getId());
+		shaderObjects_.remove(program.getId());
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
 	}
@@ -476,6 +564,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		int[] buffers = new int[1];
 		buffers[0] = buffer.getId();
 		glCtx_.glDeleteRenderbuffers(1, buffers, 0);
+		renderbuffers_.remove(buffer.getId());
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
 	}
@@ -483,6 +572,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 	@Override
 	public void deleteShader(Shader shader) {
 		glCtx_.glDeleteShader(shader.getId());
+		shaderObjects_.remove(shader.getId());
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
 	}
@@ -492,6 +582,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 		int[] textures = new int[1];
 		textures[0] = texture.getId();
 		glCtx_.glDeleteTextures(1, textures, 0);
+		textures_.remove(texture.getId());
 		if (debug_)
 			System.out.println(glCtx_.glGetError());
 	}
@@ -1131,22 +1222,112 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 	
 	@Override
 	public void restoreContext(String jsRef) {
+		if (serverWindow_)
+			return;
+
+		// The drawable has been recreated: the client-side state is intact,
+		// and only the GL state needs to be recreated.
+		reserveObjectNames();
+		init();
+		js_.getBuffer().setLength(0);
+	}
+
+	/*
+	 * Keeps the names of the objects of the previous context in use in the
+	 * new context: references to them are still held, and will typically be
+	 * deleted while the state is restored, which should not delete new
+	 * objects.
+	 */
+	private void reserveObjectNames() {
+		glCtx_ = ctx_.getGL().getGL2();
+
+		int[] names = generateNames(buffers_);
+		glCtx_.glGenBuffers(names.length, names, 0);
+		glCtx_.glDeleteBuffers(names.length, unusedNames(names, buffers_), 0);
+
+		names = generateNames(framebuffers_);
+		glCtx_.glGenFramebuffers(names.length, names, 0);
+		glCtx_.glDeleteFramebuffers(names.length, unusedNames(names, framebuffers_), 0);
+
+		names = generateNames(renderbuffers_);
+		glCtx_.glGenRenderbuffers(names.length, names, 0);
+		glCtx_.glDeleteRenderbuffers(names.length, unusedNames(names, renderbuffers_), 0);
+
+		names = generateNames(textures_);
+		glCtx_.glGenTextures(names.length, names, 0);
+		glCtx_.glDeleteTextures(names.length, unusedNames(names, textures_), 0);
+
+		names = generateNames(shaderObjects_);
+		for (int i = 0; i < names.length; ++i)
+			names[i] = glCtx_.glCreateShader(GL2.GL_VERTEX_SHADER);
+		int[] unused = unusedNames(names, shaderObjects_);
+		for (int i = 0; i < unused.length; ++i)
+			if (unused[i] != 0)
+				glCtx_.glDeleteShader(unused[i]);
+	}
+
+	private static int[] generateNames(Set<Integer> used) {
+		int max = 0;
+		for (Integer name : used)
+			max = Math.max(max, name);
+		return new int[max];
+	}
+
+	private static int[] unusedNames(int[] names, Set<Integer> used) {
+		int[] result = new int[names.length];
+		for (int i = 0; i < names.length; ++i)
+			if (!used.contains(names[i]))
+				result[i] = names[i];
+		return result;
 	}
 
 	@Override
 	public void render(String jsRef, EnumSet<RenderFlag> flags) {
+		boolean renderFull = !EnumUtils.mask(flags, RenderFlag.RenderFull).isEmpty();
+		if (!renderFull && !updateGL_ && !updateResizeGL_ && !updatePaintGL_)
+			return;
+
+		OffscreenGLPool.Slot slot = null;
 		if (serverWindow_)
 			ctx_ = window_.getContext();
-		else
+		else {
+			slot = OffscreenGLPool.acquire(this, renderWidth_, renderHeight_);
+			offscreenDrawable_ = slot.getDrawable();
 			ctx_ = offscreenDrawable_.getContext();
-		ctx_.makeCurrent();
-		
+		}
+
+		BufferedImage bi;
+		try {
+			ctx_.makeCurrent();
+			try {
+				bi = renderGL(jsRef, renderFull, slot);
+			} finally {
+				ctx_.release();
+			}
+		} finally {
+			if (slot != null)
+				OffscreenGLPool.release(slot);
+			offscreenDrawable_ = null;
+		}
+
+		if (bi == null)
+			return;
 
-		if (!EnumUtils.mask(flags, RenderFlag.RenderFull).isEmpty()) {
+		mr_.setImage(bi);
+
+		StringWriter tmp = new StringWriter();
+		tmp.append("jQuery.data(")
+		   .append(jsRef)
+		   .append(",'obj').loadImage(")
+		   .append(WWebWidget.jsStringLiteral(link_.getUrl()))
+		   .append(");");
+		glInterface_.doJavaScript(tmp.toString());
+	}
+
+	private BufferedImage renderGL(String jsRef, boolean renderFull, OffscreenGLPool.Slot slot) {
+		if (renderFull) {
 			if (serverWindow_) {
 				window_.setSize((int)glInterface_.getWidth().getValue(), (int)glInterface_.getHeight().getValue());
-			} else {
-				offscreenDrawable_.setSize((int)glInterface_.getWidth().getValue(), (int)glInterface_.getHeight().getValue());
 			}
 			// build GLWidget object in browser
 			StringWriter tmp = new StringWriter();
@@ -1169,6 +1350,8 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 			glInterface_.doJavaScript(tmp.toString());
 
 			this.updatePaintGL_ = true;
+		} else if (slot != null && slot.isFresh()) {
+			glInterface_.contextRestored();
 		}
 		if (this.updateGL_) {
 			js_.getBuffer().setLength(0);
@@ -1178,58 +1361,43 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 			this.updateGL_ = false;
 		}
 		if (this.updateResizeGL_) {
-			if (sizeChanged_) {
-				if (serverWindow_)
-					window_.setSize(renderWidth_, renderHeight_);
-				else
-					offscreenDrawable_.setSize(renderWidth_, renderHeight_);
-			}
+			if (sizeChanged_ && serverWindow_)
+				window_.setSize(renderWidth_, renderHeight_);
 			this.reshape(0, 0, renderWidth_, renderHeight_);
 			this.updateResizeGL_ = false;
 		}
-		if (this.updatePaintGL_) {
-			display();
-			this.updatePaintGL_ = false;
+		if (!this.updatePaintGL_)
+			return null;
+
+		display();
+		this.updatePaintGL_ = false;
+
+		// read back the framebuffer into an image
+		ByteBuffer glBB;
+		if (slot != null)
+			glBB = slot.getReadBuffer(4 * renderWidth_ * renderHeight_);
+		else {
+			glBB = ByteBuffer.allocate(4 * renderWidth_ * renderHeight_);
+			glBB.order(ByteOrder.nativeOrder());
 		}
-		
-		// schrijf framebuffer naar een image
-		ByteBuffer glBB = ByteBuffer.allocate(4 * renderWidth_ * renderHeight_); 
-		glBB.order(ByteOrder.nativeOrder());
-	    
-	    glCtx_.glReadPixels(0, 0, renderWidth_, renderHeight_, GL2.GL_RGBA, GL2.GL_BYTE, glBB);
-	    BufferedImage bi = new BufferedImage(renderWidth_, renderHeight_, BufferedImage.TYPE_INT_ARGB);
-	    int[] bd = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData();
-
-	    for (int y = 0; y < renderHeight_; y++) {
-	        for (int x = 0; x < renderWidth_; x++) {
-	            int r = 2 * glBB.get();
-	            int g = 2 * glBB.get();
-	            int b = 2 * glBB.get();
-	            int a = 2 * glBB.get();
-
-	            bd[(renderHeight_ - y - 1) * renderWidth_ + x] = (r << 16) | (g << 8) | b | (a << 24);
-	        }
-	    }
 
-	    
-	    ctx_.release();
-	    
-	    ByteArrayOutputStream pngData = new ByteArrayOutputStream();
-	    try {
-			ImageIO.write(bi, "png", pngData);
-		} catch (IOException e1) {
-			System.out.println("writing of image data failed");
+		glCtx_.glReadPixels(0, 0, renderWidth_, renderHeight_, GL2.GL_RGBA, GL2.GL_UNSIGNED_BYTE, glBB);
+		BufferedImage bi = BufferedImagePool.acquire(renderWidth_, renderHeight_);
+		int[] bd = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData();
+
+		for (int y = 0; y < renderHeight_; y++) {
+			int row = (renderHeight_ - y - 1) * renderWidth_;
+			for (int x = 0; x < renderWidth_; x++) {
+				int r = glBB.get() & 0xFF;
+				int g = glBB.get() & 0xFF;
+				int b = glBB.get() & 0xFF;
+				int a = glBB.get() & 0xFF;
+
+				bd[row + x] = (r << 16) | (g << 8) | b | (a << 24);
+			}
 		}
-	    
-	    mr_.setData(pngData.toByteArray());
-	    
-	    StringWriter tmp = new StringWriter();
-	    tmp.append("jQuery.data(")
-	       .append(jsRef)
-	       .append(",'obj').loadImage(")
-	       .append(WWebWidget.jsStringLiteral(link_.getUrl()))
-	       .append(");");
-	    glInterface_.doJavaScript(tmp.toString());
+
+		return bi;
 	}
 	
 	private static int serverGLenum(GLenum type) {
@@ -1877,7 +2045,7 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 	private GLOffscreenAutoDrawable offscreenDrawable_;
 	private GLContext ctx_;
 	
-	private WMemoryResource mr_;
+	private WGLImageResource mr_;
 	private WLink link_;
 	
 	private GL2 glCtx_;
@@ -1885,8 +2053,32 @@ public class WServerGLWidget extends WAbstractGLImplementation {
 	private StringWriter js_;
 	private int jsValues_;
 	
+	private Set<Integer> buffers_;
+	private Set<Integer> framebuffers_;
+	private Set<Integer> renderbuffers_;
+	private Set<Integer> textures_;
+	private Set<Integer> shaderObjects_;
+	
 	private static final boolean debug_ = false;
 
+	private static ExecutorService encoderService_;
+
+	private static synchronized ExecutorService getEncoderService() {
+		if (encoderService_ == null) {
+			encoderService_ = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						private int count = 0;
+
+						public synchronized Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "jwt-gl-image-encoder-" + (++count));
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return encoderService_;
+	}
+
 	
 
 	@Override
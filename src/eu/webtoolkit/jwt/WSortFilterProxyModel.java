@@ -803,7 +803,12 @@ public class WSortFilterProxyModel extends WAbstractProxyModel {
 		if ((topLeft.getParent() != null) && !(parent != null)) {
 			return;
 		}
+		if ((refilter || resort) && bottomRight.getRow() > topLeft.getRow()) {
+			this.invalidate();
+			return;
+		}
 		WSortFilterProxyModel.Item item = this.itemFromIndex(parent);
+		this.beginChangeBatch();
 		for (int row = topLeft.getRow(); row <= bottomRight.getRow(); ++row) {
 			int oldMappedRow = item.sourceRowMap_.get(row);
 			boolean propagateDataChange = oldMappedRow != -1;
@@ -840,6 +845,7 @@ public class WSortFilterProxyModel extends WAbstractProxyModel {
 						this.mapFromSource(r));
 			}
 		}
+		this.endChangeBatch();
 	}
 
 	private void sourceHeaderDataChanged(Orientation orientation, int start,
@@ -0,0 +1,567 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read-only table model for the result of an SQL query.
+ *
+ * The model does not copy the result of the query. Instead, it fetches the rows
+ * in blocks (of {@link #getBlockSize()} rows) when a view asks for their data,
+ * and keeps the most recently used blocks in a cache. This allows a
+ * {@link WTableView} to browse a result with millions of rows: as the user
+ * scrolls, only the blocks for the rendered rows are fetched. Whenever a block
+ * is fetched, the next block in the direction of scrolling is prefetched in the
+ * background, using a separate connection from the data source.
+ *
+ * Sorting ({@link #sort(int, SortOrder)}) and filtering
+ * ({@link #setFilter(String, Object...)}) are done by the database, by
+ * wrapping the query as a derived table:
+ *
+ * <pre>
+ * SELECT * FROM (<i>query</i>) q WHERE <i>filter</i> ORDER BY <i>column</i> LIMIT ? OFFSET ?
+ * </pre>
+ *
+ * The <code>LIMIT ... OFFSET ...</code> syntax is understood by most
+ * databases (e.g. PostgreSQL, MySQL, SQLite, H2 and HSQLDB). For other
+ * databases, reimplement {@link #getBlockQuery(String, String)}.
+ *
+ * Paging requires a deterministic order. Unless the model is sorted, the
+ * rows are ordered on the first column, which should therefore be a key of
+ * the result.
+ *
+ * The number of rows is counted when the model is first used, and after the
+ * filter is changed. Call {@link #refresh()} to reread the data after the
+ * underlying tables have changed.
+ */
+public class WSqlQueryModel extends WAbstractTableModel {
+	private static Logger logger = LoggerFactory.getLogger(WSqlQueryModel.class);
+
+	/*
+	 * The parameters of a query. Blocks are fetched with an immutable
+	 * snapshot, so that a prefetch that is running while the query is changed
+	 * can be recognized and ignored.
+	 */
+	private static class QueryState {
+		String where;
+		Object[] parameters;
+		String orderBy;
+		int generation;
+	}
+
+	private DataSource dataSource_;
+	private String query_;
+	private int blockSize_;
+	private int cacheSize_;
+	private volatile QueryState state_;
+	private int rowCount_;
+	private List<String> columnNames_;
+	private Map<Integer, Map<Integer, Object>> headerData_;
+	private int lastBlock_;
+
+	private final LinkedHashMap<Integer, Object[][]> blocks_;
+	private final Map<Integer, Future<Object[][]>> pending_;
+
+	/**
+	 * Creates a new query model.
+	 *
+	 * The <code>query</code> is a <code>SELECT</code> statement, without
+	 * an <code>ORDER BY</code> clause.
+	 */
+	public WSqlQueryModel(DataSource dataSource, String query, WObject parent) {
+		super(parent);
+		dataSource_ = dataSource;
+		query_ = query;
+		blockSize_ = 100;
+		cacheSize_ = 20;
+		state_ = new QueryState();
+		state_.where = null;
+		state_.parameters = new Object[0];
+		state_.orderBy = "1";
+		state_.generation = 0;
+		rowCount_ = -1;
+		columnNames_ = null;
+		headerData_ = new HashMap<Integer, Map<Integer, Object>>();
+		lastBlock_ = -1;
+		blocks_ = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true);
+		pending_ = new HashMap<Integer, Future<Object[][]>>();
+	}
+
+	/**
+	 * Creates a new query model.
+	 *
+	 * Calls {@link #WSqlQueryModel(DataSource, String, WObject)
+	 * this(dataSource, query, null)}
+	 */
+	public WSqlQueryModel(DataSource dataSource, String query) {
+		this(dataSource, query, null);
+	}
+
+	/**
+	 * Returns the query.
+	 */
+	public String getQuery() {
+		return query_;
+	}
+
+	/**
+	 * Sets the number of rows that are fetched at once.
+	 *
+	 * The default block size is 100 rows, which is a few times the number of
+	 * rows rendered by a {@link WTableView}.
+	 */
+	public void setBlockSize(int rows) {
+		if (rows < 1)
+			throw new IllegalArgumentException("block size must be at least 1");
+		blockSize_ = rows;
+		state_ = newState();
+		invalidate();
+	}
+
+	/**
+	 * Returns the number of rows that are fetched at once.
+	 */
+	public int getBlockSize() {
+		return blockSize_;
+	}
+
+	/**
+	 * Sets the number of blocks that are kept in memory.
+	 *
+	 * The default is 20 blocks. The least recently used block is dropped when
+	 * a new block is fetched.
+	 */
+	public void setCacheSize(int blocks) {
+		if (blocks < 2)
+			throw new IllegalArgumentException("cache size must be at least 2");
+		synchronized (blocks_) {
+			cacheSize_ = blocks;
+			trimCache();
+		}
+	}
+
+	/**
+	 * Returns the number of blocks that are kept in memory.
+	 */
+	public int getCacheSize() {
+		return cacheSize_;
+	}
+
+	/**
+	 * Sets a filter.
+	 *
+	 * The <code>condition</code> is an SQL expression on the columns of the
+	 * query, which is used as the <code>WHERE</code> clause. It may contain
+	 * <code>?</code> placeholders for the <code>parameters</code>. A
+	 * <code>null</code> condition removes the filter.
+	 *
+	 * Since this changes the rows of the model, the model is reset.
+	 */
+	public void setFilter(String condition, Object... parameters) {
+		QueryState s = newState();
+		s.where = condition;
+		s.parameters = condition != null ? parameters.clone() : new Object[0];
+		state_ = s;
+		rowCount_ = -1;
+		invalidate();
+		reset();
+	}
+
+	/**
+	 * Returns the filter.
+	 *
+	 * @see #setFilter(String, Object...)
+	 */
+	public String getFilter() {
+		return state_.where;
+	}
+
+	/**
+	 * Sorts the model.
+	 *
+	 * The rows are ordered by the database, on the result column with the
+	 * given index.
+	 */
+	@Override
+	public void sort(int column, SortOrder order) {
+		layoutAboutToBeChanged().trigger();
+		QueryState s = newState();
+		s.orderBy = (column + 1)
+				+ (order == SortOrder.DescendingOrder ? " DESC" : " ASC")
+				+ (column != 0 ? ", 1" : "");
+		state_ = s;
+		invalidate();
+		layoutChanged().trigger();
+	}
+
+	/**
+	 * Rereads the data.
+	 *
+	 * The row count is recomputed and cached data is dropped. Since the rows
+	 * may have changed, the model is reset.
+	 */
+	public void refresh() {
+		state_ = newState();
+		rowCount_ = -1;
+		columnNames_ = null;
+		invalidate();
+		reset();
+	}
+
+	/**
+	 * Returns the name of a result column.
+	 *
+	 * This is the column label reported by the database, and is also the
+	 * default header data for the column.
+	 */
+	public String getColumnName(int column) {
+		return getColumnNames().get(column);
+	}
+
+	@Override
+	public int getColumnCount(WModelIndex parent) {
+		return parent != null ? 0 : getColumnNames().size();
+	}
+
+	@Override
+	public int getRowCount(WModelIndex parent) {
+		if (parent != null)
+			return 0;
+		if (rowCount_ == -1)
+			rowCount_ = countRows();
+		return rowCount_;
+	}
+
+	@Override
+	public EnumSet<ItemFlag> getFlags(WModelIndex index) {
+		return EnumSet.of(ItemFlag.ItemIsSelectable);
+	}
+
+	@Override
+	public Object getData(WModelIndex index, int role) {
+		if (role != ItemDataRole.DisplayRole && role != ItemDataRole.EditRole)
+			return null;
+		int row = index.getRow();
+		Object[][] block = getBlock(row / blockSize_);
+		int i = row % blockSize_;
+		return i < block.length ? block[i][index.getColumn()] : null;
+	}
+
+	@Override
+	public Object getHeaderData(int section, Orientation orientation, int role) {
+		if (orientation == Orientation.Horizontal) {
+			if (role == ItemDataRole.EditRole)
+				role = ItemDataRole.DisplayRole;
+			Map<Integer, Object> d = headerData_.get(section);
+			if (d != null && d.containsKey(role))
+				return d.get(role);
+			else if (role == ItemDataRole.DisplayRole)
+				return getColumnName(section);
+			else
+				return null;
+		} else
+			return super.getHeaderData(section, orientation, role);
+	}
+
+	@Override
+	public boolean setHeaderData(int section, Orientation orientation, Object value, int role) {
+		if (orientation != Orientation.Horizontal)
+			return false;
+		if (role == ItemDataRole.EditRole)
+			role = ItemDataRole.DisplayRole;
+		Map<Integer, Object> d = headerData_.get(section);
+		if (d == null) {
+			d = new HashMap<Integer, Object>();
+			headerData_.put(section, d);
+		}
+		d.put(role, value);
+		headerDataChanged().trigger(orientation, section, section);
+		return true;
+	}
+
+	/**
+	 * Returns the statement that fetches a block of rows.
+	 *
+	 * The <code>query</code> is the query of the model, wrapped with the
+	 * filter, and <code>orderBy</code> is the <code>ORDER BY</code> list.
+	 * The statement must end with two placeholders: for the number of rows,
+	 * and for the offset of the first row.
+	 *
+	 * The default implementation appends
+	 * <code>ORDER BY <i>orderBy</i> LIMIT ? OFFSET ?</code>.
+	 */
+	protected String getBlockQuery(String query, String orderBy) {
+		return query + " ORDER BY " + orderBy + " LIMIT ? OFFSET ?";
+	}
+
+	/**
+	 * Reads a value from the result set.
+	 *
+	 * The default implementation returns {@link ResultSet#getObject(int)},
+	 * converting dates and timestamps to {@link WDate}.
+	 */
+	protected Object readValue(ResultSet rs, int column) throws SQLException {
+		Object result = rs.getObject(column);
+		if (result instanceof java.util.Date)
+			return new WDate((java.util.Date) result);
+		else
+			return result;
+	}
+
+	private QueryState newState() {
+		QueryState s = new QueryState();
+		s.where = state_.where;
+		s.parameters = state_.parameters;
+		s.orderBy = state_.orderBy;
+		s.generation = state_.generation + 1;
+		return s;
+	}
+
+	private void invalidate() {
+		synchronized (blocks_) {
+			blocks_.clear();
+			for (Future<Object[][]> f : pending_.values())
+				f.cancel(false);
+			pending_.clear();
+		}
+		lastBlock_ = -1;
+	}
+
+	private void trimCache() {
+		while (blocks_.size() > cacheSize_)
+			blocks_.remove(blocks_.keySet().iterator().next());
+	}
+
+	private String getFilteredQuery(QueryState s) {
+		String result = "SELECT * FROM (" + query_ + ") q";
+		if (s.where != null)
+			result += " WHERE " + s.where;
+		return result;
+	}
+
+	private Object[][] getBlock(int block) {
+		QueryState s = state_;
+		Object[][] result;
+		Future<Object[][]> f;
+		synchronized (blocks_) {
+			result = blocks_.get(block);
+			f = result == null ? pending_.get(block) : null;
+		}
+
+		if (result == null) {
+			if (f != null) {
+				try {
+					result = f.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (CancellationException e) {
+				} catch (ExecutionException e) {
+					logger.info("Prefetching block " + block + " failed: " + e.getCause());
+				}
+			}
+			if (result == null) {
+				result = fetchBlock(s, block);
+				store(s, block, result);
+			}
+		}
+
+		if (block != lastBlock_) {
+			prefetch(s, block < lastBlock_ ? block - 1 : block + 1);
+			lastBlock_ = block;
+		}
+
+		return result;
+	}
+
+	private void prefetch(final QueryState s, final int block) {
+		if (block < 0 || (long) block * blockSize_ >= getRowCount())
+			return;
+
+		synchronized (blocks_) {
+			if (blocks_.containsKey(block) || pending_.containsKey(block))
+				return;
+			pending_.put(block, getPrefetchService().submit(new Callable<Object[][]>() {
+				public Object[][] call() throws Exception {
+					try {
+						Object[][] result = fetchBlock(s, block);
+						store(s, block, result);
+						return result;
+					} finally {
+						synchronized (blocks_) {
+							if (s.generation == state_.generation)
+								pending_.remove(block);
+						}
+					}
+				}
+			}));
+		}
+	}
+
+	private void store(QueryState s, int block, Object[][] rows) {
+		synchronized (blocks_) {
+			if (s.generation == state_.generation) {
+				blocks_.put(block, rows);
+				trimCache();
+			}
+		}
+	}
+
+	private Object[][] fetchBlock(QueryState s, int block) {
+		String sql = getBlockQuery(getFilteredQuery(s), s.orderBy);
+		Connection c = null;
+		try {
+			c = dataSource_.getConnection();
+			PreparedStatement st = c.prepareStatement(sql);
+			try {
+				int p = bindParameters(st, s);
+				st.setInt(p++, blockSize_);
+				st.setInt(p++, block * blockSize_);
+				ResultSet rs = st.executeQuery();
+				List<Object[]> rows = new ArrayList<Object[]>(blockSize_);
+				int columns = rs.getMetaData().getColumnCount();
+				while (rs.next()) {
+					Object[] row = new Object[columns];
+					for (int i = 0; i < columns; ++i)
+						row[i] = readValue(rs, i + 1);
+					rows.add(row);
+				}
+				rs.close();
+				return rows.toArray(new Object[rows.size()][]);
+			} finally {
+				st.close();
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("WSqlQueryModel: could not fetch rows: " + e.getMessage(), e);
+		} finally {
+			close(c);
+		}
+	}
+
+	private int countRows() {
+		String sql = "SELECT COUNT(*) FROM (" + getFilteredQuery(state_) + ") c";
+		Connection c = null;
+		try {
+			c = dataSource_.getConnection();
+			PreparedStatement st = c.prepareStatement(sql);
+			try {
+				bindParameters(st, state_);
+				ResultSet rs = st.executeQuery();
+				int result = rs.next() ? rs.getInt(1) : 0;
+				rs.close();
+				return result;
+			} finally {
+				st.close();
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException("WSqlQueryModel: could not count rows: " + e.getMessage(), e);
+		} finally {
+			close(c);
+		}
+	}
+
+	private List<String> getColumnNames() {
+		if (columnNames_ == null) {
+			Connection c = null;
+			try {
+				c = dataSource_.getConnection();
+				PreparedStatement st = c.prepareStatement(query_);
+				try {
+					st.setMaxRows(1);
+					ResultSetMetaData md = st.getMetaData();
+					ResultSet rs = null;
+					if (md == null) {
+						rs = st.executeQuery();
+						md = rs.getMetaData();
+					}
+					String[] names = new String[md.getColumnCount()];
+					for (int i = 0; i < names.length; ++i)
+						names[i] = md.getColumnLabel(i + 1);
+					if (rs != null)
+						rs.close();
+					columnNames_ = Arrays.asList(names);
+				} finally {
+					st.close();
+				}
+			} catch (SQLException e) {
+				throw new RuntimeException("WSqlQueryModel: could not read columns: " + e.getMessage(), e);
+			} finally {
+				close(c);
+			}
+		}
+		return columnNames_;
+	}
+
+	private static int bindParameters(PreparedStatement st, QueryState s) throws SQLException {
+		int p = 1;
+		for (Object o : s.parameters)
+			st.setObject(p++, o);
+		return p;
+	}
+
+	private static void close(Connection c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (SQLException e) {
+				logger.info("Could not close connection: " + e.getMessage());
+			}
+		}
+	}
+
+	private static ExecutorService prefetchService_;
+
+	private static synchronized ExecutorService getPrefetchService() {
+		if (prefetchService_ == null) {
+			prefetchService_ = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+					new ThreadFactory() {
+						private int count = 0;
+
+						public synchronized Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "jwt-sql-prefetch-" + (++count));
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return prefetchService_;
+	}
+
+	/*
+	 * Stops the prefetch threads, so that they do not keep the classes of an
+	 * undeployed application loaded. Blocks that are being prefetched are
+	 * still completed. A new service is started when a model needs it again.
+	 */
+	static synchronized void shutdownPrefetchService() {
+		if (prefetchService_ != null) {
+			prefetchService_.shutdown();
+			prefetchService_ = null;
+		}
+	}
+}
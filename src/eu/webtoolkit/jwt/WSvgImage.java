@@ -60,6 +60,7 @@ public class WSvgImage extends WResource implements WVectorImage {
 		this.pathTranslation_ = new WPointF();
 		this.shapes_ = new StringBuilder();
 		this.fontMetrics_ = null;
+		this.rendered_ = null;
 		this.fillStyle_ = "";
 		this.strokeStyle_ = "";
 		this.fontStyle_ = "";
@@ -361,6 +362,9 @@ public class WSvgImage extends WResource implements WVectorImage {
 	}
 
 	public String getRendered() {
+		if (this.rendered_ != null) {
+			return this.rendered_;
+		}
 		try {
 			StringWriter s = new StringWriter();
 			this.streamResourceData(s);
@@ -383,13 +387,21 @@ public class WSvgImage extends WResource implements WVectorImage {
 			final WebResponse response) throws IOException {
 		response.setContentType("image/svg+xml");
 		Writer o = response.out();
-		this.streamResourceData(o);
+		if (this.rendered_ != null) {
+			o.append(this.rendered_);
+		} else {
+			this.streamResourceData(o);
+		}
 	}
 
 	public WPainter getPainter() {
 		return this.painter_;
 	}
 
+	void setRendered(final String rendered) {
+		this.rendered_ = rendered;
+	}
+
 	public void setPainter(WPainter painter) {
 		this.painter_ = painter;
 	}
@@ -417,6 +429,7 @@ public class WSvgImage extends WResource implements WVectorImage {
 	private WPointF pathTranslation_;
 	private StringBuilder shapes_;
 	private ServerSideFontMetrics fontMetrics_;
+	private String rendered_;
 
 	private void finishPath() {
 		if (this.busyWithPath_) {
@@ -292,7 +292,7 @@ public class WTableView extends WAbstractItemView {
 			if (this.isAjaxMode()) {
 				WTableView.ColumnWidget column = this
 						.columnContainer(renderedCol);
-				return column.getWidget(renderedRow);
+				return column.getCellWidget(renderedRow);
 			} else {
 				return this.plainTable_.getElementAt(renderedRow + 1,
 						renderedCol);
@@ -833,13 +833,225 @@ public class WTableView extends WAbstractItemView {
 			} else {
 				view.headerColumnsTable_.insertWidget(column, this);
 			}
+			this.view_ = view;
+			this.html_ = true;
+			this.cells_ = new ArrayList<String>();
+			this.appendedCells_ = 0;
+			this.updatedCells_ = new TreeSet<Integer>();
+			this.changedFirst_ = 0;
+			this.changedCount_ = 0;
+			this.changes_ = new StringBuilder();
 		}
 
 		public int getColumn() {
 			return this.column_;
 		}
 
+		public int getCellCount() {
+			return this.html_ ? this.cells_.size() : this.getCount();
+		}
+
+		public WWidget getCellWidget(int i) {
+			return this.html_ ? null : this.getWidget(i);
+		}
+
+		public void insertCell(int i, final WModelIndex index) {
+			if (this.html_) {
+				String html = this.view_.renderHtml(index);
+				if (html != null) {
+					if (i >= this.cells_.size() - this.appendedCells_) {
+						++this.appendedCells_;
+					} else {
+						this.changeCells(i, 1);
+					}
+					this.cells_.add(i, html);
+					this.repaint();
+					return;
+				}
+				this.switchToWidgets();
+			}
+			this.insertWidget(i, this.view_.renderWidget((WWidget) null, index));
+		}
+
+		public void updateCell(int i, final WModelIndex index) {
+			if (this.html_) {
+				String html = this.view_.renderHtml(index);
+				if (html != null) {
+					if (!html.equals(this.cells_.get(i))) {
+						this.cells_.set(i, html);
+						if (i < this.cells_.size() - this.appendedCells_) {
+							this.updatedCells_.add(i);
+						}
+						this.repaint();
+					}
+					return;
+				}
+				this.switchToWidgets();
+			}
+			WWidget current = this.getWidget(i);
+			WWidget w = this.view_.renderWidget(current, index);
+			if (!(w.getParent() != null)) {
+				if (current != null)
+					current.remove();
+				this.insertWidget(i, w);
+			}
+		}
+
+		public void removeCell(int i) {
+			if (this.html_) {
+				if (i >= this.cells_.size() - this.appendedCells_) {
+					--this.appendedCells_;
+				} else {
+					this.changeCells(i, -1);
+				}
+				this.cells_.remove(i);
+				this.repaint();
+			} else {
+				WWidget w = this.getWidget(i);
+				if (w != null)
+					w.remove();
+			}
+		}
+
+		public void setCellSelected(int i, final WModelIndex index,
+				boolean selected) {
+			if (this.html_) {
+				this.updateCell(i, index);
+			} else {
+				WWidget w = this.getWidget(i);
+				w.toggleStyleClass(WApplication.getInstance().getTheme()
+						.getActiveClass(), selected);
+			}
+		}
+
+		void updateDom(final DomElement element, boolean all) {
+			super.updateDom(element, all);
+			if (this.html_) {
+				if (all) {
+					element.setProperty(Property.PropertyInnerHTML,
+							this.getCellsHtml(0));
+				} else {
+					if (this.appendedCells_ > 0) {
+						element.setWasEmpty(false);
+						element.setProperty(Property.PropertyAddedInnerHTML,
+								this.getCellsHtml(this.cells_.size()
+										- this.appendedCells_));
+					}
+					this.flushChanges();
+					if (this.changes_.length() != 0) {
+						element.callJavaScript(this.changes_.toString());
+					}
+				}
+			}
+			this.clearChanges();
+		}
+
+		void propagateRenderOk(boolean deep) {
+			this.clearChanges();
+			super.propagateRenderOk(deep);
+		}
+
+		private WTableView view_;
 		private int column_;
+		private boolean html_;
+		private List<String> cells_;
+		private int appendedCells_;
+		private SortedSet<Integer> updatedCells_;
+		private int changedFirst_;
+		private int changedCount_;
+		private StringBuilder changes_;
+
+		/*
+		 * Records that a cell is inserted (count 1) or removed (count -1)
+		 * before the rendered cells are changed. Consecutive insertions or
+		 * removals, such as those for the rows scrolled into or out of view,
+		 * are sent as a single change.
+		 */
+		private void changeCells(int i, int count) {
+			if (this.changedCount_ != 0 && this.updatedCells_.isEmpty()) {
+				if (count > 0 && this.changedCount_ > 0) {
+					if (i >= this.changedFirst_
+							&& i <= this.changedFirst_ + this.changedCount_) {
+						++this.changedCount_;
+						return;
+					}
+				} else {
+					if (count < 0 && this.changedCount_ < 0) {
+						if (i == this.changedFirst_) {
+							--this.changedCount_;
+							return;
+						} else {
+							if (i == this.changedFirst_ - 1) {
+								this.changedFirst_ = i;
+								--this.changedCount_;
+								return;
+							}
+						}
+					}
+				}
+			}
+			this.flushChanges();
+			this.changedFirst_ = i;
+			this.changedCount_ = count;
+		}
+
+		private void flushChanges() {
+			String children = "$(" + this.getJsRef() + ").children()";
+			if (this.changedCount_ > 0) {
+				StringBuilder html = new StringBuilder();
+				for (int i = 0; i < this.changedCount_; ++i) {
+					html.append(this.cells_.get(this.changedFirst_ + i));
+				}
+				this.changes_.append(children).append(".eq(")
+						.append(this.changedFirst_).append(").before(")
+						.append(jsStringLiteral(html.toString())).append(");");
+			} else {
+				if (this.changedCount_ < 0) {
+					this.changes_.append(children).append(".slice(")
+							.append(this.changedFirst_).append(',')
+							.append(this.changedFirst_ - this.changedCount_)
+							.append(").remove();");
+				}
+			}
+			for (Iterator<Integer> i_it = this.updatedCells_.iterator(); i_it
+					.hasNext();) {
+				int i = i_it.next();
+				this.changes_.append(children).append(".eq(").append(i)
+						.append(").replaceWith(")
+						.append(jsStringLiteral(this.cells_.get(i)))
+						.append(");");
+			}
+			this.changedCount_ = 0;
+			this.updatedCells_.clear();
+		}
+
+		private void clearChanges() {
+			this.appendedCells_ = 0;
+			this.updatedCells_.clear();
+			this.changedCount_ = 0;
+			this.changes_.setLength(0);
+		}
+
+		private String getCellsHtml(int first) {
+			StringBuilder result = new StringBuilder();
+			for (int i = first; i < this.cells_.size(); ++i) {
+				result.append(this.cells_.get(i));
+			}
+			return result.toString();
+		}
+
+		private void switchToWidgets() {
+			this.html_ = false;
+			int row = this.view_.getFirstRow();
+			for (int i = 0; i < this.cells_.size(); ++i) {
+				this.addWidget(this.view_.renderWidget((WWidget) null,
+						this.view_.getModel().getIndex(row + i, this.column_,
+								this.view_.getRootIndex())));
+			}
+			this.cells_.clear();
+			this.clearChanges();
+			this.layoutChanged(true, false);
+		}
 	}
 
 	private WContainerWidget headers_;
@@ -1046,8 +1258,9 @@ public class WTableView extends WAbstractItemView {
 				for (int i = 0; i < this.getRenderedColumnsCount(); ++i) {
 					WTableView.ColumnWidget column = this.columnContainer(i);
 					for (int j = 0; j < toRemove; ++j) {
-						if (column.getWidget(first) != null)
-							column.getWidget(first).remove();
+						if (first < column.getCellCount()) {
+							column.removeCell(first);
+						}
 					}
 				}
 				this.setSpannerCount(Side.Bottom,
@@ -1098,9 +1311,7 @@ public class WTableView extends WAbstractItemView {
 		this.resetGeometry();
 	}
 
-	private WWidget renderWidget(WWidget widget, final WModelIndex index) {
-		WAbstractItemDelegate itemDelegate = this.getItemDelegate(index
-				.getColumn());
+	private EnumSet<ViewItemRenderFlag> getRenderFlags(final WModelIndex index) {
 		EnumSet<ViewItemRenderFlag> renderFlags = EnumSet
 				.noneOf(ViewItemRenderFlag.class);
 		if (this.isAjaxMode()) {
@@ -1117,6 +1328,13 @@ public class WTableView extends WAbstractItemView {
 		if (!this.isValid(index)) {
 			renderFlags.add(ViewItemRenderFlag.RenderInvalid);
 		}
+		return renderFlags;
+	}
+
+	private WWidget renderWidget(WWidget widget, final WModelIndex index) {
+		WAbstractItemDelegate itemDelegate = this.getItemDelegate(index
+				.getColumn());
+		EnumSet<ViewItemRenderFlag> renderFlags = this.getRenderFlags(index);
 		boolean initial = !(widget != null);
 		widget = itemDelegate.update(widget, index, renderFlags);
 		widget.setInline(false);
@@ -1139,6 +1357,18 @@ public class WTableView extends WAbstractItemView {
 		return widget;
 	}
 
+	private String renderHtml(final WModelIndex index) {
+		WAbstractItemDelegate itemDelegate = this.getItemDelegate(index
+				.getColumn());
+		StringBuilder result = new StringBuilder();
+		if (itemDelegate.renderHtml(result, index, this.getRenderFlags(index),
+				"Wt-tv-c", this.getRowHeight())) {
+			return result.toString();
+		} else {
+			return null;
+		}
+	}
+
 	private int getSpannerCount(final Side side) {
 		assert this.isAjaxMode();
 		switch (side) {
@@ -1250,49 +1480,43 @@ public class WTableView extends WAbstractItemView {
 		}
 		for (int i = 0; i < topRowsToAdd; i++) {
 			int row = this.getFirstRow() - 1;
-			List<WWidget> items = new ArrayList<WWidget>();
+			List<WModelIndex> items = new ArrayList<WModelIndex>();
 			for (int j = 0; j < this.getRowHeaderCount(); ++j) {
-				items.add(this.renderWidget((WWidget) null, this.getModel()
-						.getIndex(row, j, this.getRootIndex())));
+				items.add(this.getModel().getIndex(row, j, this.getRootIndex()));
 			}
 			for (int j = this.getFirstColumn(); j <= this.getLastColumn(); ++j) {
-				items.add(this.renderWidget((WWidget) null, this.getModel()
-						.getIndex(row, j, this.getRootIndex())));
+				items.add(this.getModel().getIndex(row, j, this.getRootIndex()));
 			}
 			this.addSection(Side.Top, items);
 		}
 		for (int i = 0; i < bottomRowsToAdd; ++i) {
 			int row = this.getLastRow() + 1;
-			List<WWidget> items = new ArrayList<WWidget>();
+			List<WModelIndex> items = new ArrayList<WModelIndex>();
 			for (int j = 0; j < this.getRowHeaderCount(); ++j) {
-				items.add(this.renderWidget((WWidget) null, this.getModel()
-						.getIndex(row, j, this.getRootIndex())));
+				items.add(this.getModel().getIndex(row, j, this.getRootIndex()));
 			}
 			for (int j = this.getFirstColumn(); j <= this.getLastColumn(); ++j) {
-				items.add(this.renderWidget((WWidget) null, this.getModel()
-						.getIndex(row, j, this.getRootIndex())));
+				items.add(this.getModel().getIndex(row, j, this.getRootIndex()));
 			}
 			this.addSection(Side.Bottom, items);
 		}
 		for (int i = 0; i < leftColsToAdd; ++i) {
 			int col = this.getFirstColumn() - 1;
-			List<WWidget> items = new ArrayList<WWidget>();
+			List<WModelIndex> items = new ArrayList<WModelIndex>();
 			int nfr = this.getFirstRow();
 			int nlr = this.getLastRow();
 			for (int j = nfr; j <= nlr; ++j) {
-				items.add(this.renderWidget((WWidget) null, this.getModel()
-						.getIndex(j, col, this.getRootIndex())));
+				items.add(this.getModel().getIndex(j, col, this.getRootIndex()));
 			}
 			this.addSection(Side.Left, items);
 		}
 		for (int i = 0; i < rightColsToAdd; ++i) {
 			int col = this.getLastColumn() + 1;
-			List<WWidget> items = new ArrayList<WWidget>();
+			List<WModelIndex> items = new ArrayList<WModelIndex>();
 			int nfr = this.getFirstRow();
 			int nlr = this.getLastRow();
 			for (int j = nfr; j <= nlr; ++j) {
-				items.add(this.renderWidget((WWidget) null, this.getModel()
-						.getIndex(j, col, this.getRootIndex())));
+				items.add(this.getModel().getIndex(j, col, this.getRootIndex()));
 			}
 			this.addSection(Side.Right, items);
 		}
@@ -1311,20 +1535,20 @@ public class WTableView extends WAbstractItemView {
 		this.doJavaScript(s.toString());
 	}
 
-	private void addSection(final Side side, final List<WWidget> items) {
+	private void addSection(final Side side, final List<WModelIndex> items) {
 		assert this.isAjaxMode();
 		switch (side) {
 		case Top:
 			for (int i = 0; i < items.size(); ++i) {
 				WTableView.ColumnWidget w = this.columnContainer(i);
-				w.insertWidget(0, items.get(i));
+				w.insertCell(0, items.get(i));
 			}
 			this.setSpannerCount(side, this.getSpannerCount(side) - 1);
 			break;
 		case Bottom:
 			for (int i = 0; i < items.size(); ++i) {
 				WTableView.ColumnWidget w = this.columnContainer(i);
-				w.addWidget(items.get(i));
+				w.insertCell(w.getCellCount(), items.get(i));
 			}
 			this.setSpannerCount(side, this.getSpannerCount(side) - 1);
 			break;
@@ -1332,7 +1556,7 @@ public class WTableView extends WAbstractItemView {
 			WTableView.ColumnWidget w = new WTableView.ColumnWidget(this,
 					this.getFirstColumn() - 1);
 			for (int i = 0; i < items.size(); ++i) {
-				w.addWidget(items.get(i));
+				w.insertCell(i, items.get(i));
 			}
 			if (!this.columnInfo(w.getColumn()).hidden) {
 				this.table_.setOffsets(
@@ -1349,7 +1573,7 @@ public class WTableView extends WAbstractItemView {
 			WTableView.ColumnWidget w = new WTableView.ColumnWidget(this,
 					this.getLastColumn() + 1);
 			for (int i = 0; i < items.size(); ++i) {
-				w.addWidget(items.get(i));
+				w.insertCell(i, items.get(i));
 			}
 			if (this.columnInfo(w.getColumn()).hidden) {
 				w.hide();
@@ -1371,7 +1595,7 @@ public class WTableView extends WAbstractItemView {
 			this.setSpannerCount(side, this.getSpannerCount(side) + 1);
 			for (int i = 0; i < this.getRenderedColumnsCount(); ++i) {
 				WTableView.ColumnWidget w = this.columnContainer(i);
-				this.deleteItem(row, col + i, w.getWidget(0));
+				this.deleteItem(row, col + i, w, 0);
 			}
 			break;
 		case Bottom:
@@ -1379,7 +1603,7 @@ public class WTableView extends WAbstractItemView {
 			this.setSpannerCount(side, this.getSpannerCount(side) + 1);
 			for (int i = 0; i < this.getRenderedColumnsCount(); ++i) {
 				WTableView.ColumnWidget w = this.columnContainer(i);
-				this.deleteItem(row, col + i, w.getWidget(w.getCount() - 1));
+				this.deleteItem(row, col + i, w, w.getCellCount() - 1);
 			}
 			break;
 		case Left: {
@@ -1392,8 +1616,8 @@ public class WTableView extends WAbstractItemView {
 								+ 7), EnumSet.of(Side.Left));
 			}
 			++this.firstColumn_;
-			for (int i = w.getCount() - 1; i >= 0; --i) {
-				this.deleteItem(row + i, col, w.getWidget(i));
+			for (int i = w.getCellCount() - 1; i >= 0; --i) {
+				this.deleteItem(row + i, col, w, i);
 			}
 			if (w != null)
 				w.remove();
@@ -1403,8 +1627,8 @@ public class WTableView extends WAbstractItemView {
 			WTableView.ColumnWidget w = this.columnContainer(-1);
 			col = w.getColumn();
 			--this.lastColumn_;
-			for (int i = w.getCount() - 1; i >= 0; --i) {
-				this.deleteItem(row + i, col, w.getWidget(i));
+			for (int i = w.getCellCount() - 1; i >= 0; --i) {
+				this.deleteItem(row + i, col, w, i);
 			}
 			if (w != null)
 				w.remove();
@@ -1772,23 +1996,19 @@ public class WTableView extends WAbstractItemView {
 
 	private void updateItem(final WModelIndex index, int renderedRow,
 			int renderedColumn) {
-		WContainerWidget parentWidget;
-		int wIndex;
 		if (this.isAjaxMode()) {
-			parentWidget = this.columnContainer(renderedColumn);
-			wIndex = renderedRow;
-		} else {
-			parentWidget = this.plainTable_.getElementAt(renderedRow + 1,
-					renderedColumn);
-			wIndex = 0;
+			this.columnContainer(renderedColumn).updateCell(renderedRow, index);
+			return;
 		}
-		WWidget current = parentWidget.getWidget(wIndex);
+		WContainerWidget parentWidget = this.plainTable_.getElementAt(
+				renderedRow + 1, renderedColumn);
+		WWidget current = parentWidget.getWidget(0);
 		WWidget w = this.renderWidget(current, index);
 		if (!(w.getParent() != null)) {
 			if (current != null)
 				current.remove();
-			parentWidget.insertWidget(wIndex, w);
-			if (!this.isAjaxMode() && !this.isEditing(index)) {
+			parentWidget.insertWidget(0, w);
+			if (!this.isEditing(index)) {
 				WInteractWidget wi = ((w) instanceof WInteractWidget ? (WInteractWidget) (w)
 						: null);
 				if (wi != null) {
@@ -1897,8 +2117,9 @@ public class WTableView extends WAbstractItemView {
 					for (int i = 0; i < this.getRenderedColumnsCount(); ++i) {
 						WTableView.ColumnWidget column = this
 								.columnContainer(i);
-						WWidget w = column.getWidget(renderedRow);
-						w.toggleStyleClass(cl, selected);
+						column.setCellSelected(renderedRow, this.getModel()
+								.getIndex(index.getRow(), column.getColumn(),
+										this.getRootIndex()), selected);
 					}
 				} else {
 					WTableRow row = this.plainTable_.getRowAt(renderedRow + 1);
@@ -1906,9 +2127,23 @@ public class WTableView extends WAbstractItemView {
 				}
 			}
 		} else {
-			WWidget w = this.itemWidget(index);
-			if (w != null) {
-				w.toggleStyleClass(cl, selected);
+			if (this.isAjaxMode()) {
+				int rhc = this.getRowHeaderCount();
+				if (this.isRowRendered(index.getRow())
+						&& (index.getColumn() < rhc || this
+								.isColumnRendered(index.getColumn()))) {
+					int renderedRow = index.getRow() - this.getFirstRow();
+					int renderedCol = index.getColumn() < rhc ? index
+							.getColumn() : rhc + index.getColumn()
+							- this.getFirstColumn();
+					this.columnContainer(renderedCol).setCellSelected(
+							renderedRow, index, selected);
+				}
+			} else {
+				WWidget w = this.itemWidget(index);
+				if (w != null) {
+					w.toggleStyleClass(cl, selected);
+				}
 			}
 		}
 	}
@@ -2063,20 +2298,19 @@ public class WTableView extends WAbstractItemView {
 
 	private void updateModelIndex(final WModelIndex index, int renderedRow,
 			int renderedColumn) {
-		WContainerWidget parentWidget;
-		int wIndex;
+		WWidget widget;
 		if (this.isAjaxMode()) {
-			parentWidget = this.columnContainer(renderedColumn);
-			wIndex = renderedRow;
+			widget = this.columnContainer(renderedColumn).getCellWidget(
+					renderedRow);
 		} else {
-			parentWidget = this.plainTable_.getElementAt(renderedRow + 1,
-					renderedColumn);
-			wIndex = 0;
+			widget = this.plainTable_.getElementAt(renderedRow + 1,
+					renderedColumn).getWidget(0);
+		}
+		if (widget != null) {
+			WAbstractItemDelegate itemDelegate = this.getItemDelegate(index
+					.getColumn());
+			itemDelegate.updateModelIndex(widget, index);
 		}
-		WAbstractItemDelegate itemDelegate = this.getItemDelegate(index
-				.getColumn());
-		WWidget widget = parentWidget.getWidget(wIndex);
-		itemDelegate.updateModelIndex(widget, index);
 	}
 
 	private void onDropEvent(int renderedRow, int columnId, String sourceId,
@@ -2089,11 +2323,13 @@ public class WTableView extends WAbstractItemView {
 		this.dropEvent(e, index);
 	}
 
-	private void deleteItem(int row, int col, WWidget w) {
+	private void deleteItem(int row, int col, WTableView.ColumnWidget w,
+			int i) {
 		this.persistEditor(this.getModel().getIndex(row, col,
 				this.getRootIndex()));
-		if (w != null)
-			w.remove();
+		if (i >= 0 && i < w.getCellCount()) {
+			w.removeCell(i);
+		}
 	}
 
 	private boolean isAjaxMode() {
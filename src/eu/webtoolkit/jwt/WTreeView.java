@@ -126,6 +126,7 @@ public class WTreeView extends WAbstractItemView {
 		super(parent);
 		this.skipNextMouseEvent_ = false;
 		this.expandedSet_ = new TreeSet<WModelIndex>();
+		this.rowIndex_ = new WTreeViewRowIndex(this);
 		this.renderedNodes_ = new HashMap<WModelIndex, WTreeViewNode>();
 		this.renderedNodesAdded_ = false;
 		this.rootNode_ = null;
@@ -209,7 +210,7 @@ public class WTreeView extends WAbstractItemView {
 			} else {
 				int height = this.subTreeHeight(index);
 				if (expanded) {
-					this.expandedSet_.add(index);
+					this.markExpanded(index);
 				} else {
 					this.setCollapsed(index);
 				}
@@ -374,6 +375,11 @@ public class WTreeView extends WAbstractItemView {
 		}
 	}
 
+	public void setRootIndex(final WModelIndex rootIndex) {
+		this.rowIndex_.clear();
+		super.setRootIndex(rootIndex);
+	}
+
 	public void setModel(WAbstractItemModel model) {
 		super.setModel(model);
 		this.modelConnections_.add(model.columnsInserted().addListener(this,
@@ -443,6 +449,7 @@ public class WTreeView extends WAbstractItemView {
 					}
 				}));
 		this.expandedSet_.clear();
+		this.rowIndex_.clear();
 		while ((int) this.columns_.size() > model.getColumnCount()) {
 			if (this.columns_.get(this.columns_.size() - 1).styleRule != null)
 				this.columns_.get(this.columns_.size() - 1).styleRule.remove();
@@ -779,6 +786,7 @@ public class WTreeView extends WAbstractItemView {
 
 	private boolean skipNextMouseEvent_;
 	SortedSet<WModelIndex> expandedSet_;
+	private WTreeViewRowIndex rowIndex_;
 	private HashMap<WModelIndex, WTreeViewNode> renderedNodes_;
 	private boolean renderedNodesAdded_;
 	private WTreeViewNode rootNode_;
@@ -1086,6 +1094,7 @@ public class WTreeView extends WAbstractItemView {
 	private void modelRowsInserted(final WModelIndex parent, int start, int end) {
 		int count = end - start + 1;
 		this.shiftModelIndexes(parent, start, count);
+		this.rowIndex_.rowsChanged(parent);
 		if (this.renderState_ == WAbstractItemView.RenderState.NeedRerender
 				|| this.renderState_ == WAbstractItemView.RenderState.NeedRerenderData) {
 			return;
@@ -1319,6 +1328,7 @@ public class WTreeView extends WAbstractItemView {
 	}
 
 	private void modelRowsRemoved(final WModelIndex parent, int start, int end) {
+		this.rowIndex_.rowsChanged(parent);
 		if (this.renderState_ != WAbstractItemView.RenderState.NeedRerender
 				&& this.renderState_ != WAbstractItemView.RenderState.NeedRerenderData) {
 			this.renderedRowsChanged(this.firstRemovedRow_,
@@ -1362,6 +1372,7 @@ public class WTreeView extends WAbstractItemView {
 	void modelLayoutChanged() {
 		super.modelLayoutChanged();
 		this.expandedSet_ = WModelIndex.decodeFromRawIndexes(this.expandedSet_);
+		this.rowIndex_.clear();
 		this.renderedNodes_.clear();
 		this.pageChanged().trigger();
 	}
@@ -1472,6 +1483,12 @@ public class WTreeView extends WAbstractItemView {
 
 	void setCollapsed(final WModelIndex index) {
 		this.expandedSet_.remove(index);
+		this.rowIndex_.expandedChanged(index);
+	}
+
+	void markExpanded(final WModelIndex index) {
+		this.expandedSet_.add(index);
+		this.rowIndex_.expandedChanged(index);
 	}
 
 	private int getCalcOptimalFirstRenderedRow() {
@@ -1707,31 +1724,32 @@ public class WTreeView extends WAbstractItemView {
 			if (nodeRow + node.getChildrenHeight() > this.firstRenderedRow_
 					&& nodeRow < this.firstRenderedRow_ + this.validRowCount_) {
 				int childCount = this.getModel().getRowCount(index);
-				boolean firstNode = true;
-				int rowStubs = 0;
-				for (int i = 0; i < childCount; ++i) {
+				int i = this.rowIndex_.getChildAt(index,
+						Math.max(0, this.firstRenderedRow_ - nodeRow));
+				int rowStubs = this.rowIndex_.getRowsBefore(index, i);
+				nodeRow += rowStubs;
+				if (i < childCount) {
+					node.setTopSpacerHeight(rowStubs);
+					rowStubs = 0;
+				}
+				for (; i < childCount
+						&& nodeRow <= this.firstRenderedRow_
+								+ this.validRowCount_; ++i) {
 					WModelIndex childIndex = this.getModel().getIndex(i, 0,
 							index);
 					int childHeight = this.subTreeHeight(childIndex);
-					if (nodeRow <= this.firstRenderedRow_ + this.validRowCount_
-							&& nodeRow + childHeight > this.firstRenderedRow_) {
-						if (firstNode) {
-							firstNode = false;
-							node.setTopSpacerHeight(rowStubs);
-							rowStubs = 0;
-						}
-						WTreeViewNode n = new WTreeViewNode(this, childIndex,
-								childHeight - 1, i == childCount - 1, node);
-						node.getChildContainer().addWidget(n);
-						int nestedNodeRow = nodeRow;
-						nestedNodeRow = this.adjustRenderedNode(n,
-								nestedNodeRow);
-						assert nestedNodeRow == nodeRow + childHeight;
-					} else {
-						rowStubs += childHeight;
-					}
+					WTreeViewNode n = new WTreeViewNode(this, childIndex,
+							childHeight - 1, i == childCount - 1, node);
+					node.getChildContainer().addWidget(n);
+					int nestedNodeRow = nodeRow;
+					nestedNodeRow = this.adjustRenderedNode(n, nestedNodeRow);
+					assert nestedNodeRow == nodeRow + childHeight;
 					nodeRow += childHeight;
 				}
+				int remaining = this.rowIndex_.getChildrenHeight(index)
+						- this.rowIndex_.getRowsBefore(index, i);
+				rowStubs += remaining;
+				nodeRow += remaining;
 				node.setBottomSpacerHeight(rowStubs);
 			} else {
 				nodeRow += node.getChildrenHeight();
@@ -1829,25 +1847,11 @@ public class WTreeView extends WAbstractItemView {
 	}
 
 	int subTreeHeight(final WModelIndex index, int lowerBound, int upperBound) {
-		int result = 0;
-		if (!(index == this.getRootIndex() || (index != null && index
-				.equals(this.getRootIndex())))) {
-			++result;
-		}
-		if (result >= upperBound) {
-			return result;
-		}
-		if (this.getModel() != null && this.isExpanded(index)) {
-			int childCount = this.getModel().getRowCount(index);
-			for (int i = 0; i < childCount; ++i) {
-				WModelIndex childIndex = this.getModel().getIndex(i, 0, index);
-				result += this.subTreeHeight(childIndex, upperBound - result);
-				if (result >= upperBound) {
-					return result;
-				}
-			}
-		}
-		return result;
+		return this.rowIndex_.subTreeHeight(index);
+	}
+
+	int expandedChildrenHeight(final WModelIndex index) {
+		return this.rowIndex_.getChildrenHeight(index);
 	}
 
 	final int subTreeHeight(final WModelIndex index) {
@@ -1899,14 +1903,9 @@ public class WTreeView extends WAbstractItemView {
 			return 0;
 		} else {
 			WModelIndex parent = child.getParent();
-			int result = 0;
-			for (int r = 0; r < child.getRow(); ++r) {
-				result += this.subTreeHeight(
-						this.getModel().getIndex(r, 0, parent), 0, upperBound
-								- result);
-				if (result >= upperBound) {
-					return result;
-				}
+			int result = this.rowIndex_.getRowsBefore(parent, child.getRow());
+			if (result >= upperBound) {
+				return result;
 			}
 			return result
 					+ this.getIndexRow(parent, ancestor, lowerBound - result,
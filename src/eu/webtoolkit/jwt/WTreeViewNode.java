@@ -545,7 +545,7 @@ class WTreeViewNode extends WContainerWidget {
 		if (expandButton != null) {
 			expandButton.setState(1);
 		}
-		this.view_.expandedSet_.add(this.index_);
+		this.view_.markExpanded(this.index_);
 		this.getChildContainer().show();
 		if (this.getParentNode() != null) {
 			this.getParentNode().adjustChildrenHeight(this.childrenHeight_);
@@ -600,9 +600,8 @@ class WTreeViewNode extends WContainerWidget {
 	private void loadChildren() {
 		if (!this.childrenLoaded_) {
 			this.childrenLoaded_ = true;
-			this.view_.expandedSet_.add(this.index_);
-			this.childrenHeight_ = this.view_.subTreeHeight(this.index_) - 1;
-			this.view_.expandedSet_.remove(this.index_);
+			this.childrenHeight_ = this.view_
+					.expandedChildrenHeight(this.index_);
 			if (this.childrenHeight_ > 0) {
 				this.setTopSpacerHeight(this.childrenHeight_);
 			}
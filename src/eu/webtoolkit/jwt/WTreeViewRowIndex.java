@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.util.*;
+import java.util.regex.*;
+import java.io.*;
+import java.lang.ref.*;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.servlet.http.*;
+import javax.servlet.*;
+import eu.webtoolkit.jwt.*;
+import eu.webtoolkit.jwt.chart.*;
+import eu.webtoolkit.jwt.utils.*;
+import eu.webtoolkit.jwt.servlet.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the rows shown by a {@link WTreeView}.
+ * <p>
+ * For every node of which the children have been counted, the index keeps the
+ * subtree height (the number of rows, given the expanded state) of each child
+ * in a binary indexed tree. The row of a child within its parent, and the
+ * child at a row, are thus found in logarithmic time, instead of by visiting
+ * all preceding siblings and their expanded descendants.
+ * <p>
+ * The heights are maintained incrementally: when a node is expanded or
+ * collapsed, only the counts of its ancestors are updated, and when rows are
+ * inserted or removed, only the counts of their parent are rebuilt.
+ */
+class WTreeViewRowIndex {
+	private static Logger logger = LoggerFactory
+			.getLogger(WTreeViewRowIndex.class);
+
+	public WTreeViewRowIndex(WTreeView view) {
+		super();
+		this.view_ = view;
+		this.nodes_ = new HashMap<WModelIndex, WTreeViewRowIndex.Node>();
+	}
+
+	/**
+	 * Discards all counts.
+	 */
+	public void clear() {
+		this.nodes_.clear();
+	}
+
+	/**
+	 * Returns the number of rows of a node and its expanded descendants.
+	 * <p>
+	 * The root node itself does not occupy a row.
+	 */
+	public int subTreeHeight(final WModelIndex index) {
+		int result = this.isRoot(index) ? 0 : 1;
+		if (this.view_.getModel() != null && this.view_.isExpanded(index)) {
+			result += this.getNode(index).getTotal();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of rows of the children of a node, as if the node is
+	 * expanded.
+	 */
+	public int getChildrenHeight(final WModelIndex index) {
+		return this.getNode(index).getTotal();
+	}
+
+	/**
+	 * Returns the number of rows of the children of a node that precede a
+	 * child row.
+	 */
+	public int getRowsBefore(final WModelIndex parent, int row) {
+		return this.getNode(parent).getPrefix(row);
+	}
+
+	/**
+	 * Returns the child row which contains the given row, counted from the
+	 * first row of the children of a node.
+	 * <p>
+	 * Returns the number of children if <code>rows</code> is beyond the last
+	 * child.
+	 */
+	public int getChildAt(final WModelIndex parent, int rows) {
+		return this.getNode(parent).find(rows);
+	}
+
+	/**
+	 * Updates the counts after a node has been expanded or collapsed.
+	 */
+	public void expandedChanged(final WModelIndex index) {
+		if (this.isRoot(index) || !(index != null)) {
+			return;
+		}
+		WTreeViewRowIndex.Node p = this.nodes_.get(index.getParent());
+		if (p == null || index.getRow() >= p.getCount()) {
+			return;
+		}
+		this.propagate(index,
+				this.subTreeHeight(index) - p.getHeight(index.getRow()));
+	}
+
+	/**
+	 * Updates the counts after rows have been inserted in or removed from a
+	 * node.
+	 * <p>
+	 * This should be called after the expanded state of the shifted rows has
+	 * been updated.
+	 */
+	public void rowsChanged(final WModelIndex parent) {
+		for (Iterator<WModelIndex> i_it = this.nodes_.keySet().iterator(); i_it
+				.hasNext();) {
+			WModelIndex i = i_it.next();
+			if (i != null && WModelIndex.isAncestor(i, parent)) {
+				i_it.remove();
+			}
+		}
+		WTreeViewRowIndex.Node old = this.nodes_.remove(parent);
+		if (old == null || this.view_.getModel() == null) {
+			return;
+		}
+		int diff = this.getNode(parent).getTotal() - old.getTotal();
+		if (!this.isRoot(parent) && this.view_.isExpanded(parent)) {
+			this.propagate(parent, diff);
+		}
+	}
+
+	static class Node {
+		private static Logger logger = LoggerFactory.getLogger(Node.class);
+
+		public Node(int[] heights) {
+			this.count_ = heights.length;
+			this.tree_ = new int[this.count_ + 1];
+			this.total_ = 0;
+			for (int i = 1; i <= this.count_; ++i) {
+				this.tree_[i] += heights[i - 1];
+				this.total_ += heights[i - 1];
+				int j = i + (i & -i);
+				if (j <= this.count_) {
+					this.tree_[j] += this.tree_[i];
+				}
+			}
+		}
+
+		public int getCount() {
+			return this.count_;
+		}
+
+		public int getTotal() {
+			return this.total_;
+		}
+
+		public int getPrefix(int count) {
+			int result = 0;
+			for (int i = Math.min(count, this.count_); i > 0; i -= i & -i) {
+				result += this.tree_[i];
+			}
+			return result;
+		}
+
+		public int getHeight(int row) {
+			return this.getPrefix(row + 1) - this.getPrefix(row);
+		}
+
+		public void add(int row, int diff) {
+			for (int i = row + 1; i <= this.count_; i += i & -i) {
+				this.tree_[i] += diff;
+			}
+			this.total_ += diff;
+		}
+
+		public int find(int rows) {
+			int pos = 0;
+			for (int mask = Integer.highestOneBit(this.count_); mask != 0; mask >>= 1) {
+				int next = pos + mask;
+				if (next <= this.count_ && this.tree_[next] <= rows) {
+					pos = next;
+					rows -= this.tree_[next];
+				}
+			}
+			return pos;
+		}
+
+		private int count_;
+		private int[] tree_;
+		private int total_;
+	}
+
+	private WTreeView view_;
+	private Map<WModelIndex, WTreeViewRowIndex.Node> nodes_;
+
+	private boolean isRoot(final WModelIndex index) {
+		return index == this.view_.getRootIndex()
+				|| (index != null && index.equals(this.view_.getRootIndex()));
+	}
+
+	private WTreeViewRowIndex.Node getNode(final WModelIndex index) {
+		WTreeViewRowIndex.Node result = this.nodes_.get(index);
+		if (result == null) {
+			WAbstractItemModel model = this.view_.getModel();
+			int childCount = model.getRowCount(index);
+			int[] heights = new int[childCount];
+			Arrays.fill(heights, 1);
+			if (childCount > 0) {
+				for (Iterator<WModelIndex> i_it = this.view_.expandedSet_
+						.tailSet(model.getIndex(0, 0, index)).iterator(); i_it
+						.hasNext();) {
+					WModelIndex i = i_it.next();
+					WModelIndex p = i.getParent();
+					if (p == index || (p != null && p.equals(index))) {
+						if (i.getColumn() == 0 && i.getRow() < childCount) {
+							heights[i.getRow()] = this.subTreeHeight(i);
+						}
+					} else {
+						if (!WModelIndex.isAncestor(i, index)) {
+							break;
+						}
+					}
+				}
+			}
+			result = new WTreeViewRowIndex.Node(heights);
+			this.nodes_.put(index, result);
+		}
+		return result;
+	}
+
+	private void propagate(WModelIndex index, int diff) {
+		if (diff == 0) {
+			return;
+		}
+		for (WModelIndex child = index; !this.isRoot(child);) {
+			WModelIndex parent = child.getParent();
+			WTreeViewRowIndex.Node p = this.nodes_.get(parent);
+			if (p == null) {
+				return;
+			}
+			p.add(child.getRow(), diff);
+			if (!(parent != null) || this.isRoot(parent)
+					|| !this.view_.isExpanded(parent)) {
+				return;
+			}
+			child = parent;
+		}
+	}
+}
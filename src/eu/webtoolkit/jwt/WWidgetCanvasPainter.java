@@ -150,4 +150,29 @@ class WWidgetCanvasPainter extends WWidgetPainter {
 	public WWidgetPainter.RenderType getRenderType() {
 		return WWidgetPainter.RenderType.HtmlCanvas;
 	}
+
+	public boolean restoreContents(WPaintCache.Entry entry, WPaintDevice device) {
+		WCanvasPaintDevice canvasDevice = ((device) instanceof WCanvasPaintDevice ? (WCanvasPaintDevice) (device)
+				: null);
+		if (canvasDevice.getTextMethod() != WCanvasPaintDevice.TextMethod.Html5Text) {
+			return false;
+		}
+		canvasDevice.restorePaintCommands(entry.text, entry.images);
+		return true;
+	}
+
+	public void cacheContents(WPaintCache cache, String contentKey,
+			WPaintDevice device) {
+		WCanvasPaintDevice canvasDevice = ((device) instanceof WCanvasPaintDevice ? (WCanvasPaintDevice) (device)
+				: null);
+		if (canvasDevice.getTextMethod() != WCanvasPaintDevice.TextMethod.Html5Text) {
+			return;
+		}
+		cache.put(contentKey, this.widget_.renderWidth_,
+				this.widget_.renderHeight_,
+				WWidgetPainter.RenderType.HtmlCanvas,
+				canvasDevice.getPaintCommands(),
+				new ArrayList<String>(canvasDevice.getImages()), (byte[]) null,
+				(String) null);
+	}
 }
@@ -45,6 +45,12 @@ abstract class WWidgetPainter {
 
 	public abstract WWidgetPainter.RenderType getRenderType();
 
+	public abstract boolean restoreContents(WPaintCache.Entry entry,
+			WPaintDevice device);
+
+	public abstract void cacheContents(WPaintCache cache, String contentKey,
+			WPaintDevice device);
+
 	protected WWidgetPainter(WPaintedWidget widget) {
 		this.widget_ = widget;
 	}
@@ -26,6 +26,7 @@ class WWidgetRasterPainter extends WWidgetPainter {
 	public WWidgetRasterPainter(WPaintedWidget widget) {
 		super(widget);
 		this.device_ = null;
+		this.cachedUrl_ = null;
 	}
 
 	public WRasterPaintDevice createPaintDevice(boolean paintUpdate) {
@@ -35,8 +36,15 @@ class WWidgetRasterPainter extends WWidgetPainter {
 	}
 
 	public WPaintDevice getPaintDevice(boolean paintUpdate) {
+		if (this.cachedUrl_ != null && this.widget_.getPaintCache() != null) {
+			this.widget_.getPaintCache().setFallback(this.device_,
+					(WPaintCache.Entry) null);
+		}
+		this.cachedUrl_ = null;
 		if (!(this.device_ != null) || this.widget_.sizeChanged_) {
-			;
+			if (this.device_ != null) {
+				this.device_.remove();
+			}
 			this.device_ = this.createPaintDevice(paintUpdate);
 		}
 		if (!paintUpdate) {
@@ -58,7 +66,8 @@ class WWidgetRasterPainter extends WWidgetPainter {
 		img.setAttribute("onmousedown", "return false;");
 		WResource resource = ((device) instanceof WResource ? (WResource) (device)
 				: null);
-		img.setAttribute("src", resource.generateUrl());
+		img.setAttribute("src", this.cachedUrl_ != null ? this.cachedUrl_
+				: resource.generateUrl());
 		result.addChild(img);
 	}
 
@@ -74,7 +83,8 @@ class WWidgetRasterPainter extends WWidgetPainter {
 					String.valueOf(this.widget_.renderHeight_));
 			this.widget_.sizeChanged_ = false;
 		}
-		img.setAttribute("src", resource.generateUrl());
+		img.setAttribute("src", this.cachedUrl_ != null ? this.cachedUrl_
+				: resource.generateUrl());
 		result.add(img);
 	}
 
@@ -82,5 +92,34 @@ class WWidgetRasterPainter extends WWidgetPainter {
 		return WWidgetPainter.RenderType.PngImage;
 	}
 
+	public boolean restoreContents(WPaintCache.Entry entry, WPaintDevice device) {
+		WRasterPaintDevice rasterDevice = ((device) instanceof WRasterPaintDevice ? (WRasterPaintDevice) (device)
+				: null);
+		rasterDevice.setEncodedData(entry.data);
+		this.cachedUrl_ = this.widget_.getPaintCache().getEntryUrl(entry);
+		if (this.cachedUrl_ != null) {
+			this.widget_.getPaintCache().setFallback(rasterDevice, entry);
+		}
+		return true;
+	}
+
+	public void cacheContents(WPaintCache cache, String contentKey,
+			WPaintDevice device) {
+		WRasterPaintDevice rasterDevice = ((device) instanceof WRasterPaintDevice ? (WRasterPaintDevice) (device)
+				: null);
+		byte[] data = rasterDevice.getEncodedData();
+		if (data != null) {
+			WPaintCache.Entry entry = cache.put(contentKey,
+					this.widget_.renderWidth_, this.widget_.renderHeight_,
+					WWidgetPainter.RenderType.PngImage, (String) null,
+					(List<String>) null, data, "image/png");
+			this.cachedUrl_ = cache.getEntryUrl(entry);
+			if (this.cachedUrl_ != null) {
+				cache.setFallback(rasterDevice, entry);
+			}
+		}
+	}
+
 	private WRasterPaintDevice device_;
+	private String cachedUrl_;
 }
@@ -83,5 +83,28 @@ class WWidgetVectorPainter extends WWidgetPainter {
 		return this.renderType_;
 	}
 
+	public boolean restoreContents(WPaintCache.Entry entry, WPaintDevice device) {
+		WSvgImage svgDevice = ((device) instanceof WSvgImage ? (WSvgImage) (device)
+				: null);
+		if (svgDevice != null) {
+			svgDevice.setRendered(entry.text);
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	public void cacheContents(WPaintCache cache, String contentKey,
+			WPaintDevice device) {
+		WSvgImage svgDevice = ((device) instanceof WSvgImage ? (WSvgImage) (device)
+				: null);
+		if (svgDevice != null) {
+			cache.put(contentKey, this.widget_.renderWidth_,
+					this.widget_.renderHeight_, this.renderType_,
+					svgDevice.getRendered(), (List<String>) null, (byte[]) null,
+					"image/svg+xml");
+		}
+	}
+
 	private WWidgetPainter.RenderType renderType_;
 }
@@ -602,6 +602,7 @@ class WebRenderer implements SlotLearnerInterface {
 					this.collectedJS1_.append("var domRoot=")
 							.append(app.domRoot_.getJsRef()).append(';')
 							.append("Wt3_3_5.progressed(domRoot);");
+					app.bundleJavaScriptPreamble(false);
 					int librariesLoaded = this.loadScriptLibraries(
 							this.collectedJS1_, app);
 					app.streamBeforeLoadJavaScript(this.collectedJS1_, false);
@@ -782,6 +783,9 @@ class WebRenderer implements SlotLearnerInterface {
 		page.setVar("TITLE", WWebWidget.escapeText(app.getTitle()).toString());
 		app.titleChanged_ = false;
 		String contentType = "text/html; charset=UTF-8";
+		boolean cacheable = !hybridPage
+				&& app.getEnvironment().agentIsSpiderBot()
+				&& app.isPageCacheable() && this.cookiesToSet_.isEmpty();
 		this.setCaching(response, false);
 		response.addHeader("X-Frame-Options", "SAMEORIGIN");
 		this.setHeaders(response, contentType);
@@ -820,7 +824,12 @@ class WebRenderer implements SlotLearnerInterface {
 		page.setVar("REFRESH", String.valueOf(refresh));
 		page.stream(out);
 		app.internalPathIsChanged_ = false;
-		response.out().append(out.toString());
+		String html = out.toString();
+		response.out().append(html);
+		if (cacheable) {
+			this.session_.getController().getPageCache()
+					.store(WebSession.Handler.getInstance().getRequest(), html);
+		}
 	}
 
 	private void serveMainAjax(final StringBuilder out) {
@@ -833,6 +842,7 @@ class WebRenderer implements SlotLearnerInterface {
 		app.loadingIndicatorWidget_.show();
 		DomElement mainElement = mainWebWidget.createSDomElement(app);
 		app.loadingIndicatorWidget_.hide();
+		app.bundleJavaScriptPreamble(true);
 		app.scriptLibrariesAdded_ = app.scriptLibraries_.size();
 		int librariesLoaded = this.loadScriptLibraries(out, app);
 		out.append(app.getJavaScriptClass())
@@ -1407,7 +1417,7 @@ class WebRenderer implements SlotLearnerInterface {
 			if (app.domRoot2_ != null) {
 				this.addContainerWidgets(app.domRoot2_, widgets);
 			}
-			int r = MathUtils.randomInt() % widgets.size();
+			int r = MathUtils.randomInt(widgets.size());
 			WContainerWidget wc = widgets.get(r);
 			puzzle = '"' + wc.getId() + '"';
 			String l = "";
@@ -1616,12 +1626,26 @@ class WebRenderer implements SlotLearnerInterface {
 		if (slot.isInvalidated()) {
 			return "";
 		}
+		StatelessSlotCache cache = null;
 		if (slot.getType() == SlotType.PreLearnStateless) {
+			WtServlet controller = this.session_.getController();
+			if (controller.getConfiguration().isStatelessSlotCache()) {
+				cache = controller.getStatelessSlotCache();
+				String cached = cache.lookup(this.session_.getApp(), slot);
+				if (cached != null) {
+					logger.debug(new StringWriter().append("cached: ")
+							.append(cached).toString());
+					slot.setJavaScript(cached);
+					return cached;
+				}
+			}
 			this.learning_ = true;
 		}
 		this.learningIncomplete_ = false;
 		this.currentStatelessSlotIsActuallyStateless_ = true;
 		slot.trigger();
+		List<WWidget> updated = cache != null ? new ArrayList<WWidget>(
+				this.updateMap_) : null;
 		StringBuilder js = new StringBuilder();
 		this.collectJS(js);
 		String result = js.toString();
@@ -1637,6 +1661,9 @@ class WebRenderer implements SlotLearnerInterface {
 		if (this.currentStatelessSlotIsActuallyStateless_
 				&& !this.learningIncomplete_) {
 			slot.setJavaScript(result);
+			if (cache != null) {
+				cache.store(this.session_.getApp(), slot, updated, result);
+			}
 		} else {
 			if (!this.currentStatelessSlotIsActuallyStateless_) {
 				slot.invalidate();
@@ -10,6 +10,12 @@ import java.util.regex.*;
 import java.io.*;
 import java.lang.ref.*;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.http.*;
 import javax.servlet.*;
 import eu.webtoolkit.jwt.*;
@@ -59,6 +65,7 @@ class WebSession {
 		this.redirect_ = "";
 		this.pagePathInfo_ = "";
 		this.asyncResponse_ = null;
+		this.asyncResponseStart_ = 0;
 		this.webSocket_ = null;
 		this.bootStyleResponse_ = null;
 		this.canWriteWebSocket_ = false;
@@ -73,6 +80,13 @@ class WebSession {
 		this.updatesPendingEvent_ = this.mutex_.newCondition();
 		this.updatesPending_ = false;
 		this.triggerUpdate_ = false;
+		this.pushInterval_ = this.controller_.getConfiguration()
+				.getPushInterval();
+		this.lastPushTime_ = 0;
+		this.pushScheduled_ = false;
+		this.waitingRequests_ = new AtomicInteger();
+		this.pushCount_ = new AtomicLong();
+		this.coalescedUpdateCount_ = new AtomicLong();
 		this.embeddedEnv_ = new WEnvironment(this);
 		this.app_ = null;
 		this.debug_ = this.controller_.getConfiguration().debug();
@@ -113,6 +127,8 @@ class WebSession {
 		if (this.asyncResponse_ != null) {
 			this.asyncResponse_.flush();
 			this.asyncResponse_ = null;
+			this.controller_.getMetrics().record(ServerMetrics.Phase.PushWait,
+					this.asyncResponseStart_);
 		}
 		if (this.deferredResponse_ != null) {
 			this.deferredResponse_.flush();
@@ -222,7 +238,10 @@ class WebSession {
 	public void notify(final WEvent event) throws IOException {
 		if (event.impl_.response != null) {
 			try {
+				long renderStart = this.controller_.getMetrics().startTimer();
 				this.renderer_.serveResponse(event.impl_.response);
+				this.controller_.getMetrics().record(
+						ServerMetrics.Phase.Render, renderStart);
 			} catch (final RuntimeException e) {
 				logger.error(new StringWriter()
 						.append("Exception in WApplication::notify()")
@@ -350,8 +369,9 @@ class WebSession {
 				this.render(handler);
 			} else {
 				try {
-					if (0L != 0) {
-						this.app_.requestTooLarge().trigger(0L);
+					if (request.postDataExceeded() != 0) {
+						this.app_.requestTooLarge().trigger(
+								request.postDataExceeded());
 					}
 				} catch (final RuntimeException e) {
 					logger.error(new StringWriter()
@@ -444,6 +464,9 @@ class WebSession {
 						if (this.asyncResponse_ != null) {
 							this.asyncResponse_.flush();
 							this.asyncResponse_ = null;
+							this.controller_.getMetrics().record(
+									ServerMetrics.Phase.PushWait,
+									this.asyncResponseStart_);
 						}
 						if (signalE.equals("poll")) {
 							if (!WtServlet.isAsyncSupported()) {
@@ -475,6 +498,8 @@ class WebSession {
 									}
 									this.pollRequestsIgnored_ = 0;
 									this.asyncResponse_ = handler.getResponse();
+									this.asyncResponseStart_ = this.controller_
+											.getMetrics().startTimer();
 									handler.setRequest((WebRequest) null,
 											(WebResponse) null);
 								} else {
@@ -499,7 +524,12 @@ class WebSession {
 									.append(signalE).toString());
 							try {
 								handler.nextSignal = -1;
+								long dispatchStart = this.controller_
+										.getMetrics().startTimer();
 								this.notifySignal(event);
+								this.controller_.getMetrics().record(
+										ServerMetrics.Phase.EventDispatch,
+										dispatchStart);
 							} catch (final RuntimeException e) {
 								logger.error(new StringWriter()
 										.append("error during event handling: ")
@@ -627,6 +657,35 @@ class WebSession {
 		this.triggerUpdate_ = update;
 	}
 
+	/**
+	 * Sets the minimum time between two pushed updates (in milliseconds).
+	 * <p>
+	 * Updates that are triggered within this interval after a push are
+	 * coalesced into a single push at the end of the interval.
+	 */
+	public void setPushInterval(int milliseconds) {
+		this.pushInterval_ = Math.max(0, milliseconds);
+	}
+
+	public int getPushInterval() {
+		return this.pushInterval_;
+	}
+
+	/**
+	 * Returns the number of updates that have been pushed to the client.
+	 */
+	public long getPushCount() {
+		return this.pushCount_.get();
+	}
+
+	/**
+	 * Returns the number of triggered updates that were not pushed right away,
+	 * but merged into a later push or response.
+	 */
+	public long getCoalescedUpdateCount() {
+		return this.coalescedUpdateCount_.get();
+	}
+
 	public void expire() {
 		this.kill();
 	}
@@ -1076,7 +1135,15 @@ class WebSession {
 			this.request_ = request;
 			this.response_ = response;
 			this.killed_ = false;
-			session.getMutex().lock();
+			long lockStart = session.getController().getMetrics().startTimer();
+			session.waitingRequests_.incrementAndGet();
+			try {
+				session.getMutex().lock();
+			} finally {
+				session.waitingRequests_.decrementAndGet();
+			}
+			session.getController().getMetrics()
+					.record(ServerMetrics.Phase.SessionLockWait, lockStart);
 			this.init();
 		}
 
@@ -1118,7 +1185,7 @@ class WebSession {
 			if (this.isHaveLock()) {
 				this.session_.processQueuedEvents(this);
 				if (this.session_.triggerUpdate_) {
-					this.session_.pushUpdates();
+					this.session_.schedulePush();
 				}
 				this.session_.getMutex().unlock();
 			}
@@ -1138,7 +1205,11 @@ class WebSession {
 
 		public void flushResponse() {
 			if (this.response_ != null) {
+				ServerMetrics metrics = this.session_.getController()
+						.getMetrics();
+				long writeStart = metrics.startTimer();
 				this.response_.flush();
+				metrics.record(ServerMetrics.Phase.ResponseWrite, writeStart);
 				this.setRequest((WebRequest) null, (WebResponse) null);
 			}
 		}
@@ -1626,6 +1697,19 @@ class WebSession {
 		this.eventQueueMutex_.unlock();
 	}
 
+	int getQueuedEventCount() {
+		this.eventQueueMutex_.lock();
+		try {
+			return this.eventQueue_.size();
+		} finally {
+			this.eventQueueMutex_.unlock();
+		}
+	}
+
+	boolean hasAsyncResponse() {
+		return this.asyncResponse_ != null;
+	}
+
 	private void handleWebSocketRequest(final WebSession.Handler handler) {
 	}
 
@@ -1688,6 +1772,7 @@ class WebSession {
 	private String redirect_;
 	String pagePathInfo_;
 	private WebResponse asyncResponse_;
+	private long asyncResponseStart_;
 	private WebResponse webSocket_;
 	private WebResponse bootStyleResponse_;
 	private boolean canWriteWebSocket_;
@@ -1703,6 +1788,12 @@ class WebSession {
 	private java.util.concurrent.locks.Condition updatesPendingEvent_;
 	private boolean updatesPending_;
 	private boolean triggerUpdate_;
+	private int pushInterval_;
+	private long lastPushTime_;
+	private volatile boolean pushScheduled_;
+	private AtomicInteger waitingRequests_;
+	private AtomicLong pushCount_;
+	private AtomicLong coalescedUpdateCount_;
 	private WEnvironment embeddedEnv_;
 	private WEnvironment env_;
 	private WApplication app_;
@@ -1711,10 +1802,97 @@ class WebSession {
 	private List<WObject> emitStack_;
 	private WebSession.Handler recursiveEventHandler_;
 
+	private void schedulePush() {
+		if (this.waitingRequests_.get() > 0) {
+			this.coalescedUpdateCount_.incrementAndGet();
+			return;
+		}
+		long delay = 0;
+		if (this.pushInterval_ > 0 && this.pushCount_.get() > 0) {
+			delay = this.lastPushTime_ + this.pushInterval_
+					- currentTimeMillis();
+		}
+		if (delay <= 0) {
+			this.pushUpdates();
+		} else {
+			this.coalescedUpdateCount_.incrementAndGet();
+			if (!this.pushScheduled_) {
+				this.pushScheduled_ = true;
+				getPushScheduler().schedule(new PushTask(this), delay,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	static class PushTask implements Runnable {
+		private static Logger logger = LoggerFactory.getLogger(PushTask.class);
+
+		public PushTask(WebSession session) {
+			this.session_ = session;
+		}
+
+		public void run() {
+			WebSession session = this.session_;
+			if (!session.pushScheduled_ || session.isDead()) {
+				return;
+			}
+			WebSession.Handler handler = new WebSession.Handler(session,
+					WebSession.Handler.LockOption.TryLock);
+			try {
+				if (handler.isHaveLock()) {
+					session.pushScheduled_ = false;
+				} else {
+					getPushScheduler().schedule(this,
+							Math.max(1, session.pushInterval_),
+							TimeUnit.MILLISECONDS);
+				}
+			} finally {
+				handler.release();
+			}
+		}
+
+		private WebSession session_;
+	}
+
+	private static ScheduledThreadPoolExecutor pushScheduler_;
+
+	private static synchronized ScheduledExecutorService getPushScheduler() {
+		if (pushScheduler_ == null) {
+			pushScheduler_ = new ScheduledThreadPoolExecutor(1,
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "jwt-push-scheduler");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			pushScheduler_
+					.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		}
+		return pushScheduler_;
+	}
+
+	/*
+	 * Stops the push scheduler thread, so that it does not keep the classes of
+	 * an undeployed application loaded. Pushes that are still scheduled are
+	 * dropped. A new scheduler is started when a session needs it again.
+	 */
+	static synchronized void shutdownPushScheduler() {
+		if (pushScheduler_ != null) {
+			pushScheduler_.shutdown();
+			pushScheduler_ = null;
+		}
+	}
+
+	private static long currentTimeMillis() {
+		return System.nanoTime() / 1000000;
+	}
+
 	private void pushUpdates() {
 		try {
 			logger.debug(new StringWriter().append("pushUpdates()").toString());
 			this.triggerUpdate_ = false;
+			this.pushScheduled_ = false;
 			if (!(this.app_ != null) || !this.renderer_.isDirty()) {
 				logger.debug(new StringWriter().append(
 						"pushUpdates(): nothing to do").toString());
@@ -1727,8 +1905,15 @@ class WebSession {
 				this.app_.notify(new WEvent(
 						new WEvent.Impl(this.asyncResponse_)));
 				this.updatesPending_ = false;
+				long writeStart = this.controller_.getMetrics().startTimer();
 				this.asyncResponse_.flush();
 				this.asyncResponse_ = null;
+				this.controller_.getMetrics().record(
+						ServerMetrics.Phase.ResponseWrite, writeStart);
+				this.controller_.getMetrics().record(
+						ServerMetrics.Phase.PushWait, this.asyncResponseStart_);
+				this.pushCount_.incrementAndGet();
+				this.lastPushTime_ = currentTimeMillis();
 			} else {
 				if (this.webSocket_ != null && this.webSocketConnected_) {
 					if (this.webSocket_.isWebSocketMessagePending()) {
@@ -1839,7 +2024,10 @@ class WebSession {
 				}
 				this.mutex_.lock();
 			}
+			long renderStart = this.controller_.getMetrics().startTimer();
 			this.renderer_.serveResponse(handler.getResponse());
+			this.controller_.getMetrics().record(ServerMetrics.Phase.Render,
+					renderStart);
 		}
 		handler.flushResponse();
 	}
@@ -1968,7 +2156,7 @@ class WebSession {
 							WebSession.SignalKind kind = WebSession.SignalKind
 									.values()[k];
 							if (kind == WebSession.SignalKind.AutoLearnStateless
-									&& 0L != 0) {
+									&& request.postDataExceeded() != 0) {
 								break;
 							}
 							AbstractEventSignal s;
@@ -2026,10 +2214,10 @@ class WebSession {
 			Map.Entry<String, WObject> i = i_it.next();
 			String formName = i.getKey();
 			WObject obj = i.getValue();
-			if (!(0L != 0)) {
+			if (!(request.postDataExceeded() != 0)) {
 				obj.setFormData(getFormData(request, se + formName));
 			} else {
-				obj.setRequestTooLarge(0L);
+				obj.setRequestTooLarge(request.postDataExceeded());
 			}
 		}
 	}
@@ -10,14 +10,17 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -82,16 +85,22 @@ public abstract class WtServlet extends HttpServlet {
 
 	private Configuration configuration;
 	private ProgressListener progressListener;
-	private Set<String> uploadProgressUrls_ = new HashSet<String>();
+	private Map<String, Boolean> uploadProgressUrls_ = new ConcurrentHashMap<String, Boolean>();
 	private int ajaxSessions = 0;
 	private Map<String,WebSession> sessions = new HashMap<String,WebSession>();
 
 	private String redirectSecret_;
 
-	private static final String WT_WEBSESSION_ID = "wt-websession";
+	static final String WT_WEBSESSION_ID = "wt-websession";
 	private static final Map<String, String> mimeTypes = new HashMap<String, String>();
 	
 	private List<WResource> staticResources = new ArrayList<WResource>();
+	private JavaScriptBundles javaScriptBundles = new JavaScriptBundles();
+	private StatelessSlotCache statelessSlotCache = new StatelessSlotCache();
+	private PageCache pageCache = new PageCache(this);
+	private ServerMetrics metrics = new ServerMetrics(this);
+	private SessionFootprintSampler footprintSampler = new SessionFootprintSampler(this);
+	private List<ObjectName> mbeanNames = new ArrayList<ObjectName>();
 
 	static final String Boot_html;
 	static final String Plain_html;
@@ -178,9 +187,41 @@ public abstract class WtServlet extends HttpServlet {
 			this.configuration = new Configuration(new File(configFile));
 		
 		servletApi = ServletInit.getInstance(config.getServletContext()).getServletApi();
+
+		registerMBeans();
+
+		if (configuration.getSessionFootprintSampling() > 0)
+			footprintSampler.setSamplingInterval(configuration.getSessionFootprintSampling());
+	}
+
+	/**
+	 * Destroys the servlet.
+	 * 
+	 * If you want to override this function, make sure to call the super function,
+	 * to ensure the metrics MBeans are unregistered, footprint sampling is
+	 * stopped and the background threads of {@link WSqlQueryModel} and of
+	 * server push are stopped.
+	 */
+	@Override
+	public void destroy() {
+		footprintSampler.stop();
+		unregisterMBeans();
+		WSqlQueryModel.shutdownPrefetchService();
+		WebSession.shutdownPushScheduler();
+
+		super.destroy();
 	}
 
 	void handleRequest(final HttpServletRequest request, final HttpServletResponse response) {
+		try {
+			if (javaScriptBundles.handleRequest(request, response))
+				return;
+		} catch (IOException e) {
+			response.setStatus(500);
+			e.printStackTrace();
+			return;
+		}
+
 		String pathInfo = WebRequest.computePathInfo(request, configuration);
 		String resourcePath = configuration.getProperty(WApplication.RESOURCES_URL);
 		
@@ -250,7 +291,9 @@ public abstract class WtServlet extends HttpServlet {
 			return;
 		}
 
+		long parseStart = metrics.startTimer();
 		WebRequest webRequest = new WebRequest(request, progressListener, configuration);
+		metrics.record(ServerMetrics.Phase.RequestParse, parseStart);
 		WebResponse webResponse = new WebResponse(response, webRequest);
 
 		servletApi.doHandleRequest(this, webRequest, webResponse);
@@ -330,10 +373,17 @@ public abstract class WtServlet extends HttpServlet {
 			removeSession(session);
 	}
 
+	synchronized List<WebSession> getSessions() {
+		return new ArrayList<WebSession>(sessions.values());
+	}
+
 	/*
 	 * Actual request handling, may be within an async call depending on the servlet API.
 	 */
 	void doHandleRequest(WebRequest request, WebResponse response) {		
+		if (pageCache.handleRequest(request, response))
+			return;
+
 		HttpSession jsession = request.getSession();
 		BoundSession bsession = (BoundSession) jsession.getAttribute(WtServlet.WT_WEBSESSION_ID);
 		WebSession wsession = null;
@@ -385,30 +435,17 @@ public abstract class WtServlet extends HttpServlet {
 	}
 	
 	void addUploadProgressUrl(String url) {
-		synchronized (uploadProgressUrls_) {
-			uploadProgressUrls_.add(url.substring(url.indexOf('?') + 1));
-		}
+		uploadProgressUrls_.put(url.substring(url.indexOf('?') + 1), Boolean.TRUE);
 	}
 
 	void removeUploadProgressUrl(String url) {
-		synchronized (uploadProgressUrls_) {
-			uploadProgressUrls_.remove(url.substring(url.indexOf('?') + 1));
-		}
+		uploadProgressUrls_.remove(url.substring(url.indexOf('?') + 1));
 	}
 	
 	boolean requestDataReceived(WebRequest request, long current, long total) {
-		boolean found = false;
-
-		synchronized (uploadProgressUrls_) {
-			for (String url : uploadProgressUrls_) {
-				if (url.equals(request.getQueryString())) {
-					found = true;
-					break;
-				}
-			}
-		}
+		String queryString = request.getQueryString();
 
-		if (found) {
+		if (queryString != null && uploadProgressUrls_.containsKey(queryString)) {
 			HttpSession jsession = request.getSession();
 			BoundSession bsession = (BoundSession) jsession.getAttribute(WtServlet.WT_WEBSESSION_ID);
 			WebSession wsession = null;
@@ -567,6 +604,94 @@ public abstract class WtServlet extends HttpServlet {
 		staticResources.add(staticResource);
 	}
 	
+	JavaScriptBundles getJavaScriptBundles() {
+		return javaScriptBundles;
+	}
+
+	StatelessSlotCache getStatelessSlotCache() {
+		return statelessSlotCache;
+	}
+
+	PageCache getPageCache() {
+		return pageCache;
+	}
+
+	/**
+	 * Returns the vary key of a request for the page cache.
+	 * <p>
+	 * A page is only served from the page cache (see
+	 * {@link Configuration#setPageCacheSize(int)}) to a request with the same
+	 * URL, locale and vary key as the request for which it was rendered. You may
+	 * want to override this method if pages depend on other properties of the
+	 * request, such as the host name or a header. If this method returns
+	 * <code>null</code>, the page cache is not used for the request.
+	 * <p>
+	 * The default implementation returns an empty string.
+	 * 
+	 * @param request the request.
+	 * @return the vary key, or <code>null</code>.
+	 */
+	protected String getPageCacheVaryKey(HttpServletRequest request) {
+		return "";
+	}
+
+	/**
+	 * Returns the latency and load metrics.
+	 * 
+	 * @return the metrics.
+	 */
+	public ServerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the sampler of the memory footprint of sessions.
+	 * 
+	 * @return the footprint sampler.
+	 * @see Configuration#setSessionFootprintSampling(int)
+	 */
+	public SessionFootprintSampler getFootprintSampler() {
+		return footprintSampler;
+	}
+
+	private void registerMBeans() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		String context = ",context=" + ObjectName.quote(getServletContext().getContextPath())
+				+ ",name=" + ObjectName.quote(getServletName());
+
+		try {
+			ObjectName name = new ObjectName("eu.webtoolkit.jwt:type=ServerMetrics" + context);
+			server.registerMBean(metrics, name);
+			mbeanNames.add(name);
+
+			for (ServerMetrics.Phase phase : ServerMetrics.Phase.values()) {
+				name = new ObjectName("eu.webtoolkit.jwt:type=RequestPhase" + context + ",phase=" + phase);
+				server.registerMBean(metrics.getHistogram(phase), name);
+				mbeanNames.add(name);
+			}
+
+			name = new ObjectName("eu.webtoolkit.jwt:type=SessionFootprintSampler" + context);
+			server.registerMBean(footprintSampler, name);
+			mbeanNames.add(name);
+		} catch (Exception e) {
+			logger.warn("Could not register metrics MBeans: " + e.toString());
+		}
+	}
+
+	private void unregisterMBeans() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		for (ObjectName name : mbeanNames) {
+			try {
+				server.unregisterMBean(name);
+			} catch (Exception e) {
+				logger.warn("Could not unregister MBean " + name + ": " + e.toString());
+			}
+		}
+
+		mbeanNames.clear();
+	}
+
 	public static WtServlet getInstance() {
 		return instance;
 	}
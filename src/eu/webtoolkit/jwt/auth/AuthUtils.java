@@ -1,15 +1,15 @@
 package eu.webtoolkit.jwt.auth;
 
 import java.io.IOException;
-import java.security.SecureRandom;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.entity.StringEntity;
 
+import eu.webtoolkit.jwt.utils.MathUtils;
+
 class AuthUtils {
 	static void parseFormUrlEncoded(HttpMessage response, Map<String, String[]> parameters) {
 		try {
@@ -35,9 +35,8 @@ class AuthUtils {
 	}
 	
 	static String createSalt(int length) {
-		Random r = new SecureRandom();
 		byte[] salt = new byte[length];
-		r.nextBytes(salt);
+		MathUtils.randomBytes(salt);
 		return new String(salt);
 	}
 }
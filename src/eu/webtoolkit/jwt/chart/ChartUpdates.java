@@ -34,7 +34,11 @@ public enum ChartUpdates {
 	/**
 	 * GL textures.
 	 */
-	GLTextures;
+	GLTextures,
+	/**
+	 * GL data (the model data changed).
+	 */
+	GLData;
 
 	/**
 	 * Returns the numerical representation of this enum.
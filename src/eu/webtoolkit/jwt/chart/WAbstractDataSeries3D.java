@@ -189,10 +189,11 @@ public abstract class WAbstractDataSeries3D extends WObject {
 				this.connections_.add(this.model_.dataChanged().addListener(
 						this.chart_, new Signal.Listener() {
 							public void trigger() {
+								WAbstractDataSeries3D.this.rangeCached_ = false;
 								WAbstractDataSeries3D.this.chart_
 										.updateChart(EnumSet.of(
 												ChartUpdates.GLTextures,
-												ChartUpdates.GLContext));
+												ChartUpdates.GLData));
 							}
 						}));
 				this.connections_.add(this.model_.rowsInserted().addListener(
@@ -557,10 +558,11 @@ public abstract class WAbstractDataSeries3D extends WObject {
 			this.connections_.add(this.model_.dataChanged().addListener(
 					this.chart_, new Signal.Listener() {
 						public void trigger() {
+							WAbstractDataSeries3D.this.rangeCached_ = false;
 							WAbstractDataSeries3D.this.chart_
 									.updateChart(EnumSet.of(
 											ChartUpdates.GLTextures,
-											ChartUpdates.GLContext));
+											ChartUpdates.GLData));
 						}
 					}));
 			this.connections_.add(this.model_.rowsInserted().addListener(
@@ -635,6 +637,18 @@ public abstract class WAbstractDataSeries3D extends WObject {
 	 */
 	public abstract void updateGL();
 
+	/**
+	 * Update GL resources after a change of the model data.
+	 * <p>
+	 * This function is called by the chart to which this dataseries was added,
+	 * when only the model data changed. It returns whether the GL resources
+	 * could be updated in place. If not, all GL resources are recreated, as
+	 * with {@link WAbstractDataSeries3D#updateGL() updateGL()}.
+	 */
+	boolean updateGLData() {
+		return false;
+	}
+
 	/**
 	 * Act on resize events.
 	 * <p>
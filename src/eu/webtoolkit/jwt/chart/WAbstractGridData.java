@@ -87,6 +87,8 @@ public abstract class WAbstractGridData extends WAbstractDataSeries3D {
 		this.colormapTexBuffers_ = new ArrayList<WGLWidget.Buffer>();
 		this.isoLineBuffers_ = new ArrayList<WGLWidget.Buffer>();
 		this.binaryResources_ = new ArrayList<WMemoryResource>();
+		this.surfaceData_ = null;
+		this.surfaceDataLayout_ = null;
 		this.fragShader_ = new WGLWidget.Shader();
 		this.colFragShader_ = new WGLWidget.Shader();
 		this.meshFragShader_ = new WGLWidget.Shader();
@@ -1354,6 +1356,72 @@ public abstract class WAbstractGridData extends WAbstractDataSeries3D {
 		;
 	}
 
+	/**
+	 * Updates the vertex buffers after a change of the model data.
+	 * <p>
+	 * For a surface series, the vertex data that was last sent to the client
+	 * is kept. When the data changes, but not the grid size nor the axis
+	 * ranges (which would affect all vertices), only the range of vertices that actually changed within each
+	 * buffer is sent, using a binary bufferSubData() call, instead of
+	 * reinitializing all GL resources. The iso lines are recomputed.
+	 * <p>
+	 * Returns <code>false</code> if the buffers cannot be updated in place.
+	 */
+	boolean updateGLData() {
+		if (this.seriesType_ != Series3DType.SurfaceSeries3D
+				|| this.chart_.getType() != ChartType.ScatterPlot
+				|| this.surfaceData_ == null
+				|| this.surfaceData_.size() != this.vertexPosBuffers_.size()
+				|| !java.util.Arrays.equals(this.surfaceDataLayout_,
+						this.getSurfaceDataLayout())) {
+			return false;
+		}
+		List<java.nio.ByteBuffer> simplePtsArrays = new ArrayList<java.nio.ByteBuffer>();
+		for (int i = 0; i < this.surfaceData_.size(); i++) {
+			simplePtsArrays.add(WebGLUtils.newByteBuffer(this.surfaceData_
+					.get(i).capacity()));
+		}
+		this.surfaceDataFromModel(simplePtsArrays);
+		for (int i = 0; i < simplePtsArrays.size(); i++) {
+			java.nio.ByteBuffer oldData = this.surfaceData_.get(i);
+			java.nio.ByteBuffer newData = simplePtsArrays.get(i);
+			int first = 0;
+			int last = newData.capacity() / 4;
+			while (first < last
+					&& newData.getInt(4 * first) == oldData.getInt(4 * first)) {
+				++first;
+			}
+			if (first == last) {
+				continue;
+			}
+			while (newData.getInt(4 * (last - 1)) == oldData
+					.getInt(4 * (last - 1))) {
+				--last;
+			}
+			java.nio.ByteBuffer delta = WebGLUtils
+					.newByteBuffer(4 * (last - first));
+			System.arraycopy(newData.array(), 4 * first, delta.array(), 0,
+					4 * (last - first));
+			this.chart_.bindBuffer(WGLWidget.GLenum.ARRAY_BUFFER,
+					this.vertexPosBuffers_.get(i));
+			this.chart_.bufferSubDatafv(WGLWidget.GLenum.ARRAY_BUFFER,
+					4 * first, delta, true);
+		}
+		this.surfaceData_ = simplePtsArrays;
+		if (this.isoLineHeights_.size() > 0) {
+			for (int i = 0; i < this.isoLineBuffers_.size(); ++i) {
+				if (!this.isoLineBuffers_.get(i).isNull()) {
+					this.chart_.deleteBuffer(this.isoLineBuffers_.get(i));
+					this.isoLineBuffers_.get(i).clear();
+				}
+			}
+			this.isoLineBuffers_.clear();
+			this.isoLineBufferSizes_.clear();
+			this.initializeIsoLineBuffers();
+		}
+		return true;
+	}
+
 	public void resizeGL() {
 		if (!this.seriesProgram_.isNull()) {
 			this.chart_.useProgram(this.seriesProgram_);
@@ -1527,6 +1595,7 @@ public abstract class WAbstractGridData extends WAbstractDataSeries3D {
 		this.colormapTexBuffers_.clear();
 		this.isoLineBuffers_.clear();
 		this.isoLineBufferSizes_.clear();
+		this.surfaceData_ = null;
 		if (!this.colormapTexture_.isNull()) {
 			this.chart_.deleteTexture(this.colormapTexture_);
 			this.colormapTexture_.clear();
@@ -1959,17 +2028,9 @@ public abstract class WAbstractGridData extends WAbstractDataSeries3D {
 			this.vertexPosBufferSizes_
 					.add(simplePtsArrays.get(i).capacity() / 4);
 		}
-		for (int i = 0; i < this.isoLineHeights_.size(); ++i) {
-			List<Float> lines = new ArrayList<Float>();
-			this.linesForIsoLevel(this.isoLineHeights_.get(i), lines);
-			java.nio.ByteBuffer buff = WebGLUtils.newByteBuffer(4 * (lines
-					.size()));
-			for (int j = 0; j < lines.size(); ++j) {
-				buff.putFloat(lines.get(j));
-			}
-			this.loadBinaryResource(buff, this.isoLineBuffers_);
-			this.isoLineBufferSizes_.add(lines.size());
-		}
+		this.surfaceData_ = simplePtsArrays;
+		this.surfaceDataLayout_ = this.getSurfaceDataLayout();
+		this.initializeIsoLineBuffers();
 		for (int i = 0; i < simplePtsArrays.size(); i++) {
 			this.indexBuffers_.add(this.chart_.createBuffer());
 			int Nx_patch = SURFACE_SIDE_LIMIT;
@@ -2002,6 +2063,30 @@ public abstract class WAbstractGridData extends WAbstractDataSeries3D {
 		}
 	}
 
+	private void initializeIsoLineBuffers() {
+		for (int i = 0; i < this.isoLineHeights_.size(); ++i) {
+			List<Float> lines = new ArrayList<Float>();
+			this.linesForIsoLevel(this.isoLineHeights_.get(i), lines);
+			java.nio.ByteBuffer buff = WebGLUtils.newByteBuffer(4 * (lines
+					.size()));
+			for (int j = 0; j < lines.size(); ++j) {
+				buff.putFloat(lines.get(j));
+			}
+			this.loadBinaryResource(buff, this.isoLineBuffers_);
+			this.isoLineBufferSizes_.add(lines.size());
+		}
+	}
+
+	private double[] getSurfaceDataLayout() {
+		return new double[] { this.getNbXPoints(), this.getNbYPoints(),
+				this.chart_.axis(Axis.XAxis_3D).getMinimum(),
+				this.chart_.axis(Axis.XAxis_3D).getMaximum(),
+				this.chart_.axis(Axis.YAxis_3D).getMinimum(),
+				this.chart_.axis(Axis.YAxis_3D).getMaximum(),
+				this.chart_.axis(Axis.ZAxis_3D).getMinimum(),
+				this.chart_.axis(Axis.ZAxis_3D).getMaximum() };
+	}
+
 	private void initializeBarSeriesBuffers() {
 		int Nx = this.getNbXPoints();
 		int Ny = this.getNbYPoints();
@@ -2673,6 +2758,8 @@ public abstract class WAbstractGridData extends WAbstractDataSeries3D {
 	private List<WGLWidget.Buffer> colormapTexBuffers_;
 	private List<WGLWidget.Buffer> isoLineBuffers_;
 	private List<WMemoryResource> binaryResources_;
+	private List<java.nio.ByteBuffer> surfaceData_;
+	private double[] surfaceDataLayout_;
 	private WGLWidget.Shader fragShader_;
 	private WGLWidget.Shader colFragShader_;
 	private WGLWidget.Shader meshFragShader_;
@@ -1479,6 +1479,18 @@ public class WCartesian3DChart extends WGLWidget {
 	 * Specialized for chart rendering.
 	 */
 	protected void updateGL() {
+		if (EnumUtils.mask(this.updates_, ChartUpdates.GLContext).isEmpty()
+				&& !EnumUtils.mask(this.updates_, ChartUpdates.GLData)
+						.isEmpty()) {
+			this.initLayout();
+			for (int i = 0; i < this.dataSeriesVector_.size(); i++) {
+				if (!this.dataSeriesVector_.get(i).updateGLData()) {
+					this.updates_.add(ChartUpdates.GLContext);
+					break;
+				}
+			}
+			this.repaintGL(EnumSet.of(WGLWidget.ClientSideRenderer.PAINT_GL));
+		}
 		if (!EnumUtils.mask(this.updates_, ChartUpdates.GLContext).isEmpty()) {
 			this.deleteAllGLResources();
 			for (int i = 0; i < this.dataSeriesVector_.size(); i++) {
@@ -1324,6 +1324,18 @@ public class WCartesianChart extends WAbstractChart {
 		return this.curveLabels_;
 	}
 
+	/**
+	 * Returns whether the rendered contents may be cached.
+	 * <p>
+	 * The transforms that the chart exposes to JavaScript are only used when
+	 * the chart is interactive. The contents of a chart that is not
+	 * interactive may be cached, unless painting it added tool tips.
+	 */
+	protected boolean isPaintCacheable() {
+		return !this.isInteractive() && !this.hasDeferredToolTips_
+				&& this.getAreas().isEmpty();
+	}
+
 	/**
 	 * Returns whether this chart is interactive.
 	 * <p>
@@ -709,6 +709,16 @@ public class WPieChart extends WAbstractChart {
 		painter.restore();
 	}
 
+	/**
+	 * Returns whether the rendered contents may be cached.
+	 * <p>
+	 * The contents of a pie chart may be cached, unless painting it added tool
+	 * tips.
+	 */
+	protected boolean isPaintCacheable() {
+		return super.isPaintCacheable() && this.getAreas().isEmpty();
+	}
+
 	protected void paintEvent(WPaintDevice paintDevice) {
 		while (!this.getAreas().isEmpty()) {
 			if (this.getAreas().get(0) != null)
@@ -38,7 +38,11 @@ class Block {
 		this.css_ = new HashMap<String, Block.PropertyValue>();
 		this.font_ = new WFont();
 		this.styleSheet_ = null;
-		this.noPropertyCache_ = new HashSet<Property>();
+		this.styleSheetIndex_ = null;
+		this.computedCss_ = null;
+		this.cssLengths_ = null;
+		this.borders_ = null;
+		this.fontSize_ = -1;
 		if (node != null) {
 			if (RenderUtils.isXmlElement(node)) {
 				this.type_ = DomElement.parseTagName(node.getName());
@@ -171,6 +175,7 @@ class Block {
 			}
 			this.tableRowCount_ = row + maxRowSpan;
 			this.tableColCount_ = rowSpan.size();
+			this.tableCells_ = null;
 		}
 	}
 
@@ -634,12 +639,8 @@ class Block {
 	}
 
 	public void setStyleSheet(StyleSheet styleSheet) {
-		this.styleSheet_ = styleSheet;
-		this.css_.clear();
-		this.noPropertyCache_.clear();
-		for (int i = 0; i < this.children_.size(); ++i) {
-			this.children_.get(i).setStyleSheet(styleSheet);
-		}
+		this.setStyleSheet(styleSheet,
+				styleSheet != null ? new StyleSheetIndex(styleSheet) : null);
 	}
 
 	public void actualRender(final WTextRenderer renderer,
@@ -808,6 +809,20 @@ class Block {
 		return this.attributeValue("id");
 	}
 
+	int getLastPage() {
+		int result = -1;
+		for (int i = 0; i < this.inlineLayout.size(); ++i) {
+			result = Math.max(result, this.inlineLayout.get(i).page);
+		}
+		for (int i = 0; i < this.blockLayout.size(); ++i) {
+			result = Math.max(result, this.blockLayout.get(i).page);
+		}
+		for (int i = 0; i < this.children_.size(); ++i) {
+			result = Math.max(result, this.children_.get(i).getLastPage());
+		}
+		return result;
+	}
+
 	public List<String> getClasses() {
 		return this.classes_;
 	}
@@ -816,31 +831,84 @@ class Block {
 		if (!(this.node_ != null)) {
 			return "";
 		}
-		if (this.noPropertyCache_.contains(property) != false) {
-			return "";
+		if (this.computedCss_ == null) {
+			this.computeStyle();
 		}
-		if (this.css_.isEmpty()) {
-			if (this.styleSheet_ != null) {
-				for (int i = 0; i < this.styleSheet_.getRulesetSize(); ++i) {
-					Specificity s = Match.isMatch(this, this.styleSheet_
-							.rulesetAt(i).getSelector());
-					if (s.isValid()) {
-						this.fillinStyle(this.styleSheet_.rulesetAt(i)
-								.getDeclarationBlock().getDeclarationString(),
-								s);
+		String result = this.computedCss_[property.getValue()
+				- Property.PropertyStylePosition.getValue()];
+		return result != null ? result : "";
+	}
+
+	static List<String[]> parseDeclarations(final String style) {
+		List<String[]> result = new ArrayList<String[]>();
+		if (style.length() == 0) {
+			return result;
+		}
+		List<String> values = new ArrayList<String>();
+		values = new ArrayList<String>(Arrays.asList(style.split(";")));
+		for (int i = 0; i < values.size(); ++i) {
+			List<String> namevalue = new ArrayList<String>();
+			namevalue = new ArrayList<String>(Arrays.asList(values.get(i)
+					.split(":")));
+			if (namevalue.size() == 2) {
+				String n = namevalue.get(0);
+				String v = namevalue.get(1);
+				n = n.trim();
+				v = v.trim();
+				result.add(new String[] { n, v });
+				if (isAggregate(n)) {
+					List<String> allvalues = new ArrayList<String>();
+					allvalues = new ArrayList<String>(Arrays.asList(v
+							.split(" ")));
+					int count = 0;
+					for (int j = 0; j < allvalues.size(); ++j) {
+						String vj = allvalues.get(j);
+						if (vj.charAt(0) < '0' || vj.charAt(0) > '9') {
+							break;
+						}
+						++count;
+					}
+					if (count == 0) {
+						count = allvalues.size();
+					}
+					if (count == 1) {
+						result.add(new String[] { n + "-top", v });
+						result.add(new String[] { n + "-right", v });
+						result.add(new String[] { n + "-bottom", v });
+						result.add(new String[] { n + "-left", v });
+					} else {
+						if (count == 2) {
+							String v1 = allvalues.get(0);
+							result.add(new String[] { n + "-top", v1 });
+							result.add(new String[] { n + "-bottom", v1 });
+							String v2 = allvalues.get(1);
+							result.add(new String[] { n + "-right", v2 });
+							result.add(new String[] { n + "-left", v2 });
+						} else {
+							if (count == 3) {
+								String v1 = allvalues.get(0);
+								result.add(new String[] { n + "-top", v1 });
+								String v2 = allvalues.get(1);
+								result.add(new String[] { n + "-right", v2 });
+								result.add(new String[] { n + "-left", v2 });
+								String v3 = allvalues.get(2);
+								result.add(new String[] { n + "-bottom", v3 });
+							} else {
+								String v1 = allvalues.get(0);
+								result.add(new String[] { n + "-top", v1 });
+								String v2 = allvalues.get(1);
+								result.add(new String[] { n + "-right", v2 });
+								String v3 = allvalues.get(2);
+								result.add(new String[] { n + "-bottom", v3 });
+								String v4 = allvalues.get(3);
+								result.add(new String[] { n + "-left", v4 });
+							}
+						}
 					}
 				}
 			}
-			this.fillinStyle(this.attributeValue("style"), new Specificity(1,
-					0, 0, 0));
-		}
-		Block.PropertyValue i = this.css_.get(DomElement.cssName(property));
-		if (i != null) {
-			return i.value_;
-		} else {
-			this.noPropertyCache_.add(property);
-			return "";
 		}
+		return result;
 	}
 
 	public String attributeValue(String attribute) {
@@ -931,6 +999,16 @@ class Block {
 		}
 	}
 
+	static class BorderStyle {
+		private static Logger logger = LoggerFactory
+				.getLogger(BorderStyle.class);
+
+		public boolean hidden;
+		public WLength width;
+		public String colorStr;
+		public WColor color;
+	}
+
 	private net.n3.nanoxml.XMLElement node_;
 	private Block parent_;
 	private List<Block> offsetChildren_;
@@ -946,8 +1024,13 @@ class Block {
 	private Map<String, Block.PropertyValue> css_;
 	private WFont font_;
 	private StyleSheet styleSheet_;
-	private Set<Property> noPropertyCache_;
+	private StyleSheetIndex styleSheetIndex_;
+	private String[] computedCss_;
+	private WLength[] cssLengths_;
+	private Block.BorderStyle[] borders_;
+	private double fontSize_;
 	private int tableRowCount_;
+	private Block[][] tableCells_;
 	private int tableColCount_;
 	private int cellRow_;
 	private int cellCol_;
@@ -961,98 +1044,119 @@ class Block {
 		}
 	}
 
-	private void updateAggregateProperty(final String property,
-			final String aggregate, final Specificity spec, final String value) {
-		if (this.css_.get(property + aggregate) == null
-				|| this.css_.get(property + aggregate).s_
-						.isSmallerOrEqualThen(spec)) {
-			this.css_.put(property + aggregate, new Block.PropertyValue(value,
-					spec));
+	void setStyleSheet(StyleSheet styleSheet, StyleSheetIndex styleSheetIndex) {
+		this.styleSheet_ = styleSheet;
+		this.styleSheetIndex_ = styleSheetIndex;
+		this.computedCss_ = null;
+		this.cssLengths_ = null;
+		this.borders_ = null;
+		this.fontSize_ = -1;
+		for (int i = 0; i < this.children_.size(); ++i) {
+			this.children_.get(i).setStyleSheet(styleSheet, styleSheetIndex);
 		}
 	}
 
-	private void fillinStyle(final String style, final Specificity specificity) {
-		if (style.length() == 0) {
-			return;
+	private void computeStyle() {
+		if (this.styleSheetIndex_ != null) {
+			List<Integer> candidates = this.styleSheetIndex_
+					.getCandidates(this);
+			int last = -1;
+			for (int j = 0; j < candidates.size(); ++j) {
+				int i = candidates.get(j);
+				if (i == last) {
+					continue;
+				}
+				last = i;
+				Specificity s = Match.isMatch(this, this.styleSheetIndex_
+						.rulesetAt(i).getSelector());
+				if (s.isValid()) {
+					this.fillinStyle(this.styleSheetIndex_.getDeclarations(i), s);
+				}
+			}
 		}
-		List<String> values = new ArrayList<String>();
-		values = new ArrayList<String>(Arrays.asList(style.split(";")));
-		for (int i = 0; i < values.size(); ++i) {
-			List<String> namevalue = new ArrayList<String>();
-			namevalue = new ArrayList<String>(Arrays.asList(values.get(i)
-					.split(":")));
-			if (namevalue.size() == 2) {
-				String n = namevalue.get(0);
-				String v = namevalue.get(1);
-				n = n.trim();
-				v = v.trim();
-				this.updateAggregateProperty(n, "", specificity, v);
-				if (isAggregate(n)) {
-					List<String> allvalues = new ArrayList<String>();
-					allvalues = new ArrayList<String>(Arrays.asList(v
-							.split(" ")));
-					int count = 0;
-					for (int j = 0; j < allvalues.size(); ++j) {
-						String vj = allvalues.get(j);
-						if (vj.charAt(0) < '0' || vj.charAt(0) > '9') {
-							break;
-						}
-						++count;
-					}
-					if (count == 0) {
-						count = allvalues.size();
-					}
-					if (count == 1) {
-						this.updateAggregateProperty(n, "-top", specificity, v);
-						this.updateAggregateProperty(n, "-right", specificity,
-								v);
-						this.updateAggregateProperty(n, "-bottom", specificity,
-								v);
-						this.updateAggregateProperty(n, "-left", specificity, v);
-					} else {
-						if (count == 2) {
-							String v1 = allvalues.get(0);
-							this.updateAggregateProperty(n, "-top",
-									specificity, v1);
-							this.updateAggregateProperty(n, "-bottom",
-									specificity, v1);
-							String v2 = allvalues.get(1);
-							this.updateAggregateProperty(n, "-right",
-									specificity, v2);
-							this.updateAggregateProperty(n, "-left",
-									specificity, v2);
-						} else {
-							if (count == 3) {
-								String v1 = allvalues.get(0);
-								this.updateAggregateProperty(n, "-top",
-										specificity, v1);
-								String v2 = allvalues.get(1);
-								this.updateAggregateProperty(n, "-right",
-										specificity, v2);
-								this.updateAggregateProperty(n, "-left",
-										specificity, v2);
-								String v3 = allvalues.get(2);
-								this.updateAggregateProperty(n, "-bottom",
-										specificity, v3);
-							} else {
-								String v1 = allvalues.get(0);
-								this.updateAggregateProperty(n, "-top",
-										specificity, v1);
-								String v2 = allvalues.get(1);
-								this.updateAggregateProperty(n, "-right",
-										specificity, v2);
-								String v3 = allvalues.get(2);
-								this.updateAggregateProperty(n, "-bottom",
-										specificity, v3);
-								String v4 = allvalues.get(3);
-								this.updateAggregateProperty(n, "-left",
-										specificity, v4);
-							}
-						}
-					}
+		this.fillinStyle(parseDeclarations(this.attributeValue("style")),
+				new Specificity(1, 0, 0, 0));
+		int first = Property.PropertyStylePosition.getValue();
+		Property[] properties = Property.values();
+		this.computedCss_ = new String[Property.PropertyLastPlusOne.getValue()
+				- first];
+		for (int i = 0; i < this.computedCss_.length; ++i) {
+			Block.PropertyValue v = this.css_.get(DomElement
+					.cssName(properties[first + i]));
+			if (v != null) {
+				this.computedCss_[i] = v.value_;
+			}
+		}
+		this.css_.clear();
+	}
+
+	private void fillinStyle(final List<String[]> declarations,
+			final Specificity specificity) {
+		for (int i = 0; i < declarations.size(); ++i) {
+			String[] d = declarations.get(i);
+			Block.PropertyValue old = this.css_.get(d[0]);
+			if (old == null || old.s_.isSmallerOrEqualThen(specificity)) {
+				this.css_.put(d[0], new Block.PropertyValue(d[1], specificity));
+			}
+		}
+	}
+
+	private WLength cssLengthProperty(Property property) {
+		String value = this.cssProperty(property);
+		if (value.length() == 0) {
+			return null;
+		}
+		if (this.cssLengths_ == null) {
+			this.cssLengths_ = new WLength[this.computedCss_.length];
+		}
+		int i = property.getValue()
+				- Property.PropertyStylePosition.getValue();
+		if (this.cssLengths_[i] == null) {
+			this.cssLengths_[i] = new WLength(value);
+		}
+		return this.cssLengths_[i];
+	}
+
+	private Block.BorderStyle cssBorder(Side side) {
+		int index = sideToIndex(side);
+		if (this.borders_ == null) {
+			this.borders_ = new Block.BorderStyle[4];
+		}
+		if (this.borders_[index] == null) {
+			Block.BorderStyle result = new Block.BorderStyle();
+			Property property = Property.values()[Property.PropertyStyleBorderTop
+					.getValue() + index];
+			String borderStr = this.cssProperty(property);
+			String borderWidthStr = "";
+			String borderColorStr = "";
+			if (borderStr.length() != 0) {
+				List<String> values = new ArrayList<String>();
+				values = new ArrayList<String>(Arrays.asList(borderStr
+						.split(" ")));
+				result.hidden = values.size() > 1
+						&& values.get(1).equals("hidden");
+				borderWidthStr = values.get(0);
+				if (values.size() > 2) {
+					borderColorStr = values.get(2);
 				}
 			}
+			if (borderWidthStr.length() == 0) {
+				property = Property.values()[Property.PropertyStyleBorderWidthTop
+						.getValue() + index];
+				borderWidthStr = this.cssProperty(property);
+			}
+			if (borderWidthStr.length() != 0 && !result.hidden) {
+				result.width = new WLength(borderWidthStr);
+			}
+			if (borderColorStr.length() == 0) {
+				property = Property.values()[Property.PropertyStyleBorderColorTop
+						.getValue() + index];
+				borderColorStr = this.cssProperty(property);
+			}
+			result.colorStr = borderColorStr;
+			this.borders_[index] = result;
 		}
+		return this.borders_[index];
 	}
 
 	private boolean isPositionedAbsolutely() {
@@ -1118,9 +1222,8 @@ class Block {
 		}
 		int index = sideToIndex(side);
 		Property property = Property.values()[top.getValue() + index];
-		String value = this.cssProperty(property);
-		if (value.length() != 0) {
-			WLength l = new WLength(value);
+		WLength l = this.cssLengthProperty(property);
+		if (l != null) {
 			result.defined = true;
 			result.length = l.toPixels(this.cssFontSize(fontScale));
 			return result;
@@ -1212,10 +1315,9 @@ class Block {
 		if (this.isTableCollapseBorders()) {
 			return 0;
 		}
-		String spacingStr = this
-				.cssProperty(Property.PropertyStyleBorderSpacing);
-		if (spacingStr.length() != 0) {
-			WLength l = new WLength(spacingStr);
+		WLength l = this
+				.cssLengthProperty(Property.PropertyStyleBorderSpacing);
+		if (l != null) {
 			return l.toPixels(this.cssFontSize(fontScale));
 		} else {
 			return this.attributeValue("cellspacing", 2);
@@ -1253,32 +1355,17 @@ class Block {
 		if (!(this.node_ != null)) {
 			return 0;
 		}
-		int index = sideToIndex(side);
-		Property property = Property.values()[Property.PropertyStyleBorderTop
-				.getValue() + index];
-		String borderStr = this.cssProperty(property);
-		String borderWidthStr = "";
-		if (borderStr.length() != 0) {
-			List<String> values = new ArrayList<String>();
-			values = new ArrayList<String>(Arrays.asList(borderStr.split(" ")));
-			if (values.size() > 1 && values.get(1).equals("hidden")) {
-				if (indicateHidden) {
-					return -1;
-				} else {
-					return 0;
-				}
+		Block.BorderStyle border = this.cssBorder(side);
+		if (border.hidden) {
+			if (indicateHidden) {
+				return -1;
+			} else {
+				return 0;
 			}
-			borderWidthStr = values.get(0);
-		}
-		if (borderWidthStr.length() == 0) {
-			property = Property.values()[Property.PropertyStyleBorderWidthTop
-					.getValue() + index];
-			borderWidthStr = this.cssProperty(property);
 		}
 		double result = 0;
-		if (borderWidthStr.length() != 0) {
-			WLength l = new WLength(borderWidthStr);
-			result = l.toPixels(this.cssFontSize(fontScale));
+		if (border.width != null) {
+			result = border.width.toPixels(this.cssFontSize(fontScale));
 		}
 		if (result == 0) {
 			if (this.isTable()) {
@@ -1330,27 +1417,15 @@ class Block {
 	}
 
 	private WColor rawCssBorderColor(Side side) {
-		int index = sideToIndex(side);
-		Property property = Property.values()[Property.PropertyStyleBorderTop
-				.getValue() + index];
-		String borderStr = this.cssProperty(property);
-		String borderColorStr = "";
-		if (borderStr.length() != 0) {
-			List<String> values = new ArrayList<String>();
-			values = new ArrayList<String>(Arrays.asList(borderStr.split(" ")));
-			if (values.size() > 2) {
-				borderColorStr = values.get(2);
+		Block.BorderStyle border = this.cssBorder(side);
+		if (border.color == null) {
+			if (border.colorStr.length() != 0) {
+				border.color = new WColor(new WString(border.colorStr));
+			} else {
+				border.color = WColor.black;
 			}
 		}
-		if (borderColorStr.length() == 0) {
-			property = Property.values()[Property.PropertyStyleBorderColorTop
-					.getValue() + index];
-			borderColorStr = this.cssProperty(property);
-		}
-		if (borderColorStr.length() != 0) {
-			return new WColor(new WString(borderColorStr));
-		}
-		return WColor.black;
+		return border.color;
 	}
 
 	private WColor getCssColor() {
@@ -1444,8 +1519,15 @@ class Block {
 	}
 
 	private double cssFontSize(double fontScale) {
+		if (this.fontSize_ < 0) {
+			this.fontSize_ = this.computeFontSize();
+		}
+		return this.fontSize_ * fontScale;
+	}
+
+	private double computeFontSize() {
 		if (!(this.node_ != null) && this.parent_ != null) {
-			return fontScale * this.parent_.cssFontSize();
+			return this.parent_.cssFontSize();
 		}
 		String v = this.cssProperty(Property.PropertyStyleFontSize);
 		double Medium = 16;
@@ -1525,7 +1607,7 @@ class Block {
 				}
 			}
 		}
-		return result * fontScale;
+		return result;
 	}
 
 	private final double cssFontSize() {
@@ -2707,8 +2789,18 @@ class Block {
 	}
 
 	private Block findTableCell(int row, int col) {
-		if (this.type_ == DomElementType.DomElement_TABLE
-				|| this.type_ == DomElementType.DomElement_TBODY
+		if (this.type_ == DomElementType.DomElement_TABLE) {
+			if (this.tableCells_ == null) {
+				this.tableCells_ = new Block[this.tableRowCount_][this.tableColCount_];
+				this.indexTableCells(this.tableCells_);
+			}
+			if (row < 0 || row >= this.tableRowCount_ || col < 0
+					|| col >= this.tableColCount_) {
+				return null;
+			}
+			return this.tableCells_[row][col];
+		}
+		if (this.type_ == DomElementType.DomElement_TBODY
 				|| this.type_ == DomElementType.DomElement_THEAD
 				|| this.type_ == DomElementType.DomElement_TFOOT) {
 			for (int i = 0; i < this.children_.size(); ++i) {
@@ -2738,6 +2830,35 @@ class Block {
 		return null;
 	}
 
+	private void indexTableCells(final Block[][] cells) {
+		for (int i = 0; i < this.children_.size(); ++i) {
+			Block c = this.children_.get(i);
+			if (this.type_ != DomElementType.DomElement_TR) {
+				if (c.type_ == DomElementType.DomElement_TABLE
+						|| c.type_ == DomElementType.DomElement_TBODY
+						|| c.type_ == DomElementType.DomElement_THEAD
+						|| c.type_ == DomElementType.DomElement_TFOOT
+						|| c.type_ == DomElementType.DomElement_TR) {
+					c.indexTableCells(cells);
+				}
+			} else {
+				if (c.isTableCell()) {
+					int rs = c.attributeValue("rowspan", 1);
+					int cs = c.attributeValue("colspan", 1);
+					for (int r = c.cellRow_; r < c.cellRow_ + rs
+							&& r < cells.length; ++r) {
+						for (int k = c.cellCol_; k < c.cellCol_ + cs
+								&& k < cells[r].length; ++k) {
+							if (cells[r][k] == null) {
+								cells[r][k] = c;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
 	private Block siblingTableCell(Side side) {
 		Block t = this.getTable();
 		switch (side) {
@@ -21,6 +21,10 @@ grammar Css21;
 @header {package eu.webtoolkit.jwt.render;}
 @lexer::header {package eu.webtoolkit.jwt.render;}
 
+@members {
+	CssParser cssParser;
+}
+
 
 
 // -------------
@@ -63,10 +67,10 @@ property
     ;
     
 ruleSet
-    :  selector             {CssParser.pushCurrentSelector();}
-       (COMMA WS? selector      {CssParser.pushCurrentSelector();})*
+    :  selector             {cssParser.pushCurrentSelector();}
+       (COMMA WS? selector      {cssParser.pushCurrentSelector();})*
        WS? LBRACE
-         declarationBlock     {CssParser.setAndPushDeclarationBlock($declarationBlock.text);}
+         declarationBlock     {cssParser.setAndPushDeclarationBlock($declarationBlock.text);}
        RBRACE
        WS?
     ;
@@ -78,15 +82,15 @@ declarationBlock
     ;
     
 selector
-    : s1=simpleSelector              { CssParser.pushCurrentSimpleSelector(); }
-      (combinator s2=simpleSelector  { CssParser.pushCurrentSimpleSelector(); }
+    : s1=simpleSelector              { cssParser.pushCurrentSimpleSelector(); }
+      (combinator s2=simpleSelector  { cssParser.pushCurrentSimpleSelector(); }
       )*
     ;
 
 simpleSelector
     : 
 (
-  elementName             { CssParser.setSimpleSelectorElementName($elementName.text); }
+  elementName             { cssParser.setSimpleSelectorElementName($elementName.text); }
   ((esPred)=>elementSubsequent)*
 )
     |
@@ -100,8 +104,8 @@ esPred
     ;
     
 elementSubsequent
-    : h=HASH   { CssParser.setSimpleSelectorHash ($h       .getText());}
-    | cssClass { CssParser.addSimpleSelectorClass($cssClass.text);}
+    : h=HASH   { cssParser.setSimpleSelectorHash ($h       .getText());}
+    | cssClass { cssParser.addSimpleSelectorClass($cssClass.text);}
     ;
     
 cssClass
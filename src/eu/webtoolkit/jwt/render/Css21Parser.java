@@ -110,6 +110,8 @@ public class Css21Parser extends Parser {
 	@Override public String getGrammarFileName() { return "src/eu/webtoolkit/jwt/render/Css21.g"; }
 
 
+	CssParser cssParser;
+
 
 	// $ANTLR start "styleSheet"
 	// src/eu/webtoolkit/jwt/render/Css21.g:33:1: styleSheet : ( bodyset )* EOF ;
@@ -403,7 +405,7 @@ public class Css21Parser extends Parser {
 			selector();
 			state._fsp--;
 			if (state.failed) return;
-			if ( state.backtracking==0 ) {CssParser.pushCurrentSelector();}
+			if ( state.backtracking==0 ) {cssParser.pushCurrentSelector();}
 			// src/eu/webtoolkit/jwt/render/Css21.g:67:8: ( COMMA ( WS )? selector )*
 			loop5:
 			while (true) {
@@ -438,7 +440,7 @@ public class Css21Parser extends Parser {
 					selector();
 					state._fsp--;
 					if (state.failed) return;
-					if ( state.backtracking==0 ) {CssParser.pushCurrentSelector();}
+					if ( state.backtracking==0 ) {cssParser.pushCurrentSelector();}
 					}
 					break;
 
@@ -468,7 +470,7 @@ public class Css21Parser extends Parser {
 			declarationBlock1=declarationBlock();
 			state._fsp--;
 			if (state.failed) return;
-			if ( state.backtracking==0 ) {CssParser.setAndPushDeclarationBlock((declarationBlock1!=null?input.toString(declarationBlock1.start,declarationBlock1.stop):null));}
+			if ( state.backtracking==0 ) {cssParser.setAndPushDeclarationBlock((declarationBlock1!=null?input.toString(declarationBlock1.start,declarationBlock1.stop):null));}
 			match(input,RBRACE,FOLLOW_RBRACE_in_ruleSet314); if (state.failed) return;
 			// src/eu/webtoolkit/jwt/render/Css21.g:71:8: ( WS )?
 			int alt7=2;
@@ -608,7 +610,7 @@ public class Css21Parser extends Parser {
 			simpleSelector();
 			state._fsp--;
 			if (state.failed) return;
-			if ( state.backtracking==0 ) { CssParser.pushCurrentSimpleSelector(); }
+			if ( state.backtracking==0 ) { cssParser.pushCurrentSimpleSelector(); }
 			// src/eu/webtoolkit/jwt/render/Css21.g:82:7: ( combinator s2= simpleSelector )*
 			loop11:
 			while (true) {
@@ -637,7 +639,7 @@ public class Css21Parser extends Parser {
 					simpleSelector();
 					state._fsp--;
 					if (state.failed) return;
-					if ( state.backtracking==0 ) { CssParser.pushCurrentSimpleSelector(); }
+					if ( state.backtracking==0 ) { cssParser.pushCurrentSimpleSelector(); }
 					}
 					break;
 
@@ -695,7 +697,7 @@ public class Css21Parser extends Parser {
 					elementName2=elementName();
 					state._fsp--;
 					if (state.failed) return;
-					if ( state.backtracking==0 ) { CssParser.setSimpleSelectorElementName((elementName2!=null?input.toString(elementName2.start,elementName2.stop):null)); }
+					if ( state.backtracking==0 ) { cssParser.setSimpleSelectorElementName((elementName2!=null?input.toString(elementName2.start,elementName2.stop):null)); }
 					// src/eu/webtoolkit/jwt/render/Css21.g:90:3: ( ( esPred )=> elementSubsequent )*
 					loop12:
 					while (true) {
@@ -867,7 +869,7 @@ public class Css21Parser extends Parser {
 					// src/eu/webtoolkit/jwt/render/Css21.g:103:7: h= HASH
 					{
 					h=(Token)match(input,HASH,FOLLOW_HASH_in_elementSubsequent547); if (state.failed) return;
-					if ( state.backtracking==0 ) { CssParser.setSimpleSelectorHash (h       .getText());}
+					if ( state.backtracking==0 ) { cssParser.setSimpleSelectorHash (h       .getText());}
 					}
 					break;
 				case 2 :
@@ -877,7 +879,7 @@ public class Css21Parser extends Parser {
 					cssClass3=cssClass();
 					state._fsp--;
 					if (state.failed) return;
-					if ( state.backtracking==0 ) { CssParser.addSimpleSelectorClass((cssClass3!=null?input.toString(cssClass3.start,cssClass3.stop):null));}
+					if ( state.backtracking==0 ) { cssParser.addSimpleSelectorClass((cssClass3!=null?input.toString(cssClass3.start,cssClass3.stop):null));}
 					}
 					break;
 
@@ -2,7 +2,9 @@ package eu.webtoolkit.jwt.render;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.antlr.runtime.ANTLRFileStream;
 import org.antlr.runtime.ANTLRStringStream;
@@ -10,44 +12,59 @@ import org.antlr.runtime.CommonTokenStream;
 import org.antlr.runtime.RecognitionException;
 
 public class CssParser {
-	static SimpleSelectorImpl currentSimpleSelector = new SimpleSelectorImpl();
-	static SelectorImpl currentSelector = new SelectorImpl();
-	static List<SelectorImpl> currentSelectorList = new ArrayList<SelectorImpl>(); 
-	static RulesetImpl currentRuleset = new RulesetImpl();
-	public static StyleSheetImpl currentStylesheet = new StyleSheetImpl();
+	private static final int MAX_CACHED_STYLESHEETS = 64;
+	private static final int MAX_CACHED_LENGTH = 256 * 1024;
+
+	/*
+	 * Parsed style sheets, shared by all threads. A style sheet is not
+	 * modified after it has been parsed.
+	 */
+	private static final Map<String, StyleSheet> cache = new LinkedHashMap<String, StyleSheet>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, StyleSheet> eldest) {
+			return size() > MAX_CACHED_STYLESHEETS;
+		}
+	};
+
+	private SimpleSelectorImpl currentSimpleSelector = new SimpleSelectorImpl();
+	private SelectorImpl currentSelector = new SelectorImpl();
+	private List<SelectorImpl> currentSelectorList = new ArrayList<SelectorImpl>(); 
+	private StyleSheetImpl currentStylesheet = new StyleSheetImpl();
 	String lastError_ = null;
 	
-	static void setSimpleSelectorElementName(String s)
+	void setSimpleSelectorElementName(String s)
 	{
 		currentSimpleSelector.setElementName(s);
 	}
 	
-	static void setSimpleSelectorHash(String s)
+	void setSimpleSelectorHash(String s)
 	{
 		s = s.substring(1);
 		if(currentSimpleSelector.getHashId().isEmpty())
 			currentSimpleSelector.setHash(s);
 	}
 	
-	static void addSimpleSelectorClass(String s)
+	void addSimpleSelectorClass(String s)
 	{
 		s = s.substring(1);
 		currentSimpleSelector.getClasses().add(s);
 	}
 	
-	static void pushCurrentSimpleSelector()
+	void pushCurrentSimpleSelector()
 	{
 		currentSelector.addSimpleSelector(currentSimpleSelector);
 		currentSimpleSelector = new SimpleSelectorImpl();
 	}
 	
-	static void pushCurrentSelector()
+	void pushCurrentSelector()
 	{
 		currentSelectorList.add(currentSelector);
 		currentSelector = new SelectorImpl();
 	}
 	
-	static void setAndPushDeclarationBlock(String s)
+	void setAndPushDeclarationBlock(String s)
 	{
 		for (int i = 0; i < currentSelectorList.size(); ++i) {
 			RulesetImpl r = new RulesetImpl();
@@ -66,7 +83,8 @@ public class CssParser {
 			lex = new Css21LexerExt(new ANTLRFileStream(stylesheetContents.toString()));
 			CommonTokenStream tokens = new CommonTokenStream(lex);
 	        parser = new Css21ParserExt(tokens);
-	        currentStylesheet = new StyleSheetImpl();
+	        parser.cssParser = this;
+	        reset();
         
             parser.styleSheet();
             lastError_ = lex.lastError_ + parser.lastError_;
@@ -86,7 +104,8 @@ public class CssParser {
 		Css21LexerExt lex = new Css21LexerExt(new ANTLRStringStream(stylesheetContents.toString()));
 		CommonTokenStream tokens = new CommonTokenStream(lex);
         Css21ParserExt parser = new Css21ParserExt(tokens);
-        currentStylesheet = new StyleSheetImpl();
+        parser.cssParser = this;
+        reset();
  
         try {
             parser.styleSheet();
@@ -99,9 +118,41 @@ public class CssParser {
         }
 	}
 	
+	/*
+	 * Like parse(), but returns a style sheet that is shared with other
+	 * parses of the same contents, in this or other threads. The result may
+	 * not be modified.
+	 */
+	StyleSheet parseCached(CharSequence stylesheetContents) {
+		String key = stylesheetContents.toString();
+		synchronized (cache) {
+			StyleSheet result = cache.get(key);
+			if (result != null) {
+				lastError_ = "";
+				return result;
+			}
+		}
+
+		StyleSheet result = parse(key);
+		if (result != null && key.length() <= MAX_CACHED_LENGTH) {
+			synchronized (cache) {
+				cache.put(key, result);
+			}
+		}
+		return result;
+	}
+
 	String getLastError()
 	{
 		return lastError_;
 	}
 
+	private void reset()
+	{
+		currentSimpleSelector = new SimpleSelectorImpl();
+		currentSelector = new SelectorImpl();
+		currentSelectorList.clear();
+		currentStylesheet = new StyleSheetImpl();
+	}
+
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.render;
+
+import java.util.*;
+import java.util.regex.*;
+import java.io.*;
+import java.lang.ref.*;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.servlet.http.*;
+import javax.servlet.*;
+import eu.webtoolkit.jwt.*;
+import eu.webtoolkit.jwt.chart.*;
+import eu.webtoolkit.jwt.utils.*;
+import eu.webtoolkit.jwt.servlet.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An index of the rulesets of a style sheet, for selector matching.
+ * <p>
+ * Rulesets are bucketed on the last simple selector of their selector: by id
+ * if it has one, else by its first class, else by its element type. Rulesets
+ * that match any element are kept apart. Only the rulesets in the buckets
+ * of a block's id, classes and type can match that block.
+ */
+class StyleSheetIndex {
+	private static Logger logger = LoggerFactory
+			.getLogger(StyleSheetIndex.class);
+
+	public StyleSheetIndex(StyleSheet styleSheet) {
+		super();
+		int size = styleSheet.getRulesetSize();
+		this.rulesets_ = new Ruleset[size];
+		this.declarations_ = new ArrayList<List<String[]>>(size);
+		this.byId_ = new HashMap<String, List<Integer>>();
+		this.byClass_ = new HashMap<String, List<Integer>>();
+		this.byType_ = new EnumMap<DomElementType, List<Integer>>(
+				DomElementType.class);
+		this.universal_ = new ArrayList<Integer>();
+		for (int i = 0; i < size; ++i) {
+			Ruleset r = styleSheet.rulesetAt(i);
+			this.rulesets_[i] = r;
+			this.declarations_.add(null);
+			Selector selector = r.getSelector();
+			if (selector.getSize() == 0) {
+				continue;
+			}
+			SimpleSelector s = selector.at(selector.getSize() - 1);
+			if (s.getHashId().length() != 0) {
+				add(this.byId_, s.getHashId(), i);
+			} else {
+				if (!s.getClasses().isEmpty()) {
+					add(this.byClass_, s.getClasses().get(0), i);
+				} else {
+					if (s.getElementName().length() != 0
+							&& !s.getElementName().equals("*")) {
+						add(this.byType_, s.getElementType(), i);
+					} else {
+						this.universal_.add(i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the rulesets that may match a block, in style sheet order.
+	 */
+	public List<Integer> getCandidates(Block block) {
+		List<Integer> result = new ArrayList<Integer>(this.universal_);
+		String id = block.getId();
+		if (id.length() != 0) {
+			addAll(result, this.byId_.get(id));
+		}
+		List<String> classes = block.getClasses();
+		for (int i = 0; i < classes.size(); ++i) {
+			if (classes.indexOf(classes.get(i)) == i) {
+				addAll(result, this.byClass_.get(classes.get(i)));
+			}
+		}
+		addAll(result, this.byType_.get(block.getType()));
+		Collections.sort(result);
+		return result;
+	}
+
+	public Ruleset rulesetAt(int i) {
+		return this.rulesets_[i];
+	}
+
+	/**
+	 * Returns the parsed declarations of a ruleset.
+	 * <p>
+	 * A declaration block is parsed only once, when it is first needed.
+	 */
+	public List<String[]> getDeclarations(int i) {
+		List<String[]> result = this.declarations_.get(i);
+		if (result == null) {
+			result = Block.parseDeclarations(this.rulesets_[i]
+					.getDeclarationBlock().getDeclarationString());
+			this.declarations_.set(i, result);
+		}
+		return result;
+	}
+
+	private Ruleset[] rulesets_;
+	private List<List<String[]>> declarations_;
+	private Map<String, List<Integer>> byId_;
+	private Map<String, List<Integer>> byClass_;
+	private Map<DomElementType, List<Integer>> byType_;
+	private List<Integer> universal_;
+
+	private static <K> void add(final Map<K, List<Integer>> buckets, K key,
+			int i) {
+		List<Integer> bucket = buckets.get(key);
+		if (bucket == null) {
+			bucket = new ArrayList<Integer>();
+			buckets.put(key, bucket);
+		}
+		bucket.add(i);
+	}
+
+	private static void addAll(final List<Integer> result,
+			List<Integer> bucket) {
+		if (bucket != null) {
+			result.addAll(bucket);
+		}
+	}
+}
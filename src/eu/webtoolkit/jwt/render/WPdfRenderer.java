@@ -38,6 +38,14 @@ import org.slf4j.LoggerFactory;
  * {@link WTextRenderer#setFontScale(double factor)
  * WTextRenderer#setFontScale()} to scale the font size differently than other
  * content.
+ * <p>
+ * PDFJet writes the contents of a page to the output stream of the PDF as
+ * soon as the next page is created. When a large document is rendered in
+ * fragments (see {@link WTextRenderer#beginRender(double y)
+ * WTextRenderer#beginRender()}) to a PDF that writes to the output stream of
+ * a response (e.g. in {@link WResource#handleRequest(WebRequest request, WebResponse response)
+ * WResource#handleRequest()}), the pages are thus sent to the client while
+ * the rest of the document is still being rendered.
  */
 public class WPdfRenderer extends WTextRenderer {
 	private static Logger logger = LoggerFactory.getLogger(WPdfRenderer.class);
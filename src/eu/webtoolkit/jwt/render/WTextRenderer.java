@@ -228,7 +228,7 @@ public abstract class WTextRenderer {
 			docBlock.collectStyles(ss);
 			if (!(ss.length() == 0)) {
 				CssParser parser = new CssParser();
-				StyleSheet docStyles = parser.parse(ss.toString());
+				StyleSheet docStyles = parser.parseCached(ss.toString());
 				if (docStyles != null) {
 					styles.use(docStyles);
 				} else {
@@ -300,6 +300,154 @@ public abstract class WTextRenderer {
 		return render(text, 0);
 	}
 
+	/**
+	 * Starts rendering a document in fragments.
+	 * <p>
+	 * This is an alternative to {@link #render(CharSequence text, double y)
+	 * render()} for very large documents. The document is passed as a
+	 * sequence of XHTML fragments (e.g. a section or a table per fragment)
+	 * using {@link #renderFragment(CharSequence text) renderFragment()}, and
+	 * {@link #endRender() endRender()} finishes the rendering.
+	 * <p>
+	 * Each fragment is laid out when it is passed, continuing where the
+	 * previous fragment ended. As soon as the layout has moved past a page,
+	 * the page is rendered and ended, and the fragments that do not extend
+	 * beyond that page are released. Memory use is therefore bounded by the
+	 * size of the fragments that are on the current page rather than the
+	 * size of the document, and the first pages are rendered before the
+	 * entire document has been laid out.
+	 * <p>
+	 * The result is the same as rendering the concatenation of the fragments
+	 * with {@link #render(CharSequence text, double y) render()}, except that:
+	 * <ul>
+	 * <li>a &lt;style&gt; in a fragment only applies to that and the
+	 * subsequent fragments;</li>
+	 * <li>contents that is too wide for the page is not laid out again with
+	 * the larger width: pages that have been rendered cannot be changed.</li>
+	 * </ul>
+	 * <p>
+	 * As with {@link #render(CharSequence text, double y) render()}, the
+	 * current page is page 0.
+	 * 
+	 * @see #renderFragment(CharSequence text)
+	 * @see #endRender()
+	 */
+	public void beginRender(double y) {
+		if (this.stream_ != null) {
+			throw new WException(
+					"WTextRenderer::beginRender(): already rendering");
+		}
+		WTextRenderer.RenderStream s = new WTextRenderer.RenderStream();
+		s.ps.y = y;
+		s.ps.page = 0;
+		s.ps.minX = 0;
+		s.ps.maxX = this.textWidth(s.ps.page);
+		if (this.styleSheet_ != null) {
+			s.styles.use(this.styleSheet_, true);
+		}
+		s.styleSheetIndex = new StyleSheetIndex(s.styles);
+		s.defaultFont.setFamily(WFont.GenericFamily.SansSerif);
+		this.stream_ = s;
+		this.device_ = this.startPage(s.page);
+		this.painter_ = this.getPainter(this.device_);
+		this.painter_.setFont(s.defaultFont);
+	}
+
+	/**
+	 * Starts rendering a document in fragments.
+	 * <p>
+	 * Calls {@link #beginRender(double y) beginRender(0)}
+	 */
+	public final void beginRender() {
+		beginRender(0);
+	}
+
+	/**
+	 * Renders the next fragment of a document.
+	 * <p>
+	 * The fragment is laid out after the previous fragment, and all pages
+	 * before the page on which the fragment ends are rendered.
+	 * <p>
+	 * If the fragment cannot be rendered, the rendering of the document is
+	 * aborted, and a new document may be started with
+	 * {@link #beginRender(double y) beginRender()}.
+	 * 
+	 * @see #beginRender(double y)
+	 */
+	public void renderFragment(final CharSequence text) {
+		WTextRenderer.RenderStream s = this.stream_;
+		if (s == null) {
+			throw new WException(
+					"WTextRenderer::renderFragment(): beginRender() was not called");
+		}
+		boolean done = false;
+		try {
+			net.n3.nanoxml.XMLElement doc = RenderUtils.parseXHTML(text
+					.toString());
+			Block block = new Block(doc, (Block) null);
+			StringBuilder ss = new StringBuilder();
+			block.collectStyles(ss);
+			if (!(ss.length() == 0)) {
+				CssParser parser = new CssParser();
+				StyleSheet docStyles = parser.parseCached(ss.toString());
+				if (docStyles != null) {
+					s.styles.use(docStyles);
+					s.styleSheetIndex = new StyleSheetIndex(s.styles);
+				} else {
+					logger.error(new StringWriter()
+							.append("Error parsing style sheet: ")
+							.append(parser.getLastError()).toString());
+				}
+			}
+			block.setStyleSheet(s.styles, s.styleSheetIndex);
+			block.determineDisplay();
+			block.normalizeWhitespace(false, doc);
+			double maxX = this.textWidth(s.ps.page);
+			s.ps.minX = 0;
+			s.ps.maxX = maxX;
+			s.collapseMarginBottom = block.layoutBlock(s.ps, false, this,
+					s.collapseMarginBottom, 0);
+			if (isEpsilonMore(s.ps.maxX, maxX) && !s.tooWide) {
+				logger.warn(new StringWriter()
+						.append("contents too wide for page. (")
+						.append(String.valueOf(s.ps.maxX)).append(" > ")
+						.append(String.valueOf(maxX)).append(")").toString());
+				s.tooWide = true;
+			}
+			s.blocks.add(block);
+			s.lastPages.add(block.getLastPage());
+			this.renderStreamPages(s.ps.page - 1, true);
+			done = true;
+		} finally {
+			if (!done) {
+				this.stream_ = null;
+			}
+		}
+	}
+
+	/**
+	 * Finishes rendering a document in fragments.
+	 * <p>
+	 * Renders the remaining pages. The return value is the position at which
+	 * rendering stopped on the last page.
+	 * 
+	 * @see #beginRender(double y)
+	 */
+	public double endRender() {
+		WTextRenderer.RenderStream s = this.stream_;
+		if (s == null) {
+			throw new WException(
+					"WTextRenderer::endRender(): beginRender() was not called");
+		}
+		try {
+			Block.clearFloats(s.ps, this.textWidth(s.ps.page));
+			this.renderStreamPages(s.ps.page, false);
+		} finally {
+			this.stream_ = null;
+		}
+		return s.ps.y;
+	}
+
 	/**
 	 * Sets the contents of a cascading style sheet (CSS).
 	 * <p>
@@ -340,7 +488,7 @@ public abstract class WTextRenderer {
 			return true;
 		} else {
 			CssParser parser = new CssParser();
-			StyleSheet styleSheet = parser.parse(styleSheetContents);
+			StyleSheet styleSheet = parser.parseCached(styleSheetContents);
 			if (!(styleSheet != null)) {
 				this.error_ = parser.getLastError();
 				return false;
@@ -542,6 +690,34 @@ public abstract class WTextRenderer {
 		this.styleSheetText_ = new WString();
 		this.styleSheet_ = null;
 		this.error_ = "";
+		this.stream_ = null;
+	}
+
+	static class RenderStream {
+		private static Logger logger = LoggerFactory
+				.getLogger(RenderStream.class);
+
+		public RenderStream() {
+			this.ps = new PageState();
+			this.styles = new CombinedStyleSheet();
+			this.styleSheetIndex = null;
+			this.blocks = new ArrayList<Block>();
+			this.lastPages = new ArrayList<Integer>();
+			this.collapseMarginBottom = Double.MAX_VALUE;
+			this.page = 0;
+			this.defaultFont = new WFont();
+			this.tooWide = false;
+		}
+
+		public PageState ps;
+		public CombinedStyleSheet styles;
+		public StyleSheetIndex styleSheetIndex;
+		public List<Block> blocks;
+		public List<Integer> lastPages;
+		public double collapseMarginBottom;
+		public int page;
+		public WFont defaultFont;
+		public boolean tooWide;
 	}
 
 	private WPainter painter_;
@@ -550,11 +726,35 @@ public abstract class WTextRenderer {
 	private WString styleSheetText_;
 	private StyleSheet styleSheet_;
 	private String error_;
+	private WTextRenderer.RenderStream stream_;
 
 	WPainter getPainter() {
 		return this.painter_;
 	}
 
+	private void renderStreamPages(int lastPage, boolean more) {
+		WTextRenderer.RenderStream s = this.stream_;
+		while (s.page <= lastPage) {
+			for (int i = 0; i < s.blocks.size(); ++i) {
+				s.blocks.get(i).render(this, this.painter_, s.page);
+			}
+			this.endPage(this.device_);
+			for (int i = 0; i < s.blocks.size(); ++i) {
+				if (s.lastPages.get(i) <= s.page) {
+					s.blocks.remove(i);
+					s.lastPages.remove(i);
+					--i;
+				}
+			}
+			++s.page;
+			if (s.page <= lastPage || more) {
+				this.device_ = this.startPage(s.page);
+				this.painter_ = this.getPainter(this.device_);
+				this.painter_.setFont(s.defaultFont);
+			}
+		}
+	}
+
 	private static final double EPSILON = 1e-4;
 
 	static boolean isEpsilonMore(double x, double limit) {
@@ -6,22 +6,26 @@
 package eu.webtoolkit.jwt.servlet;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
-import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadBase;
 import org.apache.commons.fileupload.FileUploadException;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+import org.apache.commons.fileupload.ParameterParser;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
 
 import eu.webtoolkit.jwt.Configuration;
 import eu.webtoolkit.jwt.WResource;
@@ -77,8 +81,11 @@ public class WebRequest extends HttpServletRequestWrapper {
 		public void update(WebRequest request, long pBytesRead, long pContentLength);
 	}
 	
+	private static final long PROGRESS_INTERVAL = 250; // ms
+
 	private Map<String, String[]> parameters_;
 	private Map<String, List<UploadedFile>> files_;
+	private long postDataExceeded_ = 0;
 	private String scriptName;
 	private String pathInfo;
 
@@ -194,7 +201,7 @@ public class WebRequest extends HttpServletRequestWrapper {
 		computePaths(configuration);
 
 		try {
-			parse(progressListener);
+			parse(progressListener, configuration.getMaxRequestSize());
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -268,76 +275,136 @@ public class WebRequest extends HttpServletRequestWrapper {
 		return pathInfo;
 	}
 
-	@SuppressWarnings({ "unchecked", "deprecation" })
-	private void parse(final ProgressListener progressUpdate) throws IOException {
+	private void parse(final ProgressListener progressUpdate, long maxRequestSize) throws IOException {
 		if (FileUploadBase.isMultipartContent(this)) {
-			try {
-				// Create a factory for disk-based file items
-				DiskFileItemFactory factory = new DiskFileItemFactory();
+			Map<String, List<String>> fields = new HashMap<String, List<String>>();
+			Map<String, List<UploadedFile>> files = new HashMap<String, List<UploadedFile>>();
 
-				// Create a new file upload handler
-				ServletFileUpload upload = new ServletFileUpload(factory);
+			try {
+				// Parse the request while it streams in: files are written directly to their
+				// spool file, and the size limit is enforced as the data is read
+				ServletFileUpload upload = new ServletFileUpload();
+				if (maxRequestSize >= 0)
+					upload.setSizeMax(maxRequestSize);
 
 				if (progressUpdate != null) {
 					upload.setProgressListener(new org.apache.commons.fileupload.ProgressListener(){
+						private long lastUpdate = 0;
+
 						public void update(long pBytesRead, long pContentLength, int pItems) {
-							progressUpdate.update(WebRequest.this, pBytesRead, pContentLength);
+							long now = System.currentTimeMillis();
+							if (pBytesRead == pContentLength || now - lastUpdate >= PROGRESS_INTERVAL) {
+								lastUpdate = now;
+								progressUpdate.update(WebRequest.this, pBytesRead, pContentLength);
+							}
 						}
 					});
 				}
 
-				// Parse the request
-				List items = upload.parseRequest(this);
-
-				parseParameters();
-				
-				Iterator itr = items.iterator();
-
-				FileItem fi;
-				File f = null;
+				FileItemIterator itr = upload.getItemIterator(this);
 				while (itr.hasNext()) {
-					fi = (FileItem) itr.next();
-
-					// Check if not form field so as to only handle the file inputs
-					// else condition handles the submit button input
-					if (!fi.isFormField()) {
-						try {
-							f = File.createTempFile("jwt", "jwt");
-							fi.write(f);
-							fi.delete();
-						} catch (IOException e) {
-							e.printStackTrace();
-						} catch (Exception e) {
-							e.printStackTrace();
+					FileItemStream fi = itr.next();
+
+					InputStream in = fi.openStream();
+					try {
+						// Check if not form field so as to only handle the file inputs
+						// else condition handles the submit button input
+						if (!fi.isFormField()) {
+							File f = File.createTempFile("jwt", "jwt");
+							OutputStream out = new FileOutputStream(f);
+							try {
+								Streams.copy(in, out, false);
+							} catch (IOException e) {
+								f.delete();
+								throw e;
+							} finally {
+								out.close();
+							}
+
+							List<UploadedFile> l = files.get(fi.getFieldName());
+							if (l == null) {
+								l = new ArrayList<UploadedFile>();
+								files.put(fi.getFieldName(), l);
+							}
+							l.add(new UploadedFile(f.getAbsolutePath(), fi.getName(), fi.getContentType()));
+						} else {
+							List<String> l = fields.get(fi.getFieldName());
+							if (l == null) {
+								l = new ArrayList<String>();
+								fields.put(fi.getFieldName(), l);
+							}
+							l.add(Streams.asString(in, getCharset(fi.getContentType())));
 						}
-
-						List<UploadedFile> files = files_.get(fi.getFieldName());
-						if (files == null) {
-							files = new ArrayList<UploadedFile>();
-							files_.put(fi.getFieldName(), files);
-						}
-						files.add(new UploadedFile(f.getAbsolutePath(), fi.getName(), fi.getContentType()));
-					} else {
-						String[] v = parameters_.get(fi.getFieldName());
-						if (v == null)
-							v = new String[1];
-						else {
-							String[] newv = new String[v.length + 1];
-							for (int i = 0; i < v.length; ++i)
-								newv[i] = v[i];
-							v = newv;
-						}
-						v[v.length - 1] = fi.getString();
-						parameters_.put(fi.getFieldName(), v);
+					} finally {
+						in.close();
 					}
 				}
+			} catch (FileUploadBase.SizeLimitExceededException e) {
+				tooLarge(e, files);
+			} catch (FileUploadBase.FileUploadIOException e) {
+				if (e.getCause() instanceof FileUploadBase.SizeLimitExceededException)
+					tooLarge((FileUploadBase.SizeLimitExceededException) e.getCause(), files);
+				else
+					e.printStackTrace();
 			} catch (FileUploadException e) {
 				e.printStackTrace();
 			}
+
+			parseParameters();
+
+			files_.putAll(files);
+			for (Map.Entry<String, List<String>> field : fields.entrySet()) {
+				String[] v = parameters_.get(field.getKey());
+				List<String> values = field.getValue();
+				if (v == null)
+					v = new String[values.size()];
+				else {
+					String[] newv = new String[v.length + values.size()];
+					for (int i = 0; i < v.length; ++i)
+						newv[i] = v[i];
+					v = newv;
+				}
+				for (int i = 0; i < values.size(); ++i)
+					v[v.length - values.size() + i] = values.get(i);
+				parameters_.put(field.getKey(), v);
+			}
 		} else
 			parseParameters();
 	}
 
+	private void tooLarge(FileUploadBase.SizeLimitExceededException e, Map<String, List<UploadedFile>> files) {
+		postDataExceeded_ = Math.max(e.getActualSize(), e.getPermittedSize() + 1);
+
+		for (List<UploadedFile> l : files.values())
+			for (UploadedFile f : l)
+				new File(f.getSpoolFileName()).delete();
+		files.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static String getCharset(String contentType) {
+		String charset = null;
+		if (contentType != null) {
+			ParameterParser parser = new ParameterParser();
+			parser.setLowerCaseNames(true);
+			Map<String, String> params = parser.parse(contentType, ';');
+			charset = params.get("charset");
+		}
+		return charset != null ? charset : "ISO-8859-1";
+	}
+
+	/**
+	 * Returns the size of a request that exceeded the maximum request size.
+	 * <p>
+	 * When a (multipart) request was larger than
+	 * {@link Configuration#getMaxRequestSize()}, its contents was discarded
+	 * and this returns its size (or a lower bound if the size was not
+	 * announced). Otherwise this returns 0.
+	 */
+	public long postDataExceeded() {
+		return postDataExceeded_;
+	}
+
 	private void parseParameters() throws IOException {
 		Map<String, String[]> parameterMap = super.getParameterMap();
 
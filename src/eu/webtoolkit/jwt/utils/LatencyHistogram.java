@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations, from which percentiles can be computed.
+ * <p>
+ * Durations are counted in buckets which have a bounded relative width (as in
+ * a high dynamic range histogram): every power of two is divided in 32
+ * buckets, so that percentiles are accurate to within about 3%, from a
+ * nanosecond up to hours. Recording a duration does not allocate nor take a
+ * lock, and may be done concurrently by any number of threads.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanoseconds the duration, in nanoseconds
+	 */
+	public void record(long nanoseconds) {
+		if (nanoseconds < 0)
+			nanoseconds = 0;
+
+		counts.incrementAndGet(getBucket(nanoseconds));
+		count.incrementAndGet();
+		total.addAndGet(nanoseconds);
+
+		for (;;) {
+			long m = max.get();
+			if (nanoseconds <= m || max.compareAndSet(m, nanoseconds))
+				break;
+		}
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the mean duration, in milliseconds.
+	 */
+	public double getMeanMillis() {
+		long n = count.get();
+		return n == 0 ? 0 : total.get() / 1E6 / n;
+	}
+
+	/**
+	 * Returns the longest duration, in milliseconds.
+	 */
+	public double getMaxMillis() {
+		return max.get() / 1E6;
+	}
+
+	public double get50thPercentileMillis() {
+		return getPercentile(50) / 1E6;
+	}
+
+	public double get90thPercentileMillis() {
+		return getPercentile(90) / 1E6;
+	}
+
+	public double get99thPercentileMillis() {
+		return getPercentile(99) / 1E6;
+	}
+
+	public double get999thPercentileMillis() {
+		return getPercentile(99.9) / 1E6;
+	}
+
+	/**
+	 * Returns a percentile of the recorded durations, in nanoseconds.
+	 * <p>
+	 * Since durations are recorded concurrently, the result is only
+	 * approximate while durations are being recorded.
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 */
+	public long getPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			snapshot[i] = counts.get(i);
+			n += snapshot[i];
+		}
+
+		if (n == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(percentile / 100 * n);
+		if (rank < 1)
+			rank = 1;
+
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			seen += snapshot[i];
+			if (seen >= rank)
+				return Math.min(getBucketValue(i), max.get());
+		}
+
+		return max.get();
+	}
+
+	/**
+	 * Discards all recorded durations.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; ++i)
+			counts.set(i, 0);
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+
+	private static int getBucket(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/*
+	 * Returns the middle of the range of values counted in a bucket.
+	 */
+	private static long getBucketValue(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + ((1L << shift) >> 1);
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.utils;
+
+/**
+ * Management interface of a {@link LatencyHistogram}.
+ */
+public interface LatencyHistogramMBean {
+	public long getCount();
+
+	public double getMeanMillis();
+
+	public double getMaxMillis();
+
+	public double get50thPercentileMillis();
+
+	public double get90thPercentileMillis();
+
+	public double get99thPercentileMillis();
+
+	public double get999thPercentileMillis();
+
+	public void reset();
+}
@@ -5,14 +5,88 @@
  */
 package eu.webtoolkit.jwt.utils;
 
-import java.util.Random;
+import java.security.SecureRandom;
 
 public class MathUtils {
+	/*
+	 * Random numbers are used for session ids, authentication tokens and
+	 * secrets, and thus need to be cryptographically strong. Every thread has
+	 * its own generator so that concurrent requests do not contend for one
+	 * generator, and it draws random bytes in batches.
+	 */
+	private static final int RANDOM_BUFFER_SIZE = 512;
+
+	private static class RandomBuffer {
+		private final SecureRandom random = new SecureRandom();
+		private final byte[] buffer = new byte[RANDOM_BUFFER_SIZE];
+		private int pos = RANDOM_BUFFER_SIZE;
+
+		int nextByte() {
+			if (pos == buffer.length) {
+				random.nextBytes(buffer);
+				pos = 0;
+			}
+			return buffer[pos++] & 0xFF;
+		}
+
+		int nextInt() {
+			return (nextByte() << 24) | (nextByte() << 16) | (nextByte() << 8) | nextByte();
+		}
+
+		void nextBytes(byte[] bytes) {
+			if (bytes.length > buffer.length / 2)
+				random.nextBytes(bytes);
+			else
+				for (int i = 0; i < bytes.length; ++i)
+					bytes[i] = (byte) nextByte();
+		}
+	}
+
+	private static final ThreadLocal<RandomBuffer> random = new ThreadLocal<RandomBuffer>() {
+		@Override
+		protected RandomBuffer initialValue() {
+			return new RandomBuffer();
+		}
+	};
+
+	private static final char[] ID_CHARS = ("0123456789"
+			+ "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+			+ "abcdefghijklmnopqrstuvwxyz").toCharArray();
+
+	/*
+	 * The largest multiple of ID_CHARS.length that fits in a byte: bytes from
+	 * this value onwards are discarded, so that every character is equally
+	 * likely.
+	 */
+	private static final int ID_BYTE_LIMIT = 256 - 256 % ID_CHARS.length;
+
 	public static int randomInt() {
-		return random.nextInt();
+		return random.get().nextInt();
+	}
+
+	/**
+	 * Returns a random number in the range [0, bound).
+	 */
+	public static int randomInt(int bound) {
+		if (bound <= 0)
+			throw new IllegalArgumentException("bound must be positive");
+
+		RandomBuffer r = random.get();
+		int limit = Integer.MAX_VALUE - Integer.MAX_VALUE % bound;
+		for (;;) {
+			int v = r.nextInt() & Integer.MAX_VALUE;
+			if (v < limit)
+				return v % bound;
+		}
+	}
+
+	/**
+	 * Fills an array with random bytes.
+	 */
+	public static void randomBytes(byte[] bytes) {
+		random.get().nextBytes(bytes);
 	}
 
-	static private Random random = new Random();
 	private static double e[] = new double[] { 1.0, 10.0, 100.0, 1000.0, 10000.0, 100000.0, 1000000.0 };
 
 	public static String roundCss(double v, int n) {
@@ -26,20 +100,20 @@ public class MathUtils {
 	public static String randomId() {
 		return randomId(16);
 	}
-	
-	public static String randomId(int length) {
-		StringBuilder result = new StringBuilder();
-		
-		for (int i = 0; i < length; ++i) {
-		    int d = Math.abs(randomInt()) % (26 + 26 + 10);
 
-		    int c = (d < 10 ? ('0' + d)
-			      : (d < 36 ? ('A' + d - 10)
-				 : 'a' + d - 36));
+	/**
+	 * Returns a random string of letters and digits.
+	 */
+	public static String randomId(int length) {
+		RandomBuffer r = random.get();
+		char[] result = new char[length];
 
-		    result.append((char) c);
+		for (int i = 0; i < length;) {
+			int b = r.nextByte();
+			if (b < ID_BYTE_LIMIT)
+				result[i++] = ID_CHARS[b % ID_CHARS.length];
 		}
-		
+
 		return new String(result);
 	}
 }
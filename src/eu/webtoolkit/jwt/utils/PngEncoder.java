@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Callable;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A PNG encoder for ARGB images.
+ * <p>
+ * This encoder is a faster alternative to <code>ImageIO.write()</code> for the
+ * images produced by {@link eu.webtoolkit.jwt.WRasterPaintDevice}: it reads the
+ * pixels directly from the image raster, applies an adaptive row filter, and
+ * uses a configurable compression level.
+ * <p>
+ * Large images may be compressed on multiple threads: the image is split into
+ * bands of rows that are deflated in parallel, and the resulting streams are
+ * concatenated into a single zlib stream (like <code>pigz</code> does). This
+ * costs a little in compression ratio.
+ */
+public class PngEncoder {
+	private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10,
+			26, 10 };
+	private static final int BYTES_PER_PIXEL = 4;
+	private static final int MIN_ROWS_PER_BAND = 16;
+
+	private int compressionLevel;
+	private int parallelThreshold;
+
+	/**
+	 * Creates an encoder with default settings.
+	 * <p>
+	 * The default compression level is 6, and images of at least 512x512
+	 * pixels are compressed in parallel.
+	 */
+	public PngEncoder() {
+		this(6, 512 * 512);
+	}
+
+	/**
+	 * Creates an encoder.
+	 *
+	 * @param compressionLevel
+	 *            the compression level (0-9)
+	 * @param parallelThreshold
+	 *            the minimum number of pixels for parallel compression (0
+	 *            disables parallel compression)
+	 */
+	public PngEncoder(int compressionLevel, int parallelThreshold) {
+		setCompressionLevel(compressionLevel);
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * Sets the compression level.
+	 * <p>
+	 * The level ranges from 0 (no compression) to 9 (best compression). Lower
+	 * levels are considerably faster, at the cost of larger images.
+	 */
+	public void setCompressionLevel(int level) {
+		if (level < 0 || level > 9)
+			throw new IllegalArgumentException("PngEncoder: illegal compression level: " + level);
+		this.compressionLevel = level;
+	}
+
+	/**
+	 * Returns the compression level.
+	 *
+	 * @see #setCompressionLevel(int)
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * Sets the minimum image size (in pixels) for parallel compression.
+	 * <p>
+	 * A value of 0 disables parallel compression.
+	 */
+	public void setParallelThreshold(int pixels) {
+		this.parallelThreshold = pixels;
+	}
+
+	/**
+	 * Returns the minimum image size (in pixels) for parallel compression.
+	 *
+	 * @see #setParallelThreshold(int)
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Encodes an image as PNG.
+	 */
+	public byte[] encode(BufferedImage image) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			encode(image, out);
+		} catch (IOException e) {
+			// cannot happen with a ByteArrayOutputStream
+			throw new RuntimeException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encodes an image as PNG to an output stream.
+	 */
+	public void encode(BufferedImage image, OutputStream out) throws IOException {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int[] pixels = getPixels(image);
+
+		out.write(SIGNATURE);
+
+		byte[] header = new byte[13];
+		writeInt(header, 0, width);
+		writeInt(header, 4, height);
+		header[8] = 8; // bit depth
+		header[9] = 6; // color type: RGBA
+		header[10] = 0; // compression method
+		header[11] = 0; // filter method
+		header[12] = 0; // interlace method
+		writeChunk(out, "IHDR", header, header.length);
+
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		int bands = getBandCount(width, height);
+		if (bands > 1)
+			deflateParallel(pixels, width, height, bands, data);
+		else
+			deflate(pixels, width, height, data);
+		writeChunk(out, "IDAT", data.toByteArray(), data.size());
+
+		writeChunk(out, "IEND", new byte[0], 0);
+	}
+
+	private int getBandCount(int width, int height) {
+		if (parallelThreshold <= 0 || (long) width * height < parallelThreshold)
+			return 1;
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		return Math.max(1, Math.min(threads, height / MIN_ROWS_PER_BAND));
+	}
+
+	private void deflate(int[] pixels, int width, int height, ByteArrayOutputStream out) {
+		Deflater deflater = new Deflater(compressionLevel);
+		try {
+			byte[] buffer = new byte[16 * 1024];
+			byte[] filtered = new byte[1 + width * BYTES_PER_PIXEL];
+			byte[] row = new byte[width * BYTES_PER_PIXEL];
+			byte[] prior = new byte[width * BYTES_PER_PIXEL];
+			for (int y = 0; y < height; ++y) {
+				byte[] tmp = prior;
+				prior = row;
+				row = tmp;
+				toBytes(pixels, y * width, width, row);
+				filterRow(row, y == 0 ? null : prior, filtered);
+				deflater.setInput(filtered);
+				while (!deflater.needsInput())
+					out.write(buffer, 0, deflater.deflate(buffer));
+			}
+			deflater.finish();
+			while (!deflater.finished())
+				out.write(buffer, 0, deflater.deflate(buffer));
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void deflateParallel(final int[] pixels, final int width, final int height, int bands,
+			ByteArrayOutputStream out) throws IOException {
+		List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+		final long[] checksums = new long[bands];
+		int rowsPerBand = (height + bands - 1) / bands;
+		for (int i = 0; i < bands; ++i) {
+			final int band = i;
+			final int first = i * rowsPerBand;
+			final int last = Math.min(height, first + rowsPerBand);
+			final boolean finish = last == height;
+			results.add(getExecutor().submit(new Callable<byte[]>() {
+				public byte[] call() {
+					Deflater deflater = new Deflater(compressionLevel, true);
+					Adler32 adler = new Adler32();
+					try {
+						ByteArrayOutputStream result = new ByteArrayOutputStream();
+						byte[] buffer = new byte[16 * 1024];
+						byte[] filtered = new byte[1 + width * BYTES_PER_PIXEL];
+						byte[] row = new byte[width * BYTES_PER_PIXEL];
+						byte[] prior = new byte[width * BYTES_PER_PIXEL];
+						if (first > 0)
+							toBytes(pixels, (first - 1) * width, width, row);
+						for (int y = first; y < last; ++y) {
+							byte[] tmp = prior;
+							prior = row;
+							row = tmp;
+							toBytes(pixels, y * width, width, row);
+							filterRow(row, y == 0 ? null : prior, filtered);
+							adler.update(filtered);
+							deflater.setInput(filtered);
+							while (!deflater.needsInput())
+								result.write(buffer, 0, deflater.deflate(buffer));
+						}
+						if (finish) {
+							deflater.finish();
+							while (!deflater.finished())
+								result.write(buffer, 0, deflater.deflate(buffer));
+						} else {
+							int n;
+							do {
+								n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+								result.write(buffer, 0, n);
+							} while (n == buffer.length);
+						}
+						checksums[band] = adler.getValue();
+						return result.toByteArray();
+					} finally {
+						deflater.end();
+					}
+				}
+			}));
+		}
+
+		// zlib header: deflate with a 32K window, no preset dictionary
+		int flevel = compressionLevel < 2 ? 0 : compressionLevel < 6 ? 1 : compressionLevel == 6 ? 2 : 3;
+		int cmf = 0x78;
+		int flg = flevel << 6;
+		flg += 31 - ((cmf << 8) + flg) % 31;
+		out.write(cmf);
+		out.write(flg);
+
+		long adler = 1;
+		try {
+			for (int i = 0; i < bands; ++i) {
+				byte[] compressed = results.get(i).get();
+				out.write(compressed);
+				int first = i * rowsPerBand;
+				int last = Math.min(height, first + rowsPerBand);
+				long length = (long) (last - first) * (1 + width * BYTES_PER_PIXEL);
+				adler = adler32Combine(adler, checksums[i], length);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("PngEncoder: interrupted");
+		} catch (ExecutionException e) {
+			throw new IOException("PngEncoder: " + e.getCause());
+		}
+
+		byte[] trailer = new byte[4];
+		writeInt(trailer, 0, (int) adler);
+		out.write(trailer);
+	}
+
+	private static int[] getPixels(BufferedImage image) {
+		if (image.getType() == BufferedImage.TYPE_INT_ARGB
+				&& image.getRaster().getDataBuffer() instanceof DataBufferInt
+				&& image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel) {
+			SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) image.getRaster().getSampleModel();
+			DataBufferInt buffer = (DataBufferInt) image.getRaster().getDataBuffer();
+			if (model.getScanlineStride() == image.getWidth() && buffer.getOffset() == 0
+					&& image.getRaster().getParent() == null)
+				return buffer.getData();
+		}
+
+		return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+	}
+
+	private static void toBytes(int[] pixels, int offset, int width, byte[] row) {
+		for (int x = 0, i = 0; x < width; ++x) {
+			int argb = pixels[offset + x];
+			row[i++] = (byte) (argb >> 16);
+			row[i++] = (byte) (argb >> 8);
+			row[i++] = (byte) argb;
+			row[i++] = (byte) (argb >> 24);
+		}
+	}
+
+	/*
+	 * Chooses the filter type for a row using the minimum sum of absolute
+	 * differences heuristic recommended by the PNG specification.
+	 */
+	private static void filterRow(byte[] row, byte[] prior, byte[] filtered) {
+		int n = row.length;
+
+		if (prior == null) {
+			long sumNone = 0, sumSub = 0;
+			for (int i = 0; i < n; ++i) {
+				int r = row[i];
+				int a = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] : 0;
+				sumNone += Math.abs(r);
+				sumSub += Math.abs((byte) (r - a));
+			}
+			if (sumSub < sumNone) {
+				filtered[0] = 1;
+				for (int i = 0; i < n; ++i)
+					filtered[i + 1] = (byte) (row[i] - (i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] : 0));
+			} else {
+				filtered[0] = 0;
+				System.arraycopy(row, 0, filtered, 1, n);
+			}
+			return;
+		}
+
+		if (equals(row, prior)) {
+			filtered[0] = 2;
+			Arrays.fill(filtered, 1, n + 1, (byte) 0);
+			return;
+		}
+
+		int sumNone = 0, sumSub = 0, sumUp = 0, sumAverage = 0, sumPaeth = 0;
+		for (int i = 0; i < n; ++i) {
+			int r = row[i];
+			int a = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xff : 0;
+			int b = prior[i] & 0xff;
+			int c = i >= BYTES_PER_PIXEL ? prior[i - BYTES_PER_PIXEL] & 0xff : 0;
+			sumNone += Math.abs(r);
+			sumSub += Math.abs((byte) (r - a));
+			sumUp += Math.abs((byte) (r - b));
+			sumAverage += Math.abs((byte) (r - ((a + b) >> 1)));
+			sumPaeth += Math.abs((byte) (r - paeth(a, b, c)));
+		}
+
+		int[] sums = { sumNone, sumSub, sumUp, sumAverage, sumPaeth };
+		int type = 0;
+		for (int t = 1; t < 5; ++t)
+			if (sums[t] < sums[type])
+				type = t;
+
+		filtered[0] = (byte) type;
+		switch (type) {
+		case 0:
+			System.arraycopy(row, 0, filtered, 1, n);
+			break;
+		case 1:
+			for (int i = 0; i < n; ++i)
+				filtered[i + 1] = (byte) (row[i] - (i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] : 0));
+			break;
+		case 2:
+			for (int i = 0; i < n; ++i)
+				filtered[i + 1] = (byte) (row[i] - prior[i]);
+			break;
+		case 3:
+			for (int i = 0; i < n; ++i) {
+				int a = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xff : 0;
+				filtered[i + 1] = (byte) (row[i] - ((a + (prior[i] & 0xff)) >> 1));
+			}
+			break;
+		default:
+			for (int i = 0; i < n; ++i) {
+				int a = i >= BYTES_PER_PIXEL ? row[i - BYTES_PER_PIXEL] & 0xff : 0;
+				int c = i >= BYTES_PER_PIXEL ? prior[i - BYTES_PER_PIXEL] & 0xff : 0;
+				filtered[i + 1] = (byte) (row[i] - paeth(a, prior[i] & 0xff, c));
+			}
+		}
+	}
+
+	private static boolean equals(byte[] row, byte[] prior) {
+		for (int i = 0; i < row.length; ++i)
+			if (row[i] != prior[i])
+				return false;
+		return true;
+	}
+
+	private static int paeth(int a, int b, int c) {
+		int p = a + b - c;
+		int pa = Math.abs(p - a);
+		int pb = Math.abs(p - b);
+		int pc = Math.abs(p - c);
+		if (pa <= pb && pa <= pc)
+			return a;
+		else if (pb <= pc)
+			return b;
+		else
+			return c;
+	}
+
+	private static long adler32Combine(long adler1, long adler2, long length2) {
+		final long base = 65521;
+		long rem = length2 % base;
+		long sum1 = adler1 & 0xffff;
+		long sum2 = (rem * sum1) % base;
+		sum1 += (adler2 & 0xffff) + base - 1;
+		sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + base - rem;
+		if (sum1 >= base)
+			sum1 -= base;
+		if (sum1 >= base)
+			sum1 -= base;
+		if (sum2 >= (base << 1))
+			sum2 -= (base << 1);
+		if (sum2 >= base)
+			sum2 -= base;
+		return sum1 | (sum2 << 16);
+	}
+
+	private static void writeChunk(OutputStream out, String type, byte[] data, int length)
+			throws IOException {
+		byte[] header = new byte[8];
+		writeInt(header, 0, length);
+		for (int i = 0; i < 4; ++i)
+			header[4 + i] = (byte) type.charAt(i);
+		out.write(header);
+		out.write(data, 0, length);
+
+		CRC32 crc = new CRC32();
+		crc.update(header, 4, 4);
+		crc.update(data, 0, length);
+		byte[] trailer = new byte[4];
+		writeInt(trailer, 0, (int) crc.getValue());
+		out.write(trailer);
+	}
+
+	private static void writeInt(byte[] b, int offset, int value) {
+		b[offset] = (byte) (value >>> 24);
+		b[offset + 1] = (byte) (value >>> 16);
+		b[offset + 2] = (byte) (value >>> 8);
+		b[offset + 3] = (byte) value;
+	}
+
+	/*
+	 * The thread pool is only created when an image is first compressed in
+	 * parallel.
+	 */
+	private static class ExecutorHolder {
+		static final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime()
+				.availableProcessors(), new ThreadFactory() {
+			private int count = 0;
+
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "jwt-png-encoder-" + (++count));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	private static ExecutorService getExecutor() {
+		return ExecutorHolder.executor;
+	}
+}
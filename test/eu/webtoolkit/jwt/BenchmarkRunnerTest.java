@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BenchmarkRunnerTest {
+	public static class Allocating {
+		private long counter = 1 << 20;
+
+		@Benchmark
+		public void empty() {
+		}
+
+		@Benchmark
+		public long boxed() {
+			return ++counter;
+		}
+
+		@Benchmark
+		public Object array() {
+			return new byte[1000];
+		}
+	}
+
+	public static class PerInvocation {
+		static int setups, tearDowns, invocations;
+
+		@Setup(Setup.Level.Invocation)
+		public void setUp() {
+			++setups;
+		}
+
+		@TearDown(Setup.Level.Invocation)
+		public void tearDown() {
+			++tearDowns;
+		}
+
+		@Benchmark
+		public void run() {
+			if (setups != tearDowns + 1)
+				throw new IllegalStateException();
+			++invocations;
+		}
+	}
+
+	@Test
+	public void testOverheadSubtracted() throws Exception {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return;
+
+		BenchmarkRunner runner = createRunner();
+
+		/* Boxing the result of the reflective call is not counted */
+		assertEquals(0, getBytesPerOperation(runner, Allocating.class, "empty"), 8);
+		assertEquals(0, getBytesPerOperation(runner, Allocating.class, "boxed"), 8);
+		assertEquals(1016, getBytesPerOperation(runner, Allocating.class, "array"), 16);
+	}
+
+	@Test
+	public void testPerInvocation() throws Exception {
+		BenchmarkRunner runner = createRunner();
+		PerInvocation.setups = PerInvocation.tearDowns = PerInvocation.invocations = 0;
+
+		List<BenchmarkRunner.Iteration> result = runner.runBenchmark(PerInvocation.class,
+				PerInvocation.class.getMethod("run"));
+
+		assertEquals(runner.iterations, result.size());
+		assertEquals(PerInvocation.invocations, PerInvocation.setups);
+		assertEquals(PerInvocation.invocations, PerInvocation.tearDowns);
+
+		long operations = 0;
+		for (BenchmarkRunner.Iteration iteration : result) {
+			assertTrue(iteration.nanos >= 0);
+			assertTrue(iteration.bytes >= 0);
+			operations += iteration.operations;
+		}
+		assertTrue(operations > 0 && operations < PerInvocation.invocations);
+	}
+
+	private static BenchmarkRunner createRunner() {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.warmupIterations = 2;
+		runner.iterations = 2;
+		runner.iterationNanos = 50 * 1000000L;
+		return runner;
+	}
+
+	private static double getBytesPerOperation(BenchmarkRunner runner, Class<?> c, String name) throws Exception {
+		long operations = 0, bytes = 0;
+		for (BenchmarkRunner.Iteration iteration : runner.runBenchmark(c, c.getMethod(name))) {
+			operations += iteration.operations;
+			bytes += iteration.bytes;
+		}
+		return (double) bytes / operations;
+	}
+}
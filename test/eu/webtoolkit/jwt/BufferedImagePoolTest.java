@@ -0,0 +1,47 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+public class BufferedImagePoolTest {
+	@Test
+	public void testReuse() {
+		BufferedImage image = BufferedImagePool.acquire(31, 17);
+		image.setRGB(3, 4, 0xff00ff00);
+		BufferedImagePool.release(image);
+
+		BufferedImage reused = BufferedImagePool.acquire(31, 17);
+		assertSame(image, reused);
+		assertEquals(0, reused.getRGB(3, 4));
+
+		BufferedImage other = BufferedImagePool.acquire(31, 17);
+		assertNotSame(reused, other);
+	}
+
+	@Test
+	public void testSizeLimit() {
+		BufferedImage image = new BufferedImage(4096, 4096, BufferedImage.TYPE_INT_ARGB);
+		BufferedImagePool.release(image);
+		assertNotSame(image, BufferedImagePool.acquire(4096, 4096));
+	}
+
+	@Test
+	public void testRasterDevice() {
+		WRasterPaintDevice device = new WRasterPaintDevice("png", new WLength(50), new WLength(40));
+		WPainter painter = new WPainter(device);
+		painter.fillRect(0, 0, 10, 10, new WBrush(WColor.red));
+		painter.end();
+
+		byte[] encoded = device.getEncodedData();
+		assertNotNull(encoded);
+		assertSame(encoded, device.getEncodedData());
+
+		painter = new WPainter(device);
+		painter.fillRect(10, 10, 10, 10, new WBrush(WColor.blue));
+		painter.end();
+		assertNotSame(encoded, device.getEncodedData());
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class ConfigurationTest {
+	private static final String FIREFOX = "Mozilla/5.0 (X11; Linux x86_64; rv:45.0) Gecko/20100101 Firefox/45.0";
+	private static final String CHROME = "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/49.0.2623.87 Safari/537.36";
+	private static final String IE11 = "Mozilla/5.0 (Windows NT 6.1; Trident/7.0; rv:11.0) like Gecko";
+	private static final String GOOGLEBOT = "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)";
+
+	@Test
+	public void testClassifyUserAgent() {
+		Configuration conf = new Configuration();
+
+		assertEquals(WEnvironment.UserAgent.Firefox5_0, conf.classifyUserAgent(FIREFOX).agent);
+		assertEquals(WEnvironment.UserAgent.Chrome5, conf.classifyUserAgent(CHROME).agent);
+		assertEquals(WEnvironment.UserAgent.IE11, conf.classifyUserAgent(IE11).agent);
+		assertEquals(WEnvironment.UserAgent.BotAgent, conf.classifyUserAgent(GOOGLEBOT).agent);
+
+		assertFalse(conf.agentIsBot(FIREFOX));
+		assertTrue(conf.agentIsBot(GOOGLEBOT));
+		assertTrue(conf.agentSupportsAjax(FIREFOX));
+	}
+
+	@Test
+	public void testCache() {
+		Configuration conf = new Configuration();
+
+		Configuration.UserAgentInfo info = conf.classifyUserAgent(FIREFOX);
+		assertSame(info, conf.classifyUserAgent(FIREFOX));
+		assertNotSame(info, conf.classifyUserAgent(CHROME));
+
+		/* Long user agents are not cached */
+		StringBuilder ua = new StringBuilder(FIREFOX);
+		while (ua.length() < 1000)
+			ua.append(" x");
+		Configuration.UserAgentInfo longInfo = conf.classifyUserAgent(ua.toString());
+		assertEquals(WEnvironment.UserAgent.Firefox5_0, longInfo.agent);
+		assertNotSame(longInfo, conf.classifyUserAgent(ua.toString()));
+
+		/* The cache is bounded */
+		for (int i = 0; i < 2000; ++i)
+			conf.classifyUserAgent(FIREFOX + " " + i);
+		assertEquals(WEnvironment.UserAgent.Firefox5_0, conf.classifyUserAgent(FIREFOX).agent);
+		assertTrue(getCacheSize(conf) <= 1024);
+	}
+
+	@Test
+	public void testChangedLists() {
+		Configuration conf = new Configuration();
+		assertFalse(conf.agentIsBot(FIREFOX));
+
+		ArrayList<String> bots = new ArrayList<String>();
+		bots.add(".*Firefox.*");
+		conf.setBotList(bots);
+		assertTrue(conf.agentIsBot(FIREFOX));
+		assertEquals(WEnvironment.UserAgent.BotAgent, conf.classifyUserAgent(FIREFOX).agent);
+		assertFalse(conf.agentIsBot(GOOGLEBOT));
+
+		/* A list that is changed in place takes effect when it is set again */
+		conf.getBotList().add(".*Chrome.*");
+		assertFalse(conf.agentIsBot(CHROME));
+		conf.setBotList(conf.getBotList());
+		assertTrue(conf.agentIsBot(CHROME));
+
+		ArrayList<String> ajaxAgents = new ArrayList<String>();
+		ajaxAgents.add(".*Trident.*");
+		conf.setAjaxAgentList(ajaxAgents, false);
+		assertFalse(conf.agentSupportsAjax(IE11));
+		assertTrue(conf.agentSupportsAjax(CHROME));
+
+		conf.setAjaxAgentList(ajaxAgents, true);
+		assertTrue(conf.agentSupportsAjax(IE11));
+		assertFalse(conf.agentSupportsAjax(CHROME));
+	}
+
+	private static int getCacheSize(Configuration conf) {
+		try {
+			java.lang.reflect.Field f = Configuration.class.getDeclaredField("userAgentClassifier");
+			f.setAccessible(true);
+			Object classifier = f.get(conf);
+			java.lang.reflect.Field cache = classifier.getClass().getDeclaredField("cache");
+			cache.setAccessible(true);
+			return ((java.util.Map<?, ?>) cache.get(classifier)).size();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
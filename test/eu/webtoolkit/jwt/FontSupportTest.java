@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class FontSupportTest {
+	@Test
+	public void testFontIndex() throws IOException {
+		File dir = createDirectory();
+		try {
+			File arial = createFile(dir, "arial.ttf", 1);
+
+			FontSupport fs = new FontSupport(null);
+			fs.addFontCollection(dir.getPath(), true);
+
+			WFont font = new WFont(WFont.GenericFamily.SansSerif);
+			FontSupport.FontMatch m = fs.matchFont(font);
+			assertEquals(arial.getPath(), m.getFileName());
+			double arialQuality = m.getQuality();
+
+			/* A better match is not found until the index is cleared */
+			File sub = new File(dir, "sub");
+			sub.mkdir();
+			File helvetica = createFile(sub, "helvetica.ttf", 2);
+			FontSupport fs2 = new FontSupport(null);
+			fs2.addFontCollection(dir.getPath(), true);
+			assertEquals(arial.getPath(), fs2.matchFont(font).getFileName());
+
+			FontSupport.clearFontIndex();
+			m = fs.matchFont(font);
+			assertEquals(helvetica.getPath(), m.getFileName());
+			assertTrue(m.getQuality() > arialQuality);
+
+			/* Only the named directory is searched when not recursive */
+			FontSupport flat = new FontSupport(null);
+			flat.addFontCollection(dir.getPath(), false);
+			assertEquals(arial.getPath(), flat.matchFont(font).getFileName());
+		} finally {
+			delete(dir);
+			FontSupport.clearFontIndex();
+		}
+	}
+
+	@Test
+	public void testFontData() throws IOException {
+		File dir = createDirectory();
+		try {
+			File f = createFile(dir, "arial.ttf", 100);
+			byte[] data = FontSupport.getFontData(f.getPath());
+			assertEquals(100, data.length);
+			assertSame(data, FontSupport.getFontData(f.getPath()));
+
+			FontSupport.clearFontIndex();
+			byte[] data2 = FontSupport.getFontData(f.getPath());
+			assertNotSame(data, data2);
+			assertTrue(java.util.Arrays.equals(data, data2));
+		} finally {
+			delete(dir);
+			FontSupport.clearFontIndex();
+		}
+	}
+
+	private static File createDirectory() throws IOException {
+		File result = File.createTempFile("fonts", "");
+		result.delete();
+		result.mkdir();
+		return result;
+	}
+
+	private static File createFile(File dir, String name, int size) throws IOException {
+		File result = new File(dir, name);
+		FileOutputStream out = new FileOutputStream(result);
+		try {
+			for (int i = 0; i < size; ++i)
+				out.write(i);
+		} finally {
+			out.close();
+		}
+		return result;
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null)
+			for (File c : children)
+				delete(c);
+		f.delete();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+public class JavaScriptBundlesTest {
+	private static final WJavaScriptPreamble F1 = new WJavaScriptPreamble(JavaScriptScope.WtClassScope,
+			JavaScriptObjectType.JavaScriptFunction, "f1", "function() { return 1; }");
+	private static final WJavaScriptPreamble F2 = new WJavaScriptPreamble(JavaScriptScope.WtClassScope,
+			JavaScriptObjectType.JavaScriptFunction, "f2", "function() { return 2; }");
+	private static final WJavaScriptPreamble F2_OTHER = new WJavaScriptPreamble(JavaScriptScope.WtClassScope,
+			JavaScriptObjectType.JavaScriptFunction, "f2", "function() { return 22; }");
+
+	@Test
+	public void testDisabledByDefault() {
+		assertFalse(new Configuration().isJavaScriptBundles());
+	}
+
+	@Test
+	public void testGetUrl() {
+		JavaScriptBundles bundles = new JavaScriptBundles();
+
+		String url = bundles.getUrl(Arrays.asList(F1, F2));
+		assertTrue(url.startsWith("?wtbundle="));
+		assertEquals(url, bundles.getUrl(Arrays.asList(F1, F2)));
+		assertFalse(url.equals(bundles.getUrl(Arrays.asList(F1))));
+
+		/* Bundles are identified by their contents */
+		assertEquals(url, new JavaScriptBundles().getUrl(Arrays.asList(F1, F2)));
+		assertTrue(url.endsWith("-f1-f2"));
+
+		/* Preambles with the same name but other contents are another bundle */
+		String otherUrl = bundles.getUrl(Arrays.asList(F1, F2_OTHER));
+		assertFalse(url.equals(otherUrl));
+		assertTrue(otherUrl.endsWith("-f1-f2"));
+	}
+
+	@Test
+	public void testRecreate() throws IOException {
+		String url = new JavaScriptBundles().getUrl(Arrays.asList(F1, F2));
+		String otherUrl = new JavaScriptBundles().getUrl(Arrays.asList(F1, F2_OTHER));
+		String query = url.substring(1);
+
+		/* A servlet that has not bundled the preambles cannot create the bundle */
+		JavaScriptBundles bundles = new JavaScriptBundles();
+		ServletFixture.Response r = new ServletFixture.Response();
+		assertTrue(bundles.handleRequest(createRequest("GET", query, null, null), r.create()));
+		assertEquals(404, r.status);
+
+		/* But a cached copy is still valid */
+		r = new ServletFixture.Response();
+		String etag = '"' + query.substring("wtbundle=".length(), query.indexOf('-')) + '"';
+		assertTrue(bundles.handleRequest(createRequest("GET", query, null, etag), r.create()));
+		assertEquals(304, r.status);
+
+		/* Bundles of the same preambles, which may be in a different order */
+		bundles.getUrl(Arrays.asList(F2));
+		bundles.getUrl(Arrays.asList(F2_OTHER, F1));
+
+		r = new ServletFixture.Response();
+		assertTrue(bundles.handleRequest(createRequest("GET", query, null, null), r.create()));
+		assertEquals(200, r.status);
+		assertTrue(r.getBody().contains("return 1;"));
+		assertTrue(r.getBody().contains("return 2;"));
+		assertEquals("public, max-age=31536000", r.headers.get("Cache-Control"));
+
+		r = new ServletFixture.Response();
+		assertTrue(bundles.handleRequest(createRequest("GET", otherUrl.substring(1), null, null), r.create()));
+		assertEquals(200, r.status);
+		assertTrue(r.getBody().contains("return 1;"));
+		assertTrue(r.getBody().contains("return 22;"));
+
+		/* The hash must match */
+		r = new ServletFixture.Response();
+		assertTrue(bundles.handleRequest(createRequest("GET", "wtbundle=0123-f1-f2", null, null), r.create()));
+		assertEquals(404, r.status);
+	}
+
+	@Test
+	public void testHandleRequest() throws IOException {
+		JavaScriptBundles bundles = new JavaScriptBundles();
+		String url = bundles.getUrl(Arrays.asList(F1, F2));
+		String query = url.substring(1);
+
+		ServletFixture.Response r = new ServletFixture.Response();
+		assertFalse(bundles.handleRequest(createRequest("GET", "wtd=abc", null, null), r.create()));
+		assertFalse(bundles.handleRequest(createRequest("POST", query, null, null), r.create()));
+
+		r = new ServletFixture.Response();
+		assertTrue(bundles.handleRequest(createRequest("GET", query, null, null), r.create()));
+		assertEquals(200, r.status);
+		String js = r.getBody();
+		assertTrue(js.contains("Wt3_3_5.f1 = function()"));
+		assertTrue(js.contains("Wt3_3_5.f2 = function()"));
+		assertEquals("public, max-age=31536000", r.headers.get("Cache-Control"));
+		String etag = r.headers.get("ETag");
+		assertNotNull(etag);
+
+		r = new ServletFixture.Response();
+		assertTrue(bundles.handleRequest(createRequest("GET", query, "gzip, deflate", null), r.create()));
+		assertEquals("gzip", r.headers.get("Content-Encoding"));
+		assertEquals(js, gunzip(r.body.toByteArray()));
+
+		r = new ServletFixture.Response();
+		assertTrue(bundles.handleRequest(createRequest("GET", query, null, etag), r.create()));
+		assertEquals(304, r.status);
+		assertEquals(0, r.body.size());
+
+		r = new ServletFixture.Response();
+		assertTrue(bundles.handleRequest(createRequest("GET", "wtbundle=0123", null, null), r.create()));
+		assertEquals(404, r.status);
+	}
+
+	@Test
+	public void testMaxBundles() {
+		JavaScriptBundles bundles = new JavaScriptBundles();
+		String url = null;
+		for (int i = 0; i < 1000 && (url = bundles.getUrl(createPreambles(i))) != null; ++i)
+			;
+		assertNull(url);
+
+		/* Existing bundles are still available */
+		assertNotNull(bundles.getUrl(createPreambles(0)));
+	}
+
+	private static List<WJavaScriptPreamble> createPreambles(int i) {
+		List<WJavaScriptPreamble> result = new ArrayList<WJavaScriptPreamble>();
+		result.add(new WJavaScriptPreamble(JavaScriptScope.WtClassScope, JavaScriptObjectType.JavaScriptFunction,
+				"f" + i, "function() { return " + i + "; }"));
+		return result;
+	}
+
+	private static String gunzip(byte[] data) throws IOException {
+		InputStream in = new GZIPInputStream(new ByteArrayInputStream(data));
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buf = new byte[1024];
+		for (int n; (n = in.read(buf)) > 0;)
+			result.write(buf, 0, n);
+		return result.toString("UTF-8");
+	}
+
+	private static HttpServletRequest createRequest(String method, String query, String acceptEncoding,
+			String ifNoneMatch) {
+		ServletFixture.Request request = new ServletFixture.Request();
+		request.method = method;
+		request.queryString = query;
+		if (acceptEncoding != null)
+			request.headers.put("Accept-Encoding", acceptEncoding);
+		if (ifNoneMatch != null)
+			request.headers.put("If-None-Match", ifNoneMatch);
+		return request.create();
+	}
+}
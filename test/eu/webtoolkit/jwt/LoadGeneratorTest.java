@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LoadGeneratorTest {
+	@Test
+	public void testVirtualUser() throws Exception {
+		LoadTestServlet servlet = new LoadTestServlet();
+		servlet.init(ServletFixture.createServletConfig("load"));
+
+		VirtualUser user = new VirtualUser(servlet, "user1", new Random(1));
+		try {
+			user.fire("add", "click");
+			fail();
+		} catch (IllegalStateException e) {
+		}
+
+		user.bootstrap();
+		assertEquals(1, servlet.getSessions().size());
+		assertEquals("user1", servlet.getSessions().get(0).getSessionId());
+
+		user.setValue("name", "first row");
+		user.fire("add", "click");
+		assertTrue(user.getLastResponse().contains("first row"));
+		user.fire("clear", "click");
+
+		try {
+			user.fire("missing", "click");
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			user.setValue("list", "value");
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+
+		/* The ticker triggers an update every second */
+		user.poll();
+		assertTrue(user.getLastResponse().contains("ticks"));
+
+		user.close();
+		assertTrue(servlet.getSessions().isEmpty());
+
+		servlet.destroy();
+	}
+
+	@Test
+	public void testScript() throws Exception {
+		LoadTestServlet servlet = new LoadTestServlet();
+		servlet.init(ServletFixture.createServletConfig("load"));
+
+		/* A few steps of the default script, as one user of a load run */
+		LoadScript script = new LoadTestScript();
+		VirtualUser user = new VirtualUser(servlet, "user1", new Random(1));
+		script.start(user);
+		for (int i = 0; i < 5; ++i)
+			script.step(user);
+		assertEquals(1, servlet.getSessions().size());
+
+		user.close();
+		assertTrue(servlet.getSessions().isEmpty());
+
+		servlet.destroy();
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class OffscreenGLPoolTest {
+	@Test
+	public void testReserve() throws Exception {
+		int maxSize = OffscreenGLPool.getMaxSize();
+		OffscreenGLPool.setMaxSize(2);
+
+		try {
+			Object a = new Object();
+			final Object b = new Object();
+			Object c = new Object();
+
+			OffscreenGLPool.Slot sa = OffscreenGLPool.reserve(a);
+			assertTrue(sa.isFresh());
+			OffscreenGLPool.Slot sb = OffscreenGLPool.reserve(b);
+			assertTrue(sb.isFresh());
+			assertNotSame(sa, sb);
+
+			/* The pool is full: a third widget waits for a slot */
+			final OffscreenGLPool.Slot[] sc = new OffscreenGLPool.Slot[1];
+			Thread t = new Thread() {
+				public void run() {
+					sc[0] = OffscreenGLPool.reserve(this);
+				}
+			};
+			t.start();
+			t.join(200);
+			assertTrue(t.isAlive());
+
+			OffscreenGLPool.release(sa);
+			t.join(5000);
+			assertFalse(t.isAlive());
+			assertSame(sa, sc[0]);
+			assertTrue(sc[0].isFresh());
+
+			/* A widget gets its own slot back, with its state intact */
+			OffscreenGLPool.release(sb);
+			assertSame(sb, OffscreenGLPool.reserve(b));
+			assertFalse(sb.isFresh());
+
+			/* The least recently used slot is taken from another widget */
+			OffscreenGLPool.release(sb);
+			OffscreenGLPool.release(sc[0]);
+			OffscreenGLPool.Slot sa2 = OffscreenGLPool.reserve(a);
+			assertSame(sb, sa2);
+			assertTrue(sa2.isFresh());
+			OffscreenGLPool.release(sa2);
+
+			OffscreenGLPool.Slot sc2 = OffscreenGLPool.reserve(c);
+			assertSame(sa, sc2);
+			assertTrue(sc2.isFresh());
+			OffscreenGLPool.release(sc2);
+		} finally {
+			OffscreenGLPool.setMaxSize(maxSize);
+		}
+	}
+
+	@Test
+	public void testReadBuffer() {
+		Object a = new Object();
+		OffscreenGLPool.Slot s = OffscreenGLPool.reserve(a);
+		try {
+			java.nio.ByteBuffer b1 = s.getReadBuffer(400);
+			assertEquals(400, b1.remaining());
+			assertTrue(b1.isDirect());
+
+			java.nio.ByteBuffer b2 = s.getReadBuffer(100);
+			assertSame(b1, b2);
+			assertEquals(100, b2.remaining());
+
+			java.nio.ByteBuffer b3 = s.getReadBuffer(800);
+			assertNotSame(b1, b3);
+			assertEquals(800, b3.remaining());
+		} finally {
+			OffscreenGLPool.release(s);
+		}
+	}
+
+	@Test
+	public void testMaxSize() {
+		try {
+			OffscreenGLPool.setMaxSize(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+public class PageCacheTest {
+	private static final String BOT = "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)";
+	private static final String BROWSER = "Mozilla/5.0 (X11; Linux x86_64; rv:45.0) Gecko/20100101 Firefox/45.0";
+
+	private static class CacheServlet extends WtServlet {
+		private static final long serialVersionUID = 1L;
+
+		int applications;
+
+		CacheServlet(int pageCacheSize) {
+			Configuration conf = new Configuration();
+			conf.setPageCacheSize(pageCacheSize);
+			setConfiguration(conf);
+		}
+
+		@Override
+		public WApplication createApplication(WEnvironment env) {
+			++applications;
+			WApplication app = new WApplication(env);
+			new WText("page " + env.getInternalPath(), app.getRoot());
+			app.setPageCacheable(!env.getInternalPath().startsWith("/private"));
+			return app;
+		}
+
+		@Override
+		protected String getPageCacheVaryKey(HttpServletRequest request) {
+			String host = request.getHeader("Host");
+			return "nocache".equals(host) ? null : String.valueOf(host);
+		}
+	}
+
+	@Test
+	public void testServedToBots() throws Exception {
+		CacheServlet servlet = new CacheServlet(10);
+		servlet.init(ServletFixture.createServletConfig("pagecache"));
+
+		ServletFixture.Request request = createRequest("/public");
+		String page = service(servlet, request);
+		assertTrue(page.contains("page /public"));
+		assertEquals(1, servlet.applications);
+		int sessions = servlet.getSessions().size();
+
+		/* The page is served without creating a session */
+		request.session = null;
+		assertEquals(page, service(servlet, request));
+		assertEquals(1, servlet.applications);
+		assertEquals(sessions, servlet.getSessions().size());
+		assertNull(request.session);
+
+		/* Pages that are not cacheable are rendered every time */
+		request.path = "/private";
+		assertTrue(service(servlet, request).contains("page /private"));
+		request.session = null;
+		assertTrue(service(servlet, request).contains("page /private"));
+		assertEquals(3, servlet.applications);
+
+		/* Only bots are served from the cache */
+		request.path = "/public";
+		request.headers.put("User-Agent", BROWSER);
+		request.session = null;
+		assertFalse(service(servlet, request).equals(page));
+		assertNotNull(request.session);
+
+		servlet.destroy();
+	}
+
+	@Test
+	public void testKey() throws Exception {
+		CacheServlet servlet = new CacheServlet(10);
+		PageCache cache = servlet.getPageCache();
+
+		ServletFixture.Request request = createRequest("/page");
+		request.queryString = "a=1";
+		cache.store(create(servlet, request), "cached");
+		assertEquals("cached", handle(cache, servlet, request));
+
+		/* Another URL, locale or vary key */
+		ServletFixture.Request other = createRequest("/other");
+		other.queryString = "a=1";
+		assertNull(handle(cache, servlet, other));
+		other.path = "/page";
+		other.queryString = "a=2";
+		assertNull(handle(cache, servlet, other));
+		other.queryString = "a=1";
+		other.locale = Locale.FRENCH;
+		assertNull(handle(cache, servlet, other));
+		other.locale = Locale.US;
+		other.headers.put("Host", "example.com");
+		assertNull(handle(cache, servlet, other));
+
+		/* Requests that are not a bot's request for a page */
+		other.headers.put("Host", "localhost");
+		assertEquals("cached", handle(cache, servlet, other));
+		other.headers.put("User-Agent", BROWSER);
+		assertNull(handle(cache, servlet, other));
+		other.headers.put("User-Agent", BOT);
+		other.method = "POST";
+		assertNull(handle(cache, servlet, other));
+		other.method = "GET";
+		other.setParameter("wtd", "abc");
+		assertNull(handle(cache, servlet, other));
+		other.parameters.clear();
+		other.headers.put("Host", "nocache");
+		cache.store(create(servlet, other), "not stored");
+		assertNull(handle(cache, servlet, other));
+	}
+
+	@Test
+	public void testExistingSession() throws Exception {
+		CacheServlet servlet = new CacheServlet(10);
+		PageCache cache = servlet.getPageCache();
+
+		ServletFixture.Request request = createRequest("/");
+		cache.store(create(servlet, request), "cached");
+
+		/* A container session without a JWt session is served from the cache */
+		request.session = new ServletFixture.Session();
+		assertEquals("cached", handle(cache, servlet, request));
+
+		request.session.attributes.put(WtServlet.WT_WEBSESSION_ID, "session");
+		assertNull(handle(cache, servlet, request));
+	}
+
+	@Test
+	public void testExpiry() throws Exception {
+		CacheServlet servlet = new CacheServlet(2);
+		servlet.getConfiguration().setPageCacheTimeout(0);
+		PageCache cache = servlet.getPageCache();
+
+		ServletFixture.Request request = createRequest("/");
+		cache.store(create(servlet, request), "cached");
+		Thread.sleep(10);
+		assertNull(handle(cache, servlet, request));
+
+		/* The least recently used page is removed */
+		servlet.getConfiguration().setPageCacheTimeout(300);
+		ServletFixture.Request[] requests = new ServletFixture.Request[3];
+		for (int i = 0; i < requests.length; ++i)
+			requests[i] = createRequest("/" + i);
+		cache.store(create(servlet, requests[0]), "0");
+		cache.store(create(servlet, requests[1]), "1");
+		assertEquals("0", handle(cache, servlet, requests[0]));
+		cache.store(create(servlet, requests[2]), "2");
+		assertEquals("0", handle(cache, servlet, requests[0]));
+		assertNull(handle(cache, servlet, requests[1]));
+		assertEquals("2", handle(cache, servlet, requests[2]));
+
+		/* A disabled cache stores nothing */
+		servlet.getConfiguration().setPageCacheSize(0);
+		cache.store(create(servlet, requests[1]), "1");
+		assertNull(handle(cache, servlet, requests[1]));
+	}
+
+	private static ServletFixture.Request createRequest(String path) {
+		ServletFixture.Request result = new ServletFixture.Request();
+		result.path = path;
+		result.headers.put("User-Agent", BOT);
+		result.headers.put("Host", "localhost");
+		return result;
+	}
+
+	private static WebRequest create(WtServlet servlet, ServletFixture.Request request) {
+		return new WebRequest(request.create(), null, servlet.getConfiguration());
+	}
+
+	private static String handle(PageCache cache, WtServlet servlet, ServletFixture.Request request) {
+		ServletFixture.Response response = new ServletFixture.Response();
+		if (!cache.handleRequest(create(servlet, request), new WebResponse(response.create(), null)))
+			return null;
+
+		assertEquals("text/html; charset=UTF-8", response.headers.get("Content-Type"));
+		return response.getBody();
+	}
+
+	private static String service(WtServlet servlet, ServletFixture.Request request) throws Exception {
+		ServletFixture.Response response = new ServletFixture.Response();
+		servlet.service(request.create(), response.create());
+		return response.getBody();
+	}
+}
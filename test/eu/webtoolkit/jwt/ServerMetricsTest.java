@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+public class ServerMetricsTest {
+	@Test
+	public void testRecord() throws InterruptedException {
+		ServerMetrics metrics = new ServerMetrics(null);
+		assertTrue(metrics.isEnabled());
+
+		long start = metrics.startTimer();
+		assertTrue(start != 0);
+		Thread.sleep(5);
+		metrics.record(ServerMetrics.Phase.Render, start);
+
+		assertEquals(1, metrics.getHistogram(ServerMetrics.Phase.Render).getCount());
+		assertTrue(metrics.getHistogram(ServerMetrics.Phase.Render).getMaxMillis() >= 5);
+		assertEquals(0, metrics.getHistogram(ServerMetrics.Phase.EventDispatch).getCount());
+
+		/* A timer started while disabled is not recorded */
+		metrics.setEnabled(false);
+		assertEquals(0, metrics.startTimer());
+		metrics.record(ServerMetrics.Phase.Render, System.nanoTime());
+		metrics.setEnabled(true);
+		metrics.record(ServerMetrics.Phase.Render, 0);
+		assertEquals(1, metrics.getHistogram(ServerMetrics.Phase.Render).getCount());
+
+		metrics.reset();
+		assertEquals(0, metrics.getHistogram(ServerMetrics.Phase.Render).getCount());
+		assertEquals(0.0, metrics.getHistogram(ServerMetrics.Phase.Render).getMaxMillis(), 0.0);
+	}
+
+	@Test
+	public void testRegistry() {
+		ServerMetrics metrics = new ServerMetrics(null);
+		final List<String> recorded = new ArrayList<String>();
+		ServerMetrics.Registry registry = new ServerMetrics.Registry() {
+			public void recordLatency(ServerMetrics.Phase phase, long nanoseconds) {
+				assertTrue(nanoseconds >= 0);
+				recorded.add(phase.toString());
+			}
+		};
+		metrics.setRegistry(registry);
+		assertSame(registry, metrics.getRegistry());
+
+		metrics.record(ServerMetrics.Phase.RequestParse, metrics.startTimer());
+		metrics.record(ServerMetrics.Phase.ResponseWrite, metrics.startTimer());
+		assertEquals("[RequestParse, ResponseWrite]", recorded.toString());
+
+		metrics.setRegistry(null);
+		metrics.record(ServerMetrics.Phase.RequestParse, metrics.startTimer());
+		assertEquals(2, recorded.size());
+		assertEquals(2, metrics.getHistogram(ServerMetrics.Phase.RequestParse).getCount());
+	}
+
+	@Test
+	public void testSessionCounts() {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		WebSession session = app.getSession();
+		WtServlet servlet = session.getController();
+		ServerMetrics metrics = servlet.getMetrics();
+
+		assertEquals(0, metrics.getSessionCount());
+
+		servlet.addSession(session);
+		assertEquals(1, metrics.getSessionCount());
+		assertEquals(1, metrics.getAjaxSessionCount());
+		assertEquals(0, metrics.getPlainSessionCount());
+		assertEquals(0, metrics.getBotSessionCount());
+		assertEquals(0, metrics.getQueuedEventCount());
+		assertEquals(0, metrics.getParkedResponseCount());
+
+		servlet.removeSession(session);
+		assertEquals(0, metrics.getSessionCount());
+
+		env.close();
+	}
+
+	@Test
+	public void testSessionLockWait() {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		WebSession session = app.getSession();
+		ServerMetrics metrics = session.getController().getMetrics();
+		metrics.reset();
+
+		new WebSession.Handler(session, (WebRequest) null, (WebResponse) null).release();
+		assertEquals(1, metrics.getHistogram(ServerMetrics.Phase.SessionLockWait).getCount());
+
+		metrics.setEnabled(false);
+		new WebSession.Handler(session, (WebRequest) null, (WebResponse) null).release();
+		assertEquals(1, metrics.getHistogram(ServerMetrics.Phase.SessionLockWait).getCount());
+
+		env.close();
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+public class ServerPushTest {
+	@Test
+	public void testPushInterval() throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		app.domRoot_.createSDomElement(app);
+		app.enableUpdates(true);
+		app.setPushInterval(300);
+		WebSession session = app.getSession();
+
+		/* The first update is pushed right away */
+		ServletFixture.Response first = park(session);
+		update(app, "one");
+		assertTrue(first.getBody().contains("one"));
+		assertEquals(1, app.getPushCount());
+		assertEquals(0, app.getCoalescedUpdateCount());
+
+		/* Updates within the interval are merged into one deferred push */
+		env.startRequest();
+		ServletFixture.Response second = park(session);
+		update(app, "two");
+		env.startRequest();
+		update(app, "three");
+		assertEquals(0, second.body.size());
+		assertEquals(1, app.getPushCount());
+		assertEquals(2, app.getCoalescedUpdateCount());
+
+		for (int i = 0; i < 100 && app.getPushCount() == 1; ++i)
+			Thread.sleep(20);
+		assertEquals(2, app.getPushCount());
+		String pushed = second.getBody();
+		assertTrue(pushed.contains("two"));
+		assertTrue(pushed.contains("three"));
+
+		env.startRequest();
+		env.close();
+	}
+
+	@Test
+	public void testWaitingRequest() throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		app.domRoot_.createSDomElement(app);
+		app.enableUpdates(true);
+		final WebSession session = app.getSession();
+
+		ServletFixture.Response response = park(session);
+
+		/* A request waits for the session lock */
+		Thread request = new Thread() {
+			public void run() {
+				new WebSession.Handler(session, (WebRequest) null, (WebResponse) null).release();
+			}
+		};
+		request.start();
+		while (request.getState() != Thread.State.WAITING)
+			Thread.sleep(1);
+
+		/* The update is left to the waiting request */
+		update(app, "one");
+		request.join();
+		assertEquals(1, app.getCoalescedUpdateCount());
+		assertEquals(1, app.getPushCount());
+		assertTrue(response.getBody().contains("one"));
+
+		env.startRequest();
+		env.close();
+	}
+
+	@Test
+	public void testShutdownPushScheduler() throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		app.domRoot_.createSDomElement(app);
+		app.enableUpdates(true);
+		app.setPushInterval(300);
+		WebSession session = app.getSession();
+
+		park(session);
+		update(app, "one");
+		env.startRequest();
+		ServletFixture.Response deferred = park(session);
+		update(app, "two");
+		assertTrue(isPushSchedulerRunning());
+
+		/* The scheduler thread stops, and the deferred push is dropped */
+		WebSession.shutdownPushScheduler();
+		for (int i = 0; i < 100 && isPushSchedulerRunning(); ++i)
+			Thread.sleep(20);
+		assertFalse(isPushSchedulerRunning());
+		assertEquals(1, app.getPushCount());
+		assertEquals(0, deferred.body.size());
+
+		env.startRequest();
+		env.close();
+	}
+
+	private static ServletFixture.Response park(WebSession session) throws Exception {
+		ServletFixture.Response result = new ServletFixture.Response();
+		Field f = WebSession.class.getDeclaredField("asyncResponse_");
+		f.setAccessible(true);
+		f.set(session, new WebResponse(result.create(), null));
+		return result;
+	}
+
+	private static void update(WApplication app, String text) {
+		new WText(text, app.getRoot());
+		app.triggerUpdate();
+		WebSession.Handler.getInstance().release();
+	}
+
+	private static boolean isPushSchedulerRunning() {
+		for (Thread t : Thread.getAllStackTraces().keySet())
+			if (t.getName().equals("jwt-push-scheduler") && t.isAlive())
+				return true;
+		return false;
+	}
+}
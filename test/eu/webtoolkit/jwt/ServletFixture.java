@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+/*
+ * Servlet API objects for handling requests without a servlet container.
+ *
+ * The objects implement what a servlet and a session use; all other methods
+ * return a default value.
+ */
+final class ServletFixture {
+	private static final AtomicInteger nextSessionId = new AtomicInteger();
+
+	private ServletFixture() {
+	}
+
+	/*
+	 * A request, which may be changed before (another) servlet request is
+	 * created from it.
+	 */
+	static class Request {
+		String method = "GET";
+		String path = "/";
+		String queryString;
+		Locale locale = Locale.US;
+		Session session;
+		final Map<String, String[]> parameters = new HashMap<String, String[]>();
+		final Map<String, String> headers = new HashMap<String, String>();
+
+		void setParameter(String name, String value) {
+			parameters.put(name, new String[] { value });
+		}
+
+		HttpServletRequest create() {
+			return (HttpServletRequest) proxy(HttpServletRequest.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method m, Object[] args) {
+					String name = m.getName();
+					if (name.equals("getMethod"))
+						return method;
+					else if (name.equals("getParameterMap"))
+						return parameters;
+					else if (name.equals("getParameter")) {
+						String[] v = parameters.get(args[0]);
+						return v != null ? v[0] : null;
+					} else if (name.equals("getParameterValues"))
+						return parameters.get(args[0]);
+					else if (name.equals("getParameterNames"))
+						return Collections.enumeration(parameters.keySet());
+					else if (name.equals("getHeader"))
+						return headers.get(args[0]);
+					else if (name.equals("getHeaders")) {
+						String v = headers.get(args[0]);
+						return Collections.enumeration(v != null ? Collections.singletonList(v) : Collections
+								.<String> emptyList());
+					} else if (name.equals("getHeaderNames"))
+						return Collections.enumeration(headers.keySet());
+					else if (name.equals("getSession")) {
+						if (session == null && (args == null || (Boolean) args[0]))
+							session = new Session();
+						return session != null ? session.get() : null;
+					} else if (name.equals("getRequestedSessionId"))
+						return session != null ? session.id : null;
+					else if (name.equals("isRequestedSessionIdValid"))
+						return session != null;
+					else if (name.equals("getQueryString"))
+						return queryString;
+					else if (name.equals("getPathInfo") || name.equals("getRequestURI"))
+						return path;
+					else if (name.equals("getRequestURL"))
+						return new StringBuffer("http://localhost:8080" + path);
+					else if (name.equals("getContextPath") || name.equals("getServletPath"))
+						return "";
+					else if (name.equals("getScheme"))
+						return "http";
+					else if (name.equals("getProtocol"))
+						return "HTTP/1.1";
+					else if (name.equals("getServerName") || name.equals("getRemoteHost"))
+						return "localhost";
+					else if (name.equals("getServerPort"))
+						return 8080;
+					else if (name.equals("getRemoteAddr"))
+						return "127.0.0.1";
+					else if (name.equals("getCharacterEncoding"))
+						return "UTF-8";
+					else if (name.equals("getContentLength"))
+						return -1;
+					else if (name.equals("getCookies"))
+						return new Cookie[0];
+					else if (name.equals("getLocale"))
+						return locale;
+					else if (name.equals("getLocales"))
+						return Collections.enumeration(Collections.singletonList(locale));
+					else if (name.equals("getAttributeNames"))
+						return Collections.enumeration(Collections.<String> emptyList());
+					else
+						return defaultValue(proxy, m, args);
+				}
+			});
+		}
+	}
+
+	/*
+	 * A response, of which the status, headers and body are kept.
+	 */
+	static class Response {
+		int status = 200;
+		final Map<String, String> headers = new HashMap<String, String>();
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+		HttpServletResponse create() {
+			final ServletOutputStream out = new ServletOutputStream() {
+				@Override
+				public void write(int b) {
+					body.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) {
+					body.write(b, off, len);
+				}
+			};
+
+			return (HttpServletResponse) proxy(HttpServletResponse.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method m, Object[] args) {
+					String name = m.getName();
+					if (name.equals("getOutputStream"))
+						return out;
+					else if (name.equals("getCharacterEncoding"))
+						return "UTF-8";
+					else if (name.equals("setStatus") || name.equals("sendError"))
+						status = (Integer) args[0];
+					else if (name.equals("getStatus"))
+						return status;
+					else if (name.equals("setHeader") || name.equals("addHeader"))
+						headers.put((String) args[0], (String) args[1]);
+					else if (name.equals("setContentType"))
+						headers.put("Content-Type", (String) args[0]);
+					else if (name.equals("encodeURL") || name.equals("encodeRedirectURL"))
+						return args[0];
+					else
+						return defaultValue(proxy, m, args);
+					return null;
+				}
+			});
+		}
+
+		String getBody() {
+			try {
+				return body.toString("UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/*
+	 * A session that behaves as a container session: attributes that are
+	 * removed, also when the session is invalidated, are notified.
+	 */
+	static class Session {
+		final String id;
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		private HttpSession proxy;
+
+		Session() {
+			this("session" + nextSessionId.incrementAndGet());
+		}
+
+		Session(String id) {
+			this.id = id;
+		}
+
+		synchronized HttpSession get() {
+			if (proxy == null)
+				proxy = (HttpSession) proxy(HttpSession.class, new InvocationHandler() {
+					public Object invoke(Object proxy, Method m, Object[] args) {
+						String name = m.getName();
+						if (name.equals("getId"))
+							return id;
+						else if (name.equals("getAttribute"))
+							return attributes.get(args[0]);
+						else if (name.equals("setAttribute")) {
+							Object old = args[1] != null ? attributes.put((String) args[0], args[1]) : attributes
+									.remove(args[0]);
+							unbound((String) args[0], old);
+						} else if (name.equals("removeAttribute"))
+							unbound((String) args[0], attributes.remove(args[0]));
+						else if (name.equals("invalidate"))
+							invalidate();
+						else if (name.equals("getAttributeNames"))
+							return Collections.enumeration(attributes.keySet());
+						else if (name.equals("getMaxInactiveInterval"))
+							return 600;
+						else if (name.equals("isNew"))
+							return attributes.isEmpty();
+						else
+							return defaultValue(proxy, m, args);
+						return null;
+					}
+				});
+
+			return proxy;
+		}
+
+		void invalidate() {
+			Map<String, Object> copy = new HashMap<String, Object>(attributes);
+			attributes.clear();
+			for (Map.Entry<String, Object> e : copy.entrySet())
+				unbound(e.getKey(), e.getValue());
+		}
+
+		private void unbound(String name, Object value) {
+			if (value instanceof HttpSessionBindingListener)
+				((HttpSessionBindingListener) value).valueUnbound(new HttpSessionBindingEvent(get(), name));
+		}
+	}
+
+	/*
+	 * Returns the configuration of a servlet in a Servlet 2.5 container.
+	 */
+	static ServletConfig createServletConfig(final String servletName) {
+		final ServletContext context = (ServletContext) proxy(ServletContext.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) {
+				String name = m.getName();
+				if (name.equals("getMajorVersion"))
+					return 2;
+				else if (name.equals("getMinorVersion"))
+					return 5;
+				else if (name.equals("getContextPath"))
+					return "";
+				else if (name.equals("getInitParameterNames") || name.equals("getAttributeNames"))
+					return Collections.enumeration(Collections.<String> emptyList());
+				else
+					return defaultValue(proxy, m, args);
+			}
+		});
+
+		return (ServletConfig) proxy(ServletConfig.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method m, Object[] args) {
+				String name = m.getName();
+				if (name.equals("getServletContext"))
+					return context;
+				else if (name.equals("getServletName"))
+					return servletName;
+				else if (name.equals("getInitParameterNames"))
+					return Collections.enumeration(Collections.<String> emptyList());
+				else
+					return defaultValue(proxy, m, args);
+			}
+		});
+	}
+
+	private static Object proxy(Class<?> c, InvocationHandler handler) {
+		return Proxy.newProxyInstance(ServletFixture.class.getClassLoader(), new Class<?>[] { c }, handler);
+	}
+
+	private static Object defaultValue(Object proxy, Method m, Object[] args) {
+		String name = m.getName();
+		Class<?> type = m.getReturnType();
+		if (name.equals("hashCode"))
+			return System.identityHashCode(proxy);
+		else if (name.equals("equals"))
+			return proxy == args[0];
+		else if (name.equals("toString"))
+			return m.getDeclaringClass().getSimpleName() + "@" + System.identityHashCode(proxy);
+		else if (type == boolean.class)
+			return false;
+		else if (type == int.class)
+			return 0;
+		else if (type == long.class)
+			return 0L;
+		else
+			return null;
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import eu.webtoolkit.jwt.servlet.WebRequest;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+public class SessionFootprintTest {
+	@Test
+	public void testMeasure() {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+
+		SessionFootprint empty = SessionFootprint.measure(app);
+		assertEquals(app.getSession().getSessionId(), empty.getSessionId());
+		assertTrue(empty.getTotalSize() > 0);
+		assertTrue(empty.getObjectCount() > 0);
+
+		WContainerWidget container = new WContainerWidget(app.getRoot());
+		container.setObjectName("texts");
+		for (int i = 0; i < 200; ++i)
+			new WText("text " + i, container);
+
+		SessionFootprint footprint = SessionFootprint.measure(app);
+		assertEquals(empty.getWidgetCount() + 201, footprint.getWidgetCount());
+		assertTrue(footprint.getSize(SessionFootprint.Category.Widgets) > empty
+				.getSize(SessionFootprint.Category.Widgets) + 200 * 64);
+		assertEquals(footprint.getTotalSize(), sum(footprint));
+
+		/* The roots are not reported as subtrees */
+		SessionFootprint.Subtree largest = null;
+		for (SessionFootprint.Subtree s : footprint.getLargestSubtrees()) {
+			assertFalse(app.getRoot().getId().equals(s.getId()));
+			if (largest != null)
+				assertTrue(s.getSize() <= largest.getSize());
+			else
+				largest = s;
+			if (s.getId().equals(container.getId())) {
+				assertEquals("texts", s.getObjectName());
+				assertEquals(201, s.getWidgetCount());
+				assertEquals(WContainerWidget.class.getName(), s.getWidgetType());
+			}
+		}
+		assertTrue(footprint.getLargestSubtrees().size() <= 10);
+
+		/* Measuring does not change the session */
+		assertEquals(footprint.getTotalSize(), SessionFootprint.measure(app).getTotalSize());
+
+		container.remove();
+		assertTrue(SessionFootprint.measure(app).getTotalSize() < footprint.getTotalSize());
+
+		WTableView view = new WTableView(app.getRoot());
+		view.setModel(new WStandardItemModel(100, 10));
+		footprint = SessionFootprint.measure(app);
+		assertTrue(footprint.getSize(SessionFootprint.Category.Models) > 100 * 10 * 16);
+		assertTrue(footprint.getSize(SessionFootprint.Category.Signals) > 0);
+
+		env.close();
+	}
+
+	@Test
+	public void testSampler() throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		for (int i = 0; i < 50; ++i)
+			new WText("text " + i, app.getRoot());
+
+		final WebSession session = app.getSession();
+		WtServlet servlet = session.getController();
+		final SessionFootprintSampler sampler = servlet.getFootprintSampler();
+		assertEquals(0, sampler.getSamplingInterval());
+
+		sampler.sample();
+		assertEquals(0, sampler.getSampleCount());
+
+		servlet.addSession(session);
+
+		/* A session that is busy is skipped */
+		Thread t = new Thread() {
+			public void run() {
+				sampler.sample();
+			}
+		};
+		t.start();
+		t.join();
+		assertEquals(0, sampler.getSampleCount());
+
+		sampler.sample();
+		assertEquals(1, sampler.getSampleCount());
+		SessionFootprint footprint = sampler.getSamples().get(0);
+		assertEquals(footprint.getTotalSize(), sampler.getAverageSessionSize());
+		assertEquals(footprint.getTotalSize(), sampler.getLargestSessionSize());
+		assertEquals(footprint.getTotalSize(), sampler.getEstimatedTotalSize());
+		assertTrue(sampler.getLargestSessions().startsWith(footprint.toString()));
+		assertTrue(sampler.getAverageCategorySizes().contains(
+				"Widgets=" + footprint.getSize(SessionFootprint.Category.Widgets)));
+
+		/* Sessions that have ended are forgotten */
+		servlet.removeSession(session);
+		sampler.sample();
+		assertEquals(0, sampler.getSampleCount());
+		assertEquals(0, sampler.getAverageSessionSize());
+
+		sampler.setSamplingInterval(60);
+		assertEquals(60, sampler.getSamplingInterval());
+		sampler.stop();
+		assertEquals(0, sampler.getSamplingInterval());
+
+		env.close();
+	}
+
+	@Test
+	public void testResource() throws IOException {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		WebSession session = app.getSession();
+		WtServlet servlet = session.getController();
+		servlet.addSession(session);
+
+		SessionFootprintResource resource = new SessionFootprintResource(servlet);
+		ServletFixture.Request request = new ServletFixture.Request();
+		request.setParameter("subtrees", "2");
+		ServletFixture.Response r = new ServletFixture.Response();
+		WebResponse response = new WebResponse(r.create(), null);
+		resource.handleRequest(new WebRequest(request.create(), null, env.getServer().getConfiguration()), response);
+		response.out().flush();
+
+		JsonObject result = new JsonParser().parse(r.getBody()).getAsJsonObject();
+		assertEquals(1, result.get("sessionCount").getAsInt());
+		assertEquals(0, result.get("skipped").getAsInt());
+		JsonArray sessions = result.getAsJsonArray("sessions");
+		assertEquals(1, sessions.size());
+
+		JsonObject s = sessions.get(0).getAsJsonObject();
+		assertEquals(session.getSessionId().substring(0, Math.min(8, session.getSessionId().length())), s.get(
+				"session").getAsString());
+		assertTrue(s.get("size").getAsLong() > 0);
+		assertTrue(s.getAsJsonArray("largestSubtrees").size() <= 2);
+		assertTrue(s.getAsJsonObject("categories").has("Widgets"));
+
+		servlet.removeSession(session);
+		env.close();
+	}
+
+	private static long sum(SessionFootprint footprint) {
+		long result = 0;
+		for (SessionFootprint.Category c : SessionFootprint.Category.values())
+			result += footprint.getSize(c);
+		return result;
+	}
+}
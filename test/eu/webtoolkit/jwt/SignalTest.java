@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SignalTest {
+	private static final int EMISSIONS = 100000;
+	private static final long ALLOCATION_NOISE = 1024;
+
+	@Test
+	public void testListenerOrder() {
+		final List<String> calls = new ArrayList<String>();
+		WObject owner = new WObject();
+		Signal1<String> signal = new Signal1<String>();
+
+		signal.addListener(owner, createListener(calls, "owned1"));
+		signal.addListener((WObject) null, createListener(calls, "unowned1"));
+		signal.addListener(owner, createListener(calls, "owned2"));
+		Signal1.Listener<String> unowned2 = createListener(calls, "unowned2");
+		signal.addListener((WObject) null, unowned2);
+
+		signal.trigger("a");
+		assertEquals("[unowned1 a, unowned2 a, owned1 a, owned2 a]", calls.toString());
+
+		calls.clear();
+		signal.removeListener(unowned2);
+		signal.trigger("b");
+		assertEquals("[unowned1 b, owned1 b, owned2 b]", calls.toString());
+
+		calls.clear();
+		signal.setBlocked(true);
+		signal.trigger("c");
+		assertTrue(calls.isEmpty());
+	}
+
+	@Test
+	public void testChangeDuringEmission() {
+		final List<String> calls = new ArrayList<String>();
+		final Signal1<String> signal = new Signal1<String>();
+		final Signal1.Listener<String> second = createListener(calls, "second");
+
+		signal.addListener((WObject) null, new Signal1.Listener<String>() {
+			public void trigger(String arg) {
+				calls.add("first " + arg);
+				signal.removeListener(second);
+				signal.addListener((WObject) null, createListener(calls, "added"));
+			}
+		});
+		signal.addListener((WObject) null, second);
+
+		/* The emission is not affected by the changes */
+		signal.trigger("a");
+		assertEquals("[first a, second a]", calls.toString());
+
+		calls.clear();
+		signal.trigger("b");
+		assertEquals("[first b, added b]", calls.toString());
+	}
+
+	@Test
+	public void testEmitAllocation() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return;
+
+		final int[] sum = { 0 };
+		WObject owner = new WObject();
+		Signal1<Integer> signal = new Signal1<Integer>();
+		Signal1<Integer> single = new Signal1<Integer>();
+		Signal1<Integer> none = new Signal1<Integer>();
+
+		Signal1.Listener<Integer> listener = new Signal1.Listener<Integer>() {
+			public void trigger(Integer arg) {
+				sum[0] += arg;
+			}
+		};
+		signal.addListener((WObject) null, listener);
+		signal.addListener(owner, listener);
+		signal.addListener(owner, listener);
+		single.addListener((WObject) null, listener);
+
+		Integer arg = 1;
+		emit(signal, arg);
+		emit(single, arg);
+		emit(none, arg);
+
+		assertNoAllocation(signal, arg);
+		assertNoAllocation(single, arg);
+		assertNoAllocation(none, arg);
+		assertEquals(8 * EMISSIONS, sum[0]);
+	}
+
+	/*
+	 * Reading the allocation counter may itself allocate a few bytes.
+	 */
+	private static void assertNoAllocation(Signal1<Integer> signal, Integer arg) {
+		long bytes = getAllocatedBytes(signal, arg);
+		assertTrue(bytes + " bytes allocated by " + EMISSIONS + " emissions", bytes < ALLOCATION_NOISE);
+	}
+
+	private static long getAllocatedBytes(Signal1<Integer> signal, Integer arg) {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+
+		long before = bean.getThreadAllocatedBytes(id);
+		emit(signal, arg);
+		return bean.getThreadAllocatedBytes(id) - before;
+	}
+
+	private static void emit(Signal1<Integer> signal, Integer arg) {
+		for (int i = 0; i < EMISSIONS; ++i)
+			signal.trigger(arg);
+	}
+
+	private static Signal1.Listener<String> createListener(final List<String> calls, final String name) {
+		return new Signal1.Listener<String>() {
+			public void trigger(String arg) {
+				calls.add(name + " " + arg);
+			}
+		};
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StatelessSlotCacheTest {
+	private static class Session {
+		WTestEnvironment env;
+		WApplication app;
+		WText text;
+		WLineEdit edit;
+		AbstractEventSignal.PreLearnListener slot;
+		int triggerCount;
+
+		/*
+		 * Creates a session with a button that hides a text and disables an
+		 * edit, or, if secret is not null, sets the text to the secret.
+		 */
+		Session(StatelessSlotCache shared, final String secret, boolean hidden) throws Exception {
+			Configuration conf = new Configuration();
+			conf.setStatelessSlotCache(shared != null);
+			env = new WTestEnvironment(conf);
+			app = new WApplication(env);
+
+			/* Sessions of the same servlet share the cache */
+			if (shared != null) {
+				Field f = WtServlet.class.getDeclaredField("statelessSlotCache");
+				f.setAccessible(true);
+				f.set(app.getSession().getController(), shared);
+			}
+
+			text = new WText("", app.getRoot());
+			text.setHidden(hidden);
+			edit = new WLineEdit(app.getRoot());
+			WPushButton button = new WPushButton("Go", app.getRoot());
+
+			final WText t = text;
+			final WLineEdit e = edit;
+			if (secret == null)
+				slot = new AbstractEventSignal.PreLearnListener() {
+					public void trigger() {
+						++triggerCount;
+						t.hide();
+						e.disable();
+					}
+
+					public void undoTrigger() {
+						t.show();
+						e.enable();
+					}
+				};
+			else
+				slot = new AbstractEventSignal.PreLearnListener() {
+					public void trigger() {
+						++triggerCount;
+						t.setText(secret);
+					}
+
+					public void undoTrigger() {
+						t.setText("");
+					}
+				};
+			button.clicked().addListener(app, slot);
+
+			render(app);
+		}
+
+		String getJavaScript(Session other) {
+			return slot.getJavaScript().replace(text.getId(), other.text.getId())
+					.replace(edit.getId(), other.edit.getId());
+		}
+	}
+
+	@Test
+	public void testSharedBetweenSessions() throws Exception {
+		StatelessSlotCache cache = new StatelessSlotCache();
+		Session s1 = new Session(cache, null, false);
+		assertEquals(1, s1.triggerCount);
+		assertTrue(s1.slot.getJavaScript().contains(s1.text.getId()));
+		s1.env.close();
+
+		Session s2 = new Session(null, null, false);
+		assertFalse(s1.slot.getJavaScript().equals(s2.slot.getJavaScript()));
+
+		/* The cached JavaScript refers to the widgets of the other session */
+		assertEquals(normalize(s2.slot.getJavaScript()), normalize(cache.lookup(s2.app, s2.slot)));
+		s2.env.close();
+
+		/* A session of the same servlet uses the cached JavaScript */
+		Session s3 = new Session(cache, null, false);
+		assertEquals(0, s3.triggerCount);
+		assertTrue(s3.slot.isLearned());
+		assertEquals(normalize(s1.getJavaScript(s3)), normalize(s3.slot.getJavaScript()));
+		s3.env.close();
+	}
+
+	@Test
+	public void testContentNotShared() throws Exception {
+		StatelessSlotCache cache = new StatelessSlotCache();
+		Session s1 = new Session(cache, "secret of alice", false);
+		assertTrue(s1.slot.getJavaScript().contains("secret of alice"));
+		s1.env.close();
+
+		/* JavaScript that depends on the content of a session is not shared */
+		Session s2 = new Session(null, "secret of bob", false);
+		assertNull(cache.lookup(s2.app, s2.slot));
+		s2.env.close();
+
+		Session s3 = new Session(cache, "secret of carol", false);
+		assertEquals(1, s3.triggerCount);
+		assertTrue(s3.slot.getJavaScript().contains("secret of carol"));
+		assertFalse(s3.slot.getJavaScript().contains("alice"));
+		s3.env.close();
+	}
+
+	@Test
+	public void testDifferentState() throws Exception {
+		StatelessSlotCache cache = new StatelessSlotCache();
+		Session s1 = new Session(cache, null, false);
+		s1.env.close();
+
+		/* A widget in another state is not reused */
+		Session s2 = new Session(null, null, true);
+		assertNull(cache.lookup(s2.app, s2.slot));
+		s2.env.close();
+	}
+
+	/*
+	 * Statements may be in another order, and use other variable names, in
+	 * another session.
+	 */
+	private static List<String> normalize(String js) {
+		List<String> result = new ArrayList<String>();
+		for (String line : js.replaceAll("\\bj[0-9]+\\b", "j").split("\n"))
+			if (line.trim().length() != 0)
+				result.add(line.trim());
+		Collections.sort(result);
+		return result;
+	}
+
+	private static void render(WApplication app) throws Exception {
+		app.domRoot_.createSDomElement(app).asHTML(new EscapeOStream(), new EscapeOStream(),
+				new ArrayList<DomElement.TimeoutEvent>());
+
+		Method m = WebRenderer.class.getDeclaredMethod("preLearnStateless", WApplication.class, StringBuilder.class);
+		m.setAccessible(true);
+		m.invoke(app.getSession().getRenderer(), app, new StringBuilder());
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class WAbstractItemModelTest {
+	@Test
+	public void testDataChangeBatch() {
+		WStandardItemModel model = createModel(100, 10);
+		List<String> events = record(model);
+
+		model.beginChangeBatch();
+		for (int row = 0; row < 100; ++row)
+			model.setData(row, 2, "x" + row);
+		for (int row = 0; row < 50; ++row)
+			model.setData(row, 3, "y" + row);
+		assertTrue(events.isEmpty());
+		model.endChangeBatch();
+
+		assertEquals("[data 0,2 99,2, data 0,3 49,3]", events.toString());
+		assertEquals("x99", model.getData(99, 2));
+		assertFalse(model.isChangeBatchActive());
+	}
+
+	@Test
+	public void testNestedBatch() {
+		WStandardItemModel model = createModel(10, 10);
+		List<String> events = record(model);
+
+		model.beginChangeBatch();
+		model.setData(1, 1, "a");
+		model.beginChangeBatch();
+		model.setData(2, 1, "b");
+		model.endChangeBatch();
+		assertTrue(events.isEmpty());
+		assertTrue(model.isChangeBatchActive());
+		model.endChangeBatch();
+
+		assertEquals("[data 1,1 2,1]", events.toString());
+
+		try {
+			model.endChangeBatch();
+			fail();
+		} catch (WException e) {
+		}
+	}
+
+	@Test
+	public void testDisjointChanges() {
+		WStandardItemModel model = createModel(100, 100);
+		List<String> events = record(model);
+
+		model.beginChangeBatch();
+		model.setData(0, 0, "a");
+		model.setData(50, 50, "b");
+		model.endChangeBatch();
+		assertEquals("[data 0,0 0,0, data 50,50 50,50]", events.toString());
+
+		/* Many disjoint ranges are folded into their bounding box */
+		events.clear();
+		model.beginChangeBatch();
+		for (int i = 0; i < 9; ++i)
+			model.setData(i * 2, i * 3, "c");
+		model.endChangeBatch();
+		assertEquals("[data 0,0 16,24]", events.toString());
+
+		events.clear();
+		model.beginChangeBatch();
+		for (int i = 0; i < 100; ++i)
+			model.setData(i, (i * 7) % 100, "d");
+		model.endChangeBatch();
+		assertTrue(events.size() <= 8);
+	}
+
+	@Test
+	public void testHeaderChangeBatch() {
+		WStandardItemModel model = createModel(10, 10);
+		List<String> events = record(model);
+
+		model.beginChangeBatch();
+		for (int column = 2; column < 6; ++column)
+			model.setHeaderData(column, "h" + column);
+		model.endChangeBatch();
+
+		assertEquals("[header 2 5]", events.toString());
+	}
+
+	@Test
+	public void testStructureChangeFlushes() {
+		WStandardItemModel model = createModel(10, 10);
+		List<String> events = record(model);
+
+		model.beginChangeBatch();
+		model.setData(5, 0, "a");
+		model.insertRows(0, 2);
+		model.setData(0, 0, "b");
+		model.endChangeBatch();
+
+		assertEquals("[data 5,0 5,0, insert 0 1, data 0,0 0,0]", events.toString());
+	}
+
+	@Test
+	public void testResetDiscards() {
+		WStandardItemModel model = createModel(10, 10);
+		List<String> events = record(model);
+
+		model.beginChangeBatch();
+		model.setData(5, 0, "a");
+		model.reset();
+		model.endChangeBatch();
+
+		assertEquals("[reset]", events.toString());
+	}
+
+	@Test
+	public void testProxyBatch() {
+		WStandardItemModel model = createModel(100, 3);
+		WSortFilterProxyModel proxy = new WSortFilterProxyModel();
+		proxy.setSourceModel(model);
+		List<String> sourceEvents = record(model);
+		List<String> events = record(proxy);
+
+		proxy.beginChangeBatch();
+		assertTrue(model.isChangeBatchActive());
+		for (int row = 0; row < 100; ++row)
+			proxy.setData(row, 1, "x" + row);
+		assertTrue(events.isEmpty());
+		proxy.endChangeBatch();
+		assertFalse(model.isChangeBatchActive());
+
+		assertEquals("[data 0,1 99,1]", sourceEvents.toString());
+		assertEquals("[data 0,1 99,1]", events.toString());
+		assertEquals("x42", proxy.getData(42, 1));
+	}
+
+	private static WStandardItemModel createModel(int rows, int columns) {
+		WStandardItemModel model = new WStandardItemModel(rows, columns);
+		for (int i = 0; i < rows; ++i)
+			for (int j = 0; j < columns; ++j)
+				model.setData(i, j, i + "," + j);
+
+		return model;
+	}
+
+	private static List<String> record(WAbstractItemModel model) {
+		final List<String> result = new ArrayList<String>();
+
+		model.dataChanged().addListener((WObject) null, new Signal2.Listener<WModelIndex, WModelIndex>() {
+			public void trigger(WModelIndex topLeft, WModelIndex bottomRight) {
+				result.add("data " + topLeft.getRow() + "," + topLeft.getColumn() + " "
+						+ bottomRight.getRow() + "," + bottomRight.getColumn());
+			}
+		});
+		model.headerDataChanged().addListener((WObject) null, new Signal3.Listener<Orientation, Integer, Integer>() {
+			public void trigger(Orientation orientation, Integer first, Integer last) {
+				result.add("header " + first + " " + last);
+			}
+		});
+		model.rowsInserted().addListener((WObject) null, new Signal3.Listener<WModelIndex, Integer, Integer>() {
+			public void trigger(WModelIndex parent, Integer first, Integer last) {
+				result.add("insert " + first + " " + last);
+			}
+		});
+		model.modelReset().addListener((WObject) null, new Signal.Listener() {
+			public void trigger() {
+				result.add("reset");
+			}
+		});
+
+		return result;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.chart.Series3DType;
+import eu.webtoolkit.jwt.chart.WCartesian3DChart;
+import eu.webtoolkit.jwt.chart.WGridData;
+import eu.webtoolkit.jwt.servlet.WebResponse;
+
+public class WCartesian3DChartTest {
+	@Test
+	public void testUpdateGLData() throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		env.webGLsupported_ = true;
+		WApplication app = new WApplication(env);
+
+		WStandardItemModel model = createModel(10, 10);
+		WCartesian3DChart chart = createChart(app, model);
+
+		String js = render(app, chart);
+		assertTrue(js.contains("ArrayBufferPreloader"));
+		List<WMemoryResource> resources = getBinaryResources(chart);
+
+		model.setData(3, 3, 10.0);
+		js = update(app, chart);
+		assertTrue(js.contains("ctx.bufferSubData(ctx.ARRAY_BUFFER,272,ctx.WtBufferResource"));
+		assertFalse(js.contains("ctx.bufferData(ctx.ARRAY_BUFFER"));
+		assertTrue(js.contains("ArrayBufferPreloader"));
+
+		/* The changed vertices are sent in binary */
+		List<WMemoryResource> added = getBinaryResources(chart);
+		added.removeAll(resources);
+		assertEquals(1, added.size());
+		assertEquals(4, added.get(0).getData().length);
+		assertEquals(0.5f, ByteBuffer.wrap(added.get(0).getData()).order(ByteOrder.LITTLE_ENDIAN).getFloat(), 0.0f);
+
+		model.setData(3, 3, 10.0);
+		js = update(app, chart);
+		assertFalse(js.contains("ctx.bufferSubData("));
+
+		env.close();
+	}
+
+	@Test
+	public void testUpdateGLDataRangeChange() {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		env.webGLsupported_ = true;
+		WApplication app = new WApplication(env);
+
+		WStandardItemModel model = createModel(10, 10);
+		WCartesian3DChart chart = createChart(app, model);
+		render(app, chart);
+
+		model.setData(3, 3, 100.0);
+		String js = update(app, chart);
+		assertFalse(js.contains("ctx.bufferSubData("));
+		assertTrue(js.contains("ArrayBufferPreloader"));
+
+		env.close();
+	}
+
+	@Test
+	public void testUpdateGLDataResources() throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		env.webGLsupported_ = true;
+		WApplication app = new WApplication(env);
+
+		WStandardItemModel model = createModel(10, 10);
+		WCartesian3DChart chart = createChart(app, model);
+		((WGridData) chart.getDataSeries().get(0)).setIsoLevels(Arrays.asList(5.0, 10.0));
+		render(app, chart);
+		int count = getBinaryResources(chart).size();
+
+		/* The data of the previous iso lines is released */
+		for (int i = 0; i < 10; ++i) {
+			model.setData(3, 3, 10.0 + i / 10.0);
+			update(app, chart);
+		}
+		List<WMemoryResource> resources = getBinaryResources(chart);
+		assertEquals(count + 10, resources.size());
+
+		/* The changed vertices are released once they have been fetched */
+		for (WMemoryResource r : resources)
+			r.handleRequest(null, new WebResponse(new ServletFixture.Response().create(), null));
+		assertEquals(count, getBinaryResources(chart).size());
+
+		env.close();
+	}
+
+	private static WCartesian3DChart createChart(WApplication app, WAbstractItemModel model) {
+		WCartesian3DChart chart = new WCartesian3DChart(app.getRoot());
+		chart.resize(new WLength(400), new WLength(400));
+		chart.setRenderOptions(EnumSet.of(WGLWidget.RenderOption.ClientSideRendering));
+		WGridData data = new WGridData(model);
+		data.setType(Series3DType.SurfaceSeries3D);
+		chart.addDataSeries(data);
+
+		return chart;
+	}
+
+	private static String render(WApplication app, WWidget widget) {
+		widget.createSDomElement(app);
+
+		return getJavaScript(app);
+	}
+
+	private static String update(WApplication app, WWidget widget) {
+		List<DomElement> changes = new ArrayList<DomElement>();
+		widget.getSDomChanges(changes, app);
+
+		return getJavaScript(app);
+	}
+
+	private static String getJavaScript(WApplication app) {
+		StringBuilder result = new StringBuilder();
+		app.streamAfterLoadJavaScript(result);
+
+		return result.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<WMemoryResource> getBinaryResources(WGLWidget widget) throws Exception {
+		Field f = WGLWidget.class.getDeclaredField("pImpl_");
+		f.setAccessible(true);
+		Object impl = f.get(widget);
+		f = WClientGLWidget.class.getDeclaredField("binaryResources_");
+		f.setAccessible(true);
+
+		List<WMemoryResource> result = new ArrayList<WMemoryResource>();
+		for (List<WMemoryResource> resources : ((Map<String, List<WMemoryResource>>) f.get(impl)).values())
+			result.addAll(resources);
+		return result;
+	}
+
+	private static WStandardItemModel createModel(int rows, int columns) {
+		WStandardItemModel model = new WStandardItemModel(rows + 1, columns + 1);
+		for (int i = 0; i <= rows; ++i)
+			for (int j = 0; j <= columns; ++j)
+				model.setData(i, j, (double) (i + j));
+
+		return model;
+	}
+}
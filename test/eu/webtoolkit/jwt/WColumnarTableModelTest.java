@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class WColumnarTableModelTest {
+	@Test
+	public void testAppendRows() {
+		WColumnarTableModel model = createModel();
+		appendRows(model, 3);
+
+		assertEquals(3, model.getRowCount());
+		assertEquals(4, model.getColumnCount());
+		assertEquals(2, model.getInt(2, 0));
+		assertEquals(20L, model.getLong(2, 1));
+		assertEquals(1.0, model.getDouble(2, 2), 0.0);
+		assertEquals("s2", model.getString(2, 3));
+		assertEquals("s2", model.getData(2, 3));
+
+		model.appendRow(null, "x", 1.5);
+		assertTrue(model.isNull(3, 0));
+		assertNull(model.getData(3, 0));
+		assertEquals("x", model.getData(3, 1));
+		assertTrue(model.isNull(3, 1));
+		assertTrue(model.isNull(3, 3));
+	}
+
+	@Test
+	public void testClearedValues() {
+		WColumnarTableModel model = createModel();
+		appendRows(model, 3);
+
+		for (int column = 0; column < 3; ++column)
+			model.setData(1, column, null);
+		assertEquals(0, model.getInt(1, 0));
+		assertEquals(0L, model.getLong(1, 1));
+		assertEquals(0.0, model.getDouble(1, 2), 0.0);
+
+		model.setData(2, 0, "not a number");
+		assertEquals(0, model.getInt(2, 0));
+		assertEquals("not a number", model.getData(2, 0));
+
+		model.removeRows(1, 2);
+		model.insertRows(1, 2);
+		for (int row = 1; row < 3; ++row) {
+			assertTrue(model.isNull(row, 0));
+			assertEquals(0, model.getInt(row, 0));
+			assertEquals(0L, model.getLong(row, 1));
+			assertEquals(0.0, model.getDouble(row, 2), 0.0);
+			assertNull(model.getString(row, 3));
+		}
+	}
+
+	@Test
+	public void testSort() {
+		WColumnarTableModel model = createModel();
+		appendRows(model, 5);
+		model.setData(2, 3, null);
+
+		model.sort(3, SortOrder.DescendingOrder);
+		assertEquals("s4", model.getString(0, 3));
+		assertEquals(4, model.getInt(0, 0));
+		assertEquals("s0", model.getString(3, 3));
+		assertTrue(model.isNull(4, 3));
+		assertEquals(2, model.getInt(4, 0));
+	}
+
+	@Test
+	public void testDictionaryCompaction() {
+		WColumnarTableModel model = createModel();
+		appendRows(model, 10);
+
+		WColumnarTableModel.StringColumn column = getStringColumn(model);
+		for (int i = 0; i < 1000; ++i)
+			model.setData(0, 3, "v" + i);
+		assertTrue(column.dictionary.size() <= 2 * 10 + 16);
+		assertEquals("v999", model.getString(0, 3));
+		for (int i = 1; i < 10; ++i)
+			assertEquals("s" + i, model.getString(i, 3));
+
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int i = 0; i < 100; ++i)
+			rows.add(new Object[] { i, i, i, "t" + i });
+		model.appendRows(rows);
+		model.removeRows(0, 105);
+		assertTrue(column.dictionary.size() <= 2 * 5 + 16);
+		for (int i = 0; i < 5; ++i)
+			assertEquals("t" + (95 + i), model.getString(i, 3));
+
+		model.sort(3, SortOrder.DescendingOrder);
+		assertEquals("t99", model.getString(0, 3));
+	}
+
+	@Test
+	public void testFlags() {
+		WColumnarTableModel model = createModel();
+		appendRows(model, 3);
+
+		/* The flags of a column can only be changed through the model */
+		model.getFlags(model.getIndex(0, 0)).add(ItemFlag.ItemIsEditable);
+		model.getColumnFlags(0).add(ItemFlag.ItemIsEditable);
+		assertFalse(model.getFlags(model.getIndex(1, 0)).contains(ItemFlag.ItemIsEditable));
+
+		model.setCheckable(0, true);
+		assertTrue(model.getFlags(model.getIndex(1, 0)).contains(ItemFlag.ItemIsUserCheckable));
+	}
+
+	@Test
+	public void testOutOfRange() {
+		WColumnarTableModel model = createModel();
+		appendRows(model, 3);
+
+		assertFalse(model.insertRows(-1, 1));
+		assertFalse(model.insertRows(4, 1));
+		assertFalse(model.removeRows(2, 2));
+		assertFalse(model.removeColumns(3, 2));
+		assertEquals(3, model.getRowCount());
+		assertEquals(4, model.getColumnCount());
+
+		assertTrue(model.insertRows(3, 1));
+		assertTrue(model.isNull(3, 0));
+		assertEquals(4, model.getRowCount());
+	}
+
+	private static WColumnarTableModel createModel() {
+		WColumnarTableModel model = new WColumnarTableModel();
+		model.addColumn(WColumnarTableModel.ColumnType.IntColumn, "int");
+		model.addColumn(WColumnarTableModel.ColumnType.LongColumn, "long");
+		model.addColumn(WColumnarTableModel.ColumnType.DoubleColumn, "double");
+		model.addColumn(WColumnarTableModel.ColumnType.StringColumn, "string");
+
+		return model;
+	}
+
+	private static void appendRows(WColumnarTableModel model, int count) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (int i = 0; i < count; ++i)
+			rows.add(new Object[] { i, (long) i * 10, i / 2.0, "s" + i });
+		model.appendRows(rows);
+	}
+
+	private static WColumnarTableModel.StringColumn getStringColumn(WColumnarTableModel model) {
+		try {
+			java.lang.reflect.Field f = WColumnarTableModel.class.getDeclaredField("columns_");
+			f.setAccessible(true);
+			return (WColumnarTableModel.StringColumn) ((List<?>) f.get(model)).get(3);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
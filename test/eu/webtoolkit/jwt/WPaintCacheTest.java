@@ -0,0 +1,123 @@
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.chart.WCartesianChart;
+
+public class WPaintCacheTest {
+	@Test
+	public void testEviction() {
+		WPaintCache cache = new WPaintCache(100);
+
+		WPaintCache.Entry e1 = put(cache, "a", 40);
+		WPaintCache.Entry e2 = put(cache, "b", 40);
+		assertEquals(2, cache.getCount());
+
+		assertSame(e1, get(cache, "a"));
+		put(cache, "c", 40);
+
+		assertSame(e1, get(cache, "a"));
+		assertNull(get(cache, "b"));
+		assertNotNull(get(cache, "c"));
+		assertNull(cache.getFallback(e2.id));
+	}
+
+	@Test
+	public void testLargeEntry() {
+		WPaintCache cache = new WPaintCache(100);
+		put(cache, "a", 40);
+
+		WPaintCache.Entry large = put(cache, "b", 1000);
+		assertSame(large, get(cache, "b"));
+		assertNull(get(cache, "a"));
+		assertEquals(1, cache.getCount());
+	}
+
+	@Test
+	public void testChart() {
+		WPaintCache cache = new WPaintCache();
+		cache.setInternalPath("/paint");
+
+		String url1 = renderChart(cache);
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getCount());
+		assertTrue(url1.startsWith("/paint?entry="));
+
+		String url2 = renderChart(cache);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(url1, url2);
+	}
+
+	@Test
+	public void testFallback() {
+		WPaintCache cache = new WPaintCache();
+		cache.setInternalPath("/paint");
+
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		WCartesianChart chart = createChart(cache, app);
+
+		String url = getImageUrl(chart);
+		String id = url.substring(url.indexOf('=') + 1);
+		cache.clear();
+
+		WResource fallback = cache.getFallback(id);
+		assertNotNull(fallback);
+		assertTrue(fallback instanceof WRasterPaintDevice);
+		assertNotNull(((WRasterPaintDevice) fallback).getEncodedData());
+
+		chart.setPaintCacheKey("cubes");
+		chart.update();
+		getImageUrl(chart);
+		assertNull(cache.getFallback(id));
+
+		env.close();
+	}
+
+	private static WPaintCache.Entry put(WPaintCache cache, String key, int size) {
+		return cache.put(key, 10, 10, WWidgetPainter.RenderType.PngImage, null, null, new byte[size], "image/png");
+	}
+
+	private static WPaintCache.Entry get(WPaintCache cache, String key) {
+		return cache.get(key, 10, 10, WWidgetPainter.RenderType.PngImage);
+	}
+
+	private static String renderChart(WPaintCache cache) {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+		WCartesianChart chart = createChart(cache, app);
+		String result = getImageUrl(chart);
+		env.close();
+		return result;
+	}
+
+	private static WCartesianChart createChart(WPaintCache cache, WApplication app) {
+		WStandardItemModel model = new WStandardItemModel(5, 2);
+		for (int i = 0; i < 5; ++i) {
+			model.setData(i, 0, i);
+			model.setData(i, 1, i * i);
+		}
+
+		WCartesianChart chart = new WCartesianChart(app.getRoot());
+		chart.setModel(model);
+		chart.setXSeriesColumn(0);
+		chart.addSeries(new eu.webtoolkit.jwt.chart.WDataSeries(1));
+		chart.setPreferredMethod(WPaintedWidget.Method.PngImage);
+		chart.resize(new WLength(300), new WLength(200));
+		chart.setPaintCache(cache);
+		chart.setPaintCacheKey("squares");
+
+		return chart;
+	}
+
+	private static String getImageUrl(WPaintedWidget widget) {
+		DomElement e = widget.createSDomElement(WApplication.getInstance());
+		StringBuilder html = new StringBuilder();
+		e.asHTML(new EscapeOStream(html), new EscapeOStream(), new java.util.ArrayList<DomElement.TimeoutEvent>());
+		String s = html.toString();
+		int i = s.indexOf("src=\"") + 5;
+		return s.substring(i, s.indexOf('"', i)).replace("&amp;", "&");
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import com.pdfjet.A4;
+import com.pdfjet.PDF;
+import com.pdfjet.Page;
+
+public class WPdfImageTest {
+	@Test
+	public void testMeasureText() throws Exception {
+		PDF pdf = new PDF(new ByteArrayOutputStream());
+		WPdfImage page1 = new WPdfImage(pdf, new Page(pdf, A4.PORTRAIT), 0, 0, 400, 400);
+		WPdfImage page2 = new WPdfImage(pdf, new Page(pdf, A4.PORTRAIT), 0, 0, 400, 400);
+
+		double w10 = measure(page1, 10, "Hello, world");
+		assertTrue(w10 > 0);
+		assertEquals(w10, measure(page1, 10, "Hello, world"), 1E-3);
+		assertEquals(2 * w10, measure(page1, 20, "Hello, world"), 1E-3);
+		assertEquals(w10, measure(page2, 10, "Hello, world"), 1E-3);
+		assertEquals(measure(page2, 10, "Hello, world!"), measure(page1, 10, "Hello, world!"), 1E-3);
+		assertTrue(measure(page1, 10, "Hello, world!") > w10);
+	}
+
+	private static double measure(WPdfImage image, double size, String text) {
+		WPainter painter = new WPainter(image);
+		try {
+			WFont font = new WFont(WFont.GenericFamily.SansSerif);
+			font.setSize(new WLength(size));
+			painter.setFont(font);
+			return image.measureText(text).getWidth();
+		} finally {
+			painter.end();
+		}
+	}
+}
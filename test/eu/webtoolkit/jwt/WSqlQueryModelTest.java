@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+public class WSqlQueryModelTest {
+	private static final String QUERY = "SELECT id, name FROM t";
+
+	@Test
+	public void testPaging() throws Exception {
+		Database db = new Database(1000);
+		WSqlQueryModel model = new WSqlQueryModel(db.getDataSource(), QUERY);
+		model.setBlockSize(10);
+
+		assertEquals(2, model.getColumnCount());
+		assertEquals("name", model.getHeaderData(1));
+		assertEquals(1000, model.getRowCount());
+
+		assertEquals(25, model.getData(25, 0));
+		assertEquals("r0029", model.getData(29, 1));
+		assertEquals(1, db.getFetchCount(20));
+
+		/* The next block is prefetched */
+		db.waitForFetch(30);
+		assertEquals(35, model.getData(35, 0));
+		assertEquals(1, db.getFetchCount(30));
+
+		/* Scrolling up prefetches the previous block */
+		assertEquals(15, model.getData(15, 0));
+		db.waitForFetch(0);
+
+		assertEquals(999, model.getData(999, 0));
+		assertNull(model.getData(999, 0, ItemDataRole.DecorationRole));
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		Database db = new Database(1000);
+		WSqlQueryModel model = new WSqlQueryModel(db.getDataSource(), QUERY);
+		model.setBlockSize(10);
+		model.setCacheSize(3);
+
+		for (int block = 0; block < 5; ++block) {
+			assertEquals(block * 10, model.getData(block * 10, 0));
+			db.waitForFetch((block + 1) * 10);
+		}
+		for (int block = 0; block <= 5; ++block)
+			assertEquals(1, db.getFetchCount(block * 10));
+
+		/* The most recently used blocks are kept */
+		assertEquals(45, model.getData(45, 0));
+		assertEquals(1, db.getFetchCount(40));
+
+		/* The least recently used blocks were dropped */
+		assertEquals(5, model.getData(5, 0));
+		assertEquals(2, db.getFetchCount(0));
+	}
+
+	@Test
+	public void testFilterAndSort() throws Exception {
+		Database db = new Database(1000);
+		WSqlQueryModel model = new WSqlQueryModel(db.getDataSource(), QUERY);
+		model.setBlockSize(10);
+
+		assertEquals(0, model.getData(0, 0));
+		int fetches = db.getFetchCount(0);
+
+		model.setFilter("id >= ?", 500);
+		assertEquals(500, model.getRowCount());
+		assertEquals(500, model.getData(0, 0));
+		assertEquals(fetches + 1, db.getFetchCount(0));
+
+		model.sort(1, SortOrder.DescendingOrder);
+		assertEquals(500, model.getRowCount());
+		assertEquals(999, model.getData(0, 0));
+		assertEquals(990, model.getData(9, 0));
+		assertEquals(fetches + 2, db.getFetchCount(0));
+
+		model.setFilter(null);
+		assertEquals(1000, model.getRowCount());
+		assertEquals("r0999", model.getData(0, 1));
+		assertEquals(0, model.getData(999, 0));
+	}
+
+	@Test
+	public void testShutdownPrefetchService() throws Exception {
+		Database db = new Database(100);
+		WSqlQueryModel model = new WSqlQueryModel(db.getDataSource(), QUERY);
+		model.setBlockSize(10);
+
+		assertEquals(0, model.getData(0, 0));
+		db.waitForFetch(10);
+
+		WSqlQueryModel.shutdownPrefetchService();
+
+		assertEquals(50, model.getData(50, 0));
+		db.waitForFetch(60);
+	}
+
+	/*
+	 * A table with an id and a name column, which understands the statements
+	 * of WSqlQueryModel.
+	 */
+	static class Database {
+		private List<Object[]> rows = new ArrayList<Object[]>();
+		private Map<Integer, Integer> fetches = new HashMap<Integer, Integer>();
+
+		Database(int count) {
+			for (int i = 0; i < count; ++i)
+				rows.add(new Object[] { i, String.format("r%04d", i) });
+		}
+
+		synchronized int getFetchCount(int offset) {
+			Integer result = fetches.get(offset);
+			return result != null ? result : 0;
+		}
+
+		synchronized void waitForFetch(int offset) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (getFetchCount(offset) == 0) {
+				assertTrue("no fetch at " + offset, System.currentTimeMillis() < deadline);
+				wait(100);
+			}
+		}
+
+		private synchronized void fetched(int offset) {
+			fetches.put(offset, getFetchCount(offset) + 1);
+			notifyAll();
+		}
+
+		DataSource getDataSource() {
+			return (DataSource) proxy(DataSource.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					if (method.getName().equals("getConnection"))
+						return getConnection();
+					return null;
+				}
+			});
+		}
+
+		private Connection getConnection() {
+			return (Connection) proxy(Connection.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					if (method.getName().equals("prepareStatement"))
+						return prepareStatement((String) args[0]);
+					return null;
+				}
+			});
+		}
+
+		private PreparedStatement prepareStatement(final String sql) {
+			final Map<Integer, Object> parameters = new HashMap<Integer, Object>();
+
+			return (PreparedStatement) proxy(PreparedStatement.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					String name = method.getName();
+					if (name.equals("setInt") || name.equals("setObject"))
+						parameters.put((Integer) args[0], args[1]);
+					else if (name.equals("getMetaData"))
+						return getMetaData(2);
+					else if (name.equals("executeQuery"))
+						return execute(sql, parameters);
+					return null;
+				}
+			});
+		}
+
+		private ResultSet execute(String sql, Map<Integer, Object> parameters) {
+			List<Object[]> result = new ArrayList<Object[]>();
+			for (Object[] row : rows)
+				if (!sql.contains(" WHERE id >= ?") || (Integer) row[0] >= (Integer) parameters.get(1))
+					result.add(row);
+
+			if (sql.startsWith("SELECT COUNT(*)"))
+				return getResultSet(Collections.singletonList(new Object[] { result.size() }));
+
+			String orderBy = sql.substring(sql.indexOf(" ORDER BY ") + 10, sql.indexOf(" LIMIT "));
+			final int column = orderBy.charAt(0) - '1';
+			final int direction = orderBy.contains("DESC") ? -1 : 1;
+			Collections.sort(result, new Comparator<Object[]>() {
+				@SuppressWarnings("unchecked")
+				public int compare(Object[] r1, Object[] r2) {
+					return direction * ((Comparable<Object>) r1[column]).compareTo(r2[column]);
+				}
+			});
+
+			int count = parameters.size();
+			int limit = (Integer) parameters.get(count - 1);
+			int offset = (Integer) parameters.get(count);
+			fetched(offset);
+
+			return getResultSet(result.subList(Math.min(offset, result.size()), Math.min(offset + limit, result.size())));
+		}
+
+		private static ResultSet getResultSet(final List<Object[]> rows) {
+			final int[] current = { -1 };
+
+			return (ResultSet) proxy(ResultSet.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					String name = method.getName();
+					if (name.equals("next"))
+						return ++current[0] < rows.size();
+					else if (name.equals("getObject") || name.equals("getInt"))
+						return rows.get(current[0])[(Integer) args[0] - 1];
+					else if (name.equals("getMetaData"))
+						return getMetaData(rows.isEmpty() ? 0 : rows.get(0).length);
+					return null;
+				}
+			});
+		}
+
+		private static ResultSetMetaData getMetaData(final int columns) {
+			return (ResultSetMetaData) proxy(ResultSetMetaData.class, new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					String name = method.getName();
+					if (name.equals("getColumnCount"))
+						return columns;
+					else if (name.equals("getColumnLabel"))
+						return (Integer) args[0] == 1 ? "id" : "name";
+					return null;
+				}
+			});
+		}
+
+		private static Object proxy(Class<?> c, InvocationHandler handler) {
+			return Proxy.newProxyInstance(WSqlQueryModelTest.class.getClassLoader(), new Class<?>[] { c }, handler);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class WTableViewTest {
+	private static final Pattern CELL = Pattern.compile(">r([0-9]+)<");
+	private static final Pattern CHANGE = Pattern.compile("setHtml\\(\\w+,'([^']*Wt-tv-c[^']*)',(true|false)\\)"
+			+ "|\\.slice\\(([0-9]+),([0-9]+)\\)\\.remove\\(\\)"
+			+ "|\\.eq\\(([0-9]+)\\)\\.before\\('([^']*)'\\)"
+			+ "|\\.eq\\(([0-9]+)\\)\\.replaceWith\\('([^']*)'\\)");
+
+	@Test
+	public void testHtmlCellsScrolling() throws Exception {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+
+		WStandardItemModel model = new WStandardItemModel(1000, 1);
+		for (int i = 0; i < 1000; ++i)
+			model.setData(i, 0, "r" + i);
+
+		WTableView view = new WTableView(app.getRoot());
+		view.setModel(model);
+		view.resize(new WLength(400), new WLength(400));
+		((WItemDelegate) view.getItemDelegate()).setHtmlRendering(true);
+
+		List<Integer> client = new ArrayList<Integer>();
+		EscapeOStream html = new EscapeOStream();
+		app.domRoot_.createSDomElement(app).asHTML(html, new EscapeOStream(),
+				new ArrayList<DomElement.TimeoutEvent>());
+		addCells(client, 0, html.toString());
+		update(app);
+
+		String js = scroll(app, view, 0);
+		apply(client, js);
+		assertRendered(view, client);
+
+		/* Scrolling sends the new rows and removes the old ones */
+		int[] tops = { 400, 200, 1000, 600, 640, 1500, 1200 };
+		for (int top : tops) {
+			js = scroll(app, view, top);
+			int sent = apply(client, js);
+			assertRendered(view, client);
+			assertTrue(sent < client.size());
+			assertFalse(js.contains("',false)"));
+		}
+
+		/* A changed cell is replaced in place */
+		int row = (Integer) call(view, "getFirstRow") + 3;
+		model.setData(row, 0, "r" + (row + 1));
+		js = update(app);
+		assertEquals(1, apply(client, js));
+		assertTrue(js.contains(".eq(3).replaceWith("));
+		assertEquals(row + 1, (int) client.get(3));
+
+		env.close();
+	}
+
+	private static void assertRendered(WTableView view, List<Integer> client) throws Exception {
+		int first = (Integer) call(view, "getFirstRow");
+		int last = (Integer) call(view, "getLastRow");
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = first; i <= last; ++i)
+			expected.add(i);
+		assertEquals(expected, client);
+	}
+
+	/*
+	 * Applies the changes to the cells of the column to the rows rendered in
+	 * the browser, and returns the number of cells that were sent.
+	 */
+	private static int apply(List<Integer> client, String js) {
+		int sent = 0;
+		Matcher m = CHANGE.matcher(js);
+		while (m.find()) {
+			if (m.group(1) != null) {
+				if (m.group(2).equals("false"))
+					client.clear();
+				sent += addCells(client, client.size(), m.group(1));
+			} else if (m.group(3) != null)
+				client.subList(Integer.parseInt(m.group(3)), Integer.parseInt(m.group(4))).clear();
+			else if (m.group(5) != null)
+				sent += addCells(client, Integer.parseInt(m.group(5)), m.group(6));
+			else {
+				int i = Integer.parseInt(m.group(7));
+				client.remove(i);
+				sent += addCells(client, i, m.group(8));
+			}
+		}
+
+		return sent;
+	}
+
+	private static int addCells(List<Integer> client, int i, String html) {
+		Matcher m = CELL.matcher(html);
+		int count = 0;
+		while (m.find())
+			client.add(i + count++, Integer.parseInt(m.group(1)));
+
+		return count;
+	}
+
+	private static String scroll(WApplication app, WTableView view, int top) throws Exception {
+		Method m = WTableView.class.getDeclaredMethod("onViewportChange", int.class, int.class, int.class, int.class);
+		m.setAccessible(true);
+		m.invoke(view, 0, top, 400, 400);
+
+		return update(app);
+	}
+
+	private static String update(WApplication app) throws Exception {
+		StringBuilder result = new StringBuilder();
+		Method m = WebRenderer.class.getDeclaredMethod("collectJS", StringBuilder.class);
+		m.setAccessible(true);
+		m.invoke(app.getSession().getRenderer(), result);
+
+		return result.toString();
+	}
+
+	private static Object call(WTableView view, String method) throws Exception {
+		Method m = WTableView.class.getDeclaredMethod(method);
+		m.setAccessible(true);
+
+		return m.invoke(view);
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class WTreeViewRowIndexTest {
+	@Test
+	public void testNode() {
+		Random random = new Random(42);
+		int[] heights = new int[100];
+		for (int i = 0; i < heights.length; ++i)
+			heights[i] = 1 + random.nextInt(5);
+
+		WTreeViewRowIndex.Node node = new WTreeViewRowIndex.Node(heights);
+		checkNode(node, heights);
+
+		for (int i = 0; i < 50; ++i) {
+			int row = random.nextInt(heights.length);
+			int diff = random.nextInt(7) - 3;
+			if (heights[row] + diff < 1)
+				diff = 1 - heights[row];
+			heights[row] += diff;
+			node.add(row, diff);
+		}
+		checkNode(node, heights);
+	}
+
+	@Test
+	public void testSubTreeHeight() {
+		WTestEnvironment env = new WTestEnvironment(new Configuration());
+		WApplication app = new WApplication(env);
+
+		WStandardItemModel model = new WStandardItemModel();
+		for (int i = 0; i < 50; ++i) {
+			WStandardItem item = new WStandardItem("n" + i);
+			for (int j = 0; j < 10; ++j) {
+				WStandardItem child = new WStandardItem("n" + i + "." + j);
+				for (int k = 0; k < j % 3; ++k)
+					child.appendRow(new WStandardItem("n" + i + "." + j + "." + k));
+				item.appendRow(child);
+			}
+			model.appendRow(item);
+		}
+
+		WTreeView view = new WTreeView(app.getRoot());
+		view.setModel(model);
+		view.resize(new WLength(400), new WLength(400));
+		app.domRoot_.createSDomElement(app);
+		check(view);
+
+		for (int i = 0; i < 50; i += 3) {
+			view.expand(model.getIndex(i, 0));
+			check(view);
+		}
+		assertEquals(50 + 17 * 10, view.subTreeHeight(view.getRootIndex()));
+
+		WModelIndex n3 = model.getIndex(3, 0);
+		view.expand(model.getIndex(2, 0, n3));
+		view.expand(model.getIndex(5, 0, n3));
+		check(view);
+
+		/* Collapsing a node keeps the state of its expanded descendants */
+		view.collapse(n3);
+		check(view);
+		view.expand(n3);
+		check(view);
+
+		model.getItem(3).insertRow(0, new WStandardItem("new"));
+		check(view);
+		model.getItem(3).removeRows(2, 4);
+		check(view);
+		model.removeRows(0, 2);
+		check(view);
+
+		view.expandToDepth(3);
+		check(view);
+
+		env.close();
+	}
+
+	private static void checkNode(WTreeViewRowIndex.Node node, int[] heights) {
+		int total = 0;
+		for (int i = 0; i < heights.length; ++i) {
+			assertEquals(total, node.getPrefix(i));
+			assertEquals(heights[i], node.getHeight(i));
+			for (int j = 0; j < heights[i]; ++j)
+				assertEquals(i, node.find(total + j));
+			total += heights[i];
+		}
+		assertEquals(total, node.getTotal());
+		assertEquals(heights.length, node.find(total));
+	}
+
+	/*
+	 * Compares the index maintained by the view, and a newly built index,
+	 * with the rows counted by visiting the tree.
+	 */
+	private static void check(WTreeView view) {
+		WTreeViewRowIndex index = new WTreeViewRowIndex(view);
+		check(view, index, view.getRootIndex());
+	}
+
+	private static int check(WTreeView view, WTreeViewRowIndex index, WModelIndex parent) {
+		WAbstractItemModel model = view.getModel();
+		int rows = 0;
+		for (int i = 0; i < model.getRowCount(parent); ++i) {
+			assertEquals(rows, index.getRowsBefore(parent, i));
+			assertEquals(i, index.getChildAt(parent, rows));
+			WModelIndex child = model.getIndex(i, 0, parent);
+			int height = check(view, index, child);
+			if (!view.isExpanded(child))
+				height = 1;
+			assertEquals(height, view.subTreeHeight(child));
+			assertEquals(height, index.subTreeHeight(child));
+			rows += height;
+		}
+		assertEquals(rows, index.getChildrenHeight(parent));
+
+		return parent == view.getRootIndex() ? rows : rows + 1;
+	}
+}
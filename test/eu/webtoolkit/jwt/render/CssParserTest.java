@@ -0,0 +1,66 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CssParserTest {
+	@Test
+	public void testParseCached() {
+		CssParser parser = new CssParser();
+
+		StyleSheet s = parser.parseCached("h1 { color: green } h1 h2, h1 h3 { color: red }");
+		assertNotNull(s);
+		assertEquals(3, s.getRulesetSize());
+		assertSame(s, new CssParser().parseCached("h1 { color: green } h1 h2, h1 h3 { color: red }"));
+		assertTrue(parser.getLastError().isEmpty());
+
+		assertNotSame(s, parser.parseCached("h1 { color: blue } h1 h2, h1 h3 { color: red }"));
+
+		assertNull(parser.parseCached("h1 h2 h3 & h4 {inside: ok}"));
+		assertFalse(parser.getLastError().isEmpty());
+		assertNull(parser.parseCached("h1 h2 h3 & h4 {inside: ok}"));
+	}
+
+	@Test
+	public void testConcurrentParse() throws Exception {
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int t = 0; t < 4; ++t) {
+			final int n = t + 1;
+			Thread thread = new Thread() {
+				public void run() {
+					try {
+						StringBuilder css = new StringBuilder();
+						for (int i = 0; i < n * 10; ++i)
+							css.append("h").append(n).append(" .c").append(i).append(", p { color: red }\n");
+
+						for (int i = 0; i < 50; ++i) {
+							StyleSheet s = new CssParser().parse(css);
+							assertNotNull(s);
+							assertEquals(n * 20, s.getRulesetSize());
+							assertEquals(2, s.rulesetAt(0).getSelector().getSize());
+							assertEquals(1, s.rulesetAt(1).getSelector().getSize());
+						}
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads)
+			thread.join();
+
+		if (!errors.isEmpty())
+			throw new AssertionError(errors.get(0));
+	}
+}
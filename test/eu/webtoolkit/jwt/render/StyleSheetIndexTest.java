@@ -0,0 +1,90 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.Property;
+
+public class StyleSheetIndexTest {
+	private static final String CSS =
+		"* { color: black }\n"
+		+ "p { color: green; margin-top: 1px }\n"
+		+ ".note { color: blue }\n"
+		+ "div .note { margin-top: 2px }\n"
+		+ "#first { color: red }\n"
+		+ "span { color: yellow }\n"
+		+ "p.note.other { margin-top: 3px }\n";
+
+	@Test
+	public void testCandidates() {
+		StyleSheet styleSheet = new CssParser().parse(CSS);
+		assertNotNull(styleSheet);
+		StyleSheetIndex index = new StyleSheetIndex(styleSheet);
+
+		Block doc = createDocument();
+		assertEquals(list(0, 1, 4), index.getCandidates(find(doc, "first")));
+		assertEquals(list(0, 1, 2, 3, 6), index.getCandidates(find(doc, "second")));
+		assertEquals(list(0, 5), index.getCandidates(find(doc, "third")));
+
+		assertEquals("color: blue", join(index.getDeclarations(2)));
+		assertSame(index.getDeclarations(2), index.getDeclarations(2));
+	}
+
+	@Test
+	public void testCascade() {
+		Block doc = createDocument();
+		doc.setStyleSheet(new CssParser().parse(CSS));
+
+		Block first = find(doc, "first");
+		assertEquals("red", first.cssProperty(Property.PropertyStyleColor));
+		assertEquals("1px", first.cssProperty(Property.PropertyStyleMarginTop));
+
+		Block second = find(doc, "second");
+		assertEquals("blue", second.cssProperty(Property.PropertyStyleColor));
+		assertEquals("3px", second.cssProperty(Property.PropertyStyleMarginTop));
+
+		Block third = find(doc, "third");
+		assertEquals("purple", third.cssProperty(Property.PropertyStyleColor));
+		assertEquals("", third.cssProperty(Property.PropertyStyleMarginTop));
+
+		/* Styles are recomputed when the style sheet changes */
+		doc.setStyleSheet(new CssParser().parse("p { color: white }"));
+		assertEquals("white", first.cssProperty(Property.PropertyStyleColor));
+		assertEquals("", first.cssProperty(Property.PropertyStyleMarginTop));
+	}
+
+	private static Block createDocument() {
+		return new Block(RenderUtils.parseXHTML(
+			"<div><p id=\"first\">One</p>"
+			+ "<p id=\"second\" class=\"note other\">Two</p>"
+			+ "<span id=\"third\" style=\"color: purple\">Three</span></div>"), null);
+	}
+
+	private static Block find(Block block, String id) {
+		if (id.equals(block.getId()))
+			return block;
+		for (Block child : block.getChildren()) {
+			Block result = find(child, id);
+			if (result != null)
+				return result;
+		}
+		return null;
+	}
+
+	private static String join(List<String[]> declarations) {
+		StringBuilder result = new StringBuilder();
+		for (String[] d : declarations) {
+			if (result.length() != 0)
+				result.append("; ");
+			result.append(d[0]).append(": ").append(d[1]);
+		}
+		return result.toString();
+	}
+
+	private static List<Integer> list(Integer... values) {
+		return java.util.Arrays.asList(values);
+	}
+}
@@ -0,0 +1,175 @@
+package eu.webtoolkit.jwt.render;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.pdfjet.A4;
+import com.pdfjet.PDF;
+import com.pdfjet.Page;
+
+import eu.webtoolkit.jwt.WException;
+import eu.webtoolkit.jwt.WPaintDevice;
+import eu.webtoolkit.jwt.WPainter;
+
+public class WTextRendererTest {
+	/*
+	 * Records the layout of the painted nodes, and the order in which pages
+	 * are ended and nodes are painted.
+	 */
+	private static class RecordingRenderer extends WPdfRenderer {
+		List<String> events = new ArrayList<String>();
+		int pagesEnded = 0;
+		RuntimeException layoutFailure;
+
+		RecordingRenderer() throws Exception {
+			this(new PDF(new ByteArrayOutputStream()));
+		}
+
+		private RecordingRenderer(PDF pdf) throws Exception {
+			super(pdf, new Page(pdf, A4.PORTRAIT));
+			setMargin(2.54);
+			setDpi(96);
+		}
+
+		@Override
+		public void paintNode(WPainter painter, WTextRenderer.Node node) {
+			events.add(String.format(java.util.Locale.US, "%s page %d (%.2f, %.2f) %.2fx%.2f", node.getType(),
+					node.getPage(), node.getX(), node.getY(), node.getWidth(), node.getHeight()));
+			super.paintNode(painter, node);
+		}
+
+		@Override
+		public double textWidth(int page) {
+			if (layoutFailure != null)
+				throw layoutFailure;
+			return super.textWidth(page);
+		}
+
+		@Override
+		public void endPage(WPaintDevice device) {
+			events.add("end page " + pagesEnded++);
+			super.endPage(device);
+		}
+	}
+
+	@Test
+	public void testRenderFragments() throws Exception {
+		List<String> fragments = createFragments(40);
+
+		StringBuilder document = new StringBuilder();
+		for (String f : fragments)
+			document.append(f);
+
+		RecordingRenderer whole = new RecordingRenderer();
+		double y = whole.render("<div>" + document + "</div>");
+
+		RecordingRenderer streamed = new RecordingRenderer();
+		streamed.beginRender();
+		int pagesEndedBeforeLast = 0;
+		for (int i = 0; i < fragments.size(); ++i) {
+			if (i == fragments.size() - 1)
+				pagesEndedBeforeLast = streamed.pagesEnded;
+			streamed.renderFragment(fragments.get(i));
+		}
+		double streamedY = streamed.endRender();
+
+		assertTrue(whole.pagesEnded > 2);
+		assertEquals(whole.pagesEnded, streamed.pagesEnded);
+		assertTrue(pagesEndedBeforeLast >= whole.pagesEnded - 2);
+		assertEquals(y, streamedY, 1E-6);
+
+		/* Fragments are wrapped in a <div> of their own */
+		assertEquals(sorted(getNodes(whole.events)), sorted(getNodes(streamed.events)));
+
+		/* Pages are painted and ended in order */
+		int page = 0;
+		for (String e : streamed.events) {
+			if (e.startsWith("end page"))
+				++page;
+			else
+				assertTrue(e, e.contains(" page " + page + " "));
+		}
+	}
+
+	@Test
+	public void testNotRendering() throws Exception {
+		RecordingRenderer renderer = new RecordingRenderer();
+		try {
+			renderer.renderFragment("<p>Text</p>");
+			fail();
+		} catch (WException e) {
+		}
+
+		renderer.beginRender();
+		try {
+			renderer.beginRender();
+			fail();
+		} catch (WException e) {
+		}
+		renderer.endRender();
+
+		try {
+			renderer.endRender();
+			fail();
+		} catch (WException e) {
+		}
+	}
+
+	@Test
+	public void testFailedFragment() throws Exception {
+		RecordingRenderer renderer = new RecordingRenderer();
+		renderer.beginRender();
+		renderer.layoutFailure = new IllegalStateException();
+		try {
+			renderer.renderFragment("<p>Text</p>");
+			fail();
+		} catch (IllegalStateException e) {
+		}
+		renderer.layoutFailure = null;
+
+		/* The document is aborted, and another one can be started */
+		try {
+			renderer.endRender();
+			fail();
+		} catch (WException e) {
+		}
+		renderer.beginRender();
+		renderer.renderFragment("<p>Text</p>");
+		renderer.endRender();
+	}
+
+	private static List<String> createFragments(int count) {
+		List<String> result = new ArrayList<String>();
+		for (int i = 0; i < count; ++i) {
+			StringBuilder f = new StringBuilder();
+			f.append("<h2>Section ").append(i).append("</h2>")
+				.append("<p>Paragraph ").append(i).append(" with some text that is long enough to wrap over ")
+				.append("more than a single line of the page, so that line breaking is exercised.</p>")
+				.append("<table border=\"1\">");
+			for (int r = 0; r < 5; ++r)
+				f.append("<tr><td>Row ").append(r).append("</td><td>").append(i * r).append("</td></tr>");
+			f.append("</table>");
+			result.add(f.toString());
+		}
+		return result;
+	}
+
+	private static List<String> getNodes(List<String> events) {
+		List<String> result = new ArrayList<String>();
+		for (String e : events)
+			if (!e.startsWith("end page") && !e.startsWith("DomElement_DIV "))
+				result.add(e);
+		return result;
+	}
+
+	private static List<String> sorted(List<String> events) {
+		List<String> result = new ArrayList<String>(events);
+		java.util.Collections.sort(result);
+		return result;
+	}
+}
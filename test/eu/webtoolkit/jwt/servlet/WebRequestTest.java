@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2009 Emweb bvba, Leuven, Belgium.
+ *
+ * See the LICENSE file for terms of use.
+ */
+package eu.webtoolkit.jwt.servlet;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+import eu.webtoolkit.jwt.Configuration;
+
+public class WebRequestTest {
+	private static final String BOUNDARY = "----jwtboundary";
+
+	@Test
+	public void testMultipart() throws IOException {
+		byte[] data = createData(100 * 1024);
+		byte[] body = createBody(data);
+
+		final List<Long> progress = new ArrayList<Long>();
+		WebRequest request = new WebRequest(createRequest(body), new WebRequest.ProgressListener() {
+			public void update(WebRequest request, long current, long total) {
+				progress.add(current);
+			}
+		}, new Configuration());
+
+		assertEquals(0, request.postDataExceeded());
+		assertEquals("h\u00e9llo", request.getParameter("text"));
+		assertEquals(2, request.getParameterValues("multi").length);
+
+		List<UploadedFile> files = request.getUploadedFiles().get("file");
+		assertEquals(1, files.size());
+		UploadedFile f = files.get(0);
+		assertEquals("data.bin", f.getClientFileName());
+		assertEquals("application/octet-stream", f.getContentType());
+
+		File spool = new File(f.getSpoolFileName());
+		try {
+			assertEquals(data.length, spool.length());
+			assertTrue(java.util.Arrays.equals(data, read(spool)));
+		} finally {
+			spool.delete();
+		}
+
+		/* Progress is throttled, but the final update is always reported */
+		assertFalse(progress.isEmpty());
+		assertTrue(progress.size() < body.length / 4096);
+		assertEquals((long) body.length, (long) progress.get(progress.size() - 1));
+	}
+
+	@Test
+	public void testRequestTooLarge() throws IOException {
+		byte[] body = createBody(createData(100 * 1024));
+
+		Configuration configuration = new Configuration();
+		configuration.setMaximumRequestSize(10 * 1024);
+		WebRequest request = new WebRequest(createRequest(body), null, configuration);
+
+		assertTrue(request.postDataExceeded() > 10 * 1024);
+		assertTrue(request.getUploadedFiles().isEmpty());
+	}
+
+	private static byte[] createData(int size) {
+		byte[] result = new byte[size];
+		for (int i = 0; i < size; ++i)
+			result[i] = (byte) (i * 31);
+		return result;
+	}
+
+	private static byte[] createBody(byte[] data) throws IOException {
+		java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+		writePart(out, "form-data; name=\"text\"", "text/plain; charset=UTF-8", "h\u00e9llo".getBytes("UTF-8"));
+		writePart(out, "form-data; name=\"multi\"", null, "1".getBytes("UTF-8"));
+		writePart(out, "form-data; name=\"multi\"", null, "2".getBytes("UTF-8"));
+		writePart(out, "form-data; name=\"file\"; filename=\"data.bin\"", "application/octet-stream", data);
+		out.write(("--" + BOUNDARY + "--\r\n").getBytes("UTF-8"));
+		return out.toByteArray();
+	}
+
+	private static void writePart(java.io.OutputStream out, String disposition, String contentType, byte[] data)
+			throws IOException {
+		StringBuilder header = new StringBuilder();
+		header.append("--").append(BOUNDARY).append("\r\n");
+		header.append("Content-Disposition: ").append(disposition).append("\r\n");
+		if (contentType != null)
+			header.append("Content-Type: ").append(contentType).append("\r\n");
+		header.append("\r\n");
+		out.write(header.toString().getBytes("UTF-8"));
+		out.write(data);
+		out.write("\r\n".getBytes("UTF-8"));
+	}
+
+	private static HttpServletRequest createRequest(final byte[] body) {
+		final InputStream in = new ByteArrayInputStream(body);
+		final ServletInputStream sin = new ServletInputStream() {
+			@Override
+			public int read() throws IOException {
+				return in.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return in.read(b, off, Math.min(len, 1024));
+			}
+		};
+
+		return (HttpServletRequest) Proxy.newProxyInstance(WebRequestTest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						String name = method.getName();
+						if (name.equals("getMethod"))
+							return "POST";
+						else if (name.equals("getContentType") || name.equals("getHeader")
+								&& "Content-Type".equalsIgnoreCase((String) args[0]))
+							return "multipart/form-data; boundary=" + BOUNDARY;
+						else if (name.equals("getContentLength"))
+							return body.length;
+						else if (name.equals("getInputStream"))
+							return sin;
+						else if (name.equals("getParameterMap"))
+							return new HashMap<String, String[]>();
+						else if (name.equals("getServletPath") || name.equals("getContextPath"))
+							return "";
+						else if (name.equals("getRequestURI"))
+							return "/app";
+						else if (method.getReturnType() == boolean.class)
+							return false;
+						else if (method.getReturnType() == int.class)
+							return 0;
+						else if (method.getReturnType() == long.class)
+							return 0L;
+						else
+							return null;
+					}
+				});
+	}
+
+	private static byte[] read(File f) throws IOException {
+		byte[] result = new byte[(int) f.length()];
+		FileInputStream in = new FileInputStream(f);
+		try {
+			int n = 0;
+			while (n < result.length)
+				n += in.read(result, n, result.length - n);
+		} finally {
+			in.close();
+		}
+		return result;
+	}
+}
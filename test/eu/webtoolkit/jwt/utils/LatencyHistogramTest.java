@@ -0,0 +1,101 @@
+package eu.webtoolkit.jwt.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getMeanMillis(), 0);
+		assertEquals(0, histogram.getMaxMillis(), 0);
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		/* 1 to 1000 ms */
+		for (int i = 1; i <= 1000; ++i)
+			histogram.record(i * 1000000L);
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500.5, histogram.getMeanMillis(), 1E-9);
+		assertEquals(1000, histogram.getMaxMillis(), 0);
+
+		/* Percentiles are accurate to within the width of a bucket */
+		assertEquals(500, histogram.get50thPercentileMillis(), 500 * 0.035);
+		assertEquals(900, histogram.get90thPercentileMillis(), 900 * 0.035);
+		assertEquals(990, histogram.get99thPercentileMillis(), 990 * 0.035);
+		assertEquals(999, histogram.get999thPercentileMillis(), 999 * 0.035);
+		assertEquals(1000000000L, histogram.getPercentile(100), 1000000000L * 0.035);
+		assertTrue(histogram.getPercentile(100) <= 1000000000L);
+		assertEquals(1, histogram.getPercentile(0) / 1E6, 0.035);
+	}
+
+	@Test
+	public void testSmallValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		/* Values below 32 ns are counted exactly */
+		for (int i = 0; i < 32; ++i)
+			histogram.record(i);
+		assertEquals(15, histogram.getPercentile(50));
+		assertEquals(31, histogram.getPercentile(100));
+
+		/* Negative durations are counted as 0 */
+		histogram.reset();
+		histogram.record(-5);
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50));
+	}
+
+	@Test
+	public void testLargeValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(3600L * 1000000000L);
+
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100), Long.MAX_VALUE * 0.035);
+		assertEquals(3600L * 1000000000L, histogram.getPercentile(50), 3600L * 1000000000L * 0.035);
+	}
+
+	@Test
+	public void testReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(99));
+		assertEquals(0, histogram.getMaxMillis(), 0);
+
+		histogram.record(2000);
+		assertEquals(2000, histogram.getPercentile(50), 2000 * 0.035);
+	}
+
+	@Test
+	public void testConcurrentRecord() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; ++i) {
+			final int t = i;
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 10000; ++j)
+						histogram.record(t * 10000 + j);
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread t : threads)
+			t.join();
+
+		assertEquals(threads.length * 10000, histogram.getCount());
+		assertEquals((threads.length * 10000 - 1) / 1E6, histogram.getMaxMillis(), 0);
+		assertEquals((threads.length * 10000 - 1) / 2E6, histogram.getMeanMillis(), 1E-9);
+	}
+}
@@ -0,0 +1,100 @@
+package eu.webtoolkit.jwt.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class MathUtilsTest {
+	private static final String ID_CHARS = "0123456789"
+			+ "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+			+ "abcdefghijklmnopqrstuvwxyz";
+
+	@Test
+	public void testRandomId() {
+		assertEquals(16, MathUtils.randomId().length());
+		assertEquals(0, MathUtils.randomId(0).length());
+
+		int[] counts = new int[ID_CHARS.length()];
+		int n = 0;
+		Set<String> ids = new HashSet<String>();
+		for (int i = 0; i < 2000; ++i) {
+			String id = MathUtils.randomId(31);
+			assertEquals(31, id.length());
+			assertTrue(ids.add(id));
+			for (int j = 0; j < id.length(); ++j) {
+				int c = ID_CHARS.indexOf(id.charAt(j));
+				assertTrue(c >= 0);
+				++counts[c];
+				++n;
+			}
+		}
+
+		/* Every character is about equally likely */
+		double expected = (double) n / counts.length;
+		for (int count : counts)
+			assertEquals(expected, count, expected * 0.2);
+	}
+
+	@Test
+	public void testRandomInt() {
+		int[] counts = new int[7];
+		for (int i = 0; i < 7000; ++i)
+			++counts[MathUtils.randomInt(7)];
+		for (int count : counts)
+			assertEquals(1000, count, 200);
+
+		for (int i = 0; i < 100; ++i)
+			assertEquals(0, MathUtils.randomInt(1));
+
+		for (int i = 0; i < 1000; ++i) {
+			int v = MathUtils.randomInt(Integer.MAX_VALUE);
+			assertTrue(v >= 0);
+		}
+
+		try {
+			MathUtils.randomInt(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testRandomBytes() {
+		/* Small arrays are taken from the buffer, large ones directly */
+		for (int length : new int[] { 1, 16, 255, 256, 257, 4096 }) {
+			byte[] b1 = new byte[length];
+			byte[] b2 = new byte[length];
+			MathUtils.randomBytes(b1);
+			MathUtils.randomBytes(b2);
+
+			int equal = 0;
+			for (int i = 0; i < length; ++i)
+				if (b1[i] == b2[i])
+					++equal;
+			assertTrue(equal <= length / 16 + 2);
+		}
+	}
+
+	@Test
+	public void testConcurrentIds() throws Exception {
+		final Set<String> ids = Collections.synchronizedSet(new HashSet<String>());
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; ++i) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 1000; ++j)
+						ids.add(MathUtils.randomId());
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread t : threads)
+			t.join();
+
+		assertEquals(threads.length * 1000, ids.size());
+	}
+}
@@ -0,0 +1,69 @@
+package eu.webtoolkit.jwt.utils;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class PngEncoderTest {
+	@Test
+	public void testEncode() throws Exception {
+		BufferedImage image = createImage(97, 61);
+		assertImageEquals(image, decode(new PngEncoder().encode(image)));
+	}
+
+	@Test
+	public void testParallelEncode() throws Exception {
+		BufferedImage image = createImage(300, 500);
+		PngEncoder encoder = new PngEncoder(6, 1000);
+		assertImageEquals(image, decode(encoder.encode(image)));
+	}
+
+	@Test
+	public void testCompressionLevels() throws Exception {
+		BufferedImage image = createImage(64, 64);
+		for (int level = 0; level <= 9; ++level) {
+			PngEncoder encoder = new PngEncoder();
+			encoder.setCompressionLevel(level);
+			assertImageEquals(image, decode(encoder.encode(image)));
+		}
+	}
+
+	private static BufferedImage createImage(int width, int height) {
+		BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(42);
+		for (int y = 0; y < height; ++y)
+			for (int x = 0; x < width; ++x) {
+				int argb;
+				if (y % 3 == 0)
+					argb = random.nextInt();
+				else
+					argb = 0xff000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8;
+				result.setRGB(x, y, argb);
+			}
+		return result;
+	}
+
+	private static BufferedImage decode(byte[] png) throws Exception {
+		BufferedImage result = ImageIO.read(new ByteArrayInputStream(png));
+		assertNotNull(result);
+		return result;
+	}
+
+	private static void assertImageEquals(BufferedImage expected, BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for (int y = 0; y < expected.getHeight(); ++y)
+			for (int x = 0; x < expected.getWidth(); ++x) {
+				int e = expected.getRGB(x, y), a = actual.getRGB(x, y);
+				if ((e >>> 24) == 0 && (a >>> 24) == 0)
+					continue;
+				assertEquals("pixel (" + x + ", " + y + ")", e, a);
+			}
+	}
+}